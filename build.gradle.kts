@@ -1,5 +1,7 @@
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
+import javax.inject.Inject
+import org.gradle.process.ExecOperations
 
 
 plugins {
@@ -10,6 +12,8 @@ plugins {
 
 group = "plus.wcj.jetbrains.plugins"
 
+val intellijPlatformVersion = "2022.3"
+
 version = run {
     LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy.M.d.1HHmmss"))
 }
@@ -29,13 +33,15 @@ repositories {
 dependencies {
     intellijPlatform {
 //        intellijIdea("2025.2.4")
-        intellijIdea("2022.3")
+        intellijIdea(intellijPlatformVersion)
         testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
 
         // Java PSI is required for control-flow extraction
         bundledPlugin("com.intellij.java")
     }
     implementation(kotlin("stdlib"))
+    // reads jacoco.exec files for the coverage overlay
+    implementation("org.jacoco:org.jacoco.core:0.8.12")
     compileOnly("org.projectlombok:lombok:1.18.32")
     annotationProcessor("org.projectlombok:lombok:1.18.32")
     testCompileOnly("org.projectlombok:lombok:1.18.32")
@@ -63,3 +69,132 @@ kotlin {
         jvmTarget.set(org.jetbrains.kotlin.gradle.dsl.JvmTarget.JVM_17)
     }
 }
+
+/**
+ * Writes the flowcharts of every method in [sources] to [outputDirectory] by running the plugin's headless
+ * `java2flowchart` starter in the IDE the plugin is built against. The sources, the serialized
+ * `Java2FlowchartSettings.State` with the profile and coverage files it names, the plugin's classes, the IDE version
+ * and the JDK version are the only inputs, so unchanged modules are up to date or restored from the build cache
+ * without starting the IDE.
+ */
+@CacheableTask
+abstract class GenerateFlowchartsTask @Inject constructor(private val execOperations: ExecOperations) : DefaultTask() {
+    @get:InputFiles
+    @get:SkipWhenEmpty
+    @get:IgnoreEmptyDirectories
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val sources: ConfigurableFileCollection
+
+    /** A serialized `Java2FlowchartSettings.State`, such as the IDE's `options/java2flowchart.xml`; defaults if unset. */
+    @get:Optional
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val settingsFile: RegularFileProperty
+
+    /** Profile, coverage data and coverage class directories named by [settingsFile]. */
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val settingsInputs: ConfigurableFileCollection
+
+    @get:Classpath
+    abstract val generatorClasspath: ConfigurableFileCollection
+
+    @get:Input
+    abstract val platformVersion: Property<String>
+
+    /** The import gives the analyzed project this JDK, which decides how library calls resolve. */
+    @get:Input
+    abstract val javaVersion: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    @get:Internal
+    abstract val projectDirectory: DirectoryProperty
+
+    @get:Internal
+    abstract val platformDirectory: DirectoryProperty
+
+    @get:Internal
+    abstract val sandboxPluginsDirectory: DirectoryProperty
+
+    /** Config, system and log directories of the headless IDE, kept apart from `runIde` so both can run at once. */
+    @get:LocalState
+    abstract val ideDirectory: DirectoryProperty
+
+    companion object {
+        /** The `value` of every `<option name=".." value=".."/>` in a serialized settings file. */
+        fun options(xml: String): Map<String, String> {
+            val document = javax.xml.parsers.DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(org.xml.sax.InputSource(xml.reader()))
+            val options = document.getElementsByTagName("option")
+            return (0 until options.length).map { options.item(it) as org.w3c.dom.Element }
+                .filter { it.hasAttribute("value") }
+                .associate { it.getAttribute("name") to it.getAttribute("value") }
+        }
+    }
+
+    @TaskAction
+    fun generate() {
+        val output = outputDirectory.get().asFile
+        output.deleteRecursively()
+        output.mkdirs()
+        val ide = ideDirectory.get().asFile
+        ide.mkdirs()
+        val properties = ide.resolve("idea.properties")
+        properties.writeText(
+            """
+            idea.config.path=${ide.resolve("config").invariantSeparatorsPath}
+            idea.system.path=${ide.resolve("system").invariantSeparatorsPath}
+            idea.log.path=${ide.resolve("log").invariantSeparatorsPath}
+            idea.plugins.path=${sandboxPluginsDirectory.get().asFile.invariantSeparatorsPath}
+            """.trimIndent()
+        )
+        val home = platformDirectory.get().asFile
+        val windows = System.getProperty("os.name").startsWith("Windows")
+        val launcher = (if (windows) listOf("bin/idea.bat") else listOf("bin/idea.sh", "Contents/bin/idea.sh"))
+            .map(home::resolve)
+            .firstOrNull(File::isFile)
+            ?: throw GradleException("No IDE launcher found in $home")
+        val arguments = mutableListOf(launcher.absolutePath, "java2flowchart",
+            projectDirectory.get().asFile.absolutePath, "--out", output.absolutePath)
+        if (settingsFile.isPresent) {
+            arguments += listOf("--settings", settingsFile.get().asFile.absolutePath)
+        }
+        sources.files.filter(File::isDirectory).sorted().forEach { arguments += listOf("--source", it.absolutePath) }
+        execOperations.exec {
+            environment("IDEA_PROPERTIES", properties.absolutePath)
+            commandLine(arguments)
+        }
+    }
+}
+
+val generateFlowcharts by tasks.registering(GenerateFlowchartsTask::class) {
+    group = "documentation"
+    description = "Generates Java2Flowchart Markdown for the main Java sources with the headless generator."
+    dependsOn(tasks.prepareSandbox)
+    sources.from(sourceSets.main.map { it.java.srcDirs })
+    // optional settings, e.g. a copy of <IDE config>/options/java2flowchart.xml
+    val settingsXml = layout.projectDirectory.file("java2flowchart.xml")
+    val settingsText = providers.fileContents(settingsXml).asText
+    settingsFile.set(settingsText.map { settingsXml })
+    // the files the settings name are read by the IDE, so they are inputs too
+    val options = settingsText.map(GenerateFlowchartsTask::options).getOrElse(emptyMap())
+    listOf("profileFile", "coverageFile").mapNotNull { options[it]?.takeIf(String::isNotBlank) }.forEach { settingsInputs.from(it) }
+    if (!options["coverageFile"].isNullOrBlank()) {
+        val classes = options["coverageClasses"].orEmpty()
+        if (classes.isBlank()) {
+            settingsInputs.from(sourceSets.main.map { it.output.classesDirs })
+        } else {
+            settingsInputs.from(classes.split(File.pathSeparator).filter(String::isNotBlank))
+        }
+    }
+    generatorClasspath.from(sourceSets.main.map { it.runtimeClasspath })
+    platformVersion.set(intellijPlatformVersion)
+    javaVersion.set(javaToolchains.launcherFor(java.toolchain).map { it.metadata.javaRuntimeVersion })
+    projectDirectory.set(layout.projectDirectory)
+    platformDirectory.fileProvider(provider { intellijPlatform.platformPath.toFile() })
+    sandboxPluginsDirectory.fileProvider(tasks.prepareSandbox.map { it.destinationDir })
+    outputDirectory.set(layout.buildDirectory.dir("java2flowchart"))
+    ideDirectory.set(layout.buildDirectory.dir("java2flowchart-ide"))
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.export.NdjsonGraphExporter;
+import plus.wcj.jetbrains.plugins.java2flowchart.extract.FlowExtractor;
+import plus.wcj.jetbrains.plugins.java2flowchart.extract.JavaFlowExtractor;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.Language;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Exports the IR of every method in the current Java file as NDJSON, one record per method, to
+ * {@code Java2Flowchart/<package>/<Class>.ndjson}. Records are written as soon as each method is extracted.
+ */
+public class ExportFlowchartIrAction extends DumbAwareAction {
+    private static final String OUTPUT_DIR = "Java2Flowchart";
+    private final FlowExtractor extractor = new JavaFlowExtractor();
+    private final NdjsonGraphExporter exporter = new NdjsonGraphExporter();
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null && psiFile instanceof PsiJavaFile);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        Java2FlowchartSettings.State state = Java2FlowchartSettings.getInstance().getState();
+        Language language = state.getLanguage();
+        if (project == null || !(psiFile instanceof PsiJavaFile javaFile)) {
+            return;
+        }
+        String basePath = project.getBasePath();
+        if (basePath == null) {
+            notify(project, Java2FlowchartBundle.message("notify.no.basepath", language), NotificationType.ERROR);
+            return;
+        }
+        String pkg = ReadAction.compute(javaFile::getPackageName);
+        String pkgPath = pkg.isBlank() ? "default" : pkg.replace('.', '/');
+        String className = javaFile.getVirtualFile() != null
+                ? javaFile.getVirtualFile().getNameWithoutExtension()
+                : javaFile.getName().replaceFirst("\\.java$", "");
+        Path target = Path.of(basePath, OUTPUT_DIR, pkgPath, className + ".ndjson");
+        String display = OUTPUT_DIR + "/" + pkgPath + "/" + className + ".ndjson";
+
+        new Task.Backgroundable(project, Java2FlowchartBundle.message("export.ir.progress", language), true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<PsiMethod> methods = ReadAction.compute(() -> PsiTreeUtil.findChildrenOfType(javaFile, PsiMethod.class)
+                        .stream()
+                        .filter(m -> m.getBody() != null)
+                        .toList());
+                indicator.setIndeterminate(false);
+                try {
+                    extractor.preload(state, project);
+                    Files.createDirectories(target.getParent());
+                    try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                        for (int i = 0; i < methods.size(); i++) {
+                            indicator.checkCanceled();
+                            indicator.setFraction((double) i / methods.size());
+                            PsiMethod method = methods.get(i);
+                            String key = ReadAction.compute(() -> JavaFlowExtractor.methodKey(method));
+                            indicator.setText2(key);
+                            // non-blocking, so typing cancels and restarts the extraction instead of waiting for it
+                            ControlFlowGraph graph = ReadAction.nonBlocking(() -> extractor.extract(method, state))
+                                    .inSmartMode(project)
+                                    .executeSynchronously();
+                            exporter.write(key, graph, writer);
+                        }
+                    }
+                    LocalFileSystem.getInstance().refreshAndFindFileByNioFile(target);
+                    ExportFlowchartIrAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.generated", language, display), NotificationType.INFORMATION);
+                } catch (ProcessCanceledException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    ExportFlowchartIrAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.failed", language, ex.getMessage()), NotificationType.ERROR);
+                }
+            }
+        }.queue();
+    }
+
+    private void notify(Project project, String message, NotificationType type) {
+        Notification notification = NotificationGroupManager.getInstance()
+                .getNotificationGroup("Java2Flowchart")
+                .createNotification(message, type);
+        notification.notify(project);
+    }
+}
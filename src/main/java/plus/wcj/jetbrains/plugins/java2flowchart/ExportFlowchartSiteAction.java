@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.export.HtmlSiteExporter;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.Language;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exports the generated {@code Java2Flowchart/} Markdown tree as a static HTML site to
+ * {@code Java2Flowchart-site/}, with diagrams pre-rendered as SVG and all assets local.
+ */
+public class ExportFlowchartSiteAction extends DumbAwareAction {
+    private static final String OUTPUT_DIR = "Java2Flowchart";
+    private static final String SITE_DIR = "Java2Flowchart-site";
+    private final HtmlSiteExporter exporter = new HtmlSiteExporter();
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        Language language = Java2FlowchartSettings.getInstance().getState().getLanguage();
+        if (project == null) {
+            return;
+        }
+        String basePath = project.getBasePath();
+        if (basePath == null) {
+            notify(project, Java2FlowchartBundle.message("notify.no.basepath", language), NotificationType.ERROR);
+            return;
+        }
+        Path source = Path.of(basePath, OUTPUT_DIR);
+        Path site = Path.of(basePath, SITE_DIR);
+        if (!Files.isDirectory(source)) {
+            notify(project, Java2FlowchartBundle.message("notify.site.empty", language, OUTPUT_DIR), NotificationType.WARNING);
+            return;
+        }
+
+        new Task.Backgroundable(project, Java2FlowchartBundle.message("export.site.progress", language), true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    HtmlSiteExporter.Result result = exporter.export(source, site, language == Language.ZH, page -> {
+                        indicator.checkCanceled();
+                        indicator.setText2(source.relativize(page).toString());
+                    });
+                    VirtualFile dir = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(site);
+                    if (dir != null) {
+                        VfsUtil.markDirtyAndRefresh(true, true, true, dir);
+                    }
+                    ExportFlowchartSiteAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.site.generated", language, SITE_DIR + "/index.html",
+                                    result.pages(), result.diagrams()),
+                            NotificationType.INFORMATION);
+                } catch (ProcessCanceledException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    ExportFlowchartSiteAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.failed", language, ex.getMessage()), NotificationType.ERROR);
+                }
+            }
+        }.queue();
+    }
+
+    private void notify(Project project, String message, NotificationType type) {
+        Notification notification = NotificationGroupManager.getInstance()
+                .getNotificationGroup("Java2Flowchart")
+                .createNotification(message, type);
+        notification.notify(project);
+    }
+}
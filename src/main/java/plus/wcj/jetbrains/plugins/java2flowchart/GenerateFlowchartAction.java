@@ -25,6 +25,9 @@ import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
@@ -35,25 +38,49 @@ import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.analysis.CostModel;
+import plus.wcj.jetbrains.plugins.java2flowchart.analysis.PerfLint;
 import plus.wcj.jetbrains.plugins.java2flowchart.extract.FlowExtractor;
 import plus.wcj.jetbrains.plugins.java2flowchart.extract.JavaFlowExtractor;
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.PerfIssue;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderer;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderers;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramStream;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.MermaidFlowchartRenderer;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.MermaidPages;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.RenderOptions;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.SvgFlowchartRenderer;
 import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
 import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.Language;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class GenerateFlowchartAction extends DumbAwareAction {
     private static final String OUTPUT_DIR = "Java2Flowchart";
     private final FlowExtractor extractor = new JavaFlowExtractor();
-    private final DiagramRenderer renderer = new MermaidFlowchartRenderer();
+    private final SvgFlowchartRenderer svgRenderer = new SvgFlowchartRenderer();
 
     @Override
     public void update(@NotNull AnActionEvent e) {
@@ -82,9 +109,73 @@ public class GenerateFlowchartAction extends DumbAwareAction {
         }
 
         Java2FlowchartSettings.State state = Java2FlowchartSettings.getInstance().getState();
-        ControlFlowGraph graph = ReadAction.compute(() -> extractor.extract(method, state));
-        String mermaid = renderer.render(graph, RenderOptions.topDown());
-        String source = sourceLink(project, (PsiJavaFile) psiFile, method);
+        String basePath = project.getBasePath();
+        if (basePath == null) {
+            notify(project, Java2FlowchartBundle.message("notify.no.basepath", language), NotificationType.ERROR);
+            return;
+        }
+
+        PsiJavaFile javaFile = (PsiJavaFile) psiFile;
+        Path outputRoot = Path.of(basePath, OUTPUT_DIR);
+        // extraction (callee expansion, implementation search, profile and coverage loading) can take seconds
+        new Task.Backgroundable(project, Java2FlowchartBundle.message("generate.progress", language), true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    String written = generate(project, javaFile, method, state, outputRoot, new PageBatch());
+                    GenerateFlowchartAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.generated", language, OUTPUT_DIR + "/" + written), NotificationType.INFORMATION);
+                } catch (ProcessCanceledException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    GenerateFlowchartAction.this.notify(project,
+                            Java2FlowchartBundle.message("notify.failed", language, ex.getMessage()), NotificationType.ERROR);
+                }
+            }
+        }.queue();
+    }
+
+    /**
+     * Writes the flowchart of {@code method} to {@code <package>/<Class>/<method>.md} below {@code outputRoot}, with
+     * the SVG or callee pages the settings ask for, and returns that relative path. Call it off the EDT and outside
+     * a read action: extraction runs in non-blocking read actions that typing cancels and restarts.
+     *
+     * @param batch callee pages already written by other methods of the same run
+     */
+    String generate(Project project, PsiJavaFile psiFile, PsiMethod method, Java2FlowchartSettings.State state,
+                    Path outputRoot, PageBatch batch) throws IOException {
+        String classDir = ReadAction.compute(() -> packagePath(psiFile) + "/" + className(psiFile));
+        String fileName = ReadAction.compute(() -> buildFileName(method));
+        DiagramRenderer renderer = DiagramRenderers.byId(state.getRenderer());
+        extractor.preload(state, project);
+        String head = ReadAction.compute(() -> markdownHead(project, psiFile, method, state, renderer));
+        ControlFlowGraph graph;
+        int callDepth = readNonBlocking(project, () -> extractor.callDepth(method, state));
+        if (state.getPaginateCallees() && renderer instanceof MermaidFlowchartRenderer mermaid) {
+            graph = readNonBlocking(project, () -> extractor.extract(method, state));
+            String findings = analyze(graph, state);
+            String title = ReadAction.compute(method::getName);
+            savePages(outputRoot, classDir, fileName, head, title, graph, state, callDepth, findings, mermaid, batch);
+        } else if (state.getStreamCalleeGraphs()) {
+            // callee graphs are released as they stream, so there is no complete graph left to lay out as SVG
+            saveStreaming(project, outputRoot, classDir, fileName, head, method, state, callDepth, renderer);
+            return classDir + "/" + fileName;
+        } else {
+            graph = readNonBlocking(project, () -> extractor.extract(method, state));
+            String findings = analyze(graph, state);
+            String diagram = renderer.render(graph, renderOptions(state));
+            String content = (head + diagram + markdownTail(state, callDepth, findings)).stripTrailing();
+            WriteAction.runAndWait(() -> saveToFile(outputRoot, classDir, fileName, content));
+        }
+        if (state.getExportSvg()) {
+            saveSvg(outputRoot, classDir, fileName, graph);
+        }
+        return classDir + "/" + fileName;
+    }
+
+    private String markdownHead(Project project, PsiJavaFile psiFile, PsiMethod method, Java2FlowchartSettings.State state,
+                                DiagramRenderer renderer) {
+        String source = sourceLink(project, psiFile, method);
         String methodSourceBlock = "";
         if (state.getExportSource()) {
             String code = methodSource(project, psiFile, method);
@@ -97,36 +188,290 @@ public class GenerateFlowchartAction extends DumbAwareAction {
                         """.formatted(code);
             }
         }
-        String content = """
+        return """
                 # %s
                 
                 %s
                 %s
                 
-                ```mermaid
-                %s
-                ```
+                ```%s
+                """.formatted(method.getName(), source, methodSourceBlock, renderer.codeFence());
+    }
+
+    private String markdownTail(Java2FlowchartSettings.State state, int callDepth, String findings) {
+        return """
                 
+                ```
                 %s
-                """.formatted(method.getName(), source, methodSourceBlock, mermaid, formatSettings(state)).stripTrailing();
+                %s
+                """.formatted(findings, formatSettings(state, callDepth));
+    }
 
-        String basePath = project.getBasePath();
-        if (basePath == null) {
-            notify(project, Java2FlowchartBundle.message("notify.no.basepath", language), NotificationType.ERROR);
-            return;
+    /**
+     * Runs the enabled IR analyses before rendering, since they mark the nodes the renderer highlights, and
+     * returns their Markdown notes.
+     */
+    private String analyze(ControlFlowGraph graph, Java2FlowchartSettings.State state) {
+        return degradationNote(graph, state) + criticalPathNote(graph, state) + perfFindings(graph, state);
+    }
+
+    private String degradationNote(ControlFlowGraph graph, Java2FlowchartSettings.State state) {
+        String degradation = degradation(graph);
+        if (degradation == null) {
+            return "";
+        }
+        boolean zh = state.getLanguage() == Java2FlowchartSettings.Language.ZH;
+        String outcome = "outline".equals(degradation)
+                ? (zh ? "只输出顶层语句的大纲" : "only the top-level outline is shown")
+                : (zh ? "已按 " + degradation + " 重新生成" : "regenerated with " + degradation);
+        return (zh ? "\n超出 %d ms 的时间预算，%s。\n" : "\nTime budget of %d ms exceeded, %s.\n")
+                .formatted(state.getMethodTimeBudgetMs(), outcome);
+    }
+
+    /**
+     * How the time budget degraded the graph, recorded on its entry node; {@code null} when it did not.
+     */
+    private static String degradation(ControlFlowGraph graph) {
+        for (Node node : graph.nodes()) {
+            if (node.id().equals(graph.entryId())) {
+                return node.meta().getDegradation();
+            }
+        }
+        return null;
+    }
+
+    private String criticalPathNote(ControlFlowGraph graph, Java2FlowchartSettings.State state) {
+        if (!state.getCriticalPath()) {
+            return "";
+        }
+        CostModel model = new CostModel(CostModel.parseTable(state.getCostTable()), state.getLoopMultiplier());
+        double cost = model.analyze(graph);
+        boolean zh = state.getLanguage() == Java2FlowchartSettings.Language.ZH;
+        return (zh ? "\n估算的关键路径开销：%.0f（未运行代码的静态估算）\n" : "\nEstimated critical path cost: %.0f (static estimate, not measured)\n")
+                .formatted(cost);
+    }
+
+    /**
+     * Runs the performance lint, which also flags the nodes for the renderer, and lists what it found.
+     */
+    private String perfFindings(ControlFlowGraph graph, Java2FlowchartSettings.State state) {
+        if (!state.getPerfLint()) {
+            return "";
+        }
+        List<PerfLint.Finding> findings = PerfLint.analyze(graph);
+        if (findings.isEmpty()) {
+            return "";
+        }
+        boolean zh = state.getLanguage() == Java2FlowchartSettings.Language.ZH;
+        StringBuilder out = new StringBuilder("\n## ").append(zh ? "性能提示（循环内）" : "Performance hints (inside loops)").append("\n\n");
+        for (PerfLint.Finding finding : findings) {
+            NodeMeta meta = finding.node().meta();
+            out.append("- `").append(finding.node().label().replace('`', '\'').replace('\n', ' ')).append('`');
+            if (meta.getLineNumber() != null) {
+                out.append(zh ? "（第 " : " (line ").append(meta.getLineNumber()).append(zh ? " 行）" : ")");
+            }
+            out.append(": ").append(finding.issues().stream().map(PerfIssue::label).collect(Collectors.joining(", ")));
+            if (!finding.via().isEmpty()) {
+                out.append(zh ? "，调用链 " : ", via ").append(String.join(" → ", finding.via()));
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Streams the Markdown straight to disk: callee graphs are written while the extractor is still running and
+     * released afterwards, so the full diagram never has to be held in memory. Renderers without a streaming mode
+     * still write straight to the file once extraction is done.
+     */
+    private void saveStreaming(Project project, Path outputRoot, String classDir, String fileName, String head,
+                               PsiMethod method, Java2FlowchartSettings.State state, int callDepth,
+                               DiagramRenderer renderer) throws IOException {
+        Path target = outputRoot.resolve(classDir).resolve(fileName);
+        Files.createDirectories(target.getParent());
+        // a restarted read action rewrites the file from the start, dropping what the cancelled attempt streamed
+        ControlFlowGraph graph = readNonBlocking(project, () -> {
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                writer.write(head);
+                DiagramStream session = renderer.openStream(writer, renderOptions(state));
+                ControlFlowGraph extracted;
+                if (session != null) {
+                    extracted = extractor.extract(method, state, session);
+                    if (degradation(extracted) == null) {
+                        String findings = analyze(extracted, state);
+                        session.finish(extracted);
+                        writer.write(markdownTail(state, callDepth, findings).stripTrailing());
+                    }
+                } else {
+                    extracted = extractor.extract(method, state);
+                    String findings = analyze(extracted, state);
+                    renderer.render(extracted, renderOptions(state), writer);
+                    writer.write(markdownTail(state, callDepth, findings).stripTrailing());
+                }
+                return extracted;
+            }
+        });
+        if (degradation(graph) != null) {
+            // the budget ran out while streaming: the degraded retry is built in memory and replaces the callee
+            // graphs the abandoned attempt already wrote
+            String findings = analyze(graph, state);
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                writer.write(head);
+                renderer.render(graph, renderOptions(state), writer);
+                writer.write(markdownTail(state, callDepth, findings).stripTrailing());
+            }
         }
+        LocalFileSystem.getInstance().refreshAndFindFileByNioFile(target);
+    }
+
+    /**
+     * Runs {@code action} in a non-blocking read action in smart mode: a pending write action cancels it and it
+     * restarts afterwards, so a long extraction never holds off typing.
+     */
+    private static <T> T readNonBlocking(Project project, Callable<T> action) {
+        return ReadAction.nonBlocking(action).inSmartMode(project).executeSynchronously();
+    }
 
-        String pkgPath = packagePath((PsiJavaFile) psiFile);
-        String classDir = pkgPath + "/" + className((PsiJavaFile) psiFile);
-        String fileName = buildFileName(method);
+    /**
+     * Writes the root diagram to {@code fileName} and every expanded callee graph to its own page in
+     * {@code <method>_callees/}, once per {@link PageBatch}; calls link to the pages instead of inlining the callee
+     * graphs, including pages an earlier root of the batch wrote. Pages are rendered and written in parallel.
+     */
+    private void savePages(Path outputRoot, String classDir, String fileName, String head, String title,
+                           ControlFlowGraph graph, Java2FlowchartSettings.State state, int callDepth, String findings,
+                           MermaidFlowchartRenderer renderer, PageBatch batch) throws IOException {
+        Path target = outputRoot.resolve(classDir).resolve(fileName);
+        String pagesDirName = MermaidPages.fileSafe(fileName.substring(0, fileName.length() - ".md".length())) + "_callees";
+        Path pagesDir = target.resolveSibling(pagesDirName);
+        batch.prepare(pagesDir);
+        List<MermaidPages.Page> pages = new ArrayList<>();
+        for (MermaidPages.Page page : MermaidPages.collect(graph)) {
+            if (batch.claim(page, pagesDir)) {
+                pages.add(page);
+            }
+        }
+        RenderOptions options = renderOptions(state);
+        boolean zh = state.getLanguage() == Language.ZH;
+        String back = "[%s](../%s)".formatted((zh ? "返回 " : "Back to ") + markdownText(title),
+                fileName.replace("(", "%28").replace(")", "%29"));
+        List<CompletableFuture<Void>> writes = new ArrayList<>(pages.size());
+        for (MermaidPages.Page page : pages) {
+            writes.add(CompletableFuture.runAsync(() -> {
+                Map<String, String> linked = new LinkedHashMap<>();
+                String diagram = renderer.renderPage(page.graph(), options, key -> batch.link(key, pagesDir, linked));
+                String content = "# %s\n\n%s\n\n```%s\n%s```\n%s".formatted(markdownText(page.title()), back,
+                        renderer.codeFence(), diagram, pageIndex(linked, batch, zh));
+                try {
+                    Files.writeString(pagesDir.resolve(page.fileName()), content.stripTrailing(), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, AppExecutorUtil.getAppExecutorService()));
+        }
+        Map<String, String> linked = new LinkedHashMap<>();
+        String diagram = renderer.renderPage(graph, options, key -> batch.link(key, target.getParent(), linked));
+        String content = head + diagram + markdownTail(state, callDepth, pageIndex(linked, batch, zh) + findings);
+        Files.writeString(target, content.stripTrailing(), StandardCharsets.UTF_8);
         try {
-            WriteAction.run(() -> saveToFile(basePath, classDir, fileName, content));
-            notify(project, Java2FlowchartBundle.message("notify.generated", language, OUTPUT_DIR + "/" + classDir + "/" + fileName), NotificationType.INFORMATION);
-        } catch (Exception ex) {
-            notify(project, Java2FlowchartBundle.message("notify.failed", language, ex.getMessage()), NotificationType.ERROR);
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        } finally {
+            LocalFileSystem.getInstance().refreshAndFindFileByNioFile(target);
+            VirtualFile dir = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(pagesDir);
+            if (dir != null) {
+                VfsUtil.markDirtyAndRefresh(false, true, true, dir);
+            }
+        }
+    }
+
+    /**
+     * @param linked calleeKey to relative link of every page linked so far, for the page index
+     */
+    private static String pageIndex(Map<String, String> linked, PageBatch batch, boolean zh) {
+        if (linked.isEmpty()) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("\n## ").append(zh ? "被调用方法" : "Callees").append("\n\n");
+        linked.forEach((key, link) -> out.append("- [").append(markdownText(batch.title(key))).append("](")
+                .append(link).append(")\n"));
+        return out.toString();
+    }
+
+    /**
+     * Callee pages of one batch of generations, i.e. one editor action or one headless run. Each callee is written
+     * to a page once per batch and later roots link to that page; a pages directory is emptied the first time the
+     * batch writes to it, so pages of callees that are gone do not linger.
+     */
+    static final class PageBatch {
+        private record Written(Path file, String title) {
+        }
+
+        private final Map<String, Written> pages = new ConcurrentHashMap<>();
+        private final Set<Path> prepared = ConcurrentHashMap.newKeySet();
+
+        void prepare(Path pagesDir) throws IOException {
+            if (!prepared.add(pagesDir)) {
+                return;
+            }
+            Files.createDirectories(pagesDir);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(pagesDir, "*.md")) {
+                for (Path file : stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        /**
+         * @return whether {@code page} is new to the batch and has to be written to {@code pagesDir}
+         */
+        boolean claim(MermaidPages.Page page, Path pagesDir) {
+            return pages.putIfAbsent(page.calleeKey(), new Written(pagesDir.resolve(page.fileName()), page.title())) == null;
+        }
+
+        /**
+         * @return the link from a file in {@code fromDir} to the page of {@code calleeKey}, or {@code null} when
+         * the batch has none
+         */
+        String link(String calleeKey, Path fromDir, Map<String, String> linked) {
+            Written written = pages.get(calleeKey);
+            if (written == null) {
+                return null;
+            }
+            String link = fromDir.relativize(written.file()).toString().replace('\\', '/');
+            linked.putIfAbsent(calleeKey, link);
+            return link;
+        }
+
+        String title(String calleeKey) {
+            return pages.get(calleeKey).title();
         }
     }
 
+    private static String markdownText(String text) {
+        return text.replace('\n', ' ').replace("[", "\\[").replace("]", "\\]");
+    }
+
+    private static RenderOptions renderOptions(Java2FlowchartSettings.State state) {
+        return RenderOptions.topDown().withCompact(state.getCompactMermaid());
+    }
+
+    /**
+     * Writes {@code <method>.svg} next to the Markdown, laid out offline by the built-in layered layout.
+     */
+    private void saveSvg(Path outputRoot, String classDir, String fileName, ControlFlowGraph graph) throws IOException {
+        String svgName = fileName.endsWith(".md") ? fileName.substring(0, fileName.length() - 3) + ".svg" : fileName + ".svg";
+        Path target = outputRoot.resolve(classDir).resolve(svgName);
+        Files.createDirectories(target.getParent());
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            svgRenderer.render(graph, RenderOptions.topDown(), writer);
+        }
+        LocalFileSystem.getInstance().refreshAndFindFileByNioFile(target);
+    }
+
     private PsiMethod findMethod(Editor editor, PsiFile psiFile) {
         return ReadAction.compute(() -> {
             int offset = editor.getCaretModel().getOffset();
@@ -193,13 +538,8 @@ public class GenerateFlowchartAction extends DumbAwareAction {
         }
     }
 
-    private void saveToFile(String basePath, String packagePath, String fileName, String content) throws IOException {
-        VirtualFile baseDir = LocalFileSystem.getInstance().findFileByPath(basePath);
-        Objects.requireNonNull(baseDir, "baseDir");
-        VirtualFile outputDir = VfsUtil.createDirectoryIfMissing(baseDir, OUTPUT_DIR);
-        Objects.requireNonNull(outputDir, "outputDir");
-        VirtualFile pkgDir = VfsUtil.createDirectoryIfMissing(outputDir, packagePath);
-        Objects.requireNonNull(pkgDir, "pkgDir");
+    private void saveToFile(Path outputRoot, String packagePath, String fileName, String content) throws IOException {
+        VirtualFile pkgDir = VfsUtil.createDirectories(outputRoot.resolve(packagePath).toString());
         VirtualFile target = pkgDir.findChild(fileName);
         if (target == null) {
             target = pkgDir.createChildData(this, fileName);
@@ -207,7 +547,8 @@ public class GenerateFlowchartAction extends DumbAwareAction {
         VfsUtil.saveText(target, content);
     }
 
-    private String formatSettings(plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.State state) {
+    private String formatSettings(plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.State state,
+                                  int plannedCallDepth) {
         boolean zh = state.getLanguage() == plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings.Language.ZH;
         String title = zh ? "设置" : "Settings";
         String depth = zh ? "JDK 调用深度" : "jdkApiDepth";
@@ -223,12 +564,44 @@ public class GenerateFlowchartAction extends DumbAwareAction {
         String foldGet = zh ? "合并连续的 get/is" : "foldSeqGetters";
         String foldCtor = zh ? "合并连续的构造方法" : "foldSeqCtors";
         String exportSource = zh ? "输出方法源码" : "exportSource";
+        String streamCallees = zh ? "流式输出被调用方法" : "streamCalleeGraphs";
+        String exportSvg = zh ? "导出 SVG" : "exportSvg";
+        String rendererTitle = zh ? "图表格式" : "renderer";
+        String expandImpls = zh ? "展开接口/抽象方法的实现" : "expandImplementations";
+        String maxImpls = zh ? "实现数量上限" : "maxImplementations";
+        String expandLambdas = zh ? "展开 Lambda 与方法引用" : "expandLambdas";
+        String profileFile = zh ? "性能采样文件" : "profileFile";
+        String coverageFile = zh ? "覆盖率文件" : "coverageFile";
+        String coverageClasses = zh ? "覆盖率 class 目录" : "coverageClasses";
+        String collapseCold = zh ? "折叠未执行的代码" : "collapseColdCode";
+        String perfLint = zh ? "标记循环内的高开销操作" : "perfLint";
+        String criticalPath = zh ? "高亮估算的关键路径" : "criticalPath";
+        String loopMultiplier = zh ? "循环开销倍数" : "loopMultiplier";
+        String costTable = zh ? "调用开销表" : "costTable";
+        String autoDepthBudget = zh ? "自动深度的节点预算" : "autoDepthNodeBudget";
+        String timeBudget = zh ? "单个方法的时间预算（毫秒）" : "methodTimeBudgetMs";
+        String compactMermaid = zh ? "紧凑的 Mermaid 输出" : "compactMermaid";
+        String paginate = zh ? "被调用方法分页输出" : "paginateCallees";
         String regexTitle = zh ? "正则表达式" : "regex patterns";
         return """
                 - %s
                 - %s: %d
+                - %s: %s
                 - %s: %d
                 - %s: %d
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
+                - %s: %s
                 - %s: %d
                 - %s: %s
                 - %s: %s
@@ -237,13 +610,19 @@ public class GenerateFlowchartAction extends DumbAwareAction {
                 - %s: %s
                 - %s: %s
                 - %s: %s
+                - %s: %d
+                - %s: %s
+                - %s: %d
+                - %s: %d
                 - %s: %s
                 - %s: %s
                 %s
                 """.formatted(
                 title,
                 depth, state.getJdkApiDepth(),
-                callDepth, state.getCallDepth(),
+                callDepth, state.getAutoCallDepth()
+                        ? plannedCallDepth + (zh ? "（自动）" : " (auto)")
+                        : String.valueOf(state.getCallDepth()),
                 ternary, state.getTernaryExpandLevel(),
                 label, state.getLabelMaxLength(),
                 useJavadoc, state.getUseJavadocLabels(),
@@ -255,6 +634,24 @@ public class GenerateFlowchartAction extends DumbAwareAction {
                 foldGet, state.getFoldSequentialGetters(),
                 foldCtor, state.getFoldSequentialCtors(),
                 exportSource, state.getExportSource(),
+                streamCallees, state.getStreamCalleeGraphs(),
+                exportSvg, state.getExportSvg(),
+                rendererTitle, state.getRenderer(),
+                expandImpls, state.getExpandImplementations(),
+                maxImpls, state.getMaxImplementations(),
+                expandLambdas, state.getExpandLambdas(),
+                profileFile, state.getProfileFile().isBlank() ? "(none)" : state.getProfileFile(),
+                coverageFile, state.getCoverageFile().isBlank() ? "(none)" : state.getCoverageFile(),
+                coverageClasses, state.getCoverageClasses().isBlank() ? "(module output)" : state.getCoverageClasses(),
+                collapseCold, state.getCollapseColdCode(),
+                perfLint, state.getPerfLint(),
+                criticalPath, state.getCriticalPath(),
+                loopMultiplier, state.getLoopMultiplier(),
+                costTable, state.getCostTable().isBlank() ? "(none)" : state.getCostTable().replaceAll("\\R+", "; "),
+                autoDepthBudget, state.getAutoDepthNodeBudget(),
+                timeBudget, state.getMethodTimeBudgetMs(),
+                compactMermaid, state.getCompactMermaid(),
+                paginate, state.getPaginateCallees(),
                 formatSkipRegex(state, regexTitle)
         );
     }
@@ -0,0 +1,289 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart;
+
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.xmlb.XmlSerializer;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.server.DiagramServer;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless generator, run as {@code idea java2flowchart <projectDir> --out <dir> [--settings <file>] [--source <dir>]...}.
+ * Opens the project, waits for the build import to give it modules with a JDK and for indexing, and writes the
+ * Markdown of every method with a body in the source directories (default: the project's source roots) below
+ * {@code --out}, laid out as the editor action lays out {@code Java2Flowchart/}. {@code --settings} is a serialized
+ * {@code Java2FlowchartSettings.State}: the IDE's {@code options/java2flowchart.xml} or a bare element of
+ * {@code option}s; without it the IDE's settings apply. Exits with 1 if anything failed, including a project that
+ * still has no modules or no JDK after {@value #IMPORT_TIMEOUT_SECONDS} seconds.
+ * <p>
+ * With {@code --serve [port]} instead of {@code --out} it keeps the project open and runs the diagram server on the
+ * port (default: {@code diagramServerPort} of the settings) until the process is stopped.
+ */
+public class HeadlessFlowchartStarter implements ApplicationStarter {
+    private static final Logger LOG = Logger.getInstance(HeadlessFlowchartStarter.class);
+    private static final String COMMAND = "java2flowchart";
+    private static final int IMPORT_TIMEOUT_SECONDS = 600;
+
+    @Override
+    public String getCommandName() {
+        return COMMAND;
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            int exitCode = 1;
+            try {
+                exitCode = run(Arguments.parse(args.subList(args.isEmpty() || !COMMAND.equals(args.get(0)) ? 0 : 1, args.size())));
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println("Usage: " + COMMAND + " <projectDir> --out <dir> [--settings <file>] [--source <dir>]...");
+                System.err.println("       " + COMMAND + " <projectDir> --serve [port] [--settings <file>]");
+            } catch (Throwable e) {
+                LOG.warn(e);
+                System.err.println("Flowchart generation failed: " + e);
+            } finally {
+                System.exit(exitCode);
+            }
+        });
+    }
+
+    private int run(Arguments arguments) throws Exception {
+        Java2FlowchartSettings.State state = arguments.settings != null
+                ? loadState(arguments.settings)
+                : Java2FlowchartSettings.getInstance().getState();
+        Project project = ProjectUtil.openOrImport(arguments.project, null, false);
+        if (project == null) {
+            throw new IllegalArgumentException("Cannot open project " + arguments.project);
+        }
+        try {
+            awaitImport(project);
+            DumbService.getInstance(project).waitForSmartMode();
+            if (arguments.serve) {
+                return serve(state, arguments.port);
+            }
+            GenerateFlowchartAction generator = new GenerateFlowchartAction();
+            GenerateFlowchartAction.PageBatch pages = new GenerateFlowchartAction.PageBatch();
+            int written = 0;
+            int failed = 0;
+            for (VirtualFile file : javaFiles(project, arguments.sources)) {
+                PsiFile psiFile = ReadAction.compute(() -> file.isValid() ? PsiManager.getInstance(project).findFile(file) : null);
+                if (!(psiFile instanceof PsiJavaFile javaFile)) {
+                    continue;
+                }
+                List<PsiMethod> methods = ReadAction.compute(() -> PsiTreeUtil.findChildrenOfType(javaFile, PsiMethod.class)
+                        .stream()
+                        .filter(m -> m.getBody() != null)
+                        .toList());
+                for (PsiMethod method : methods) {
+                    try {
+                        generator.generate(project, javaFile, method, state, arguments.out, pages);
+                        written++;
+                    } catch (Exception e) {
+                        failed++;
+                        LOG.warn(e);
+                        System.err.println(file.getPath() + ": " + ReadAction.compute(method::getName) + ": " + e);
+                    }
+                }
+            }
+            System.out.println("Java2Flowchart: " + written + " flowcharts written to " + arguments.out
+                    + (failed > 0 ? ", " + failed + " failed" : ""));
+            return failed > 0 ? 1 : 0;
+        } finally {
+            ApplicationManager.getApplication().invokeAndWait(() -> ProjectManager.getInstance().closeAndDispose(project));
+        }
+    }
+
+    /**
+     * Runs the diagram server over the open project until the process is stopped; the IDE's settings are left as
+     * they are.
+     */
+    private static int serve(Java2FlowchartSettings.State state, int port) throws IOException, InterruptedException {
+        Java2FlowchartSettings.State served = state.withoutTransport();
+        served.setDiagramServerPort(port > 0 ? port : state.getDiagramServerPort());
+        if (served.getDiagramServerPort() <= 0) {
+            throw new IllegalArgumentException("--serve needs a port, or diagramServerPort in the settings");
+        }
+        DiagramServer.getInstance().serve(served);
+        System.out.println("Java2Flowchart: serving diagrams on http://localhost:" + served.getDiagramServerPort() + "/flow/");
+        new CountDownLatch(1).await();
+        return 0;
+    }
+
+    /**
+     * Gradle and Maven projects get their modules and JDK from an import that runs after the project opened;
+     * without them nothing resolves and every diagram would be empty.
+     */
+    private static void awaitImport(Project project) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(IMPORT_TIMEOUT_SECONDS);
+        while (true) {
+            Module[] modules = ReadAction.compute(() -> ModuleManager.getInstance(project).getModules());
+            Module withoutSdk = ReadAction.compute(() -> Arrays.stream(modules)
+                    .filter(module -> !module.isDisposed() && ModuleRootManager.getInstance(module).getSdk() == null)
+                    .findFirst()
+                    .orElse(null));
+            if (modules.length > 0 && withoutSdk == null) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(modules.length == 0
+                        ? "Project " + project.getName() + " has no modules; was it imported?"
+                        : "Module " + withoutSdk.getName() + " has no JDK; configure the project SDK");
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    /**
+     * Reads the settings from the IDE's storage format ({@code <application><component name="Java2FlowchartSettings">})
+     * or from any element holding the {@code option}s directly.
+     */
+    private static Java2FlowchartSettings.State loadState(Path file) throws Exception {
+        Element root = JDOMUtil.load(file);
+        Element options = root;
+        for (Element component : root.getChildren("component")) {
+            if ("Java2FlowchartSettings".equals(component.getAttributeValue("name"))) {
+                options = component;
+            }
+        }
+        Java2FlowchartSettings.State state = new Java2FlowchartSettings.State();
+        XmlSerializer.deserializeInto(state, options);
+        return state;
+    }
+
+    /**
+     * The Java files below {@code sources}, or below the project's source roots when none are given, in path order
+     * so reruns write the same files in the same order.
+     */
+    private static List<VirtualFile> javaFiles(Project project, List<Path> sources) {
+        List<VirtualFile> roots = new ArrayList<>();
+        if (sources.isEmpty()) {
+            roots.addAll(Arrays.asList(ReadAction.compute(() -> ProjectRootManager.getInstance(project).getContentSourceRoots())));
+        } else {
+            for (Path source : sources) {
+                VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(source);
+                if (root == null) {
+                    throw new IllegalArgumentException("No such source directory: " + source);
+                }
+                roots.add(root);
+            }
+        }
+        List<VirtualFile> files = new ArrayList<>();
+        for (VirtualFile root : roots) {
+            VfsUtilCore.iterateChildrenRecursively(root, null, file -> {
+                if (!file.isDirectory() && "java".equals(file.getExtension())) {
+                    files.add(file);
+                }
+                return true;
+            });
+        }
+        files.sort(Comparator.comparing(VirtualFile::getPath));
+        return files;
+    }
+
+    /**
+     * @param port the {@code --serve} port, 0 for the one in the settings
+     */
+    private record Arguments(Path project, Path out, Path settings, List<Path> sources, boolean serve, int port) {
+        static Arguments parse(List<String> args) {
+            Path project = null;
+            Path out = null;
+            Path settings = null;
+            List<Path> sources = new ArrayList<>();
+            boolean serve = false;
+            int port = 0;
+            for (int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                switch (arg) {
+                    case "--out" -> out = path(args, ++i, arg);
+                    case "--serve" -> {
+                        serve = true;
+                        if (i + 1 < args.size() && args.get(i + 1).matches("\\d{1,5}")) {
+                            port = Integer.parseInt(args.get(++i));
+                        }
+                    }
+                    case "--settings" -> settings = path(args, ++i, arg);
+                    case "--source" -> sources.add(path(args, ++i, arg));
+                    default -> {
+                        if (arg.startsWith("--") || project != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        project = Path.of(arg).toAbsolutePath().normalize();
+                    }
+                }
+            }
+            if (project == null || out == null && !serve) {
+                throw new IllegalArgumentException("Both <projectDir> and --out are required");
+            }
+            if (serve && (out != null || !sources.isEmpty())) {
+                throw new IllegalArgumentException("--serve takes no --out or --source");
+            }
+            if (port > 65535) {
+                throw new IllegalArgumentException("No such port: " + port);
+            }
+            if (settings != null && !Files.isRegularFile(settings)) {
+                throw new IllegalArgumentException("No such settings file: " + settings);
+            }
+            return new Arguments(project, out, settings, sources, serve, port);
+        }
+
+        private static Path path(List<String> args, int index, String option) {
+            if (index >= args.size()) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            return Path.of(args.get(index)).toAbsolutePath().normalize();
+        }
+    }
+}
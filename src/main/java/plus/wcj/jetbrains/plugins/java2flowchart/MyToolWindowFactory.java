@@ -16,29 +16,42 @@
 
 package plus.wcj.jetbrains.plugins.java2flowchart;
 
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.SimpleToolWindowPanel;
 import com.intellij.openapi.util.NlsContexts;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTabbedPane;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import plus.wcj.jetbrains.plugins.java2flowchart.extract.FlowExtractor;
 import plus.wcj.jetbrains.plugins.java2flowchart.extract.JavaFlowExtractor;
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.layout.FlatGraph;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderer;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.MermaidFlowchartRenderer;
 import plus.wcj.jetbrains.plugins.java2flowchart.render.RenderOptions;
 import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+import plus.wcj.jetbrains.plugins.java2flowchart.view.FlowchartViewer;
 
 import javax.swing.*;
 import java.awt.*;
@@ -52,13 +65,47 @@ public class MyToolWindowFactory implements ToolWindowFactory {
         JTextArea output = new JTextArea();
         output.setEditable(false);
         output.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        FlowchartViewer viewer = new FlowchartViewer();
 
         JButton generateButton = new JButton("Generate Mermaid");
-        generateButton.addActionListener(e -> output.setText(generateDiagram(project)));
+        generateButton.addActionListener(e -> {
+            Editor editor = FileEditorManager.getInstance(project).getSelectedTextEditor();
+            if (editor == null) {
+                output.setText("No active editor found.");
+                return;
+            }
+            Document document = editor.getDocument();
+            int offset = editor.getCaretModel().getOffset();
+            Java2FlowchartSettings.State state = Java2FlowchartSettings.getInstance().getState();
+            // the profile is parsed before taking the read lock, extraction runs off the EDT
+            AppExecutorUtil.getAppExecutorService().execute(() -> {
+                extractor.preload(state, project);
+                ReadAction.nonBlocking(() -> generateDiagram(project, document, offset, state))
+                        .finishOnUiThread(ModalityState.defaultModalityState(), generated -> {
+                            output.setText(generated.text());
+                            if (generated.graph() != null) {
+                                FlatGraph flat = FlatGraph.of(generated.graph());
+                                viewer.setGraph(flat);
+                                viewer.setNavigationHandler(index -> navigate(project, generated.file(), flat, index));
+                            }
+                        })
+                        .submit(AppExecutorUtil.getAppExecutorService());
+            });
+        });
+        JButton fitButton = new JButton("Fit");
+        fitButton.addActionListener(e -> viewer.fitToView());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        buttons.add(generateButton);
+        buttons.add(fitButton);
+
+        JBTabbedPane tabs = new JBTabbedPane();
+        tabs.addTab("Diagram", viewer);
+        tabs.addTab("Mermaid", new JBScrollPane(output));
 
         JPanel contentPanel = new JPanel(new BorderLayout(0, 4));
-        contentPanel.add(generateButton, BorderLayout.NORTH);
-        contentPanel.add(new JBScrollPane(output), BorderLayout.CENTER);
+        contentPanel.add(buttons, BorderLayout.NORTH);
+        contentPanel.add(tabs, BorderLayout.CENTER);
 
         SimpleToolWindowPanel panel = new SimpleToolWindowPanel(true);
         panel.setContent(contentPanel);
@@ -67,24 +114,48 @@ public class MyToolWindowFactory implements ToolWindowFactory {
         toolWindow.getContentManager().addContent(content);
     }
 
-    private @NlsContexts.Label String generateDiagram(Project project) {
-        return ReadAction.compute(() -> {
-            var editor = FileEditorManager.getInstance(project).getSelectedTextEditor();
-            if (editor == null) {
-                return "No active editor found.";
-            }
-            PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(editor.getDocument());
-            if (psiFile == null) {
-                return "Cannot locate PSI for current file.";
-            }
-            int offset = editor.getCaretModel().getOffset();
-            PsiElement element = psiFile.findElementAt(offset);
-            PsiMethod method = PsiTreeUtil.getParentOfType(element, PsiMethod.class, false);
-            if (method == null) {
-                return "Place the caret inside a Java method.";
-            }
-            ControlFlowGraph graph = extractor.extract(method, Java2FlowchartSettings.getInstance().getState());
-            return renderer.render(graph, RenderOptions.topDown());
-        });
+    private record Generated(@NlsContexts.Label String text, ControlFlowGraph graph, VirtualFile file) {
+    }
+
+    /**
+     * Runs inside a read action.
+     */
+    private Generated generateDiagram(Project project, Document document, int offset, Java2FlowchartSettings.State state) {
+        PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(document);
+        if (psiFile == null) {
+            return new Generated("Cannot locate PSI for current file.", null, null);
+        }
+        PsiElement element = psiFile.findElementAt(offset);
+        PsiMethod method = PsiTreeUtil.getParentOfType(element, PsiMethod.class, false);
+        if (method == null) {
+            return new Generated("Place the caret inside a Java method.", null, null);
+        }
+        ControlFlowGraph graph = extractor.extract(method, state);
+        return new Generated(renderer.render(graph, RenderOptions.topDown()), graph, psiFile.getVirtualFile());
+    }
+
+    private void navigate(Project project, VirtualFile rootFile, FlatGraph graph, int index) {
+        TextRange range = graph.node(index).meta().getTextRange();
+        if (range == null) {
+            return;
+        }
+        String owner = graph.owner(index);
+        VirtualFile file = owner == null ? rootFile : ReadAction.compute(() -> calleeFile(project, owner));
+        if (file != null && file.isValid()) {
+            new OpenFileDescriptor(project, file, range.getStartOffset()).navigate(true);
+        }
+    }
+
+    /**
+     * Resolves the file of a callee, dispatch or lambda graph from its calleeKey.
+     */
+    private VirtualFile calleeFile(Project project, String calleeKey) {
+        String className = JavaFlowExtractor.ownerClassName(calleeKey);
+        if (className == null) {
+            return null;
+        }
+        PsiClass cls = JavaPsiFacade.getInstance(project).findClass(className, GlobalSearchScope.allScope(project));
+        PsiFile file = cls != null ? cls.getContainingFile() : null;
+        return file != null ? file.getVirtualFile() : null;
     }
 }
@@ -0,0 +1,251 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.analysis;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.GraphIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static cost estimate over the IR. Every executable node costs one unit plus its calls: a call whose
+ * {@code calleeKey} starts with an entry of the cost table costs that entry, an expanded call the critical path
+ * of its callee graph, any other call one unit. Nodes inside loops are multiplied by the loop multiplier once per
+ * enclosing loop. The critical path is the most expensive path from the entry to the exit after dropping loop
+ * back edges; its nodes are marked {@link NodeMeta#setCriticalPath(Boolean) critical}, in callee graphs too.
+ */
+public final class CostModel {
+    /**
+     * Cost of a call whose key starts with {@code prefix}.
+     */
+    public record Entry(String prefix, double cost) {
+    }
+
+    private static final double CALL_COST = 1;
+
+    private final List<Entry> table;
+    private final double loopMultiplier;
+    private final Map<ControlFlowGraph, Double> graphCosts = new IdentityHashMap<>();
+
+    /**
+     * @param table entries are tried longest prefix first
+     */
+    public CostModel(List<Entry> table, double loopMultiplier) {
+        this.table = new ArrayList<>(table);
+        this.table.sort(Comparator.comparingInt((Entry entry) -> entry.prefix().length()).reversed());
+        this.loopMultiplier = loopMultiplier;
+    }
+
+    /**
+     * Parses one {@code prefix=cost} entry per line; blank lines, {@code #} comments and malformed lines are
+     * skipped.
+     */
+    public static List<Entry> parseTable(String text) {
+        List<Entry> entries = new ArrayList<>();
+        if (text == null) {
+            return entries;
+        }
+        for (String line : text.split("\\R")) {
+            int eq = line.lastIndexOf('=');
+            String prefix = eq > 0 ? line.substring(0, eq).trim() : "";
+            if (prefix.isEmpty() || prefix.startsWith("#")) {
+                continue;
+            }
+            try {
+                entries.add(new Entry(prefix, Double.parseDouble(line.substring(eq + 1).trim())));
+            } catch (NumberFormatException ignored) {
+                // keep the rest of the table usable
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Annotates {@code graph} and every expanded callee graph.
+     *
+     * @return the cost of the critical path of {@code graph}
+     */
+    public double analyze(ControlFlowGraph graph) {
+        Double known = graphCosts.get(graph);
+        if (known != null) {
+            return known;
+        }
+        // a placeholder guards against graphs that (indirectly) contain themselves
+        graphCosts.put(graph, CALL_COST);
+        GraphIndex index = GraphIndex.of(graph);
+        int n = index.nodeCount();
+        int[] loopDepth = Loops.depth(index);
+        double[] weight = new double[n];
+        for (int v = 0; v < n; v++) {
+            Node node = index.node(v);
+            double own = node.type() == NodeType.START || node.type() == NodeType.END || node.type() == NodeType.MERGE
+                    ? 0 : 1;
+            own += callCost(node.meta());
+            if (node.meta().getInlineCalls() != null) {
+                for (NodeMeta inline : node.meta().getInlineCalls()) {
+                    own += callCost(inline);
+                }
+            }
+            weight[v] = own * Math.pow(loopMultiplier, loopDepth[v]);
+            node.meta().setCost(weight[v]);
+        }
+        double cost = markCriticalPath(index, weight);
+        graphCosts.put(graph, cost);
+        return cost;
+    }
+
+    private double callCost(NodeMeta call) {
+        String key = call.getCalleeKey();
+        if (call.getCallee() == null && key == null) {
+            return 0;
+        }
+        if (key != null) {
+            for (Entry entry : table) {
+                if (key.startsWith(entry.prefix())) {
+                    return entry.cost();
+                }
+            }
+        }
+        return call.getCalleeGraph() != null ? analyze(call.getCalleeGraph()) : CALL_COST;
+    }
+
+    /**
+     * Longest path over the graph without its back edges (edges closing a cycle in a depth-first walk from the
+     * entry), by dynamic programming in topological order. A back edge into a loop head is replaced by edges to
+     * the loop's exits, so the path may run through the loop body once, at its multiplied cost.
+     */
+    private static double markCriticalPath(GraphIndex index, double[] weight) {
+        int n = index.nodeCount();
+        int entry = index.indexOf(index.graph().entryId());
+        if (entry < 0) {
+            return 0;
+        }
+        boolean[] reachable = new boolean[n];
+        boolean[] back = backEdges(index, entry, reachable);
+        List<List<Integer>> successors = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) {
+            successors.add(new ArrayList<>());
+        }
+        int[] inDegree = new int[n];
+        for (int e = 0; e < index.edgeCount(); e++) {
+            int from = index.from(e);
+            int to = index.to(e);
+            // unreachable code must not hold back the nodes it jumps into
+            if (from < 0 || to < 0 || !reachable[from]) {
+                continue;
+            }
+            if (!back[e]) {
+                successors.get(from).add(to);
+                inDegree[to]++;
+            } else if (index.node(to).type() == NodeType.LOOP_HEAD) {
+                boolean[] loop = Loops.members(index, to);
+                for (int k = 0; k < index.outDegree(to); k++) {
+                    int exit = index.to(index.outEdge(to, k));
+                    if (exit >= 0 && !loop[exit]) {
+                        successors.get(from).add(exit);
+                        inDegree[exit]++;
+                    }
+                }
+            }
+        }
+        double[] best = new double[n];
+        int[] previous = new int[n];
+        boolean[] reached = new boolean[n];
+        Arrays.fill(previous, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        best[entry] = weight[entry];
+        reached[entry] = true;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int w : successors.get(v)) {
+                if (reached[v] && (!reached[w] || best[v] + weight[w] > best[w])) {
+                    best[w] = best[v] + weight[w];
+                    previous[w] = v;
+                    reached[w] = true;
+                }
+                if (--inDegree[w] == 0) {
+                    queue[tail++] = w;
+                }
+            }
+        }
+        int end = index.indexOf(index.graph().exitId());
+        if (end < 0 || !reached[end]) {
+            // no way out (e.g. an endless loop): end the path at the most expensive reachable node
+            end = entry;
+            for (int v = 0; v < n; v++) {
+                if (reached[v] && best[v] > best[end]) {
+                    end = v;
+                }
+            }
+        }
+        for (int v = end; v >= 0; v = previous[v]) {
+            index.node(v).meta().setCriticalPath(true);
+        }
+        return best[end];
+    }
+
+    private static boolean[] backEdges(GraphIndex index, int entry, boolean[] reachable) {
+        int n = index.nodeCount();
+        boolean[] back = new boolean[index.edgeCount()];
+        // 0 = unvisited, 1 = on the DFS stack, 2 = done
+        byte[] state = new byte[n];
+        int[] stack = new int[n];
+        int[] nextEdge = new int[n];
+        int top = 0;
+        stack[top++] = entry;
+        state[entry] = 1;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (nextEdge[v] < index.outDegree(v)) {
+                int e = index.outEdge(v, nextEdge[v]++);
+                int w = index.to(e);
+                if (w < 0) {
+                    continue;
+                }
+                if (state[w] == 1) {
+                    back[e] = true;
+                } else if (state[w] == 0) {
+                    state[w] = 1;
+                    stack[top++] = w;
+                }
+            } else {
+                state[v] = 2;
+                top--;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            reachable[v] = state[v] != 0;
+        }
+        return back;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.analysis;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.GraphIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeType;
+
+/**
+ * Loop structure of a graph: a node belongs to a loop when it reaches the loop head and is reached from it, i.e.
+ * lies on one of its iterations.
+ */
+final class Loops {
+    private Loops() {
+    }
+
+    /**
+     * @return per node, the number of loops it belongs to (0 outside loops)
+     */
+    static int[] depth(GraphIndex index) {
+        int n = index.nodeCount();
+        int[] depth = new int[n];
+        for (int head = 0; head < n; head++) {
+            if (index.node(head).type() != NodeType.LOOP_HEAD) {
+                continue;
+            }
+            boolean[] members = members(index, head);
+            for (int v = 0; v < n; v++) {
+                if (members[v]) {
+                    depth[v]++;
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * @return the nodes of the loop headed by {@code head}, the head included
+     */
+    static boolean[] members(GraphIndex index, int head) {
+        boolean[] forward = reach(index, head, true);
+        boolean[] backward = reach(index, head, false);
+        for (int v = 0; v < forward.length; v++) {
+            forward[v] &= backward[v];
+        }
+        return forward;
+    }
+
+    private static boolean[] reach(GraphIndex index, int start, boolean forward) {
+        boolean[] seen = new boolean[index.nodeCount()];
+        int[] stack = new int[index.nodeCount()];
+        int top = 0;
+        seen[start] = true;
+        stack[top++] = start;
+        while (top > 0) {
+            int v = stack[--top];
+            int degree = forward ? index.outDegree(v) : index.inDegree(v);
+            for (int k = 0; k < degree; k++) {
+                int e = forward ? index.outEdge(v, k) : index.inEdge(v, k);
+                int w = forward ? index.to(e) : index.from(e);
+                if (w >= 0 && !seen[w]) {
+                    seen[w] = true;
+                    stack[top++] = w;
+                }
+            }
+        }
+        return seen;
+    }
+}
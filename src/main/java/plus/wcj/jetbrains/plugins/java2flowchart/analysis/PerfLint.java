@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.analysis;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.GraphIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.PerfIssue;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.StreamStage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reports nodes with {@link NodeMeta#getPerfIssues() perf issues} that run per loop iteration: nodes on a cycle
+ * through a loop head, everything in callee graphs expanded from such nodes, and lambda bodies of per-element
+ * stream stages. Reported nodes are marked {@link NodeMeta#setPerfFlagged(Boolean) flagged} for the renderers.
+ * Callee graphs already released to a streaming sink are not visited.
+ */
+public final class PerfLint {
+    /**
+     * @param via callee displays from the analyzed method down to the node's graph, empty for the method itself
+     */
+    public record Finding(Node node, Set<PerfIssue> issues, List<String> via) {
+    }
+
+    private final List<Finding> findings = new ArrayList<>();
+    private final Set<Node> reported = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<ControlFlowGraph> visitedHot = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<ControlFlowGraph> visitedCold = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private PerfLint() {
+    }
+
+    public static List<Finding> analyze(ControlFlowGraph graph) {
+        PerfLint lint = new PerfLint();
+        lint.visit(graph, false, List.of());
+        return lint.findings;
+    }
+
+    /**
+     * @param hot whether every node of {@code graph} runs per iteration of some caller's loop
+     */
+    private void visit(ControlFlowGraph graph, boolean hot, List<String> via) {
+        if (!(hot ? visitedHot : visitedCold).add(graph)) {
+            return;
+        }
+        GraphIndex index = GraphIndex.of(graph);
+        int[] loopDepth = hot ? null : Loops.depth(index);
+        for (int v = 0; v < index.nodeCount(); v++) {
+            Node node = index.node(v);
+            boolean nodeHot = hot || loopDepth[v] > 0;
+            NodeMeta meta = node.meta();
+            if (nodeHot && meta.getPerfIssues() != null && !meta.getPerfIssues().isEmpty() && reported.add(node)) {
+                meta.setPerfFlagged(true);
+                findings.add(new Finding(node, meta.getPerfIssues(), via));
+            }
+            visitCallee(meta, nodeHot, via);
+            if (meta.getInlineCalls() != null) {
+                for (NodeMeta inline : meta.getInlineCalls()) {
+                    visitCallee(inline, nodeHot, via);
+                }
+            }
+        }
+    }
+
+    private void visitCallee(NodeMeta call, boolean hot, List<String> via) {
+        ControlFlowGraph callee = call.getCalleeGraph();
+        if (callee == null) {
+            return;
+        }
+        List<String> calleeVia = new ArrayList<>(via);
+        calleeVia.add(call.getCalleeDisplay() != null && !call.getCalleeDisplay().isBlank()
+                ? call.getCalleeDisplay() : call.getCallee());
+        // a function handed to a per-element stage runs once per element
+        visit(callee, hot || call.getStreamStage() == StreamStage.PER_ELEMENT, calleeVia);
+    }
+}
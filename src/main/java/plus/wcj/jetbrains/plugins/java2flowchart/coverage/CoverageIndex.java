@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.coverage;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.data.ExecutionDataStore;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Coverage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line and branch coverage of a JaCoCo execution data file, grouped by top-level class like the profile index.
+ * Class files are analyzed on first use, one top-level class (and its nested classes) at a time, and analyzed
+ * again when they are recompiled.
+ */
+public final class CoverageIndex {
+    private final ExecutionDataStore executionData;
+    private final List<Path> classRoots;
+    private final Map<String, Lines> classes = new HashMap<>();
+
+    /**
+     * @param classRoots output directories holding the class files the execution data was recorded for
+     */
+    public CoverageIndex(ExecutionDataStore executionData, List<Path> classRoots) {
+        this.executionData = executionData;
+        this.classRoots = List.copyOf(classRoots);
+    }
+
+    /**
+     * @return {@code null} when no line in {@code [fromLine, toLine]} has code, otherwise whether all, some or
+     * none of those lines ran
+     */
+    public synchronized Coverage lines(String topLevelClass, int fromLine, int toLine) {
+        Lines lines = lines(topLevelClass);
+        if (lines == null) {
+            return null;
+        }
+        int code = 0;
+        int covered = 0;
+        for (int line = Math.max(1, fromLine); line <= toLine && line < lines.covered.length; line++) {
+            if (lines.covered[line] + lines.missed[line] > 0) {
+                code++;
+                if (lines.covered[line] > 0) {
+                    covered++;
+                }
+            }
+        }
+        return status(covered, code - covered);
+    }
+
+    /**
+     * @return {@code null} when {@code line} has no branches, otherwise whether all, some or none of them ran
+     */
+    public synchronized Coverage branches(String topLevelClass, int line) {
+        Lines lines = lines(topLevelClass);
+        if (lines == null || line <= 0 || line >= lines.coveredBranches.length) {
+            return null;
+        }
+        return status(lines.coveredBranches[line], lines.missedBranches[line]);
+    }
+
+    private static Coverage status(int covered, int missed) {
+        if (covered + missed == 0) {
+            return null;
+        }
+        return missed == 0 ? Coverage.HIT : covered == 0 ? Coverage.MISS : Coverage.PARTIAL;
+    }
+
+    private Lines lines(String topLevelClass) {
+        Lines lines = classes.get(topLevelClass);
+        try {
+            long stamp = stamp(topLevelClass);
+            if (lines == null || lines.stamp != stamp) {
+                lines = stamp == 0 ? null : analyze(topLevelClass, stamp);
+                classes.put(topLevelClass, lines);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    private Path classFile(String topLevelClass) {
+        String relative = topLevelClass.replace('.', '/') + ".class";
+        for (Path root : classRoots) {
+            Path file = root.resolve(relative);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private long stamp(String topLevelClass) throws IOException {
+        Path file = classFile(topLevelClass);
+        return file == null ? 0 : Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private Lines analyze(String topLevelClass, long stamp) throws IOException {
+        Path file = classFile(topLevelClass);
+        CoverageBuilder builder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(executionData, builder);
+        analyzer.analyzeClass(Files.readAllBytes(file), file.toString());
+        String simpleName = file.getFileName().toString();
+        simpleName = simpleName.substring(0, simpleName.length() - ".class".length());
+        // nested, anonymous and local classes share the source file
+        try (DirectoryStream<Path> nested = Files.newDirectoryStream(file.getParent(), simpleName + "$*.class")) {
+            for (Path nestedFile : nested) {
+                analyzer.analyzeClass(Files.readAllBytes(nestedFile), nestedFile.toString());
+            }
+        }
+        Lines lines = new Lines(stamp);
+        for (IClassCoverage classCoverage : builder.getClasses()) {
+            if (classCoverage.isNoMatch()) {
+                // recompiled since the recording: the probes no longer fit, so its coverage is unknown, not MISS
+                continue;
+            }
+            for (int line = classCoverage.getFirstLine(); line > 0 && line <= classCoverage.getLastLine(); line++) {
+                lines.add(line, classCoverage.getLine(line));
+            }
+        }
+        return lines;
+    }
+
+    private static final class Lines {
+        private final long stamp;
+        private int[] covered = new int[64];
+        private int[] missed = new int[64];
+        private int[] coveredBranches = new int[64];
+        private int[] missedBranches = new int[64];
+
+        Lines(long stamp) {
+            this.stamp = stamp;
+        }
+
+        void add(int line, ILine coverage) {
+            if (coverage.getStatus() == ICounter.EMPTY) {
+                return;
+            }
+            if (line >= covered.length) {
+                int capacity = Math.max(line + 1, covered.length * 2);
+                covered = Arrays.copyOf(covered, capacity);
+                missed = Arrays.copyOf(missed, capacity);
+                coveredBranches = Arrays.copyOf(coveredBranches, capacity);
+                missedBranches = Arrays.copyOf(missedBranches, capacity);
+            }
+            covered[line] += coverage.getInstructionCounter().getCoveredCount();
+            missed[line] += coverage.getInstructionCounter().getMissedCount();
+            coveredBranches[line] += coverage.getBranchCounter().getCoveredCount();
+            missedBranches[line] += coverage.getBranchCounter().getMissedCount();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.coverage;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the JaCoCo execution data configured in settings. The last index is kept until the file or the class
+ * directories change, so regenerating flowcharts against the same run reads it once.
+ */
+public final class CoverageIndexes {
+    private record Loaded(Path file, long modified, long size, List<Path> classRoots, CoverageIndex index) {
+    }
+
+    /**
+     * Build output directories of Gradle and Maven projects, relative to a module content root.
+     */
+    private static final List<String> BUILD_OUTPUTS = List.of(
+            "build/classes/java/main", "build/classes/java/test", "target/classes", "target/test-classes");
+
+    private static Loaded last;
+
+    private CoverageIndexes() {
+    }
+
+    /**
+     * @param classDirs class directories separated by {@link File#pathSeparator}; blank for the output
+     *                  directories of {@code context}'s module
+     * @return the index of {@code path}, or {@code null} when no execution data is configured
+     */
+    public static synchronized CoverageIndex load(String path, String classDirs, PsiElement context) throws IOException {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        Path file = Path.of(path.trim());
+        List<Path> classRoots = classDirs == null || classDirs.isBlank() ? moduleOutputs(context) : split(classDirs);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (last != null && last.file().equals(file) && last.modified() == modified && last.size() == attributes.size()
+                && last.classRoots().equals(classRoots)) {
+            return last.index();
+        }
+        ExecFileLoader loader = new ExecFileLoader();
+        loader.load(file.toFile());
+        CoverageIndex index = new CoverageIndex(loader.getExecutionDataStore(), classRoots);
+        last = new Loaded(file, modified, attributes.size(), classRoots, index);
+        return index;
+    }
+
+    private static List<Path> split(String classDirs) {
+        List<Path> roots = new ArrayList<>();
+        for (String dir : classDirs.split(File.pathSeparator)) {
+            if (!dir.isBlank()) {
+                roots.add(Path.of(dir.trim()));
+            }
+        }
+        return roots;
+    }
+
+    private static List<Path> moduleOutputs(PsiElement context) {
+        Module module = context != null ? ModuleUtilCore.findModuleForPsiElement(context) : null;
+        if (module == null) {
+            return List.of();
+        }
+        Set<Path> roots = new LinkedHashSet<>();
+        CompilerModuleExtension compiler = CompilerModuleExtension.getInstance(module);
+        if (compiler != null) {
+            for (VirtualFile output : new VirtualFile[]{compiler.getCompilerOutputPath(), compiler.getCompilerOutputPathForTests()}) {
+                if (output != null) {
+                    roots.add(output.toNioPath());
+                }
+            }
+        }
+        for (VirtualFile contentRoot : ModuleRootManager.getInstance(module).getContentRoots()) {
+            for (String output : BUILD_OUTPUTS) {
+                Path dir = contentRoot.toNioPath().resolve(output);
+                if (Files.isDirectory(dir)) {
+                    roots.add(dir);
+                }
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+}
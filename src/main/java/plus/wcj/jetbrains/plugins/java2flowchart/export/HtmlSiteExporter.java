@@ -0,0 +1,349 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.export;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.MermaidSource;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.RenderOptions;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.SvgFlowchartRenderer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Turns the generated Markdown tree ({@code Java2Flowchart/<package>/<Class>/<method>.md}) into a static HTML
+ * site: one page per Markdown file, an {@code index.html} with a package/class navigation tree and a search box,
+ * and {@code assets/search-index.js} holding method names and node labels. Mermaid diagrams are laid out ahead of
+ * time by {@link SvgFlowchartRenderer} and shipped inside inert {@code <template>}s that {@code site.js} attaches
+ * when they scroll into view, so a page with dozens of diagrams only lays out the visible ones. Every asset is
+ * written next to the pages; the site works from {@code file://} without network access.
+ */
+public final class HtmlSiteExporter {
+    private static final Pattern LINK = Pattern.compile("\\[((?:\\\\.|[^\\]\\\\])*)]\\(([^)\\s]*)\\)");
+    private static final Pattern SVG_HEIGHT = Pattern.compile("height=\"([0-9.]+)\"");
+    private static final String CALLEES_SUFFIX = "_callees";
+    private static final List<String> ASSETS = List.of("site.css", "site.js");
+
+    private final SvgFlowchartRenderer svgRenderer = new SvgFlowchartRenderer();
+
+    /**
+     * @param pages     Markdown files converted
+     * @param diagrams  Mermaid diagrams pre-rendered as SVG
+     */
+    public record Result(int pages, int diagrams) {
+    }
+
+    private record Page(String title, String pkg, String cls, String href, boolean callee, Set<String> labels) {
+    }
+
+    /**
+     * @param onPage called with each Markdown file before it is converted, e.g. to report progress or cancel
+     */
+    public Result export(Path source, Path site, boolean zh, Consumer<Path> onPage) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(source)) {
+            files = walk.filter(p -> p.getFileName().toString().endsWith(".md") && Files.isRegularFile(p))
+                    .filter(p -> !p.startsWith(site))
+                    .sorted()
+                    .toList();
+        }
+        List<Page> pages = new ArrayList<>(files.size());
+        int[] diagrams = {0};
+        for (Path file : files) {
+            onPage.accept(file);
+            Path rel = source.relativize(file);
+            String href = pageHref(rel.toString().replace('\\', '/'));
+            String root = "../".repeat(rel.getNameCount() - 1);
+            String markdown = Files.readString(file, StandardCharsets.UTF_8);
+            Set<String> labels = new LinkedHashSet<>();
+            String body = toHtml(markdown, labels, diagrams);
+            String title = title(markdown, rel.getFileName().toString());
+            Page page = page(rel, title, href, labels);
+            pages.add(page);
+            Path target = site.resolve(href);
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, document(title, breadcrumb(page, root, zh), body, root, false), StandardCharsets.UTF_8);
+        }
+        Path assets = site.resolve("assets");
+        Files.createDirectories(assets);
+        for (String asset : ASSETS) {
+            try (InputStream in = Objects.requireNonNull(HtmlSiteExporter.class.getResourceAsStream("/site/" + asset), asset)) {
+                Files.write(assets.resolve(asset), in.readAllBytes());
+            }
+        }
+        try (Writer writer = Files.newBufferedWriter(assets.resolve("search-index.js"), StandardCharsets.UTF_8)) {
+            writeSearchIndex(pages, writer);
+        }
+        Files.writeString(site.resolve("index.html"),
+                document("Java2Flowchart", "", index(pages, zh), "", true), StandardCharsets.UTF_8);
+        return new Result(pages.size(), diagrams[0]);
+    }
+
+    /**
+     * {@code <package dirs>/<Class>/<method>.md}; pages below {@code <method>_callees/} are callee pages of the
+     * method and stay out of the navigation tree.
+     */
+    private static Page page(Path rel, String title, String href, Set<String> labels) {
+        int count = rel.getNameCount();
+        boolean callee = count >= 2 && rel.getName(count - 2).toString().endsWith(CALLEES_SUFFIX);
+        int clsIndex = count - (callee ? 3 : 2);
+        String cls = clsIndex >= 0 ? rel.getName(clsIndex).toString() : "";
+        List<String> pkgParts = new ArrayList<>();
+        for (int i = 0; i < clsIndex; i++) {
+            pkgParts.add(rel.getName(i).toString());
+        }
+        return new Page(title, String.join(".", pkgParts), cls, href, callee, labels);
+    }
+
+    private static String index(List<Page> pages, boolean zh) {
+        StringBuilder out = new StringBuilder();
+        out.append("<h1>Java2Flowchart</h1>\n<input id=\"search\" type=\"search\" placeholder=\"")
+                .append(zh ? "搜索方法名或节点文本" : "Search methods and node labels")
+                .append("\" autocomplete=\"off\">\n<ul id=\"search-results\"></ul>\n<nav class=\"tree\">\n");
+        Map<String, Map<String, List<Page>>> tree = new TreeMap<>();
+        for (Page page : pages) {
+            if (!page.callee()) {
+                tree.computeIfAbsent(page.pkg(), k -> new TreeMap<>()).computeIfAbsent(page.cls(), k -> new ArrayList<>()).add(page);
+            }
+        }
+        tree.forEach((pkg, classes) -> {
+            out.append("<details open><summary>").append(escape(pkg.isEmpty() ? "(root)" : pkg)).append("</summary>\n");
+            classes.forEach((cls, methods) -> {
+                out.append("<details><summary>").append(escape(cls)).append("</summary>\n<ul>\n");
+                for (Page page : methods) {
+                    out.append("<li><a href=\"").append(escape(page.href())).append("\">")
+                            .append(escape(page.title())).append("</a></li>\n");
+                }
+                out.append("</ul>\n</details>\n");
+            });
+            out.append("</details>\n");
+        });
+        return out.append("</nav>\n").toString();
+    }
+
+    private static String breadcrumb(Page page, String root, boolean zh) {
+        StringBuilder out = new StringBuilder("<a href=\"").append(root).append("index.html\">")
+                .append(zh ? "索引" : "Index").append("</a>");
+        if (!page.pkg().isEmpty()) {
+            out.append(" / ").append(escape(page.pkg()));
+        }
+        if (!page.cls().isEmpty()) {
+            out.append(" / ").append(escape(page.cls()));
+        }
+        return out.toString();
+    }
+
+    private static String document(String title, String breadcrumb, String body, String root, boolean searchIndex) {
+        StringBuilder out = new StringBuilder(body.length() + 512);
+        out.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>").append(escape(title))
+                .append("</title>\n<link rel=\"stylesheet\" href=\"").append(root).append("assets/site.css\">\n</head>\n<body>\n");
+        if (!breadcrumb.isEmpty()) {
+            out.append("<header>").append(breadcrumb).append("</header>\n");
+        }
+        out.append("<main>\n").append(body).append("</main>\n");
+        if (searchIndex) {
+            out.append("<script src=\"").append(root).append("assets/search-index.js\"></script>\n");
+        }
+        out.append("<script src=\"").append(root).append("assets/site.js\"></script>\n</body>\n</html>\n");
+        return out.toString();
+    }
+
+    private static void writeSearchIndex(List<Page> pages, Writer out) throws IOException {
+        out.write("window.J2F_SEARCH = ");
+        JsonWriter json = new JsonWriter(out);
+        json.beginArray();
+        for (Page page : pages) {
+            json.beginObject()
+                    .name("t").value(page.title())
+                    .name("c").value(page.pkg().isEmpty() ? page.cls() : page.pkg() + "." + page.cls())
+                    .name("u").value(page.href())
+                    .name("l").beginArray();
+            for (String label : page.labels()) {
+                json.value(label);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+        out.write(";\n");
+    }
+
+    /**
+     * The subset of Markdown the generator writes: headings, fenced code, lists, links, inline code and
+     * paragraphs.
+     */
+    private String toHtml(String markdown, Set<String> labels, int[] diagrams) {
+        StringBuilder out = new StringBuilder(markdown.length() + 256);
+        String[] lines = markdown.split("\n", -1);
+        boolean inList = false;
+        boolean inParagraph = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].stripTrailing();
+            if (line.startsWith("```")) {
+                String fence = line.substring(3).strip();
+                StringBuilder code = new StringBuilder();
+                for (i++; i < lines.length && !lines[i].startsWith("```"); i++) {
+                    code.append(lines[i]).append('\n');
+                }
+                inList = close(out, inList, "</ul>\n");
+                inParagraph = close(out, inParagraph, "</p>\n");
+                out.append(fence.equals("mermaid") ? diagram(code, labels, diagrams) : codeBlock(code, fence));
+                continue;
+            }
+            String item = line.stripLeading();
+            if (line.isBlank()) {
+                inList = close(out, inList, "</ul>\n");
+                inParagraph = close(out, inParagraph, "</p>\n");
+            } else if (line.startsWith("#")) {
+                int level = 0;
+                while (level < line.length() && line.charAt(level) == '#') {
+                    level++;
+                }
+                inList = close(out, inList, "</ul>\n");
+                inParagraph = close(out, inParagraph, "</p>\n");
+                level = Math.min(level, 6);
+                out.append("<h").append(level).append('>').append(inline(line.substring(level).strip()))
+                        .append("</h").append(level).append(">\n");
+            } else if (item.startsWith("- ")) {
+                inParagraph = close(out, inParagraph, "</p>\n");
+                if (!inList) {
+                    out.append("<ul>\n");
+                    inList = true;
+                }
+                out.append(line.startsWith(" ") ? "<li class=\"nested\">" : "<li>")
+                        .append(inline(item.substring(2))).append("</li>\n");
+            } else {
+                inList = close(out, inList, "</ul>\n");
+                if (!inParagraph) {
+                    out.append("<p>");
+                    inParagraph = true;
+                } else {
+                    out.append("<br>\n");
+                }
+                out.append(inline(line.strip()));
+            }
+        }
+        close(out, inList, "</ul>\n");
+        close(out, inParagraph, "</p>\n");
+        return out.toString();
+    }
+
+    private static boolean close(StringBuilder out, boolean open, String tag) {
+        if (open) {
+            out.append(tag);
+        }
+        return false;
+    }
+
+    private String diagram(CharSequence code, Set<String> labels, int[] diagrams) {
+        ControlFlowGraph graph = MermaidSource.parse(code);
+        if (graph == null) {
+            return codeBlock(code, "mermaid");
+        }
+        for (Node node : graph.nodes()) {
+            String label = node.label().replace("<br/>", " ").strip();
+            if (!label.isEmpty()) {
+                labels.add(label);
+            }
+        }
+        diagrams[0]++;
+        String svg = svgRenderer.render(graph, RenderOptions.topDown());
+        Matcher height = SVG_HEIGHT.matcher(svg);
+        String style = height.find() ? " style=\"height:" + height.group(1) + "px\"" : "";
+        return "<figure class=\"diagram\"" + style + "><template>\n" + svg + "</template></figure>\n";
+    }
+
+    private static String codeBlock(CharSequence code, String language) {
+        return "<pre><code" + (language.isEmpty() ? "" : " class=\"language-" + escape(language) + "\"") + ">"
+                + escape(code.toString()) + "</code></pre>\n";
+    }
+
+    /**
+     * Inline code spans, then links (with {@code .md} targets pointing at the converted pages).
+     */
+    private static String inline(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        String[] parts = text.split("`", -1);
+        for (int k = 0; k < parts.length; k++) {
+            if (k % 2 == 1 && k < parts.length - 1) {
+                out.append("<code>").append(escape(parts[k])).append("</code>");
+                continue;
+            }
+            String part = k % 2 == 1 ? "`" + parts[k] : parts[k];
+            Matcher link = LINK.matcher(part);
+            int last = 0;
+            while (link.find()) {
+                out.append(escape(part.substring(last, link.start())));
+                String label = link.group(1).replace("\\[", "[").replace("\\]", "]");
+                out.append("<a href=\"").append(escape(pageHref(link.group(2)))).append("\">")
+                        .append(escape(label)).append("</a>");
+                last = link.end();
+            }
+            out.append(escape(part.substring(last)));
+        }
+        return out.toString();
+    }
+
+    private static String pageHref(String href) {
+        if (href.contains("://")) {
+            return href;
+        }
+        int hash = href.indexOf('#');
+        String path = hash < 0 ? href : href.substring(0, hash);
+        return path.endsWith(".md") ? path.substring(0, path.length() - 3) + ".html" + href.substring(path.length()) : href;
+    }
+
+    private static String title(String markdown, String fallback) {
+        for (String line : markdown.split("\n", 20)) {
+            if (line.startsWith("# ")) {
+                return line.substring(2).strip();
+            }
+        }
+        return fallback.endsWith(".md") ? fallback.substring(0, fallback.length() - 3) : fallback;
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.export;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON generator: tokens go straight to the {@link Appendable}, nothing is buffered besides
+ * one flag per open container. Callers are trusted to produce well-formed sequences.
+ */
+public final class JsonWriter {
+    private final Appendable out;
+    private boolean[] hasElements = new boolean[16];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    public JsonWriter(Appendable out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        out.append(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separator();
+        out.append(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separator();
+        out.append("null");
+        return this;
+    }
+
+    /**
+     * Writes {@code name: value} unless the value is {@code null}.
+     */
+    public JsonWriter optional(String name, String value) throws IOException {
+        return value == null ? this : name(name).value(value);
+    }
+
+    public JsonWriter optional(String name, Integer value) throws IOException {
+        return value == null ? this : name(name).value(value.longValue());
+    }
+
+    public JsonWriter optional(String name, Boolean value) throws IOException {
+        return value == null ? this : name(name).value(value.booleanValue());
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separator();
+        out.append(bracket);
+        if (++depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        out.append(bracket);
+        return this;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth]) {
+                out.append(',');
+            }
+            hasElements[depth] = true;
+        }
+    }
+
+    private void string(String value) throws IOException {
+        out.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                // keep line separators out of NDJSON records and JavaScript consumers
+                case '\u2028' -> "\\u2028";
+                case '\u2029' -> "\\u2029";
+                default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (escape != null) {
+                out.append(value, start, i).append(escape);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, length).append('"');
+    }
+}
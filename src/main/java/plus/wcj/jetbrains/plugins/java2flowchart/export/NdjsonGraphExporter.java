@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.export;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Edge;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the IR as newline-delimited JSON, one record per method:
+ * <pre>
+ * {"method":"a.B.m(int x)","entry":"..","exit":"..","nodes":[..],"edges":[..],
+ *  "callees":[{"calleeKey":"a.C.n()","entry":"..","exit":"..","nodes":[..],"edges":[..]}, ..]}
+ * </pre>
+ * Expanded callee graphs are listed once per {@code calleeKey} and referenced from nodes by key, so records stay
+ * flat however deep the call tree goes. Keys are {@code JavaFlowExtractor.methodKey}: the parameter list is kept as
+ * written, names included.
+ */
+public final class NdjsonGraphExporter {
+
+    public void write(String method, ControlFlowGraph graph, Appendable out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        Deque<NodeMeta> pending = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        json.beginObject().name("method").value(method);
+        writeGraph(json, graph, pending, seen);
+        json.name("callees").beginArray();
+        while (!pending.isEmpty()) {
+            NodeMeta call = pending.poll();
+            json.beginObject().name("calleeKey").value(call.getCalleeKey());
+            writeGraph(json, call.getCalleeGraph(), pending, seen);
+            json.endObject();
+        }
+        json.endArray().endObject();
+        out.append('\n');
+    }
+
+    private void writeGraph(JsonWriter json, ControlFlowGraph graph, Deque<NodeMeta> pending, Set<String> seen)
+            throws IOException {
+        json.name("entry").value(graph.entryId());
+        json.name("exit").value(graph.exitId());
+        json.name("nodes").beginArray();
+        for (Node node : graph.nodes()) {
+            NodeMeta meta = node.meta();
+            json.beginObject()
+                    .name("id").value(node.id())
+                    .name("type").value(node.type().name())
+                    .name("label").value(node.label());
+            json.optional("line", meta.getLineNumber())
+                    .optional("startLine", meta.getStartLine())
+                    .optional("endLine", meta.getEndLine())
+                    .optional("coverage", meta.getCoverage() != null ? meta.getCoverage().name() : null)
+                    .optional("branchCoverage", meta.getBranchCoverage() != null ? meta.getBranchCoverage().name() : null)
+                    .optional("degradation", meta.getDegradation());
+            writeCall(json, meta, pending, seen);
+            List<NodeMeta> inlineCalls = meta.getInlineCalls();
+            if (inlineCalls != null && !inlineCalls.isEmpty()) {
+                json.name("inlineCalls").beginArray();
+                for (NodeMeta inline : inlineCalls) {
+                    json.beginObject().optional("line", inline.getLineNumber());
+                    writeCall(json, inline, pending, seen);
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.name("edges").beginArray();
+        for (Edge edge : graph.edges()) {
+            json.beginObject()
+                    .name("from").value(edge.from())
+                    .name("to").value(edge.to())
+                    .name("type").value(edge.type().name())
+                    .optional("label", edge.label())
+                    .optional("coverage", edge.coverage() != null ? edge.coverage().name() : null)
+                    .endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeCall(JsonWriter json, NodeMeta meta, Deque<NodeMeta> pending, Set<String> seen) throws IOException {
+        if (meta.getCallee() == null) {
+            return;
+        }
+        json.name("callee").value(meta.getCallee())
+                .optional("calleeKey", meta.getCalleeKey())
+                .optional("calleeDisplay", meta.getCalleeDisplay())
+                .optional("jdk", meta.getIsJdk())
+                .optional("skipped", meta.getSkipCallRender())
+                .optional("recursive", meta.getRecursive())
+                .optional("streamStage", meta.getStreamStage() != null ? meta.getStreamStage().name() : null);
+        boolean expanded = meta.getCalleeGraph() != null || meta.getCalleeGraphRef() != null;
+        json.name("expanded").value(expanded);
+        if (meta.getCalleeGraph() != null && meta.getCalleeKey() != null && seen.add(meta.getCalleeKey())) {
+            pending.add(meta);
+        }
+    }
+}
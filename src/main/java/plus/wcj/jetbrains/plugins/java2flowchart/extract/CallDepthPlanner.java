@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiBlockStatement;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiDoWhileStatement;
+import com.intellij.psi.PsiEmptyStatement;
+import com.intellij.psi.PsiForStatement;
+import com.intellij.psi.PsiForeachStatement;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiSwitchStatement;
+import com.intellij.psi.PsiTryStatement;
+import com.intellij.psi.PsiWhileStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Picks the call depth for the "auto" mode from a cheap PSI pre-pass: every method's statements are counted and its
+ * expandable calls resolved, without building graphs. Level by level, the distinct callees a further level would
+ * add (renderers draw each callee graph once) are priced by their statement counts; the plan is the deepest level
+ * whose predicted node count fits the budget. The pre-pass stops at a deadline, keeping the last level that was
+ * fully priced, so methods too large to even summarize in time are not expanded further.
+ */
+final class CallDepthPlanner {
+    static final long PLAN_BUDGET_MS = 500;
+    /**
+     * Upper bound of the planned depth, the same as the settings spinner's.
+     */
+    static final int MAX_DEPTH = 10;
+    /**
+     * Start and end nodes every graph adds on top of its statements.
+     */
+    private static final int GRAPH_OVERHEAD = 2;
+
+    private record Summary(int nodes, List<PsiMethod> callees) {
+    }
+
+    private final Predicate<PsiMethod> expandable;
+    private final Map<PsiMethod, Summary> summaries = new HashMap<>();
+
+    /**
+     * @param expandable whether a resolved call target with a body would be expanded
+     */
+    CallDepthPlanner(Predicate<PsiMethod> expandable) {
+        this.expandable = expandable;
+    }
+
+    /**
+     * @return the deepest call depth, in {@code [0, MAX_DEPTH]}, whose predicted node count fits {@code nodeBudget}
+     */
+    int plan(PsiMethod root, int nodeBudget) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PLAN_BUDGET_MS);
+        Set<PsiMethod> seen = new LinkedHashSet<>();
+        seen.add(root);
+        List<PsiMethod> frontier = List.of(root);
+        long nodes = summary(root).nodes();
+        int depth = 0;
+        while (depth < MAX_DEPTH) {
+            List<PsiMethod> next = new ArrayList<>();
+            long added = 0;
+            for (PsiMethod method : frontier) {
+                for (PsiMethod callee : summary(method).callees()) {
+                    if (seen.add(callee)) {
+                        next.add(callee);
+                        added += summary(callee).nodes();
+                    }
+                }
+                if (System.nanoTime() > deadline) {
+                    return depth;
+                }
+            }
+            if (next.isEmpty()) {
+                // every reachable callee is already expanded: a deeper level changes nothing
+                return Math.max(depth, 1);
+            }
+            if (nodes + added > nodeBudget) {
+                return depth;
+            }
+            nodes += added;
+            depth++;
+            frontier = next;
+        }
+        return depth;
+    }
+
+    private Summary summary(PsiMethod method) {
+        Summary summary = summaries.get(method);
+        if (summary == null) {
+            summary = summarize(method);
+            summaries.put(method, summary);
+        }
+        return summary;
+    }
+
+    private Summary summarize(PsiMethod method) {
+        PsiCodeBlock body = method.getBody();
+        if (body == null) {
+            return new Summary(GRAPH_OVERHEAD, List.of());
+        }
+        int[] nodes = {GRAPH_OVERHEAD};
+        Set<PsiMethod> callees = new LinkedHashSet<>();
+        body.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitStatement(PsiStatement statement) {
+                ProgressManager.checkCanceled();
+                if (!(statement instanceof PsiBlockStatement) && !(statement instanceof PsiEmptyStatement)) {
+                    nodes[0]++;
+                }
+                if (statement instanceof PsiIfStatement || statement instanceof PsiSwitchStatement
+                        || statement instanceof PsiTryStatement || statement instanceof PsiForStatement
+                        || statement instanceof PsiForeachStatement || statement instanceof PsiWhileStatement
+                        || statement instanceof PsiDoWhileStatement) {
+                    // merge and loop-exit nodes
+                    nodes[0]++;
+                }
+                super.visitStatement(statement);
+            }
+
+            @Override
+            public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+                PsiMethod target = expression.resolveMethod();
+                if (target != null && target.getBody() != null && !target.isEquivalentTo(method)
+                        && expandable.test(target)) {
+                    callees.add(target);
+                }
+                super.visitMethodCallExpression(expression);
+            }
+
+            @Override
+            public void visitClass(PsiClass aClass) {
+                // local and anonymous classes are not part of the method's graph
+            }
+        });
+        return new Summary(nodes[0], List.copyOf(callees));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import plus.wcj.jetbrains.plugins.java2flowchart.coverage.CoverageIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+import plus.wcj.jetbrains.plugins.java2flowchart.profile.ProfileIndex;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Call-graph state shared by all {@code Builder}s of one extraction. Callee expansion is a depth-first walk over
+ * the call graph, so strongly connected components are tracked on the fly with Tarjan's algorithm: a call to a
+ * method that is still on the Tarjan stack stays inside its component and is a recursive back-edge, and each
+ * built graph is cached per depth budget so a component is expanded once and then reused from every caller.
+ */
+final class ExpansionContext {
+    private record Key(PsiElement element, int callDepth, int jdkDepth, boolean dispatch) {
+    }
+
+    /**
+     * Thrown by {@link #checkBudget()} once the extraction's wall-clock budget is spent.
+     */
+    static final class BudgetExceededException extends RuntimeException {
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Map<PsiMethod, Integer> index = new HashMap<>();
+    private final Map<PsiMethod, Integer> lowLink = new HashMap<>();
+    private final Deque<PsiMethod> stack = new ArrayDeque<>();
+    private final Set<PsiMethod> onStack = new HashSet<>();
+    private final Set<PsiMethod> onPath = new HashSet<>();
+    private final Map<Key, ControlFlowGraph> graphs = new HashMap<>();
+    private final Map<PsiMethod, List<PsiMethod>> implementations = new HashMap<>();
+    private final Map<PsiFile, CharSequence> sources = new HashMap<>();
+    private final ProfileIndex profile;
+    private final CoverageIndex coverage;
+    // callee key -> {inclusive, self} percentages of graphs released to a sink
+    private final Map<String, Double[]> shares = new HashMap<>();
+    private final boolean budgeted;
+    // System.nanoTime() the extraction must finish by
+    private final long deadline;
+
+    /**
+     * @param profile  samples mapped onto every built graph, or {@code null}
+     * @param coverage line and branch coverage mapped onto every built graph, or {@code null}
+     * @param budgetMs wall-clock budget of the extraction, 0 or less for none
+     */
+    ExpansionContext(ProfileIndex profile, CoverageIndex coverage, long budgetMs) {
+        this.profile = profile;
+        this.coverage = coverage;
+        this.budgeted = budgetMs > 0;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(budgetMs, 0));
+    }
+
+    /**
+     * Cancellation point of the extraction: honors the progress indicator and the time budget.
+     *
+     * @throws BudgetExceededException when the budget is spent
+     */
+    void checkBudget() {
+        ProgressManager.checkCanceled();
+        if (budgeted && System.nanoTime() - deadline > 0) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    ProfileIndex profile() {
+        return profile;
+    }
+
+    CoverageIndex coverage() {
+        return coverage;
+    }
+
+    /**
+     * Keeps the callee percentages of a call whose graph is streamed away, for later calls to the same key.
+     */
+    void rememberShare(String calleeKey, NodeMeta call) {
+        if (calleeKey != null && call.getCalleeSamplePercent() != null) {
+            shares.put(calleeKey, new Double[]{call.getCalleeSamplePercent(), call.getCalleeSelfPercent()});
+        }
+    }
+
+    void applyShare(String calleeKey, NodeMeta call) {
+        Double[] share = calleeKey != null ? shares.get(calleeKey) : null;
+        if (share != null) {
+            call.setCalleeSamplePercent(share[0]).setCalleeSelfPercent(share[1]);
+        }
+    }
+
+    /**
+     * Starts expanding {@code method}; every call must be paired with {@link #exit(PsiMethod, PsiMethod)}.
+     */
+    void enter(PsiMethod method) {
+        onPath.add(method);
+        if (!index.containsKey(method)) {
+            int next = index.size();
+            index.put(method, next);
+            lowLink.put(method, next);
+            stack.push(method);
+            onStack.add(method);
+        }
+    }
+
+    /**
+     * Finishes {@code method} after it was expanded from {@code caller} ({@code null} for the root) and closes
+     * its component when it is the component's root.
+     */
+    void exit(PsiMethod caller, PsiMethod method) {
+        onPath.remove(method);
+        if (onStack.contains(method) && lowLink.get(method).equals(index.get(method))) {
+            PsiMethod member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+            } while (member != method);
+        }
+        // a method of an already closed component was only re-entered: its low-link belongs to that component
+        if (caller != null && onStack.contains(caller) && onStack.contains(method)) {
+            lowLink.merge(caller, lowLink.get(method), Math::min);
+        }
+    }
+
+    /**
+     * @return whether a call from {@code caller} to {@code target} closes a cycle, i.e. {@code target} is being
+     * expanded on the current path or belongs to the same, still open, component; the back-edge is recorded
+     */
+    boolean isRecursive(PsiMethod caller, PsiMethod target) {
+        if (!onPath.contains(target) && !onStack.contains(target)) {
+            return false;
+        }
+        if (onStack.contains(caller) && index.containsKey(target)) {
+            lowLink.merge(caller, index.get(target), Math::min);
+        }
+        return true;
+    }
+
+    /**
+     * @param element  the expanded method, or the lambda whose body the graph shows
+     * @param dispatch whether the graph is the dispatch over {@code element}'s implementations rather than its body
+     */
+    ControlFlowGraph cached(PsiElement element, int callDepth, int jdkDepth, boolean dispatch) {
+        return graphs.get(new Key(element, callDepth, jdkDepth, dispatch));
+    }
+
+    void cache(PsiElement element, int callDepth, int jdkDepth, boolean dispatch, ControlFlowGraph graph) {
+        graphs.put(new Key(element, callDepth, jdkDepth, dispatch), graph);
+    }
+
+    /**
+     * Text of {@code file} as its view provider holds it (the document when one is loaded), looked up once per
+     * extraction so labels can be cut from it by offset without copying the file.
+     */
+    CharSequence source(PsiFile file) {
+        return sources.computeIfAbsent(file, f -> f.getViewProvider().getContents());
+    }
+
+    /**
+     * Implementations of {@code method}, searched once per extraction.
+     */
+    List<PsiMethod> implementations(PsiMethod method, Function<PsiMethod, List<PsiMethod>> finder) {
+        return implementations.computeIfAbsent(method, finder);
+    }
+}
@@ -16,10 +16,36 @@
 
 package plus.wcj.jetbrains.plugins.java2flowchart.extract;
 
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiMethod;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.CalleeGraphSink;
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
 import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
 
 public interface FlowExtractor {
     ControlFlowGraph extract(PsiMethod method, Java2FlowchartSettings.State state);
+
+    /**
+     * Extracts the graph while handing every expanded callee graph to {@code sink} as soon as it is built.
+     * Only stub references are kept in the returned graph. A graph degraded by the time budget (see
+     * {@code NodeMeta#getDegradation()} on its entry) is built without the sink instead: it holds its callee graphs
+     * itself, and whatever the sink received belongs to the abandoned attempt.
+     */
+    default ControlFlowGraph extract(PsiMethod method, Java2FlowchartSettings.State state, CalleeGraphSink sink) {
+        return extract(method, state);
+    }
+
+    /**
+     * Loads what extraction reads from disk, i.e. the configured profile, ahead of {@link #extract}. Call it outside
+     * a read action, so a large recording is never parsed while holding the read lock.
+     */
+    default void preload(Java2FlowchartSettings.State state, Project project) {
+    }
+
+    /**
+     * @return the call depth extracting {@code method} uses: the configured one, or the planned one in auto mode
+     */
+    default int callDepth(PsiMethod method, Java2FlowchartSettings.State state) {
+        return state.getCallDepth();
+    }
 }
@@ -0,0 +1,377 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Edge;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.EdgeType;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable int-indexed graph used while folding linear actions. Nodes and edges keep their original positions,
+ * adjacency lists hold edge indices in ascending (= original list) order, and duplicate detection works on int
+ * keys, so a merge only touches the edges of the two nodes involved. Edge endpoints that do not name a node get a
+ * placeholder slot with a {@code null} node and are carried through unchanged.
+ */
+final class FoldGraph {
+    private record EdgeKey(int from, int to, int type, int label) {
+    }
+
+    private Node[] nodes;
+    private String[] ids;
+    private boolean[] nodeAlive;
+    private IntList[] out;
+    private IntList[] in;
+    private int nodeSlots;
+
+    private int[] from;
+    private int[] to;
+    private EdgeType[] type;
+    private int[] label;
+    private Edge[] original;
+    private boolean[] edgeAlive;
+    private int edgeSlots;
+
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, Integer> labelIds = new HashMap<>();
+    private final Map<String, Integer> indexById;
+    private Map<EdgeKey, Integer> keys;
+
+    FoldGraph(List<Node> nodeList, List<Edge> edgeList) {
+        int capacity = nodeList.size() + 4;
+        nodes = new Node[capacity];
+        ids = new String[capacity];
+        nodeAlive = new boolean[capacity];
+        out = new IntList[capacity];
+        in = new IntList[capacity];
+        indexById = new HashMap<>(capacity * 2);
+        for (Node node : nodeList) {
+            Integer existing = indexById.get(node.id());
+            if (existing != null) {
+                nodes[existing] = node;
+                continue;
+            }
+            addSlot(node.id(), node);
+        }
+        int edgeCapacity = edgeList.size() + 4;
+        from = new int[edgeCapacity];
+        to = new int[edgeCapacity];
+        type = new EdgeType[edgeCapacity];
+        label = new int[edgeCapacity];
+        original = new Edge[edgeCapacity];
+        edgeAlive = new boolean[edgeCapacity];
+        for (Edge edge : edgeList) {
+            int e = addEdge(slotOf(edge.from()), slotOf(edge.to()), edge.type(), labelId(edge.label()));
+            original[e] = edge;
+        }
+    }
+
+    int nodeSlots() {
+        return nodeSlots;
+    }
+
+    /**
+     * @return the node in slot {@code v}, or {@code null} for removed nodes and placeholder endpoints
+     */
+    Node node(int v) {
+        return nodeAlive[v] ? nodes[v] : null;
+    }
+
+    int outDegree(int v) {
+        return out[v].size;
+    }
+
+    int outEdge(int v, int k) {
+        return out[v].data[k];
+    }
+
+    int inDegree(int v) {
+        return in[v].size;
+    }
+
+    int inEdge(int v, int k) {
+        return in[v].data[k];
+    }
+
+    int to(int e) {
+        return to[e];
+    }
+
+    EdgeType type(int e) {
+        return type[e];
+    }
+
+    /**
+     * Replaces {@code a} with {@code merged} and folds {@code b} into it: NORMAL edges into {@code b} are dropped,
+     * every other edge of {@code b} is re-pointed at {@code a}, self-loops disappear and, among equal edges, the
+     * one earliest in the original order survives. The first merge also removes pre-existing duplicates and
+     * self-loops, as the list-based fold did.
+     */
+    void merge(int a, int b, Node merged) {
+        if (keys == null) {
+            deduplicate();
+        }
+        nodes[a] = merged;
+        for (int e : in[b].toArray()) {
+            if (type[e] == EdgeType.NORMAL) {
+                kill(e);
+            }
+        }
+        int[] touched = concatSorted(out[b].toArray(), in[b].toArray());
+        for (int e : touched) {
+            if (!edgeAlive[e]) {
+                continue;
+            }
+            unkey(e);
+            out[from[e]].remove(e);
+            in[to[e]].remove(e);
+            from[e] = from[e] == b ? a : from[e];
+            to[e] = to[e] == b ? a : to[e];
+            original[e] = null;
+            if (from[e] == to[e]) {
+                edgeAlive[e] = false;
+                continue;
+            }
+            out[from[e]].insertSorted(e);
+            in[to[e]].insertSorted(e);
+            key(e);
+        }
+        nodeAlive[b] = false;
+    }
+
+    /**
+     * Re-adds edges of {@code originalEdges} between the nodes their endpoints were merged into; {@code mergedFrom}
+     * lists of surviving nodes name the ids they absorbed.
+     */
+    void restoreMergedEdges(List<Edge> originalEdges) {
+        if (originalEdges.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> alias = new HashMap<>();
+        for (int v = 0; v < nodeSlots; v++) {
+            Node node = node(v);
+            if (node == null) {
+                continue;
+            }
+            List<String> mergedFrom = node.meta().getMergedFrom();
+            if (mergedFrom != null) {
+                for (String id : mergedFrom) {
+                    alias.put(String.valueOf(id), v);
+                }
+            }
+            alias.put(node.id(), v);
+        }
+        if (keys == null) {
+            keys = new HashMap<>();
+            for (int e = 0; e < edgeSlots; e++) {
+                if (edgeAlive[e]) {
+                    keys.putIfAbsent(keyOf(e), e);
+                }
+            }
+        }
+        for (Edge edge : originalEdges) {
+            Integer a = alias.get(edge.from());
+            Integer b = alias.get(edge.to());
+            if (a == null || b == null || a.equals(b)) {
+                continue;
+            }
+            EdgeKey key = new EdgeKey(a, b, edge.type().ordinal(), labelId(edge.label()));
+            if (!keys.containsKey(key)) {
+                keys.put(key, addEdge(a, b, edge.type(), key.label()));
+            }
+        }
+    }
+
+    List<Node> nodes() {
+        List<Node> result = new ArrayList<>(nodeSlots);
+        for (int v = 0; v < nodeSlots; v++) {
+            if (node(v) != null) {
+                result.add(nodes[v]);
+            }
+        }
+        return result;
+    }
+
+    List<Edge> edges() {
+        List<Edge> result = new ArrayList<>(edgeSlots);
+        for (int e = 0; e < edgeSlots; e++) {
+            if (!edgeAlive[e]) {
+                continue;
+            }
+            Edge edge = original[e];
+            result.add(edge != null ? edge : new Edge(ids[from[e]], ids[to[e]], type[e], labels.get(label[e])));
+        }
+        return result;
+    }
+
+    private void deduplicate() {
+        keys = new HashMap<>(edgeSlots * 2);
+        for (int e = 0; e < edgeSlots; e++) {
+            if (!edgeAlive[e]) {
+                continue;
+            }
+            if (from[e] == to[e] || keys.putIfAbsent(keyOf(e), e) != null) {
+                edgeAlive[e] = false;
+                out[from[e]].remove(e);
+                in[to[e]].remove(e);
+            }
+        }
+    }
+
+    private void key(int e) {
+        EdgeKey key = keyOf(e);
+        Integer existing = keys.get(key);
+        if (existing == null) {
+            keys.put(key, e);
+        } else if (existing < e) {
+            kill(e);
+        } else {
+            kill(existing);
+            keys.put(key, e);
+        }
+    }
+
+    private void unkey(int e) {
+        keys.remove(keyOf(e), e);
+    }
+
+    private void kill(int e) {
+        if (!edgeAlive[e]) {
+            return;
+        }
+        edgeAlive[e] = false;
+        out[from[e]].remove(e);
+        in[to[e]].remove(e);
+        if (keys != null) {
+            unkey(e);
+        }
+    }
+
+    private EdgeKey keyOf(int e) {
+        return new EdgeKey(from[e], to[e], type[e].ordinal(), label[e]);
+    }
+
+    private int slotOf(String id) {
+        Integer slot = indexById.get(id);
+        return slot != null ? slot : addSlot(id, null);
+    }
+
+    private int addSlot(String id, Node node) {
+        if (nodeSlots == nodes.length) {
+            int capacity = nodeSlots * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            nodeAlive = Arrays.copyOf(nodeAlive, capacity);
+            out = Arrays.copyOf(out, capacity);
+            in = Arrays.copyOf(in, capacity);
+        }
+        int v = nodeSlots++;
+        nodes[v] = node;
+        ids[v] = id;
+        nodeAlive[v] = true;
+        out[v] = new IntList();
+        in[v] = new IntList();
+        indexById.put(id, v);
+        return v;
+    }
+
+    private int addEdge(int a, int b, EdgeType edgeType, int labelId) {
+        if (edgeSlots == from.length) {
+            int capacity = edgeSlots * 2;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            type = Arrays.copyOf(type, capacity);
+            label = Arrays.copyOf(label, capacity);
+            original = Arrays.copyOf(original, capacity);
+            edgeAlive = Arrays.copyOf(edgeAlive, capacity);
+        }
+        int e = edgeSlots++;
+        from[e] = a;
+        to[e] = b;
+        type[e] = edgeType;
+        label[e] = labelId;
+        edgeAlive[e] = true;
+        out[a].add(e);
+        in[b].add(e);
+        return e;
+    }
+
+    /**
+     * Labels are interned so edge keys compare ints; {@code null} and empty labels share one id.
+     */
+    private int labelId(String text) {
+        String key = text == null ? "" : text;
+        Integer id = labelIds.get(key);
+        if (id == null) {
+            id = labels.size();
+            labels.add(text);
+            labelIds.put(key, id);
+        }
+        return id;
+    }
+
+    private static int[] concatSorted(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static final class IntList {
+        private int[] data = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        void insertSorted(int value) {
+            int pos = Arrays.binarySearch(data, 0, size, value);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            System.arraycopy(data, pos, data, pos + 1, size - pos);
+            data[pos] = value;
+            size++;
+        }
+
+        void remove(int value) {
+            int pos = Arrays.binarySearch(data, 0, size, value);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(data, pos + 1, data, pos, size - pos - 1);
+            size--;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
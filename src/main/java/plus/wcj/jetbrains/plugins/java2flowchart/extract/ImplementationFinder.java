@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.IndexNotReadyException;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.MethodSignatureUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the implementations a virtual call may dispatch to: overriding methods with a body, declared in project
+ * classes that inherit the target's class. Inheritors come from the index (bounded to a few times the result cap);
+ * resolving the override in each of them runs concurrently. Both phases stop at a shared deadline, so a huge
+ * hierarchy yields a partial, but still sorted and capped, list instead of stalling extraction.
+ */
+final class ImplementationFinder {
+    static final long SEARCH_BUDGET_MS = 2000;
+    private static final int CANDIDATE_FACTOR = 8;
+
+    private final int limit;
+
+    ImplementationFinder(int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Whether a call to {@code method} can reach another implementation at runtime.
+     */
+    static boolean isOverridable(PsiMethod method) {
+        PsiClass owner = method.getContainingClass();
+        return owner != null
+                && !method.isConstructor()
+                && !method.hasModifierProperty(PsiModifier.STATIC)
+                && !method.hasModifierProperty(PsiModifier.PRIVATE)
+                && !method.hasModifierProperty(PsiModifier.FINAL)
+                && !owner.hasModifierProperty(PsiModifier.FINAL)
+                && !owner.isEnum()
+                && !owner.isRecord();
+    }
+
+    /**
+     * @return overriding implementations of {@code method} (not {@code method} itself), ordered by class name
+     */
+    List<PsiMethod> find(PsiMethod method) {
+        PsiClass owner = method.getContainingClass();
+        if (owner == null || !isOverridable(method)) {
+            return List.of();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SEARCH_BUDGET_MS);
+        try {
+            List<PsiClass> inheritors = new ArrayList<>();
+            GlobalSearchScope scope = GlobalSearchScope.projectScope(method.getProject());
+            ClassInheritorsSearch.search(owner, scope, true).forEach(inheritor -> {
+                inheritors.add(inheritor);
+                return inheritors.size() < limit * CANDIDATE_FACTOR && System.nanoTime() < deadline;
+            });
+            Queue<PsiMethod> found = new ConcurrentLinkedQueue<>();
+            JobLauncher.getInstance().invokeConcurrentlyUnderProgress(inheritors,
+                    ProgressManager.getInstance().getProgressIndicator(), inheritor -> {
+                        if (System.nanoTime() > deadline) {
+                            return false;
+                        }
+                        PsiMethod override = MethodSignatureUtil.findMethodBySuperMethod(inheritor, method, false);
+                        if (override != null && override != method && override.getBody() != null
+                                && !override.hasModifierProperty(PsiModifier.ABSTRACT)) {
+                            found.add(override);
+                        }
+                        return true;
+                    });
+            List<PsiMethod> result = new ArrayList<>(new LinkedHashSet<>(found));
+            result.sort(Comparator.comparing(ImplementationFinder::sortKey));
+            return result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (IndexNotReadyException e) {
+            return List.of();
+        }
+    }
+
+    static String className(PsiMethod method) {
+        PsiClass owner = method.getContainingClass();
+        if (owner == null) {
+            return "?";
+        }
+        if (owner.getName() != null) {
+            return owner.getName();
+        }
+        PsiClass outer = PsiTreeUtil.getParentOfType(owner, PsiClass.class);
+        return "anonymous" + (outer != null && outer.getName() != null ? " in " + outer.getName() : "");
+    }
+
+    private static String sortKey(PsiMethod method) {
+        PsiClass owner = method.getContainingClass();
+        String qname = owner != null ? owner.getQualifiedName() : null;
+        return (qname != null ? qname : "~" + className(method)) + "#" + method.getTextOffset();
+    }
+}
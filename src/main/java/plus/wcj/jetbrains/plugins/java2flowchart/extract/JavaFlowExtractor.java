@@ -17,31 +17,187 @@
 package plus.wcj.jetbrains.plugins.java2flowchart.extract;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.*;
 import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiUtil;
 import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.coverage.CoverageIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.coverage.CoverageIndexes;
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.*;
+import plus.wcj.jetbrains.plugins.java2flowchart.profile.ProfileIndex;
+import plus.wcj.jetbrains.plugins.java2flowchart.profile.ProfileIndexes;
 import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class JavaFlowExtractor implements FlowExtractor {
     private static final Logger LOG = Logger.getInstance(JavaFlowExtractor.class);
+    /**
+     * Prefix of the callee key of a virtual call expanded into a dispatch graph, so the dispatch and the target's
+     * own body are rendered and streamed as distinct graphs.
+     */
+    private static final String DISPATCH_KEY_PREFIX = "dispatch:";
+    /**
+     * Prefix of the callee key of a lambda body graph; the key continues with the enclosing method's key and the
+     * lambda's offset in it.
+     */
+    private static final String LAMBDA_KEY_PREFIX = "lambda:";
+
+    private record DepthPlan(PsiMethod method, long modificationCount, int nodeBudget, int jdkApiDepth,
+                             List<String> skipRegexes, int depth) {
+    }
+
+    /**
+     * Last auto depth plan, so reporting the depth and extracting with it plan only once.
+     */
+    private volatile DepthPlan lastPlan;
 
     @Override
     public ControlFlowGraph extract(PsiMethod method, Java2FlowchartSettings.State state) {
+        return extract(method, state, null);
+    }
+
+    @Override
+    public ControlFlowGraph extract(PsiMethod method, Java2FlowchartSettings.State state, CalleeGraphSink sink) {
         Objects.requireNonNull(method, "method");
         Java2FlowchartSettings.State safeState = state != null
                 ? copyState(state)
                 : copyState(defaultState());
-        PsiCodeBlock body = method.getBody();
-        java.util.Set<PsiMethod> visited = new java.util.HashSet<>();
-        visited.add(method);
-        Builder builder = new Builder(safeState, method, visited);
-        return builder.build(method, body);
+        if (safeState.getAutoCallDepth()) {
+            safeState.setCallDepth(callDepth(method, safeState));
+        }
+        ProfileIndex profile = loadProfile(safeState, method.getProject());
+        CoverageIndex coverage = loadCoverage(safeState, method);
+        long budget = safeState.getMethodTimeBudgetMs();
+        try {
+            return build(method, safeState, new ExpansionContext(profile, coverage, budget), sink);
+        } catch (ExpansionContext.BudgetExceededException e) {
+            LOG.info("Time budget of " + budget + " ms exceeded by " + methodKey(method));
+        }
+        // the sink already holds callee graphs of the abandoned attempt, so degraded retries are built in memory
+        Java2FlowchartSettings.State reduced = reducedState(safeState);
+        if (reduced != null) {
+            try {
+                ControlFlowGraph graph = build(method, reduced, new ExpansionContext(profile, coverage, budget), null);
+                return degraded(graph, "callDepth=" + reduced.getCallDepth() + ", jdkApiDepth=" + reduced.getJdkApiDepth());
+            } catch (ExpansionContext.BudgetExceededException e) {
+                LOG.info("Reduced depths still exceed the time budget of " + methodKey(method));
+            }
+        }
+        Builder outline = new Builder(safeState, method, new ExpansionContext(profile, coverage, 0), null);
+        return degraded(outline.buildOutline(method, method.getBody()), "outline");
+    }
+
+    /**
+     * The {@code calleeKey} of {@code method}: {@code a.B.m(int x)}, the qualified class name, the method name and
+     * the parameter list as written. Exports use it to join records with the calls that reference them.
+     */
+    public static String methodKey(PsiMethod method) {
+        String signature = method.getName() + method.getParameterList().getText();
+        String qname = method.getContainingClass() != null ? method.getContainingClass().getQualifiedName() : null;
+        return qname != null ? qname + "." + signature : signature;
+    }
+
+    /**
+     * The qualified name of the class declaring the method a calleeKey points into, past the dispatch and lambda
+     * prefixes; {@code null} when the key names no class.
+     */
+    public static String ownerClassName(String calleeKey) {
+        String key = calleeKey;
+        while (key.startsWith(DISPATCH_KEY_PREFIX) || key.startsWith(LAMBDA_KEY_PREFIX)) {
+            key = key.substring(key.indexOf(':') + 1);
+        }
+        int paren = key.indexOf('(');
+        String head = paren >= 0 ? key.substring(0, paren) : key;
+        int dot = head.lastIndexOf('.');
+        return dot > 0 ? head.substring(0, dot) : null;
+    }
+
+    private static ControlFlowGraph build(PsiMethod method, Java2FlowchartSettings.State state,
+                                          ExpansionContext expansion, CalleeGraphSink sink) {
+        expansion.enter(method);
+        Builder builder = new Builder(state, method, expansion, sink);
+        ControlFlowGraph graph = builder.build(method, method.getBody());
+        expansion.exit(null, method);
+        return graph;
+    }
+
+    /**
+     * Depths for the retry after the time budget ran out: callees one level deep at most (none if that was already
+     * the case) and no JDK expansion; {@code null} when nothing can be reduced.
+     */
+    private static Java2FlowchartSettings.State reducedState(Java2FlowchartSettings.State state) {
+        int callDepth = state.getCallDepth();
+        int reducedCallDepth = callDepth < 0 || callDepth > 1 ? 1 : 0;
+        int reducedJdkDepth = Math.min(state.getJdkApiDepth(), 0);
+        if (reducedCallDepth == callDepth && reducedJdkDepth == state.getJdkApiDepth()) {
+            return null;
+        }
+        Java2FlowchartSettings.State reduced = copyState(state);
+        reduced.setCallDepth(reducedCallDepth);
+        reduced.setJdkApiDepth(reducedJdkDepth);
+        return reduced;
+    }
+
+    private static ControlFlowGraph degraded(ControlFlowGraph graph, String degradation) {
+        for (Node node : graph.nodes()) {
+            if (node.id().equals(graph.entryId())) {
+                node.meta().setDegradation(degradation);
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public int callDepth(PsiMethod method, Java2FlowchartSettings.State state) {
+        if (!state.getAutoCallDepth()) {
+            return state.getCallDepth();
+        }
+        long modificationCount = PsiModificationTracker.getInstance(method.getProject()).getModificationCount();
+        int jdkApiDepth = state.getJdkApiDepth();
+        List<String> skipRegexes = Builder.filterSkipRegexes(state.getSkipRegexEntries());
+        DepthPlan plan = lastPlan;
+        if (plan != null && plan.method().equals(method) && plan.modificationCount() == modificationCount
+                && plan.nodeBudget() == state.getAutoDepthNodeBudget() && plan.jdkApiDepth() == jdkApiDepth
+                && plan.skipRegexes().equals(skipRegexes)) {
+            return plan.depth();
+        }
+        int depth = new CallDepthPlanner(target ->
+                (jdkApiDepth > 0 || !Builder.isJdkMethod(target)) && !Builder.shouldSkipByRegex(target, skipRegexes))
+                .plan(method, state.getAutoDepthNodeBudget());
+        lastPlan = new DepthPlan(method, modificationCount, state.getAutoDepthNodeBudget(), jdkApiDepth, skipRegexes, depth);
+        return depth;
+    }
+
+    @Override
+    public void preload(Java2FlowchartSettings.State state, Project project) {
+        loadProfile(state != null ? state : defaultState(), project);
+    }
+
+    private static ProfileIndex loadProfile(Java2FlowchartSettings.State state, Project project) {
+        try {
+            return ProfileIndexes.load(state.getProfileFile(), project);
+        } catch (IOException | RuntimeException e) {
+            // a missing or unreadable profile only drops the heat overlay
+            LOG.warn("Cannot read profile " + state.getProfileFile(), e);
+            return null;
+        }
+    }
+
+    private static CoverageIndex loadCoverage(Java2FlowchartSettings.State state, PsiMethod method) {
+        try {
+            return CoverageIndexes.load(state.getCoverageFile(), state.getCoverageClasses(), method);
+        } catch (IOException | RuntimeException e) {
+            // a missing or unreadable coverage file only drops the coverage overlay
+            LOG.warn("Cannot read coverage " + state.getCoverageFile(), e);
+            return null;
+        }
     }
 
     private static Java2FlowchartSettings.State defaultState() {
@@ -67,7 +223,29 @@ public class JavaFlowExtractor implements FlowExtractor {
                 new java.util.ArrayList<>(),
                 s.getTernaryExpandLevel(),
                 s.getLabelMaxLength(),
-                s.getExportSource()
+                s.getExportSource(),
+                s.getStreamCalleeGraphs(),
+                s.getExportSvg(),
+                s.getRenderer(),
+                s.getExpandImplementations(),
+                s.getMaxImplementations(),
+                s.getExpandLambdas(),
+                s.getProfileFile(),
+                s.getCoverageFile(),
+                s.getCoverageClasses(),
+                s.getCollapseColdCode(),
+                s.getPerfLint(),
+                s.getCriticalPath(),
+                s.getLoopMultiplier(),
+                s.getCostTable(),
+                s.getAutoCallDepth(),
+                s.getAutoDepthNodeBudget(),
+                s.getMethodTimeBudgetMs(),
+                s.getCompactMermaid(),
+                s.getPaginateCallees(),
+                // the diagram server's transport settings do not shape the diagram
+                0,
+                Java2FlowchartSettings.DEFAULT_DIAGRAM_SERVER_CACHE_SIZE
         );
         List<Java2FlowchartSettings.SkipRegexEntry> copied = new ArrayList<>();
         for (Java2FlowchartSettings.SkipRegexEntry entry : s.getSkipRegexEntries()) {
@@ -93,9 +271,15 @@ public class JavaFlowExtractor implements FlowExtractor {
         private final int callDepth;
         private final int jdkApiDepth;
         private final boolean useJavadocLabels;
+        private final boolean expandImplementations;
+        private final int maxImplementations;
+        private final boolean expandLambdas;
+        private final boolean collapseColdCode;
+        private final boolean perfLint;
         private final List<String> skipRegexes;
         private final PsiMethod owner;
-        private final java.util.Set<PsiMethod> visited;
+        private final ExpansionContext expansion;
+        private final CalleeGraphSink sink;
         private final List<Node> nodes = new ArrayList<>();
         private final List<Edge> edges = new ArrayList<>();
         private final Deque<LoopContext> loopStack = new ArrayDeque<>();
@@ -103,10 +287,12 @@ public class JavaFlowExtractor implements FlowExtractor {
         private int idSequence = 0;
         private String endId;
         private boolean forceNoFold = false;
-        private final com.intellij.openapi.editor.Document document;
+        private final LineIndex lines;
+        private PsiElement methodBody;
+        private TerminalFacts terminalFacts;
         private final Map<Integer, Integer> lineCounters = new HashMap<>();
 
-        private List<String> filterSkipRegexes(List<Java2FlowchartSettings.SkipRegexEntry> entries) {
+        private static List<String> filterSkipRegexes(List<Java2FlowchartSettings.SkipRegexEntry> entries) {
             if (entries == null || entries.isEmpty()) {
                 return List.of();
             }
@@ -119,7 +305,7 @@ public class JavaFlowExtractor implements FlowExtractor {
             return patterns;
         }
 
-        Builder(Java2FlowchartSettings.State state, PsiMethod owner, java.util.Set<PsiMethod> visited) {
+        Builder(Java2FlowchartSettings.State state, PsiMethod owner, ExpansionContext expansion, CalleeGraphSink sink) {
             this.state = state;
             this.foldFluentCalls = state.getFoldFluentCalls();
             this.foldNestedCalls = state.getFoldNestedCalls();
@@ -131,26 +317,370 @@ public class JavaFlowExtractor implements FlowExtractor {
             this.callDepth = state.getCallDepth();
             this.jdkApiDepth = state.getJdkApiDepth();
             this.useJavadocLabels = state.getUseJavadocLabels();
+            this.expandImplementations = state.getExpandImplementations();
+            this.maxImplementations = state.getMaxImplementations();
+            this.expandLambdas = state.getExpandLambdas();
+            this.collapseColdCode = state.getCollapseColdCode();
+            this.perfLint = state.getPerfLint();
             this.skipRegexes = filterSkipRegexes(state.getSkipRegexEntries());
             this.owner = owner;
-            this.visited = visited;
-            this.document = com.intellij.psi.PsiDocumentManager.getInstance(owner.getProject()).getDocument(owner.getContainingFile());
+            this.expansion = expansion;
+            this.sink = sink;
+            com.intellij.openapi.editor.Document document = com.intellij.psi.PsiDocumentManager.getInstance(owner.getProject()).getDocument(owner.getContainingFile());
+            this.lines = document != null ? LineIndex.of(document, owner.getTextRange()) : null;
         }
 
         ControlFlowGraph build(PsiMethod method, PsiCodeBlock body) {
-            String startId = addNode(NodeType.START, methodSummary(method), method.getTextRange());
+            this.methodBody = body;
+            // the entry carries the method's key so renderers can point recursive calls at this graph
+            String startId = addNode(NodeType.START, methodSummary(method), method.getTextRange(),
+                    new NodeMeta().setCalleeKey(methodKey(method)));
             endId = addNode(NodeType.END, "End " + method.getName(), method.getTextRange());
             List<Endpoint> tails = List.of(new Endpoint(startId, EdgeType.NORMAL, null));
             if (body != null) {
                 tails = processStatements(Arrays.asList(body.getStatements()), tails);
             }
+            return complete(startId, tails);
+        }
+
+        /**
+         * Fallback graph of a method too costly to extract in time: one node per top-level statement, labelled with
+         * the statement's first line, without branches or callee expansion.
+         */
+        ControlFlowGraph buildOutline(PsiMethod method, PsiCodeBlock body) {
+            this.methodBody = body;
+            String startId = addNode(NodeType.START, methodSummary(method), method.getTextRange(),
+                    new NodeMeta().setCalleeKey(methodKey(method)));
+            endId = addNode(NodeType.END, "End " + method.getName(), method.getTextRange());
+            List<Endpoint> tails = List.of(new Endpoint(startId, EdgeType.NORMAL, null));
+            if (body != null) {
+                for (PsiStatement statement : body.getStatements()) {
+                    TextRange range = statement.getTextRange();
+                    CharSequence source = expansion.source(statement.getContainingFile());
+                    String label = LabelText.firstLine(source, range.getStartOffset(), range.getEndOffset(),
+                            state.getLabelMaxLength());
+                    String id = addNode(NodeType.ACTION, label, statement.getTextRange(), new NodeMeta().setNoFold(true));
+                    link(tails, id);
+                    tails = List.of(new Endpoint(id, EdgeType.NORMAL, null));
+                }
+            }
+            return complete(startId, tails);
+        }
+
+        /**
+         * Graph of a lambda body; {@code owner} stays the enclosing method, so calls back into it are recursive.
+         */
+        ControlFlowGraph buildLambda(PsiLambdaExpression lambda) {
+            PsiElement body = lambda.getBody();
+            this.methodBody = body != null ? body : lambda;
+            String startId = addNode(NodeType.START, lambdaDisplay(lambda), lambda.getTextRange());
+            endId = addNode(NodeType.END, "End lambda", lambda.getTextRange());
+            List<Endpoint> tails = List.of(new Endpoint(startId, EdgeType.NORMAL, null));
+            if (body instanceof PsiCodeBlock block) {
+                tails = processStatements(Arrays.asList(block.getStatements()), tails);
+            } else if (body instanceof PsiExpression expression) {
+                tails = handleLambdaExpression(lambda, expression, tails);
+            }
+            return complete(startId, tails);
+        }
+
+        private ControlFlowGraph complete(String startId, List<Endpoint> tails) {
             connectToEnd(tails);
             if (foldSequentialCalls || foldSequentialSetters || foldSequentialGetters || foldSequentialCtors) {
                 foldLinearActions();
             }
+            annotateCoverage();
+            annotateSamples();
+            if (perfLint) {
+                annotatePerfIssues();
+            }
             return new ControlFlowGraph(startId, endId, nodes, edges);
         }
 
+        /**
+         * Puts each costly operation on the narrowest node whose lines contain it, so a statement inside an if or
+         * loop lands on the statement rather than the enclosing decision.
+         */
+        private void annotatePerfIssues() {
+            if (methodBody == null || lines == null) {
+                return;
+            }
+            for (PerfSites.Site site : PerfSites.collect(methodBody, this::expandsFunctionalArgument)) {
+                int line = lines.line(site.offset()) + 1;
+                Node best = null;
+                for (Node node : nodes) {
+                    NodeMeta meta = node.meta();
+                    if (node.type() == NodeType.START || node.type() == NodeType.END || node.type() == NodeType.MERGE
+                            || meta.getStartLine() == null || meta.getEndLine() == null
+                            || line < meta.getStartLine() || line > meta.getEndLine()) {
+                        continue;
+                    }
+                    if (best == null || narrower(meta, best.meta())) {
+                        best = node;
+                    }
+                }
+                if (best != null) {
+                    best.meta().addPerfIssues(EnumSet.of(site.issue()));
+                }
+            }
+        }
+
+        private static boolean narrower(NodeMeta a, NodeMeta b) {
+            int spanA = a.getEndLine() - a.getStartLine();
+            int spanB = b.getEndLine() - b.getStartLine();
+            if (spanA != spanB) {
+                return spanA < spanB;
+            }
+            return a.getTextRange() != null && b.getTextRange() != null
+                    && a.getTextRange().getLength() < b.getTextRange().getLength();
+        }
+
+        private String topLevelClassName() {
+            PsiClass topLevel = PsiUtil.getTopLevelClass(owner);
+            return topLevel != null ? topLevel.getQualifiedName() : null;
+        }
+
+        /**
+         * Maps coverage onto nodes through their line range; decisions and loop heads only count their condition
+         * line. TRUE/FALSE edges then get the status of their branch, and with {@code collapseColdCode} every
+         * connected never-executed region becomes a single node.
+         */
+        private void annotateCoverage() {
+            CoverageIndex coverage = expansion.coverage();
+            String className = coverage != null ? topLevelClassName() : null;
+            if (className == null) {
+                return;
+            }
+            Map<String, Node> byId = new HashMap<>();
+            for (Node node : nodes) {
+                byId.put(node.id(), node);
+                NodeMeta meta = node.meta();
+                if (node.type() == NodeType.END || meta.getStartLine() == null || meta.getEndLine() == null) {
+                    continue;
+                }
+                boolean decision = node.type() == NodeType.DECISION || node.type() == NodeType.LOOP_HEAD;
+                meta.setCoverage(coverage.lines(className, meta.getStartLine(), decision ? meta.getStartLine() : meta.getEndLine()));
+                if (decision) {
+                    meta.setBranchCoverage(coverage.branches(className, meta.getStartLine()));
+                }
+            }
+            annotateBranches(byId);
+            if (collapseColdCode) {
+                collapseCold();
+            }
+        }
+
+        private void annotateBranches(Map<String, Node> byId) {
+            Map<String, List<Integer>> branches = new LinkedHashMap<>();
+            for (int i = 0; i < edges.size(); i++) {
+                Edge edge = edges.get(i);
+                Node from = byId.get(edge.from());
+                if ((edge.type() == EdgeType.TRUE || edge.type() == EdgeType.FALSE)
+                        && from != null && from.meta().getCoverage() != null) {
+                    branches.computeIfAbsent(edge.from(), k -> new ArrayList<>()).add(i);
+                }
+            }
+            branches.forEach((id, indexes) -> {
+                Node decision = byId.get(id);
+                Coverage[] status = new Coverage[indexes.size()];
+                int unknown = -1;
+                int missed = 0;
+                for (int k = 0; k < status.length; k++) {
+                    status[k] = branchStatus(decision, byId.get(edges.get(indexes.get(k)).to()));
+                    if (status[k] == null) {
+                        unknown = k;
+                    } else if (status[k] == Coverage.MISS) {
+                        missed++;
+                    }
+                }
+                // a decision that ran took some branch: when all others were missed, it is the remaining one
+                if (unknown >= 0 && missed == status.length - 1 && decision.meta().getCoverage() != Coverage.MISS) {
+                    status[unknown] = Coverage.HIT;
+                }
+                for (int k = 0; k < status.length; k++) {
+                    if (status[k] != null) {
+                        int index = indexes.get(k);
+                        edges.set(index, edges.get(index).withCoverage(status[k]));
+                    }
+                }
+            });
+        }
+
+        /**
+         * Status of the branch from {@code decision} to {@code target}: exact when the condition line's branches
+         * all ran or none did, otherwise the line coverage of a target on its own line inside the decision;
+         * {@code null} when that does not tell.
+         */
+        private static Coverage branchStatus(Node decision, Node target) {
+            NodeMeta meta = decision.meta();
+            if (meta.getCoverage() == Coverage.MISS || meta.getBranchCoverage() == Coverage.MISS) {
+                return Coverage.MISS;
+            }
+            if (meta.getBranchCoverage() == Coverage.HIT) {
+                return Coverage.HIT;
+            }
+            if (decision.type() != NodeType.DECISION || target == null || target.meta().getCoverage() == null) {
+                return null;
+            }
+            NodeMeta targetMeta = target.meta();
+            boolean inside = targetMeta.getStartLine() != null && targetMeta.getEndLine() != null
+                    && targetMeta.getStartLine() > meta.getStartLine() && targetMeta.getEndLine() <= meta.getEndLine();
+            if (!inside) {
+                return null;
+            }
+            return targetMeta.getCoverage() == Coverage.MISS ? Coverage.MISS : Coverage.HIT;
+        }
+
+
+        /**
+         * Replaces each connected region of never-executed nodes with one node spanning its lines; calls inside it
+         * are dropped with it.
+         */
+        private void collapseCold() {
+            Map<String, String> parent = new HashMap<>();
+            for (Node node : nodes) {
+                if (node.isCold()) {
+                    parent.put(node.id(), node.id());
+                }
+            }
+            for (Edge edge : edges) {
+                if (parent.containsKey(edge.from()) && parent.containsKey(edge.to())) {
+                    parent.put(root(parent, edge.from()), root(parent, edge.to()));
+                }
+            }
+            Map<String, List<Node>> regions = new LinkedHashMap<>();
+            for (Node node : nodes) {
+                if (parent.containsKey(node.id())) {
+                    regions.computeIfAbsent(root(parent, node.id()), k -> new ArrayList<>()).add(node);
+                }
+            }
+            Map<String, String> collapsedTo = new HashMap<>();
+            Map<String, Node> replacements = new HashMap<>();
+            for (List<Node> region : regions.values()) {
+                if (region.size() < 2) {
+                    continue;
+                }
+                Node first = region.get(0);
+                int startLine = Integer.MAX_VALUE;
+                int endLine = 0;
+                int startOffset = Integer.MAX_VALUE;
+                int endOffset = 0;
+                for (Node node : region) {
+                    NodeMeta meta = node.meta();
+                    collapsedTo.put(node.id(), first.id());
+                    startLine = Math.min(startLine, meta.getStartLine());
+                    endLine = Math.max(endLine, meta.getEndLine());
+                    if (meta.getTextRange() != null) {
+                        startOffset = Math.min(startOffset, meta.getTextRange().getStartOffset());
+                        endOffset = Math.max(endOffset, meta.getTextRange().getEndOffset());
+                    }
+                }
+                NodeMeta meta = new NodeMeta()
+                        .setLineNumber(startLine)
+                        .setStartLine(startLine)
+                        .setEndLine(endLine)
+                        .setNoFold(true)
+                        .setCoverage(Coverage.MISS);
+                if (startOffset <= endOffset) {
+                    meta.setTextRange(new TextRange(startOffset, endOffset));
+                }
+                replacements.put(first.id(), new Node(first.id(), NodeType.ACTION,
+                        "not executed (" + region.size() + " nodes)", meta));
+            }
+            if (collapsedTo.isEmpty()) {
+                return;
+            }
+            List<Node> kept = new ArrayList<>();
+            for (Node node : nodes) {
+                String target = collapsedTo.get(node.id());
+                if (target == null) {
+                    kept.add(node);
+                } else if (target.equals(node.id())) {
+                    kept.add(replacements.get(node.id()));
+                }
+            }
+            Set<Edge> remapped = new LinkedHashSet<>();
+            for (Edge edge : edges) {
+                String from = collapsedTo.getOrDefault(edge.from(), edge.from());
+                String to = collapsedTo.getOrDefault(edge.to(), edge.to());
+                if (!from.equals(to)) {
+                    remapped.add(new Edge(from, to, edge.type(), edge.label(), edge.coverage()));
+                }
+            }
+            nodes.clear();
+            nodes.addAll(kept);
+            edges.clear();
+            edges.addAll(remapped);
+        }
+
+        private static String root(Map<String, String> parent, String id) {
+            String root = id;
+            while (!parent.get(root).equals(root)) {
+                root = parent.get(root);
+            }
+            parent.put(id, root);
+            return root;
+        }
+
+        /**
+         * Maps profile samples onto nodes through their line range. A decision only counts its condition line, its
+         * branches carry their own samples; a loop head counts the whole loop.
+         */
+        private void annotateSamples() {
+            ProfileIndex profile = expansion.profile();
+            String className = profile != null ? topLevelClassName() : null;
+            if (className == null) {
+                return;
+            }
+            for (Node node : nodes) {
+                NodeMeta meta = node.meta();
+                if (node.type() == NodeType.END || meta.getStartLine() == null || meta.getEndLine() == null) {
+                    continue;
+                }
+                int toLine = node.type() == NodeType.DECISION ? meta.getStartLine() : meta.getEndLine();
+                long samples = profile.samples(className, meta.getStartLine(), toLine);
+                meta.setSamples(samples)
+                        .setSamplePercent(percent(samples, profile.totalSamples()))
+                        .setSelfPercent(percent(profile.selfSamples(className, meta.getStartLine(), toLine),
+                                profile.totalSamples()));
+            }
+        }
+
+        private static double percent(long samples, long total) {
+            return total > 0 ? samples * 100.0 / total : 0.0;
+        }
+
+        /**
+         * An expression body is the returned value, unless the functional interface is void-compatible only.
+         */
+        private List<Endpoint> handleLambdaExpression(PsiLambdaExpression lambda, PsiExpression expression,
+                                                      List<Endpoint> incoming) {
+            // PsiTypes.voidType() replaces the constant from 2023.1 on, after the 223 builds the plugin still supports
+            @SuppressWarnings("deprecation") PsiType voidType = PsiType.VOID;
+            if (!voidType.equals(LambdaUtil.getFunctionalInterfaceReturnType(lambda))) {
+                return buildReturnExpr(expression, incoming, expression.getTextRange(), ternaryExpandLevel);
+            }
+            PsiExpression expr = unwrap(expression);
+            if (expr instanceof PsiMethodCallExpression callExpression) {
+                CallInfo call = buildCallInfo(callExpression);
+                if (call != null) {
+                    NodeMeta meta = call.meta().copy();
+                    meta.addInlineAll(collectCallsFromArguments(callExpression));
+                    String callId = addNode(call.type(), call.label(), expression.getTextRange(), meta);
+                    link(incoming, callId);
+                    return List.of(new Endpoint(callId, EdgeType.NORMAL, null));
+                }
+            }
+            String actionId = addNode(NodeType.ACTION, labelFrom(expression, "?"), expression.getTextRange(),
+                    inlineMeta(collectCalls(expression)));
+            link(incoming, actionId);
+            return List.of(new Endpoint(actionId, EdgeType.NORMAL, null));
+        }
+
+        private String lambdaDisplay(PsiLambdaExpression lambda) {
+            return labelFrom(lambda.getParameterList(), "") + " ->";
+        }
+
         private String methodSummary(PsiMethod method) {
             String fallback = method.getName();
             PsiDocComment doc = method.getDocComment();
@@ -196,7 +726,7 @@ public class JavaFlowExtractor implements FlowExtractor {
         private record CallInfo(NodeType type, String label, NodeMeta meta) {
         }
 
-        private boolean isJdkMethod(PsiMethod method) {
+        private static boolean isJdkMethod(PsiMethod method) {
             PsiClass containingClass = method.getContainingClass();
             if (containingClass == null) {
                 return false;
@@ -209,39 +739,128 @@ public class JavaFlowExtractor implements FlowExtractor {
                     || qname.startsWith("sun.") || qname.startsWith("com.sun.");
         }
 
+        /**
+         * Walks {@code statements} with an explicit stack of {@link Frame}s: compound statements wait on the stack
+         * for the exits of their children and link them afterwards, so nesting depth costs heap, not Java stack.
+         * Only the block bodies of switch expression rules start a walk of their own.
+         */
         private List<Endpoint> processStatements(List<PsiStatement> statements, List<Endpoint> incoming) {
-            List<Endpoint> current = incoming;
-            for (PsiStatement statement : statements) {
-                current = handleStatement(statement, current);
-                if (current.isEmpty()) {
-                    break;
+            Deque<Frame> waiting = new ArrayDeque<>();
+            Frame top = new BlockFrame(statements, incoming);
+            List<Endpoint> childExits = null;
+            while (true) {
+                Frame child = top.resume(childExits);
+                if (child != null) {
+                    waiting.push(top);
+                    top = child;
+                    childExits = null;
+                } else if (waiting.isEmpty()) {
+                    return top.exits;
+                } else {
+                    childExits = top.exits;
+                    top = waiting.pop();
                 }
             }
-            return current;
         }
 
-        private List<Endpoint> handleStatement(PsiStatement statement, List<Endpoint> incoming) {
-            if (statement == null) {
-                return incoming;
+        /**
+         * A statement being walked by {@link #processStatements}: it adds its own nodes, hands out one child at a
+         * time and is resumed with the child's exits once the child is done.
+         */
+        private abstract static class Frame {
+            private List<Endpoint> exits;
+
+            /**
+             * @param childExits exits of the child returned by the previous call; {@code null} on the first call
+             * @return the next child to walk, or {@code null} once {@link #done} set the exits
+             */
+            abstract Frame resume(List<Endpoint> childExits);
+
+            final Frame done(List<Endpoint> exits) {
+                this.exits = exits;
+                return null;
+            }
+        }
+
+        /**
+         * Statements in sequence, with nested plain blocks flattened into the same frame; a statement without
+         * exits ends the sequence.
+         */
+        private final class BlockFrame extends Frame {
+            private final Deque<Iterator<PsiStatement>> cursors = new ArrayDeque<>();
+            private List<Endpoint> current;
+
+            BlockFrame(List<PsiStatement> statements, List<Endpoint> incoming) {
+                cursors.push(statements.iterator());
+                current = incoming;
             }
-            if (statement instanceof PsiBlockStatement block) {
-                return processStatements(Arrays.asList(block.getCodeBlock().getStatements()), incoming);
+
+            @Override
+            Frame resume(List<Endpoint> childExits) {
+                if (childExits != null) {
+                    current = childExits;
+                    if (current.isEmpty()) {
+                        return done(current);
+                    }
+                }
+                while (!cursors.isEmpty()) {
+                    Iterator<PsiStatement> cursor = cursors.peek();
+                    if (!cursor.hasNext()) {
+                        cursors.pop();
+                        continue;
+                    }
+                    PsiStatement statement = cursor.next();
+                    expansion.checkBudget();
+                    if (statement instanceof PsiBlockStatement block) {
+                        cursors.push(Arrays.asList(block.getCodeBlock().getStatements()).iterator());
+                        continue;
+                    }
+                    Frame compound = compoundFrame(statement, current);
+                    if (compound != null) {
+                        return compound;
+                    }
+                    current = handleSimple(statement, current);
+                    if (current.isEmpty()) {
+                        break;
+                    }
+                }
+                return done(current);
             }
+        }
+
+        /**
+         * A single statement, possibly missing ({@code null}), which passes {@code incoming} through.
+         */
+        private Frame child(PsiStatement statement, List<Endpoint> incoming) {
+            return new BlockFrame(statement != null ? List.of(statement) : List.of(), incoming);
+        }
+
+        private Frame compoundFrame(PsiStatement statement, List<Endpoint> incoming) {
             if (statement instanceof PsiIfStatement ifStatement) {
-                return handleIf(ifStatement, incoming);
+                return new IfFrame(ifStatement, incoming);
             }
             if (statement instanceof PsiWhileStatement whileStatement) {
-                return handleWhile(whileStatement, incoming);
+                return new WhileFrame(whileStatement, incoming);
             }
             if (statement instanceof PsiForStatement forStatement) {
-                return handleFor(forStatement, incoming);
+                return new ForFrame(forStatement, incoming);
             }
             if (statement instanceof PsiForeachStatement foreachStatement) {
-                return handleForeach(foreachStatement, incoming);
+                return new ForeachFrame(foreachStatement, incoming);
             }
             if (statement instanceof PsiDoWhileStatement doWhileStatement) {
-                return handleDoWhile(doWhileStatement, incoming);
+                return new DoWhileFrame(doWhileStatement, incoming);
+            }
+            if (statement instanceof PsiSwitchStatement switchStatement) {
+                return new SwitchFrame(switchStatement, incoming);
+            }
+            if (statement instanceof PsiTryStatement tryStatement) {
+                return new TryFrame(tryStatement, incoming);
             }
+            return null;
+        }
+
+        private List<Endpoint> handleSimple(PsiStatement statement, List<Endpoint> incoming) {
             if (statement instanceof PsiReturnStatement returnStatement) {
                 return handleReturn(returnStatement, incoming);
             }
@@ -251,88 +870,128 @@ public class JavaFlowExtractor implements FlowExtractor {
             if (statement instanceof PsiContinueStatement) {
                 return handleContinue(statement, incoming);
             }
-            if (statement instanceof PsiSwitchStatement switchStatement) {
-                return handleSwitch(switchStatement, incoming);
-            }
             if (statement instanceof PsiThrowStatement throwStatement) {
                 return handleThrow(throwStatement, incoming);
             }
-            if (statement instanceof PsiTryStatement tryStatement) {
-                return handleTry(tryStatement, incoming);
-            }
             return handleAction(statement, incoming);
         }
 
-        private List<Endpoint> handleIf(PsiIfStatement ifStatement, List<Endpoint> incoming) {
-            List<NodeMeta> inlineCalls = collectCalls(ifStatement.getCondition());
-            NodeMeta extras = inlineMeta(inlineCalls);
-            String decisionId = addNode(NodeType.DECISION, labelFrom(ifStatement.getCondition(), "if (?)"), ifStatement.getTextRange(), extras);
-            link(incoming, decisionId);
-
-            List<Endpoint> thenIncoming = List.of(new Endpoint(decisionId, EdgeType.TRUE, "true"));
-            PsiStatement elseBranch = ifStatement.getElseBranch();
-            String elseLabel;
-            if (elseBranch == null) {
-                elseLabel = "false";
-            } else if (elseBranch instanceof PsiIfStatement) {
-                elseLabel = "false: else if ";
-            } else {
-                elseLabel = "false: else";
-            }
-            List<Endpoint> elseIncoming = List.of(new Endpoint(decisionId, EdgeType.FALSE, elseLabel));
-            List<Endpoint> thenExits = handleStatement(ifStatement.getThenBranch(), thenIncoming);
-            List<Endpoint> elseExits = handleStatement(elseBranch, elseIncoming);
-
-            if (thenExits.isEmpty() && elseExits.isEmpty()) {
-                return List.of();
-            }
-            if (thenExits.isEmpty()) {
-                return elseExits;
-            }
-            if (elseExits.isEmpty()) {
-                return thenExits;
+        /**
+         * An {@code else if} ladder is one frame that walks its links in turn; every branch's exits are handed on
+         * to the next statement without forcing an empty merge node.
+         */
+        private final class IfFrame extends Frame {
+            private final List<Endpoint> branchExits = new ArrayList<>();
+            private PsiIfStatement current;
+            private List<Endpoint> currentIncoming;
+            private List<Endpoint> elseIncoming;
+            private boolean inElse;
+
+            IfFrame(PsiIfStatement ifStatement, List<Endpoint> incoming) {
+                current = ifStatement;
+                currentIncoming = incoming;
+            }
+
+            @Override
+            Frame resume(List<Endpoint> childExits) {
+                if (childExits == null) {
+                    return thenBranch();
+                }
+                branchExits.addAll(childExits);
+                if (inElse) {
+                    return done(branchExits);
+                }
+                PsiStatement elseBranch = current.getElseBranch();
+                if (elseBranch instanceof PsiIfStatement elseIf) {
+                    expansion.checkBudget();
+                    current = elseIf;
+                    currentIncoming = elseIncoming;
+                    return thenBranch();
+                }
+                inElse = true;
+                return child(elseBranch, elseIncoming);
+            }
+
+            private Frame thenBranch() {
+                List<NodeMeta> inlineCalls = collectCalls(current.getCondition());
+                NodeMeta extras = inlineMeta(inlineCalls);
+                String decisionId = addNode(NodeType.DECISION, labelFrom(current.getCondition(), "if (?)"), current.getTextRange(), extras);
+                link(currentIncoming, decisionId);
+                PsiStatement elseBranch = current.getElseBranch();
+                String elseLabel;
+                if (elseBranch == null) {
+                    elseLabel = "false";
+                } else if (elseBranch instanceof PsiIfStatement) {
+                    elseLabel = "false: else if ";
+                } else {
+                    elseLabel = "false: else";
+                }
+                elseIncoming = List.of(new Endpoint(decisionId, EdgeType.FALSE, elseLabel));
+                return child(current.getThenBranch(), List.of(new Endpoint(decisionId, EdgeType.TRUE, "true")));
             }
-            // Let subsequent statements receive both exits without forcing an empty merge node
-            List<Endpoint> combined = new ArrayList<>();
-            combined.addAll(thenExits);
-            combined.addAll(elseExits);
-            return combined;
         }
 
-        private List<Endpoint> handleWhile(PsiWhileStatement whileStatement, List<Endpoint> incoming) {
-            List<NodeMeta> inlineCalls = collectCalls(whileStatement.getCondition());
-            NodeMeta extras = inlineMeta(inlineCalls);
-            String headId = addNode(NodeType.LOOP_HEAD, labelFrom(whileStatement.getCondition(), "while (?)"), whileStatement.getTextRange(), extras);
-            String afterLoop = addNode(NodeType.MERGE, "", whileStatement.getTextRange());
-            link(incoming, headId);
+        private final class WhileFrame extends Frame {
+            private final PsiWhileStatement whileStatement;
+            private final List<Endpoint> incoming;
+            private String headId;
+            private String afterLoop;
 
-            loopStack.push(new LoopContext(headId, afterLoop));
-            List<Endpoint> bodyExits = handleStatement(whileStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "true")));
-            loopStack.pop();
+            WhileFrame(PsiWhileStatement whileStatement, List<Endpoint> incoming) {
+                this.whileStatement = whileStatement;
+                this.incoming = incoming;
+            }
 
-            link(bodyExits, headId);
-            edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
-            return List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null));
+            @Override
+            Frame resume(List<Endpoint> bodyExits) {
+                if (bodyExits == null) {
+                    List<NodeMeta> inlineCalls = collectCalls(whileStatement.getCondition());
+                    NodeMeta extras = inlineMeta(inlineCalls);
+                    headId = addNode(NodeType.LOOP_HEAD, labelFrom(whileStatement.getCondition(), "while (?)"), whileStatement.getTextRange(), extras);
+                    afterLoop = addNode(NodeType.MERGE, "", whileStatement.getTextRange());
+                    link(incoming, headId);
+                    loopStack.push(new LoopContext(headId, afterLoop));
+                    return child(whileStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "true")));
+                }
+                loopStack.pop();
+                link(bodyExits, headId);
+                edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
+                return done(List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null)));
+            }
         }
 
-        private List<Endpoint> handleDoWhile(PsiDoWhileStatement doWhileStatement, List<Endpoint> incoming) {
-            List<NodeMeta> inlineCalls = collectCalls(doWhileStatement.getCondition());
-            NodeMeta extras = inlineMeta(inlineCalls);
-            String headId = addNode(NodeType.LOOP_HEAD, labelFrom(doWhileStatement.getCondition(), "do-while (?)"), doWhileStatement.getTextRange(), extras);
-            String afterLoop = addNode(NodeType.MERGE, "", doWhileStatement.getTextRange());
+        private final class DoWhileFrame extends Frame {
+            private final PsiDoWhileStatement doWhileStatement;
+            private final List<Endpoint> incoming;
+            private String headId;
+            private String afterLoop;
+            private int edgeStart;
 
-            loopStack.push(new LoopContext(headId, afterLoop));
-            int edgeStart = edges.size();
-            List<Endpoint> bodyExits = handleStatement(doWhileStatement.getBody(), incoming);
-            String bodyEntry = findBodyEntry(incoming, edgeStart);
-            loopStack.pop();
+            DoWhileFrame(PsiDoWhileStatement doWhileStatement, List<Endpoint> incoming) {
+                this.doWhileStatement = doWhileStatement;
+                this.incoming = incoming;
+            }
 
-            link(bodyExits, headId);
-            if (bodyEntry != null) {
-                edges.add(new Edge(headId, bodyEntry, EdgeType.TRUE, "true"));
+            @Override
+            Frame resume(List<Endpoint> bodyExits) {
+                if (bodyExits == null) {
+                    List<NodeMeta> inlineCalls = collectCalls(doWhileStatement.getCondition());
+                    NodeMeta extras = inlineMeta(inlineCalls);
+                    headId = addNode(NodeType.LOOP_HEAD, labelFrom(doWhileStatement.getCondition(), "do-while (?)"), doWhileStatement.getTextRange(), extras);
+                    afterLoop = addNode(NodeType.MERGE, "", doWhileStatement.getTextRange());
+                    loopStack.push(new LoopContext(headId, afterLoop));
+                    edgeStart = edges.size();
+                    return child(doWhileStatement.getBody(), incoming);
+                }
+                String bodyEntry = findBodyEntry(incoming, edgeStart);
+                loopStack.pop();
+                link(bodyExits, headId);
+                if (bodyEntry != null) {
+                    edges.add(new Edge(headId, bodyEntry, EdgeType.TRUE, "true"));
+                }
+                edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
+                return done(List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null)));
             }
-            edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
-            return List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null));
         }
 
         private String findBodyEntry(List<Endpoint> incoming, int edgeStart) {
@@ -349,45 +1008,201 @@ public class JavaFlowExtractor implements FlowExtractor {
             return null;
         }
 
-        private List<Endpoint> handleFor(PsiForStatement forStatement, List<Endpoint> incoming) {
-            PsiStatement initialization = forStatement.getInitialization();
-            if (initialization != null && !(initialization instanceof PsiEmptyStatement)) {
-                incoming = handleStatement(initialization, incoming);
+        /**
+         * Initialization, then the body, then the update, each a child of its own.
+         */
+        private final class ForFrame extends Frame {
+            private enum Phase {INIT, BODY, UPDATE, DONE}
+
+            private final PsiForStatement forStatement;
+            private List<Endpoint> incoming;
+            private Phase phase = Phase.INIT;
+            private String headId;
+            private String afterLoop;
+
+            ForFrame(PsiForStatement forStatement, List<Endpoint> incoming) {
+                this.forStatement = forStatement;
+                this.incoming = incoming;
             }
-            boolean infinite = forStatement.getCondition() == null;
-            String conditionLabel = infinite ? "true" : labelFrom(forStatement.getCondition(), "for (?)");
-            List<NodeMeta> inlineCalls = collectCalls(forStatement.getCondition());
-            NodeMeta extras = inlineMeta(inlineCalls);
-            String headId = addNode(NodeType.LOOP_HEAD, conditionLabel, forStatement.getTextRange(), extras);
-            String afterLoop = addNode(NodeType.MERGE, "", forStatement.getTextRange());
-            link(incoming, headId);
 
-            loopStack.push(new LoopContext(headId, afterLoop));
-            List<Endpoint> bodyExits = handleStatement(forStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "true")));
-            loopStack.pop();
+            @Override
+            Frame resume(List<Endpoint> childExits) {
+                switch (phase) {
+                    case INIT -> {
+                        phase = Phase.BODY;
+                        PsiStatement initialization = forStatement.getInitialization();
+                        if (initialization != null && !(initialization instanceof PsiEmptyStatement)) {
+                            return child(initialization, incoming);
+                        }
+                        return resume(incoming);
+                    }
+                    case BODY -> {
+                        phase = Phase.UPDATE;
+                        incoming = childExits;
+                        boolean infinite = forStatement.getCondition() == null;
+                        String conditionLabel = infinite ? "true" : labelFrom(forStatement.getCondition(), "for (?)");
+                        List<NodeMeta> inlineCalls = collectCalls(forStatement.getCondition());
+                        NodeMeta extras = inlineMeta(inlineCalls);
+                        headId = addNode(NodeType.LOOP_HEAD, conditionLabel, forStatement.getTextRange(), extras);
+                        afterLoop = addNode(NodeType.MERGE, "", forStatement.getTextRange());
+                        link(incoming, headId);
+                        loopStack.push(new LoopContext(headId, afterLoop));
+                        return child(forStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "true")));
+                    }
+                    case UPDATE -> {
+                        phase = Phase.DONE;
+                        loopStack.pop();
+                        PsiStatement update = forStatement.getUpdate();
+                        if (update != null && !(update instanceof PsiEmptyStatement)) {
+                            return child(update, childExits);
+                        }
+                        return resume(childExits);
+                    }
+                    default -> {
+                        link(childExits, headId);
+                        edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
+                        return done(List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null)));
+                    }
+                }
+            }
+        }
+
+        private final class ForeachFrame extends Frame {
+            private final PsiForeachStatement foreachStatement;
+            private final List<Endpoint> incoming;
+            private String headId;
+            private String afterLoop;
 
-            PsiStatement update = forStatement.getUpdate();
-            List<Endpoint> updateExits = bodyExits;
-            if (update != null && !(update instanceof PsiEmptyStatement)) {
-                updateExits = handleStatement(update, bodyExits);
+            ForeachFrame(PsiForeachStatement foreachStatement, List<Endpoint> incoming) {
+                this.foreachStatement = foreachStatement;
+                this.incoming = incoming;
+            }
+
+            @Override
+            Frame resume(List<Endpoint> bodyExits) {
+                if (bodyExits == null) {
+                    headId = addNode(NodeType.LOOP_HEAD, "for (" + safeLabel(foreachStatement.getIterationParameter().getName()) + " : " + labelFrom(foreachStatement.getIteratedValue(), "?") + ")", foreachStatement.getTextRange());
+                    afterLoop = addNode(NodeType.MERGE, "", foreachStatement.getTextRange());
+                    link(incoming, headId);
+                    loopStack.push(new LoopContext(headId, afterLoop));
+                    return child(foreachStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "next")));
+                }
+                loopStack.pop();
+                link(bodyExits, headId);
+                edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "done"));
+                return done(List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null)));
             }
-            link(updateExits, headId);
-            edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "false"));
-            return List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null));
         }
 
-        private List<Endpoint> handleForeach(PsiForeachStatement foreachStatement, List<Endpoint> incoming) {
-            String headId = addNode(NodeType.LOOP_HEAD, "for (" + safeLabel(foreachStatement.getIterationParameter().getName()) + " : " + labelFrom(foreachStatement.getIteratedValue(), "?") + ")", foreachStatement.getTextRange());
-            String afterLoop = addNode(NodeType.MERGE, "", foreachStatement.getTextRange());
-            link(incoming, headId);
+        /**
+         * One case block after the other; a throw or return anywhere in a block also leaves through the merge.
+         */
+        private final class SwitchFrame extends Frame {
+            private final PsiSwitchStatement switchStatement;
+            private final List<Endpoint> incoming;
+            private String switchId;
+            private String mergeId;
+            private Iterator<CaseBlock> blocks;
+            private CaseBlock block;
+            private String caseId;
 
-            loopStack.push(new LoopContext(headId, afterLoop));
-            List<Endpoint> bodyExits = handleStatement(foreachStatement.getBody(), List.of(new Endpoint(headId, EdgeType.TRUE, "next")));
-            loopStack.pop();
+            SwitchFrame(PsiSwitchStatement switchStatement, List<Endpoint> incoming) {
+                this.switchStatement = switchStatement;
+                this.incoming = incoming;
+            }
 
-            link(bodyExits, headId);
-            edges.add(new Edge(headId, afterLoop, EdgeType.FALSE, "done"));
-            return List.of(new Endpoint(afterLoop, EdgeType.NORMAL, null));
+            @Override
+            Frame resume(List<Endpoint> caseExits) {
+                if (caseExits == null) {
+                    switchId = addNode(NodeType.DECISION, "switch " + labelFrom(switchStatement.getExpression(), "?"), switchStatement.getTextRange());
+                    link(incoming, switchId);
+                    mergeId = addNode(NodeType.MERGE, "end switch", switchStatement.getTextRange());
+                    PsiCodeBlock body = switchStatement.getBody();
+                    if (body == null) {
+                        edges.add(new Edge(switchId, mergeId, EdgeType.NORMAL, null));
+                        return done(List.of(new Endpoint(mergeId, EdgeType.NORMAL, null)));
+                    }
+                    switchMergeStack.push(mergeId);
+                    List<CaseBlock> cases = collectCaseBlocks(body);
+                    if (cases.isEmpty()) {
+                        edges.add(new Edge(switchId, mergeId, EdgeType.NORMAL, null));
+                    }
+                    blocks = cases.iterator();
+                } else {
+                    boolean hasTerminal = blockHasTerminal(block.statements());
+                    if (caseExits.isEmpty() && !hasTerminal) {
+                        edges.add(new Edge(caseId, mergeId, EdgeType.NORMAL, null));
+                    } else {
+                        link(caseExits, mergeId);
+                    }
+                }
+                if (blocks.hasNext()) {
+                    block = blocks.next();
+                    caseId = addNode(NodeType.DECISION, block.label(), block.range());
+                    edges.add(new Edge(switchId, caseId, EdgeType.NORMAL, null));
+                    return new BlockFrame(block.statements(), List.of(new Endpoint(caseId, EdgeType.NORMAL, null)));
+                }
+                switchMergeStack.pop();
+                addTypeLinkForSwitch(switchId, switchStatement.getExpression(), switchStatement.getTextRange());
+                return done(List.of(new Endpoint(mergeId, EdgeType.NORMAL, null)));
+            }
+        }
+
+        /**
+         * The try block, then each catch block, then the finally block that every exit of the others runs into.
+         */
+        private final class TryFrame extends Frame {
+            private final PsiTryStatement tryStatement;
+            private final List<Endpoint> incoming;
+            private final List<Endpoint> catchExits = new ArrayList<>();
+            private Iterator<PsiCatchSection> catches;
+            private List<Endpoint> normalExit;
+            private String tryId;
+            private boolean inFinally;
+
+            TryFrame(PsiTryStatement tryStatement, List<Endpoint> incoming) {
+                this.tryStatement = tryStatement;
+                this.incoming = incoming;
+            }
+
+            @Override
+            Frame resume(List<Endpoint> childExits) {
+                if (inFinally) {
+                    return done(childExits);
+                }
+                if (childExits == null) {
+                    tryId = addNode(NodeType.ACTION, "try", tryStatement.getTryBlock() != null ? tryStatement.getTryBlock().getTextRange() : tryStatement.getTextRange());
+                    link(incoming, tryId);
+                    catches = Arrays.asList(tryStatement.getCatchSections()).iterator();
+                    List<Endpoint> start = List.of(new Endpoint(tryId, EdgeType.NORMAL, null));
+                    PsiCodeBlock tryBlock = tryStatement.getTryBlock();
+                    return tryBlock != null ? new BlockFrame(Arrays.asList(tryBlock.getStatements()), start) : resume(start);
+                }
+                if (normalExit == null) {
+                    normalExit = childExits;
+                } else {
+                    catchExits.addAll(childExits);
+                }
+                if (catches.hasNext()) {
+                    PsiCatchSection catchSection = catches.next();
+                    String catchId = addNode(NodeType.ACTION, "catch (" + safeLabel(catchSection.getParameter() != null ? catchSection.getParameter().getType().getPresentableText() : "?") + ")", catchSection.getTextRange());
+                    edges.add(new Edge(tryId, catchId, EdgeType.EXCEPTION, "exception"));
+                    PsiCodeBlock catchBlock = catchSection.getCatchBlock();
+                    List<Endpoint> start = List.of(new Endpoint(catchId, EdgeType.NORMAL, null));
+                    return catchBlock != null ? new BlockFrame(Arrays.asList(catchBlock.getStatements()), start) : resume(start);
+                }
+                List<Endpoint> sources = new ArrayList<>();
+                sources.addAll(normalExit);
+                sources.addAll(catchExits);
+                PsiCodeBlock finallyBlock = tryStatement.getFinallyBlock();
+                if (finallyBlock == null) {
+                    return done(sources);
+                }
+                String finallyId = addNode(NodeType.ACTION, "finally", finallyBlock.getTextRange());
+                link(sources, finallyId);
+                inFinally = true;
+                return new BlockFrame(Arrays.asList(finallyBlock.getStatements()), List.of(new Endpoint(finallyId, EdgeType.NORMAL, null)));
+            }
         }
 
         private List<Endpoint> handleReturn(PsiReturnStatement returnStatement, List<Endpoint> incoming) {
@@ -411,7 +1226,7 @@ public class JavaFlowExtractor implements FlowExtractor {
             link(incoming, breakId);
             LoopContext loop = loopStack.peek();
             if (loop == null) {
-                LOG.warn("break outside loop at " + safeLabel(breakStatement.getText()));
+                LOG.warn("break outside loop at " + labelFrom(breakStatement, ""));
                 return List.of(new Endpoint(breakId, EdgeType.NORMAL, null));
             }
             edges.add(new Edge(breakId, loop.breakTarget(), EdgeType.BREAK, "break"));
@@ -423,45 +1238,13 @@ public class JavaFlowExtractor implements FlowExtractor {
             link(incoming, continueId);
             LoopContext loop = loopStack.peek();
             if (loop == null) {
-                LOG.warn("continue outside loop at " + safeLabel(continueStatement.getText()));
+                LOG.warn("continue outside loop at " + labelFrom(continueStatement, ""));
                 return List.of(new Endpoint(continueId, EdgeType.NORMAL, null));
             }
             edges.add(new Edge(continueId, loop.continueTarget(), EdgeType.CONTINUE, "continue"));
             return List.of();
         }
 
-        private List<Endpoint> handleSwitch(PsiSwitchStatement switchStatement, List<Endpoint> incoming) {
-            String switchId = addNode(NodeType.DECISION, "switch " + labelFrom(switchStatement.getExpression(), "?"), switchStatement.getTextRange());
-            link(incoming, switchId);
-            String mergeId = addNode(NodeType.MERGE, "end switch", switchStatement.getTextRange());
-            PsiCodeBlock body = switchStatement.getBody();
-            if (body == null) {
-                edges.add(new Edge(switchId, mergeId, EdgeType.NORMAL, null));
-                return List.of(new Endpoint(mergeId, EdgeType.NORMAL, null));
-            }
-            switchMergeStack.push(mergeId);
-            List<CaseBlock> blocks = collectCaseBlocks(body);
-            if (blocks.isEmpty()) {
-                edges.add(new Edge(switchId, mergeId, EdgeType.NORMAL, null));
-            } else {
-                for (CaseBlock block : blocks) {
-                    String caseId = addNode(NodeType.DECISION, block.label(), block.range());
-                    edges.add(new Edge(switchId, caseId, EdgeType.NORMAL, null));
-                    List<Endpoint> starts = List.of(new Endpoint(caseId, EdgeType.NORMAL, null));
-                    List<Endpoint> exits = processStatements(block.statements(), starts);
-                    boolean hasTerminal = blockHasTerminal(block.statements());
-                    if (exits.isEmpty() && !hasTerminal) {
-                        edges.add(new Edge(caseId, mergeId, EdgeType.NORMAL, null));
-                    } else {
-                        link(exits, mergeId);
-                    }
-                }
-            }
-            switchMergeStack.pop();
-            addTypeLinkForSwitch(switchId, switchStatement.getExpression(), switchStatement.getTextRange());
-            return List.of(new Endpoint(mergeId, EdgeType.NORMAL, null));
-        }
-
         private List<Endpoint> handleThrow(PsiThrowStatement throwStatement, List<Endpoint> incoming) {
             String label = "throw " + labelFrom(throwStatement.getException(), "?");
             String throwId = addNode(NodeType.THROW, label, throwStatement.getTextRange());
@@ -518,15 +1301,21 @@ public class JavaFlowExtractor implements FlowExtractor {
         }
 
         private boolean blockHasTerminal(List<PsiStatement> statements) {
+            if (statements.isEmpty()) {
+                return false;
+            }
+            if (terminalFacts == null) {
+                terminalFacts = TerminalFacts.of(methodBody);
+            }
             for (PsiStatement stmt : statements) {
-                if (containsTerminal(stmt)) {
+                if (terminalFacts.containsTerminal(stmt)) {
                     return true;
                 }
             }
             return false;
         }
 
-        private boolean shouldSkipByRegex(PsiMethod method, java.util.List<String> patterns) {
+        private static boolean shouldSkipByRegex(PsiMethod method, java.util.List<String> patterns) {
             if (method == null || patterns == null || patterns.isEmpty()) {
                 return false;
             }
@@ -550,69 +1339,94 @@ public class JavaFlowExtractor implements FlowExtractor {
             return false;
         }
 
-        private boolean containsTerminal(PsiElement element) {
-            if (element instanceof PsiReturnStatement || element instanceof PsiThrowStatement) {
-                return true;
-            }
-            for (PsiElement child : element.getChildren()) {
-                if (containsTerminal(child)) {
-                    return true;
-                }
-            }
-            return false;
+        /**
+         * One pending piece of a ternary tree: a nested conditional ({@code decisionId == null}) or a branch value
+         * hanging off {@code decisionId}.
+         */
+        private record TernaryTask(PsiExpression expression, List<Endpoint> incoming, TextRange range, int expandDepth,
+                                   String decisionId, EdgeType type, String label) {
         }
 
+        /**
+         * Expands nested ternaries depth first through an explicit stack (then branch before else branch), so long
+         * {@code a ? x : b ? y : ...} chains do not recurse.
+         */
         private List<Endpoint> handleConditionalExpression(PsiConditionalExpression conditional, List<Endpoint> incoming, TextRange range, int expandDepth) {
-            PsiExpression condition = unwrap(conditional.getCondition());
-            List<NodeMeta> inlineCalls = collectCalls(condition);
-            NodeMeta extras = inlineMeta(inlineCalls);
-            String decisionId = addNode(NodeType.DECISION, labelFrom(condition, "?"), range, extras);
-            link(incoming, decisionId);
-            int nextDepth = expandDepth < 0 ? -1 : Math.max(0, expandDepth - 1);
             List<Endpoint> exits = new ArrayList<>();
-            PsiExpression thenExpr = unwrap(conditional.getThenExpression());
-            PsiExpression elseExpr = unwrap(conditional.getElseExpression());
-
-            if (thenExpr instanceof PsiConditionalExpression nested && expandDepth != 0) {
-                exits.addAll(handleConditionalExpression(nested, List.of(new Endpoint(decisionId, EdgeType.TRUE, "true")), thenExpr.getTextRange(), nextDepth));
-            } else {
-                String thenId = addNode(NodeType.ACTION, labelFrom(thenExpr, "?"), thenExpr != null ? thenExpr.getTextRange() : range);
-                edges.add(new Edge(decisionId, thenId, EdgeType.TRUE, "true"));
-                exits.add(new Endpoint(thenId, EdgeType.NORMAL, null));
+            Deque<TernaryTask> tasks = new ArrayDeque<>();
+            tasks.push(new TernaryTask(conditional, incoming, range, expandDepth, null, null, null));
+            while (!tasks.isEmpty()) {
+                TernaryTask task = tasks.pop();
+                if (task.decisionId() != null) {
+                    PsiExpression value = task.expression();
+                    String valueId = addNode(NodeType.ACTION, labelFrom(value, "?"), value != null ? value.getTextRange() : task.range());
+                    edges.add(new Edge(task.decisionId(), valueId, task.type(), task.label()));
+                    exits.add(new Endpoint(valueId, EdgeType.NORMAL, null));
+                    continue;
+                }
+                PsiConditionalExpression current = (PsiConditionalExpression) task.expression();
+                int depth = task.expandDepth();
+                PsiExpression condition = unwrap(current.getCondition());
+                List<NodeMeta> inlineCalls = collectCalls(condition);
+                NodeMeta extras = inlineMeta(inlineCalls);
+                String decisionId = addNode(NodeType.DECISION, labelFrom(condition, "?"), task.range(), extras);
+                link(task.incoming(), decisionId);
+                int nextDepth = depth < 0 ? -1 : Math.max(0, depth - 1);
+                PsiExpression thenExpr = unwrap(current.getThenExpression());
+                PsiExpression elseExpr = unwrap(current.getElseExpression());
+                tasks.push(branchTask(elseExpr, decisionId, EdgeType.FALSE, "false", task.range(), depth, nextDepth));
+                tasks.push(branchTask(thenExpr, decisionId, EdgeType.TRUE, "true", task.range(), depth, nextDepth));
             }
+            return exits;
+        }
 
-            if (elseExpr instanceof PsiConditionalExpression nestedElse && expandDepth != 0) {
-                exits.addAll(handleConditionalExpression(nestedElse, List.of(new Endpoint(decisionId, EdgeType.FALSE, "false")), elseExpr.getTextRange(), nextDepth));
-            } else {
-                String elseId = addNode(NodeType.ACTION, labelFrom(elseExpr, "?"), elseExpr != null ? elseExpr.getTextRange() : range);
-                edges.add(new Edge(decisionId, elseId, EdgeType.FALSE, "false"));
-                exits.add(new Endpoint(elseId, EdgeType.NORMAL, null));
+        private TernaryTask branchTask(PsiExpression branch, String decisionId, EdgeType type, String label,
+                                       TextRange range, int depth, int nextDepth) {
+            if (branch instanceof PsiConditionalExpression && depth != 0) {
+                return new TernaryTask(branch, List.of(new Endpoint(decisionId, type, label)), branch.getTextRange(),
+                        nextDepth, null, null, null);
             }
-            return exits;
+            return new TernaryTask(branch, null, range, depth, decisionId, type, label);
         }
 
+        private record ReturnTask(PsiExpression expr, List<Endpoint> incoming, TextRange range, int expandDepth) {
+        }
+
+        /**
+         * A returned ternary tree is expanded depth first through an explicit stack (then branch before else
+         * branch) instead of one recursion level per nested conditional.
+         */
         private List<Endpoint> buildReturnExpr(PsiExpression expr, List<Endpoint> incoming, TextRange fallbackRange, int expandDepth) {
-            expr = unwrap(expr);
-            boolean expandTernary = expandDepth != 0;
-            int nextDepth = expandDepth < 0 ? -1 : Math.max(0, expandDepth - 1);
+            List<Endpoint> result = new ArrayList<>();
+            Deque<ReturnTask> tasks = new ArrayDeque<>();
+            tasks.push(new ReturnTask(expr, incoming, fallbackRange, expandDepth));
+            while (!tasks.isEmpty()) {
+                ReturnTask task = tasks.pop();
+                PsiExpression value = unwrap(task.expr());
+                int nextDepth = task.expandDepth() < 0 ? -1 : Math.max(0, task.expandDepth() - 1);
+                if (value instanceof PsiConditionalExpression conditional && task.expandDepth() != 0) {
+                    PsiExpression condition = unwrap(conditional.getCondition());
+                    String decisionId = addNode(NodeType.DECISION, labelFrom(condition, "?"), conditional.getTextRange());
+                    link(task.incoming(), decisionId);
+                    PsiExpression thenExpr = unwrap(conditional.getThenExpression());
+                    PsiExpression elseExpr = unwrap(conditional.getElseExpression());
+                    if (elseExpr != null) {
+                        tasks.push(new ReturnTask(elseExpr, List.of(new Endpoint(decisionId, EdgeType.FALSE, "false")), elseExpr.getTextRange(), nextDepth));
+                    }
+                    if (thenExpr != null) {
+                        tasks.push(new ReturnTask(thenExpr, List.of(new Endpoint(decisionId, EdgeType.TRUE, "true")), thenExpr.getTextRange(), nextDepth));
+                    }
+                } else {
+                    result.addAll(returnValue(value, task.incoming(), task.range(), nextDepth));
+                }
+            }
+            return result;
+        }
+
+        private List<Endpoint> returnValue(PsiExpression expr, List<Endpoint> incoming, TextRange fallbackRange, int nextDepth) {
             if (expr instanceof PsiSwitchExpression switchExpression) {
                 return handleSwitchExpressionReturn(switchExpression, incoming, fallbackRange != null ? fallbackRange : expr.getTextRange(), nextDepth);
             }
-            if (expr instanceof PsiConditionalExpression conditional && expandTernary) {
-                PsiExpression condition = unwrap(conditional.getCondition());
-                String decisionId = addNode(NodeType.DECISION, labelFrom(condition, "?"), conditional.getTextRange());
-                link(incoming, decisionId);
-                List<Endpoint> result = new ArrayList<>();
-                PsiExpression thenExpr = unwrap(conditional.getThenExpression());
-                PsiExpression elseExpr = unwrap(conditional.getElseExpression());
-                if (thenExpr != null) {
-                    result.addAll(buildReturnExpr(thenExpr, List.of(new Endpoint(decisionId, EdgeType.TRUE, "true")), thenExpr.getTextRange(), nextDepth));
-                }
-                if (elseExpr != null) {
-                    result.addAll(buildReturnExpr(elseExpr, List.of(new Endpoint(decisionId, EdgeType.FALSE, "false")), elseExpr.getTextRange(), nextDepth));
-                }
-                return result;
-            }
             if (expr instanceof PsiMethodCallExpression callExpression) {
                 CallInfo call = buildCallInfo(callExpression);
                 if (call != null) {
@@ -648,6 +1462,24 @@ public class JavaFlowExtractor implements FlowExtractor {
                         calls.add(meta);
                     }
                 }
+
+                @Override
+                public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+                    if (!expandsFunctionalArgument(expression)) {
+                        super.visitLambdaExpression(expression);
+                        return;
+                    }
+                    calls.add(lambdaCall(expression));
+                }
+
+                @Override
+                public void visitMethodReferenceExpression(@NotNull PsiMethodReferenceExpression expression) {
+                    super.visitMethodReferenceExpression(expression);
+                    NodeMeta call = functionalArgument(expression);
+                    if (call != null) {
+                        calls.add(call);
+                    }
+                }
             });
             return calls;
         }
@@ -750,7 +1582,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                 if (expr instanceof PsiConditionalExpression conditional && nextDepth != 0) {
                     return handleConditionalExpression(conditional, incoming, expr.getTextRange(), nextDepth);
                 }
-                String actionId = addNode(NodeType.ACTION, safeLabel(expr.getText()), exprStmt.getTextRange());
+                String actionId = addNode(NodeType.ACTION, labelFrom(expr, ""), exprStmt.getTextRange());
                 link(incoming, actionId);
                 return List.of(new Endpoint(actionId, EdgeType.NORMAL, null));
             }
@@ -767,7 +1599,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                 link(incoming, actionId);
                 return List.of(new Endpoint(actionId, EdgeType.NORMAL, null));
             }
-            String actionId = addNode(NodeType.ACTION, safeLabel(rule.getText()), rule.getTextRange());
+            String actionId = addNode(NodeType.ACTION, labelFrom(rule, ""), rule.getTextRange());
             link(incoming, actionId);
             return List.of(new Endpoint(actionId, EdgeType.NORMAL, null));
         }
@@ -792,41 +1624,8 @@ public class JavaFlowExtractor implements FlowExtractor {
         private record CaseBlock(String label, List<PsiStatement> statements, TextRange range) {
         }
 
-        private List<Endpoint> handleTry(PsiTryStatement tryStatement, List<Endpoint> incoming) {
-            String tryId = addNode(NodeType.ACTION, "try", tryStatement.getTryBlock() != null ? tryStatement.getTryBlock().getTextRange() : tryStatement.getTextRange());
-            link(incoming, tryId);
-            List<Endpoint> normalExit = tryStatement.getTryBlock() != null
-                    ? processStatements(Arrays.asList(tryStatement.getTryBlock().getStatements()), List.of(new Endpoint(tryId, EdgeType.NORMAL, null)))
-                    : List.of(new Endpoint(tryId, EdgeType.NORMAL, null));
-
-            List<Endpoint> catchExits = new ArrayList<>();
-            for (PsiCatchSection catchSection : tryStatement.getCatchSections()) {
-                String catchId = addNode(NodeType.ACTION, "catch (" + safeLabel(catchSection.getParameter() != null ? catchSection.getParameter().getType().getPresentableText() : "?") + ")", catchSection.getTextRange());
-                edges.add(new Edge(tryId, catchId, EdgeType.EXCEPTION, "exception"));
-                List<Endpoint> bodyExits = catchSection.getCatchBlock() != null
-                        ? processStatements(Arrays.asList(catchSection.getCatchBlock().getStatements()), List.of(new Endpoint(catchId, EdgeType.NORMAL, null)))
-                        : List.of(new Endpoint(catchId, EdgeType.NORMAL, null));
-                catchExits.addAll(bodyExits);
-            }
-
-            List<Endpoint> finallyExits = new ArrayList<>();
-            PsiCodeBlock finallyBlock = tryStatement.getFinallyBlock();
-            if (finallyBlock != null) {
-                List<Endpoint> sources = new ArrayList<>();
-                sources.addAll(normalExit);
-                sources.addAll(catchExits);
-                String finallyId = addNode(NodeType.ACTION, "finally", finallyBlock.getTextRange());
-                link(sources, finallyId);
-                finallyExits.addAll(processStatements(Arrays.asList(finallyBlock.getStatements()), List.of(new Endpoint(finallyId, EdgeType.NORMAL, null))));
-            } else {
-                finallyExits.addAll(normalExit);
-                finallyExits.addAll(catchExits);
-            }
-            return finallyExits;
-        }
-
         private List<Endpoint> handleAction(PsiStatement statement, List<Endpoint> incoming) {
-            String label = safeLabel(statement.getText());
+            String label = labelFrom(statement, "");
             NodeType type = NodeType.ACTION;
             NodeMeta meta = new NodeMeta();
             if (statement instanceof PsiDeclarationStatement decl) {
@@ -883,14 +1682,14 @@ public class JavaFlowExtractor implements FlowExtractor {
                     if (depth != 0) {
                         return handleConditionalExpression(conditional, incoming, statement.getTextRange(), depth);
                     }
-                    String actionId = addNode(NodeType.ACTION, safeLabel(expression.getText()), statement.getTextRange());
+                    String actionId = addNode(NodeType.ACTION, labelFrom(expression, ""), statement.getTextRange());
                     link(incoming, actionId);
                     return List.of(new Endpoint(actionId, EdgeType.NORMAL, null));
                 }
                 if (expression instanceof PsiAssignmentExpression assign && assign.getRExpression() instanceof PsiConditionalExpression cond) {
                     int depth = ternaryExpandLevel;
                     if (depth != 0) {
-                        String lhsLabel = safeLabel(assign.getLExpression().getText()) + " = ...";
+                        String lhsLabel = labelFrom(assign.getLExpression(), "") + " = ...";
                         String lhsId = addNode(NodeType.ACTION, lhsLabel, statement.getTextRange());
                         return handleConditionalExpression(cond, List.of(new Endpoint(lhsId, EdgeType.RETURN, "=")), statement.getTextRange(), depth);
                     }
@@ -900,22 +1699,22 @@ public class JavaFlowExtractor implements FlowExtractor {
                     PsiExpression rhs = assign2.getRExpression();
                     if (rhs instanceof PsiMethodCallExpression rhsCall) {
                         if (!foldFluentCalls && !foldNestedCalls) {
-                            String lhsLabel = safeLabel(assign2.getLExpression().getText()) + " = ...";
+                            String lhsLabel = labelFrom(assign2.getLExpression(), "") + " = ...";
                             String lhsId = addNode(NodeType.ACTION, lhsLabel, statement.getTextRange());
                             link(incoming, lhsId);
                             return handleMethodCallUnfoldWithNested(rhsCall, List.of(new Endpoint(lhsId, EdgeType.NORMAL, null)), statement.getTextRange(), lhsId, false, true);
                         } else if (!foldNestedCalls) {
-                            String lhsLabel = safeLabel(assign2.getLExpression().getText()) + " = ...";
+                            String lhsLabel = labelFrom(assign2.getLExpression(), "") + " = ...";
                             String lhsId = addNode(NodeType.ACTION, lhsLabel, statement.getTextRange());
                             link(incoming, lhsId);
                             return handleMethodCallUnfoldWithNested(rhsCall, List.of(new Endpoint(lhsId, EdgeType.NORMAL, null)), statement.getTextRange(), lhsId, false, false);
                         } else if (!foldFluentCalls) {
-                            String lhsLabel = safeLabel(assign2.getLExpression().getText()) + " = ...";
+                            String lhsLabel = labelFrom(assign2.getLExpression(), "") + " = ...";
                             String lhsId = addNode(NodeType.ACTION, lhsLabel, statement.getTextRange());
                             link(incoming, lhsId);
                             return handleMethodCallUnfoldForFluent(rhsCall, List.of(new Endpoint(lhsId, EdgeType.NORMAL, null)), statement.getTextRange(), lhsId, false);
                         }
-                        String lhsLabel = safeLabel(assign2.getLExpression().getText()) + " = ...";
+                        String lhsLabel = labelFrom(assign2.getLExpression(), "") + " = ...";
                         String lhsId = addNode(NodeType.ACTION, lhsLabel, statement.getTextRange());
                         link(incoming, lhsId);
                         List<Endpoint> current = List.of(new Endpoint(lhsId, EdgeType.NORMAL, null));
@@ -938,7 +1737,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                     } else if (!foldNestedCalls) {
                         return handleMethodCallUnfoldWithNested(callExpression, incoming, statement.getTextRange(), null, true, false);
                     } else if (!foldFluentCalls) {
-                        String baseLabel = safeLabel(expression.getText());
+                        String baseLabel = labelFrom(expression, "");
                         String baseId = addNode(NodeType.ACTION, baseLabel, statement.getTextRange());
                         link(incoming, baseId);
                         return handleMethodCallUnfoldForFluent(callExpression, List.of(new Endpoint(baseId, EdgeType.NORMAL, null)), statement.getTextRange(), baseId, true);
@@ -988,6 +1787,8 @@ public class JavaFlowExtractor implements FlowExtractor {
                             orderedInline.add(m);
                         }
                         if (!orderedInline.isEmpty()) {
+                            // the outermost call's own lambdas run last
+                            orderedInline.addAll(collectFunctionalArguments(callExpression));
                             mergedInline = orderedInline;
                         }
 
@@ -999,7 +1800,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                     }
                 } else if (expression instanceof PsiAssignmentExpression assign && assign.getRExpression() instanceof PsiSwitchExpression) {
                     SwitchGraph sg = buildSwitchGraph((PsiSwitchExpression) assign.getRExpression(), ternaryExpandLevel, expression.getTextRange());
-                    String lhs = safeLabel(assign.getLExpression().getText());
+                    String lhs = labelFrom(assign.getLExpression(), "");
                     String actionId = addNode(NodeType.ACTION, lhs + " = switch", statement.getTextRange());
                     link(incoming, actionId);
                     edges.add(new Edge(actionId, sg.switchId(), EdgeType.RETURN, "switch"));
@@ -1044,7 +1845,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                                                                boolean replaceAnchorLabelWhenNoEllipsis) {
             String anchorId = baseId;
             if (anchorId == null) {
-                anchorId = addNode(NodeType.ACTION, safeLabel(root.getText()), range);
+                anchorId = addNode(NodeType.ACTION, labelFrom(root, ""), range);
                 link(incoming, anchorId);
             } else {
                 boolean alreadyLinked = false;
@@ -1097,6 +1898,9 @@ public class JavaFlowExtractor implements FlowExtractor {
                 if (includeFluent && !labelText.startsWith("...")) {
                     labelText = "..." + labelText;
                 }
+                if (includeFluent) {
+                    labelText = withStage(labelText, meta.getStreamStage());
+                }
                 String id = addNode(info.type(), labelText, call.getTextRange(), meta);
                 idMap.put(call, id);
             }
@@ -1168,9 +1972,12 @@ public class JavaFlowExtractor implements FlowExtractor {
             Map<PsiMethodCallExpression, String> nodeIds = new java.util.LinkedHashMap<>();
 
             if (!expandFluent) {
-                String label = collapsedChainLabel(chain);
+                String label = withStage(collapsedChainLabel(chain), streamStage(root));
                 String anchorId = baseId;
                 NodeMeta extras = new NodeMeta();
+                for (PsiMethodCallExpression call : chain) {
+                    extras.addInlineAll(collectFunctionalArguments(call));
+                }
                 String finalLabel = label;
                 if (anchorId != null) {
                     Node existing = findNode(anchorId);
@@ -1206,7 +2013,8 @@ public class JavaFlowExtractor implements FlowExtractor {
                     meta.setChainSplit(true);
                     meta.setFluentChainId(chainTag);
                 }
-                String label = callLabelForChain(call, hasNested, i > 0);
+                meta.addInlineAll(collectFunctionalArguments(call));
+                String label = withStage(callLabelForChain(call, hasNested, i > 0), meta.getStreamStage());
                 if (i == 0 && anchorId != null) {
                     CallInfo merged = new CallInfo(info.type(), label, meta);
                     mergeFirstCallIntoAnchor(anchorId, merged, replaceAnchorLabelWhenNoEllipsis || hasNested);
@@ -1290,6 +2098,13 @@ public class JavaFlowExtractor implements FlowExtractor {
                     super.visitMethodCallExpression(expression);
                     depth--;
                 }
+
+                @Override
+                public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+                    if (!expandsFunctionalArgument(expression)) {
+                        super.visitLambdaExpression(expression);
+                    }
+                }
             });
             return calls;
         }
@@ -1316,7 +2131,7 @@ public class JavaFlowExtractor implements FlowExtractor {
         private String callLabelForChain(PsiMethodCallExpression call, boolean maskArgs, boolean prefixEllipsis) {
             String name = call.getMethodExpression().getReferenceName();
             if (name == null || name.isBlank()) {
-                name = safeLabel(call.getMethodExpression().getText());
+                name = labelFrom(call.getMethodExpression(), "");
             }
             String args = call.getArgumentList().getText();
             if (maskArgs) {
@@ -1407,11 +2222,11 @@ public class JavaFlowExtractor implements FlowExtractor {
 
         private CallInfo buildCallInfo(PsiMethodCallExpression callExpression) {
             if (LOG.isDebugEnabled()) {
-                LOG.debug("buildCallInfo enter: " + safeLabel(callExpression.getText()));
+                LOG.debug("buildCallInfo enter: " + labelFrom(callExpression, ""));
             }
             PsiMethod target = callExpression.resolveMethod();
             if (target == null) {
-                return new CallInfo(NodeType.CALL, safeLabel(callExpression.getText()), new NodeMeta());
+                return new CallInfo(NodeType.CALL, labelFrom(callExpression, ""), new NodeMeta());
             }
             boolean matchedSkipRegex = !skipRegexes.isEmpty() && shouldSkipByRegex(target, skipRegexes);
             boolean isJdk = isJdkMethod(target);
@@ -1428,12 +2243,13 @@ public class JavaFlowExtractor implements FlowExtractor {
             try {
                 PsiExpression qExpr = callExpression.getMethodExpression().getQualifierExpression();
                 if (qExpr != null) {
-                    qualifier = safeLabel(qExpr.getText());
+                    qualifier = labelFrom(qExpr, "");
                 }
             } catch (Throwable ignored) {
             }
-            if (owner.isEquivalentTo(target)) {
-                String base = summary.isBlank() ? safeLabel(callExpression.getMethodExpression().getText()) : summary;
+            boolean recursive = expansion.isRecursive(owner, target) || owner.isEquivalentTo(target);
+            if (recursive) {
+                String base = summary.isBlank() ? labelFrom(callExpression.getMethodExpression(), "") : summary;
                 label = "recursive call: " + base + argDisplay;
             } else {
                 String base = summary.isBlank() ? targetName : summary;
@@ -1443,13 +2259,14 @@ public class JavaFlowExtractor implements FlowExtractor {
                 label = base + argDisplay;
             }
             if (isJdk && jdkDepth == 0) {
-                label = safeLabel(callExpression.getText());
+                label = labelFrom(callExpression, "");
             }
+            StreamStage stage = expandLambdas && isJdk ? StreamStages.of(target) : null;
+            label = withStage(label, stage);
             String signature = target.getName() + target.getParameterList().getText();
-            String qname = target.getContainingClass() != null ? target.getContainingClass().getQualifiedName() : null;
-            String calleeKey = qname != null ? qname + "." + signature : signature;
+            String calleeKey = methodKey(target);
             String calleeDisplay = (summary.isBlank() ? targetName : summary) + argDisplay;
-            String bodyText = target.getBody() != null ? safeLabel(target.getBody().getText()) : signature;
+            String bodyText = target.getBody() != null ? labelFrom(target.getBody(), "") : signature;
             NodeMeta meta = new NodeMeta()
                     .setCallee(signature)
                     .setCalleeKey(calleeKey)
@@ -1462,9 +2279,13 @@ public class JavaFlowExtractor implements FlowExtractor {
             if (isSetter(signature)) {
                 meta.setIsSetter(true);
             }
-            if (document != null) {
+            if (recursive) {
+                meta.setRecursive(true);
+            }
+            meta.setStreamStage(stage);
+            if (lines != null) {
                 try {
-                    int line = document.getLineNumber(callExpression.getTextRange().getStartOffset()) + 1;
+                    int line = lines.line(callExpression.getTextRange().getStartOffset()) + 1;
                     meta.setLineNumber(line);
                 } catch (Throwable ignored) {
                 }
@@ -1478,19 +2299,220 @@ public class JavaFlowExtractor implements FlowExtractor {
                 meta.setSkipCallRender(true);
             }
             boolean allowExpand = callDepth != 0 && (!isJdk || jdkDepth > 0) && !matchedSkipRegex;
-            int nextDepth = isJdk ? jdkDepth - 1 : jdkDepth;
-            if (allowExpand && !visited.contains(target) && target.getBody() != null) {
-                java.util.Set<PsiMethod> nestedVisited = new java.util.HashSet<>(visited);
-                nestedVisited.add(target);
-                int nextCallDepth = callDepth > 0 ? callDepth - 1 : callDepth;
+            if (allowExpand && !recursive) {
+                expandTarget(target, meta, isJdk);
+            }
+            return new CallInfo(NodeType.CALL, label, meta);
+        }
+
+        /**
+         * Expands a resolved, non-recursive call target into {@code meta}: a dispatch over its implementations for
+         * virtual calls when enabled, otherwise the target's own body.
+         */
+        private void expandTarget(PsiMethod target, NodeMeta meta, boolean isJdk) {
+            int nextDepth = isJdk ? jdkApiDepth - 1 : jdkApiDepth;
+            int nextCallDepth = callDepth > 0 ? callDepth - 1 : callDepth;
+            List<PsiMethod> implementations = !isJdk && expandImplementations && ImplementationFinder.isOverridable(target)
+                    ? expansion.implementations(target, new ImplementationFinder(maxImplementations)::find)
+                    : List.of();
+            if (!implementations.isEmpty()) {
+                // virtual call: the callee graph dispatches to every implementation found
+                String display = meta.getCalleeDisplay();
+                meta.setCalleeKey(DISPATCH_KEY_PREFIX + meta.getCalleeKey());
+                attachGraph(meta, target, nextCallDepth, nextDepth, true,
+                        () -> dispatchGraph(target, display, implementations, nextCallDepth, nextDepth));
+            } else if (target.getBody() != null) {
+                expandCallee(target, meta, nextCallDepth, nextDepth);
+            }
+        }
+
+        private StreamStage streamStage(PsiMethodCallExpression call) {
+            PsiMethod target = expandLambdas ? call.resolveMethod() : null;
+            return target != null && isJdkMethod(target) ? StreamStages.of(target) : null;
+        }
+
+        private String withStage(String label, StreamStage stage) {
+            return stage == null ? label : label + " (" + stage.label() + ")";
+        }
+
+        /**
+         * Lambdas and method references passed to a call become inline calls of that call's node: a lambda shows
+         * its own body, a method reference the referenced method, both under the callee depth limits.
+         *
+         * @return the inline call, or {@code null} when {@code argument} is not expanded
+         */
+        private NodeMeta functionalArgument(PsiExpression argument) {
+            if (!expandsFunctionalArgument(argument)) {
+                return null;
+            }
+            if (argument instanceof PsiLambdaExpression lambda) {
+                return lambdaCall(lambda);
+            }
+            return argument instanceof PsiMethodReferenceExpression reference ? referenceCall(reference) : null;
+        }
+
+        private boolean expandsFunctionalArgument(PsiElement element) {
+            return expandLambdas && callDepth != 0
+                    && (element instanceof PsiLambdaExpression || element instanceof PsiMethodReferenceExpression)
+                    && element.getParent() instanceof PsiExpressionList list
+                    && list.getParent() instanceof PsiCallExpression;
+        }
+
+        private List<NodeMeta> collectFunctionalArguments(PsiMethodCallExpression callExpression) {
+            List<NodeMeta> calls = new ArrayList<>();
+            for (PsiExpression arg : callExpression.getArgumentList().getExpressions()) {
+                NodeMeta call = functionalArgument(arg);
+                if (call != null) {
+                    calls.add(call);
+                }
+            }
+            return calls;
+        }
+
+        private NodeMeta lambdaCall(PsiLambdaExpression lambda) {
+            int offset = lambda.getTextRange().getStartOffset() - owner.getTextRange().getStartOffset();
+            String display = lambdaDisplay(lambda);
+            // no line number: the key, not the line, names the graph, so several lambdas on one line stay apart
+            NodeMeta meta = new NodeMeta()
+                    .setCallee("lambda" + labelFrom(lambda.getParameterList(), ""))
+                    .setCalleeKey(LAMBDA_KEY_PREFIX + methodKey(owner) + "@" + offset)
+                    .setCalleeBody(labelFrom(lambda, ""))
+                    .setCalleeDisplay(display);
+            int nextCallDepth = callDepth > 0 ? callDepth - 1 : callDepth;
+            attachGraph(meta, lambda, nextCallDepth, jdkApiDepth, false, () -> {
+                Java2FlowchartSettings.State nestedState = copyState(state);
+                nestedState.setCallDepth(nextCallDepth);
+                return new Builder(nestedState, owner, expansion, sink).buildLambda(lambda);
+            });
+            return meta;
+        }
+
+        private NodeMeta referenceCall(PsiMethodReferenceExpression reference) {
+            if (!(reference.resolve() instanceof PsiMethod target)) {
+                return null;
+            }
+            boolean isJdk = isJdkMethod(target);
+            if (isJdk && jdkApiDepth <= 0 || !skipRegexes.isEmpty() && shouldSkipByRegex(target, skipRegexes)) {
+                return null;
+            }
+            NodeMeta meta = new NodeMeta()
+                    .setCallee(target.getName() + target.getParameterList().getText())
+                    .setCalleeKey(methodKey(target))
+                    .setCalleeBody(target.getBody() != null ? labelFrom(target.getBody(), "") : labelFrom(reference, ""))
+                    .setCalleeDisplay(labelFrom(reference, ""))
+                    .setIsJdk(isJdk);
+            if (lines != null) {
+                meta.setLineNumber(lines.line(reference.getTextRange().getStartOffset()) + 1);
+            }
+            if (expansion.isRecursive(owner, target) || owner.isEquivalentTo(target)) {
+                return meta.setRecursive(true);
+            }
+            expandTarget(target, meta, isJdk);
+            return meta;
+        }
+
+        private void expandCallee(PsiMethod target, NodeMeta meta, int nextCallDepth, int nextDepth) {
+            attachGraph(meta, target, nextCallDepth, nextDepth, false, () -> {
                 Java2FlowchartSettings.State nestedState = copyState(state);
                 nestedState.setJdkApiDepth(nextDepth);
                 nestedState.setCallDepth(nextCallDepth);
-                Builder nested = new Builder(nestedState, target, nestedVisited);
-                ControlFlowGraph calleeGraph = nested.build(target, target.getBody());
+                Builder nested = new Builder(nestedState, target, expansion, sink);
+                expansion.enter(target);
+                ControlFlowGraph graph = nested.build(target, target.getBody());
+                expansion.exit(owner, target);
+                return graph;
+            });
+        }
+
+        /**
+         * Attaches the callee graph to {@code meta}: a reference when the sink already wrote it, otherwise the cached
+         * graph or a freshly built one.
+         */
+        private void attachGraph(NodeMeta meta, PsiElement target, int nextCallDepth, int nextDepth, boolean dispatch,
+                                 Supplier<ControlFlowGraph> builder) {
+            expansion.checkBudget();
+            String calleeKey = meta.getCalleeKey();
+            String streamed = sink != null ? sink.lookup(calleeKey) : null;
+            if (streamed != null) {
+                meta.setCalleeGraphRef(streamed);
+                expansion.applyShare(calleeKey, meta);
+                return;
+            }
+            // streamed graphs are released once written, the sink already dedupes them by key
+            ControlFlowGraph calleeGraph = sink == null ? expansion.cached(target, nextCallDepth, nextDepth, dispatch) : null;
+            if (calleeGraph == null) {
+                calleeGraph = builder.get();
+                if (sink == null) {
+                    expansion.cache(target, nextCallDepth, nextDepth, dispatch, calleeGraph);
+                }
+            }
+            applyCalleeShare(meta, entryMeta(calleeGraph));
+            if (sink != null) {
+                expansion.rememberShare(calleeKey, meta);
+                // Hand the graph off right away; only the stub reference stays in this graph.
+                meta.setCalleeGraphRef(sink.emit(calleeKey, meta.getLineNumber(), calleeGraph));
+            } else {
                 meta.setCalleeGraph(calleeGraph);
             }
-            return new CallInfo(NodeType.CALL, label, meta);
+        }
+
+        private static void applyCalleeShare(NodeMeta meta, NodeMeta entry) {
+            if (entry != null && entry.getSamplePercent() != null) {
+                meta.setCalleeSamplePercent(entry.getSamplePercent()).setCalleeSelfPercent(entry.getSelfPercent());
+            }
+        }
+
+        private static NodeMeta entryMeta(ControlFlowGraph graph) {
+            for (Node node : graph.nodes()) {
+                if (node.id().equals(graph.entryId())) {
+                    return node.meta();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * A synthetic callee graph for a virtual call: one decision whose branches call the target's own body (when
+         * it has one) and each implementation found, labelled with the implementing class.
+         */
+        private ControlFlowGraph dispatchGraph(PsiMethod target, String display, List<PsiMethod> implementations,
+                                               int nextCallDepth, int nextDepth) {
+            List<Node> graphNodes = new ArrayList<>();
+            List<Edge> graphEdges = new ArrayList<>();
+            // same key as the call, so recursion back-edges and callee pages can find the dispatch graph
+            graphNodes.add(new Node("d_start", NodeType.START, methodSummary(target),
+                    new NodeMeta().setCalleeKey(DISPATCH_KEY_PREFIX + methodKey(target))));
+            graphNodes.add(new Node("d_dispatch", NodeType.DECISION, "dispatch " + display, null));
+            graphEdges.add(new Edge("d_start", "d_dispatch", EdgeType.NORMAL, null));
+            List<PsiMethod> branches = new ArrayList<>();
+            if (target.getBody() != null && !target.hasModifierProperty(PsiModifier.ABSTRACT)) {
+                branches.add(target);
+            }
+            branches.addAll(implementations);
+            for (int i = 0; i < branches.size(); i++) {
+                PsiMethod implementation = branches.get(i);
+                String id = "d_" + (i + 1);
+                String className = ImplementationFinder.className(implementation);
+                String name = className + "." + implementation.getName() + "()";
+                NodeMeta branch = new NodeMeta()
+                        .setCallee(implementation.getName() + implementation.getParameterList().getText())
+                        .setCalleeKey(methodKey(implementation))
+                        .setCalleeBody(implementation.getBody() != null ? labelFrom(implementation.getBody(), "") : safeLabel(name))
+                        .setCalleeDisplay(name)
+                        .setNoFold(true);
+                String label = name;
+                if (expansion.isRecursive(owner, implementation)) {
+                    branch.setRecursive(true);
+                    label = "recursive call: " + name;
+                } else {
+                    expandCallee(implementation, branch, nextCallDepth, nextDepth);
+                }
+                graphNodes.add(new Node(id, NodeType.CALL, label, branch));
+                graphEdges.add(new Edge("d_dispatch", id, EdgeType.NORMAL, className));
+                graphEdges.add(new Edge(id, "d_end", EdgeType.NORMAL, null));
+            }
+            graphNodes.add(new Node("d_end", NodeType.END, "End " + target.getName(), null));
+            return new ControlFlowGraph("d_start", "d_end", graphNodes, graphEdges);
         }
 
         private void connectToEnd(List<Endpoint> exits) {
@@ -1514,10 +2536,10 @@ public class JavaFlowExtractor implements FlowExtractor {
             NodeMeta meta = new NodeMeta();
             if (range != null) {
                 meta.setTextRange(range);
-                if (document != null) {
+                if (lines != null) {
                     try {
-                        int startLine = document.getLineNumber(range.getStartOffset()) + 1;
-                        int endLine = document.getLineNumber(range.getEndOffset()) + 1;
+                        int startLine = lines.line(range.getStartOffset()) + 1;
+                        int endLine = lines.line(range.getEndOffset()) + 1;
                         meta.setLineNumber(startLine);
                         meta.setStartLine(startLine);
                         meta.setEndLine(endLine);
@@ -1534,8 +2556,8 @@ public class JavaFlowExtractor implements FlowExtractor {
         }
 
         private String nextId(TextRange range) {
-            if (document != null && range != null) {
-                int line = document.getLineNumber(range.getStartOffset()) + 1;
+            if (lines != null && range != null) {
+                int line = lines.line(range.getStartOffset()) + 1;
                 int count = lineCounters.merge(line, 1, Integer::sum);
                 if (count == 1) {
                     return "L" + line;
@@ -1545,20 +2567,27 @@ public class JavaFlowExtractor implements FlowExtractor {
             return "n" + (++idSequence);
         }
 
+        /**
+         * Label of {@code element} cut straight from its file's text, without materializing the element's text.
+         */
         private String labelFrom(PsiElement element, String fallback) {
-            return element == null ? fallback : safeLabel(element.getText());
+            if (element == null) {
+                return fallback;
+            }
+            TextRange range = element.getTextRange();
+            PsiFile file = element.isPhysical() ? element.getContainingFile() : null;
+            if (range == null || file == null) {
+                return safeLabel(element.getText());
+            }
+            return LabelText.clip(expansion.source(file), range.getStartOffset(), range.getEndOffset(),
+                    state.getLabelMaxLength());
         }
 
         private String safeLabel(String raw) {
             if (raw == null) {
                 return "";
             }
-            String singleLine = raw.replaceAll("\\s+", " ").trim();
-            int max = state.getLabelMaxLength();
-            if (max >= 0 && singleLine.length() > max) {
-                return singleLine.substring(0, max) + "...";
-            }
-            return singleLine;
+            return LabelText.clip(raw, 0, raw.length(), state.getLabelMaxLength());
         }
 
         private NodeMeta inlineMeta(List<NodeMeta> inlineCalls) {
@@ -1580,57 +2609,49 @@ public class JavaFlowExtractor implements FlowExtractor {
 
         private void foldLinearActions() {
             List<Edge> originalEdgesSnapshot = new ArrayList<>(edges);
+            FoldGraph graph = new FoldGraph(nodes, edges);
             boolean changed;
             do {
                 changed = false;
-                Map<String, Node> nodeById = nodes.stream().collect(Collectors.toMap(Node::id, n -> n));
-                Map<String, List<Edge>> outgoing = new HashMap<>();
-                Map<String, List<Edge>> incoming = new HashMap<>();
-                for (Edge edge : edges) {
-                    outgoing.computeIfAbsent(edge.from(), k -> new ArrayList<>()).add(edge);
-                    incoming.computeIfAbsent(edge.to(), k -> new ArrayList<>()).add(edge);
-                }
-                List<String> toRemoveNodes = new ArrayList<>();
-                List<Edge> newEdges = new ArrayList<>(edges);
-                for (Node node : nodes) {
-                    if (node.type() != NodeType.ACTION && node.type() != NodeType.CALL) {
+                for (int v = 0; v < graph.nodeSlots(); v++) {
+                    Node node = graph.node(v);
+                    if (node == null || (node.type() != NodeType.ACTION && node.type() != NodeType.CALL)) {
                         continue;
                     }
-                    List<Edge> outs = outgoing.getOrDefault(node.id(), List.of());
-                    List<Edge> ins = incoming.getOrDefault(node.id(), List.of());
                     if (node.meta().hasNoFold()) {
                         continue;
                     }
-                    if (outs.size() != 1) {
+                    if (graph.outDegree(v) != 1) {
                         continue;
                     }
-                    if (ins.isEmpty()) {
+                    if (graph.inDegree(v) == 0) {
                         continue;
                     }
-                    Edge out = outs.get(0);
-                    Edge in = ins.get(0);
-                    if (out.type() != EdgeType.NORMAL || in.type() != EdgeType.NORMAL) {
+                    int out = graph.outEdge(v, 0);
+                    int in = graph.inEdge(v, 0);
+                    if (graph.type(out) != EdgeType.NORMAL || graph.type(in) != EdgeType.NORMAL) {
                         continue;
                     }
-                    Node target = nodeById.get(out.to());
-                    if (target == null || (target.type() != NodeType.ACTION && target.type() != NodeType.CALL)) {
+                    int t = graph.to(out);
+                    Node target = graph.node(t);
+                    if (t == v || target == null || (target.type() != NodeType.ACTION && target.type() != NodeType.CALL)) {
                         continue;
                     }
                     if (target.meta().hasNoFold()) {
                         continue;
                     }
                     // avoid merging when the next node leads back to a loop head (keeps for-update visible)
-                    boolean targetLeadsToLoopHead = outgoing.getOrDefault(target.id(), List.of()).stream()
-                            .anyMatch(e -> nodeById.get(e.to()) != null && nodeById.get(e.to()).type() == NodeType.LOOP_HEAD);
-                    if (targetLeadsToLoopHead) {
+                    if (leadsToLoopHead(graph, t)) {
                         continue;
                     }
-                    List<Edge> targetIncomingAll = incoming.getOrDefault(target.id(), List.of());
-                    List<Edge> targetIncomingNormal = targetIncomingAll.stream()
-                            .filter(e -> e.type() == EdgeType.NORMAL)
-                            .toList();
+                    int targetIncomingNormal = 0;
+                    for (int k = 0; k < graph.inDegree(t); k++) {
+                        if (graph.type(graph.inEdge(t, k)) == EdgeType.NORMAL) {
+                            targetIncomingNormal++;
+                        }
+                    }
                     boolean getterPair = isGetterPair(node, target);
-                    if (targetIncomingNormal.size() != 1 && !getterPair) {
+                    if (targetIncomingNormal != 1 && !getterPair) {
                         continue;
                     }
                     if (!allowMerge(node, target)) {
@@ -1652,78 +2673,29 @@ public class JavaFlowExtractor implements FlowExtractor {
                     mergedMeta.setMergedFrom(new java.util.ArrayList<>(mergedFrom));
                     mergedMeta.mergeCallMeta(node.meta());
                     mergedMeta.mergeCallMeta(target.meta());
-                    Node mergedNode = new Node(node.id(), node.type(), mergedLabel, mergedMeta);
-                    nodeById.put(node.id(), mergedNode);
-                    toRemoveNodes.add(target.id());
-                    // redirect edges from target to node
-                    for (Edge targetOut : outgoing.getOrDefault(target.id(), List.of())) {
-                        newEdges.add(new Edge(node.id(), targetOut.to(), targetOut.type(), targetOut.label()));
-                    }
-                    newEdges.remove(out);
-                    newEdges.removeAll(targetIncomingNormal);
-                    // Rewrite all edges that referenced target to point to the merged node, preserving CALL edges.
-                    List<Edge> rewritten = new ArrayList<>();
-                    java.util.Set<String> seen = new java.util.HashSet<>();
-                    for (Edge e : newEdges) {
-                        String from = e.from().equals(target.id()) ? node.id() : e.from();
-                        String to = e.to().equals(target.id()) ? node.id() : e.to();
-                        if (from.equals(to)) {
-                            continue; // avoid self-loop introduced by merge
-                        }
-                        String key = from + "|" + to + "|" + e.type() + "|" + (e.label() == null ? "" : e.label());
-                        if (seen.add(key)) {
-                            rewritten.add(new Edge(from, to, e.type(), e.label()));
-                        }
-                    }
-                    newEdges = rewritten;
+                    // drops the target's NORMAL inputs and re-points its remaining edges, preserving CALL edges
+                    graph.merge(v, t, new Node(node.id(), node.type(), mergedLabel, mergedMeta));
                     changed = true;
                     break;
                 }
-                if (changed) {
-                    nodes.clear();
-                    nodes.addAll(nodeById.values().stream()
-                            .filter(n -> !toRemoveNodes.contains(n.id()))
-                            .toList());
-                    edges.clear();
-                    edges.addAll(newEdges.stream()
-                            .filter(e -> !toRemoveNodes.contains(e.from()) && !toRemoveNodes.contains(e.to()))
-                            .toList());
-                }
             } while (changed);
 
             // Restore edges for merged nodes based on recorded mergedFrom ids.
-            reconcileEdgesWithMergedSources(originalEdgesSnapshot);
+            graph.restoreMergedEdges(originalEdgesSnapshot);
+            nodes.clear();
+            nodes.addAll(graph.nodes());
+            edges.clear();
+            edges.addAll(graph.edges());
         }
 
-        private void reconcileEdgesWithMergedSources(List<Edge> originalEdges) {
-            if (originalEdges.isEmpty()) {
-                return;
-            }
-            Map<String, String> alias = new HashMap<>();
-            for (Node n : nodes) {
-                List<String> mergedFrom = n.meta().getMergedFrom();
-                if (mergedFrom != null) {
-                    for (String o : mergedFrom) {
-                        alias.put(String.valueOf(o), n.id());
-                    }
-                }
-                alias.put(n.id(), n.id());
-            }
-            java.util.Set<String> existing = new java.util.HashSet<>();
-            for (Edge e : edges) {
-                existing.add(e.from() + "|" + e.to() + "|" + e.type() + "|" + (e.label() == null ? "" : e.label()));
-            }
-            for (Edge e : originalEdges) {
-                String from = alias.get(e.from());
-                String to = alias.get(e.to());
-                if (from == null || to == null || from.equals(to)) {
-                    continue;
-                }
-                String key = from + "|" + to + "|" + e.type() + "|" + (e.label() == null ? "" : e.label());
-                if (existing.add(key)) {
-                    edges.add(new Edge(from, to, e.type(), e.label()));
+        private static boolean leadsToLoopHead(FoldGraph graph, int v) {
+            for (int k = 0; k < graph.outDegree(v); k++) {
+                Node next = graph.node(graph.to(graph.outEdge(v, k)));
+                if (next != null && next.type() == NodeType.LOOP_HEAD) {
+                    return true;
                 }
             }
+            return false;
         }
 
         private boolean allowMerge(Node a, Node b) {
@@ -1857,25 +2829,18 @@ public class JavaFlowExtractor implements FlowExtractor {
         private boolean separatedByBlankLine(Node a, Node b) {
             Integer endA = a.meta().getEndLine();
             Integer startB = b.meta().getStartLine();
-            if (endA == null || startB == null || document == null) {
+            if (endA == null || startB == null || lines == null) {
                 return false;
             }
             if (startB <= endA) {
                 return false;
             }
             // check lines strictly between endA and startB for blank-only lines (whitespace counts as blank)
-            for (int ln = endA; ln < startB - 1; ln++) {
-                try {
-                    int lineStart = document.getLineStartOffset(ln);
-                    int lineEnd = document.getLineEndOffset(ln);
-                    String text = document.getText(new com.intellij.openapi.util.TextRange(lineStart, lineEnd));
-                    if (text.trim().isEmpty()) {
-                        return true;
-                    }
-                } catch (Throwable ignored) {
-                }
+            try {
+                return lines.anyBlank(endA, startB - 1);
+            } catch (Throwable ignored) {
+                return false;
             }
-            return false;
         }
 
 
@@ -1957,7 +2922,7 @@ public class JavaFlowExtractor implements FlowExtractor {
                             accept(arg);
                         }
                         ordered.add(mc); // then the call itself
-                    } else {
+                    } else if (!expandsFunctionalArgument(expr)) { // expanded lambda bodies get their own graph
                         expr.acceptChildren(new com.intellij.psi.JavaRecursiveElementWalkingVisitor() {
                             @Override
                             public void visitExpression(@NotNull PsiExpression expression) {
@@ -2008,7 +2973,7 @@ public class JavaFlowExtractor implements FlowExtractor {
         private String shortCallLabel(PsiMethodCallExpression call) {
             String name = call.getMethodExpression().getReferenceName();
             if (name == null || name.isBlank()) {
-                name = safeLabel(call.getMethodExpression().getText());
+                name = labelFrom(call.getMethodExpression(), "");
             }
             String args = call.getArgumentList().getText();
             return name + args;
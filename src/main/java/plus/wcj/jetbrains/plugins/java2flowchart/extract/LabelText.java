@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+/**
+ * Node labels cut from source text in one pass: whitespace runs collapse to a single space, the ends are trimmed
+ * and the scan stops as soon as the length limit is passed, so a label of a huge element costs the limit, not the
+ * element's size.
+ */
+final class LabelText {
+    private static final String ELLIPSIS = "...";
+
+    private LabelText() {
+    }
+
+    /**
+     * @param max label length limit, negative for none; a longer label keeps {@code max} characters plus "..."
+     * @return {@code text[start, end)} on a single line
+     */
+    static String clip(CharSequence text, int start, int end, int max) {
+        int limit = max < 0 ? Integer.MAX_VALUE : max;
+        StringBuilder out = new StringBuilder(Math.min(end - start, max < 0 ? 64 : max + ELLIPSIS.length()));
+        boolean pendingSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                pendingSpace = out.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                if (out.length() == limit) {
+                    return out.append(ELLIPSIS).toString();
+                }
+                out.append(' ');
+                pendingSpace = false;
+            }
+            if (out.length() == limit) {
+                return out.append(ELLIPSIS).toString();
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return the first line of {@code text[start, end)} as a label, marked with " ..." when more lines follow
+     */
+    static String firstLine(CharSequence text, int start, int end, int max) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                return clip(text, start, i, max) + " ...";
+            }
+        }
+        return clip(text, start, end, max);
+    }
+
+    // the characters of the regex class \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
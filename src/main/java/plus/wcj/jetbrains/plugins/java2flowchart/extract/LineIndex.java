@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Line numbers and blank lines for one method, computed in a single pass over the document characters when a
+ * {@code Builder} starts. Offsets inside the method resolve by binary search (with a last-hit shortcut, since
+ * nodes are created roughly in source order); anything outside falls back to the {@link Document}.
+ */
+final class LineIndex {
+    private final Document document;
+    private final int firstLine;
+    private final int[] starts;
+    private final int end;
+    private final BitSet blank;
+    private int lastHit;
+
+    private LineIndex(Document document, int firstLine, int[] starts, int end, BitSet blank) {
+        this.document = document;
+        this.firstLine = firstLine;
+        this.starts = starts;
+        this.end = end;
+        this.blank = blank;
+    }
+
+    static LineIndex of(Document document, TextRange range) {
+        CharSequence text = document.getImmutableCharSequence();
+        int from = range != null ? Math.min(range.getStartOffset(), text.length()) : 0;
+        int to = range != null ? Math.min(range.getEndOffset(), text.length()) : 0;
+        int firstLine = document.getLineNumber(from);
+        int offset = document.getLineStartOffset(firstLine);
+        int[] starts = new int[16];
+        int count = 0;
+        BitSet blank = new BitSet();
+        boolean lineBlank = true;
+        starts[count++] = offset;
+        for (int i = offset; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                if (lineBlank) {
+                    blank.set(count - 1);
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+                lineBlank = true;
+            } else if (c > ' ') {
+                lineBlank = false;
+            }
+        }
+        // the method's last line always holds its closing brace, so only complete lines are indexed as blank
+        return new LineIndex(document, firstLine, Arrays.copyOf(starts, count), to, blank);
+    }
+
+    /**
+     * @return the zero-based line of {@code offset}, like {@link Document#getLineNumber(int)}
+     */
+    int line(int offset) {
+        if (offset < starts[0] || offset > end) {
+            return document.getLineNumber(offset);
+        }
+        int hit = lastHit;
+        if (offset >= starts[hit] && (hit + 1 == starts.length || offset < starts[hit + 1])) {
+            return firstLine + hit;
+        }
+        int pos = Arrays.binarySearch(starts, offset);
+        hit = pos >= 0 ? pos : -pos - 2;
+        lastHit = hit;
+        return firstLine + hit;
+    }
+
+    /**
+     * @return whether any zero-based line in {@code [fromLine, toLine)} is empty or whitespace only
+     */
+    boolean anyBlank(int fromLine, int toLine) {
+        int lo = Math.max(fromLine, firstLine);
+        int hi = Math.min(toLine, firstLine + starts.length - 1);
+        if (lo < hi) {
+            int next = blank.nextSetBit(lo - firstLine);
+            if (next >= 0 && next < hi - firstLine) {
+                return true;
+            }
+        }
+        // lines outside the indexed range (never the case for nodes of this method) are read from the document
+        for (int ln = Math.max(fromLine, 0); ln < Math.min(toLine, lo); ln++) {
+            if (isBlankInDocument(ln)) {
+                return true;
+            }
+        }
+        for (int ln = Math.max(fromLine, hi); ln < Math.min(toLine, document.getLineCount()); ln++) {
+            if (isBlankInDocument(ln)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBlankInDocument(int line) {
+        CharSequence text = document.getImmutableCharSequence();
+        for (int i = document.getLineStartOffset(line), e = document.getLineEndOffset(line); i < e; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiLiteralExpression;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiNewExpression;
+import com.intellij.psi.PsiPolyadicExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiSynchronizedStatement;
+import com.intellij.psi.PsiThrowStatement;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiUtil;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.PerfIssue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Finds operations worth flagging when they run per loop iteration. Only syntax and resolved JDK callees are
+ * looked at; whether a site is actually inside a loop is decided later on the IR.
+ */
+final class PerfSites {
+    /**
+     * Where a costly operation starts in the source.
+     */
+    record Site(int offset, PerfIssue issue) {
+    }
+
+    /**
+     * Types backed by a file, socket or channel; every method they declare may block. Methods inherited from
+     * generic stream, reader and writer types are not flagged, since those are just as often in memory.
+     */
+    private static final Set<String> BLOCKING_IO_TYPES = Set.of(
+            "java.io.FileInputStream", "java.io.FileOutputStream", "java.io.FileReader", "java.io.FileWriter",
+            "java.io.RandomAccessFile", "java.nio.file.Files", "java.nio.channels.FileChannel",
+            "java.nio.channels.SocketChannel", "java.nio.channels.ServerSocketChannel",
+            "java.nio.channels.DatagramChannel", "java.nio.channels.Selector", "java.net.Socket",
+            "java.net.ServerSocket", "java.net.DatagramSocket", "java.net.URLConnection",
+            "java.net.HttpURLConnection", "java.sql.DriverManager", "java.sql.Connection");
+    private static final Set<String> JDBC_EXECUTE = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+    /**
+     * Types that mostly handle values, with the methods that reach the file system, network or database.
+     */
+    private static final Map<String, Set<String>> BLOCKING_IO_METHODS = Map.of(
+            "java.io.File", Set.of("exists", "isFile", "isDirectory", "length", "lastModified", "list", "listFiles",
+                    "delete", "mkdir", "mkdirs", "createNewFile", "renameTo", "getCanonicalPath", "getCanonicalFile"),
+            "java.net.URL", Set.of("openStream", "openConnection", "getContent"),
+            "java.net.InetAddress", Set.of("getByName", "getAllByName", "getLocalHost", "getHostName",
+                    "getCanonicalHostName"),
+            "java.net.http.HttpClient", Set.of("send"),
+            "java.sql.Statement", JDBC_EXECUTE,
+            "java.sql.PreparedStatement", JDBC_EXECUTE,
+            "java.sql.CallableStatement", JDBC_EXECUTE,
+            "java.sql.ResultSet", Set.of("next"));
+    /**
+     * Constructors that open a file or connect a socket.
+     */
+    private static final Set<String> BLOCKING_IO_CONSTRUCTORS = Set.of(
+            "java.io.FileInputStream", "java.io.FileOutputStream", "java.io.FileReader", "java.io.FileWriter",
+            "java.io.RandomAccessFile", "java.net.Socket", "java.net.ServerSocket");
+    private static final Set<String> LOCK_METHODS = Set.of("lock", "lockInterruptibly", "tryLock");
+    private static final Set<String> STRING_REGEX_METHODS = Set.of("matches", "replaceAll", "replaceFirst", "split");
+
+    private PerfSites() {
+    }
+
+    /**
+     * @param skip subtrees with a graph of their own (expanded lambdas); nested classes are always skipped
+     */
+    static List<Site> collect(PsiElement body, Predicate<PsiElement> skip) {
+        List<Site> sites = new ArrayList<>();
+        body.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitClass(PsiClass aClass) {
+                // anonymous and local class bodies run elsewhere
+            }
+
+            @Override
+            public void visitLambdaExpression(PsiLambdaExpression expression) {
+                if (!skip.test(expression)) {
+                    super.visitLambdaExpression(expression);
+                }
+            }
+
+            @Override
+            public void visitNewExpression(PsiNewExpression expression) {
+                // exceptions are allocated on the way out of the loop
+                if (!(PsiUtil.skipParenthesizedExprUp(expression.getParent()) instanceof PsiThrowStatement)) {
+                    sites.add(new Site(expression.getTextOffset(), PerfIssue.ALLOCATION));
+                }
+                PsiJavaCodeReferenceElement type = expression.getClassReference();
+                if (type != null && type.resolve() instanceof PsiClass created
+                        && BLOCKING_IO_CONSTRUCTORS.contains(created.getQualifiedName())) {
+                    sites.add(new Site(expression.getTextOffset(), PerfIssue.BLOCKING_IO));
+                }
+                super.visitNewExpression(expression);
+            }
+
+            @Override
+            public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+                PerfIssue issue = callIssue(expression);
+                if (issue != null) {
+                    sites.add(new Site(expression.getTextOffset(), issue));
+                }
+                super.visitMethodCallExpression(expression);
+            }
+
+            @Override
+            public void visitSynchronizedStatement(PsiSynchronizedStatement statement) {
+                // the lock is taken where the block's first statement runs
+                PsiStatement[] statements = statement.getBody() != null ? statement.getBody().getStatements() : PsiStatement.EMPTY_ARRAY;
+                int offset = statements.length > 0 ? statements[0].getTextOffset() : statement.getTextOffset();
+                sites.add(new Site(offset, PerfIssue.LOCK));
+                super.visitSynchronizedStatement(statement);
+            }
+
+            @Override
+            public void visitPolyadicExpression(PsiPolyadicExpression expression) {
+                if (expression.getOperationTokenType() == JavaTokenType.PLUS && isString(expression.getType())
+                        && !PsiUtil.isConstantExpression(expression)) {
+                    sites.add(new Site(expression.getTextOffset(), PerfIssue.STRING_CONCAT));
+                }
+                super.visitPolyadicExpression(expression);
+            }
+
+            @Override
+            public void visitAssignmentExpression(PsiAssignmentExpression expression) {
+                if (expression.getOperationTokenType() == JavaTokenType.PLUSEQ && isString(expression.getLExpression().getType())) {
+                    sites.add(new Site(expression.getTextOffset(), PerfIssue.STRING_CONCAT));
+                }
+                super.visitAssignmentExpression(expression);
+            }
+        });
+        return sites;
+    }
+
+    private static PerfIssue callIssue(PsiMethodCallExpression call) {
+        PsiMethod method = call.resolveMethod();
+        PsiClass owner = method != null ? method.getContainingClass() : null;
+        String className = owner != null ? owner.getQualifiedName() : null;
+        if (className == null) {
+            return null;
+        }
+        String name = method.getName();
+        if (method.hasModifierProperty(PsiModifier.SYNCHRONIZED)
+                || className.startsWith("java.util.concurrent.locks.") && LOCK_METHODS.contains(name)
+                || CommonClassNames.JAVA_LANG_OBJECT.equals(className) && "wait".equals(name)) {
+            return PerfIssue.LOCK;
+        }
+        if ("java.util.regex.Pattern".equals(className) && ("compile".equals(name) || "matches".equals(name))
+                || CommonClassNames.JAVA_LANG_STRING.equals(className) && STRING_REGEX_METHODS.contains(name)
+                && !isFastSplit(call)) {
+            return PerfIssue.REGEX;
+        }
+        Set<String> blockingMethods = BLOCKING_IO_METHODS.get(className);
+        if (BLOCKING_IO_TYPES.contains(className) || blockingMethods != null && blockingMethods.contains(name)) {
+            return PerfIssue.BLOCKING_IO;
+        }
+        return null;
+    }
+
+    /**
+     * {@code String.split} with a one-character, non-metacharacter literal takes a fast path without regex.
+     */
+    private static boolean isFastSplit(PsiMethodCallExpression call) {
+        if (!"split".equals(call.getMethodExpression().getReferenceName())) {
+            return false;
+        }
+        PsiExpression[] args = call.getArgumentList().getExpressions();
+        return args.length > 0 && args[0] instanceof PsiLiteralExpression literal
+                && literal.getValue() instanceof String regex
+                && regex.length() == 1 && ".$|()[{^?*+\\".indexOf(regex.charAt(0)) < 0;
+    }
+
+    private static boolean isString(PsiType type) {
+        return type != null && type.equalsToText(CommonClassNames.JAVA_LANG_STRING);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.psi.LambdaUtil;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.util.InheritanceUtil;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.StreamStage;
+
+import java.util.Set;
+
+/**
+ * Classifies calls on {@code java.util.stream} types: instance methods returning another stream are intermediate
+ * stages, anything else a stream instance method returns ends the pipeline.
+ */
+final class StreamStages {
+    private static final String BASE_STREAM = "java.util.stream.BaseStream";
+    private static final Set<String> STATEFUL = Set.of("sorted", "distinct", "limit", "skip");
+    private static final Set<String> LIFECYCLE = Set.of("close", "onClose");
+
+    private StreamStages() {
+    }
+
+    /**
+     * @return the stage of a call to {@code method}, or {@code null} when it is not a stream pipeline stage
+     * (stream factories, {@code parallel()}, {@code close()}, calls on other types, ...)
+     */
+    static StreamStage of(PsiMethod method) {
+        if (method.hasModifierProperty(PsiModifier.STATIC) || method.isConstructor()
+                || LIFECYCLE.contains(method.getName())) {
+            return null;
+        }
+        PsiClass owner = method.getContainingClass();
+        if (owner == null || !InheritanceUtil.isInheritor(owner, BASE_STREAM)
+                && !BASE_STREAM.equals(owner.getQualifiedName())) {
+            return null;
+        }
+        if (!InheritanceUtil.isInheritor(method.getReturnType(), BASE_STREAM)) {
+            return StreamStage.TERMINAL;
+        }
+        if (STATEFUL.contains(method.getName())) {
+            return StreamStage.STATEFUL;
+        }
+        for (PsiParameter parameter : method.getParameterList().getParameters()) {
+            if (LambdaUtil.isFunctionalType(parameter.getType())) {
+                return StreamStage.PER_ELEMENT;
+            }
+        }
+        return null;
+    }
+}
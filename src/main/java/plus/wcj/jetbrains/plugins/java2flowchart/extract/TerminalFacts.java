@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.extract;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReturnStatement;
+import com.intellij.psi.PsiThrowStatement;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * "May return or throw" facts for every element of a method body, computed in one walk: each return/throw marks
+ * its ancestors up to the root, stopping at the first one already marked, so the whole pass is linear in the
+ * size of the body and later questions are set lookups instead of subtree scans.
+ */
+final class TerminalFacts {
+    private final PsiElement root;
+    private final Set<PsiElement> terminal = new HashSet<>();
+    private final Set<PsiElement> detached = new HashSet<>();
+
+    private TerminalFacts(PsiElement root) {
+        this.root = root;
+        analyze(root);
+    }
+
+    static TerminalFacts of(PsiElement root) {
+        return new TerminalFacts(root);
+    }
+
+    /**
+     * @return whether {@code element} is, or contains, a return or throw statement
+     */
+    boolean containsTerminal(PsiElement element) {
+        if (element == null) {
+            return false;
+        }
+        if (element != root && !PsiTreeUtil.isAncestor(root, element, true) && detached.add(element)) {
+            // not part of the analyzed body (e.g. synthesized elsewhere); analyze it on its own
+            analyze(element);
+        }
+        return terminal.contains(element);
+    }
+
+    private void analyze(PsiElement top) {
+        PsiElement current = top;
+        while (current != null) {
+            if (current instanceof PsiReturnStatement || current instanceof PsiThrowStatement) {
+                markUp(current, top);
+            }
+            PsiElement child = current.getFirstChild();
+            if (child != null) {
+                current = child;
+                continue;
+            }
+            while (current != top && current.getNextSibling() == null) {
+                current = current.getParent();
+            }
+            current = current == top ? null : current.getNextSibling();
+        }
+    }
+
+    private void markUp(PsiElement element, PsiElement top) {
+        PsiElement e = element;
+        while (e != null && terminal.add(e) && e != top) {
+            e = e.getParent();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.ir;
+
+/**
+ * Receives callee graphs as soon as the extractor has built them, so they can be written out and released
+ * instead of staying reachable from {@link NodeMeta#getCalleeGraph()} until rendering finishes.
+ */
+public interface CalleeGraphSink {
+    /**
+     * @return the node id of an already emitted graph for {@code calleeKey}, or {@code null}
+     */
+    String lookup(String calleeKey);
+
+    /**
+     * Emits the callee graph and returns the node id that call edges should point to.
+     */
+    String emit(String calleeKey, Integer callLine, ControlFlowGraph graph);
+}
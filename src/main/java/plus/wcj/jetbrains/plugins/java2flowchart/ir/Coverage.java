@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.ir;
+
+/**
+ * Execution status of a node's lines or of a branch, from test coverage data.
+ */
+public enum Coverage {
+    /**
+     * Every line (or branch) ran.
+     */
+    HIT("hit"),
+    /**
+     * Some lines (or branches) ran.
+     */
+    PARTIAL("partial"),
+    /**
+     * Nothing ran.
+     */
+    MISS("miss");
+
+    private final String label;
+
+    Coverage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
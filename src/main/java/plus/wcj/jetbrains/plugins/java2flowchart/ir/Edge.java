@@ -19,11 +19,15 @@ package plus.wcj.jetbrains.plugins.java2flowchart.ir;
 import java.util.Objects;
 import java.util.Optional;
 
+/**
+ * @param coverage whether the branch ran, from coverage data; {@code null} when unknown
+ */
 public record Edge(
         String from,
         String to,
         EdgeType type,
-        String label)
+        String label,
+        Coverage coverage)
 {
     public Edge {
         Objects.requireNonNull(from, "from");
@@ -31,4 +35,12 @@ public record Edge(
         type = Optional.ofNullable(type).orElse(EdgeType.NORMAL);
         label = Optional.ofNullable(label).orElse("");
     }
+
+    public Edge(String from, String to, EdgeType type, String label) {
+        this(from, to, type, label, null);
+    }
+
+    public Edge withCoverage(Coverage coverage) {
+        return new Edge(from, to, type, label, coverage);
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.ir;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense int view of a {@link ControlFlowGraph}: node {@code i} is {@code nodes().get(i)}, edge {@code e} is
+ * {@code edges().get(e)}, and adjacency is stored CSR-style ({@code offsets} + edge indices, ascending), so walks
+ * need no per-node collections or string hashing. String ids are resolved once when the index is built.
+ * <p>
+ * The IR itself keeps its String ids, which exports, streamed refs and navigation expose; graph passes and
+ * renderers that walk adjacency build this view instead of id-keyed maps.
+ */
+public final class GraphIndex {
+    private final ControlFlowGraph graph;
+    private final Map<String, Integer> indexById;
+    private final int[] from;
+    private final int[] to;
+    private final int[] outOffsets;
+    private final int[] outEdges;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    private GraphIndex(ControlFlowGraph graph) {
+        this.graph = graph;
+        List<Node> nodes = graph.nodes();
+        List<Edge> edges = graph.edges();
+        int n = nodes.size();
+        int m = edges.size();
+        indexById = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            indexById.putIfAbsent(nodes.get(i).id(), i);
+        }
+        from = new int[m];
+        to = new int[m];
+        outOffsets = new int[n + 1];
+        inOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            Edge edge = edges.get(e);
+            from[e] = indexById.getOrDefault(edge.from(), -1);
+            to[e] = indexById.getOrDefault(edge.to(), -1);
+            if (from[e] >= 0) {
+                outOffsets[from[e] + 1]++;
+            }
+            if (to[e] >= 0) {
+                inOffsets[to[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        outEdges = new int[outOffsets[n]];
+        inEdges = new int[inOffsets[n]];
+        int[] outFill = outOffsets.clone();
+        int[] inFill = inOffsets.clone();
+        for (int e = 0; e < m; e++) {
+            if (from[e] >= 0) {
+                outEdges[outFill[from[e]]++] = e;
+            }
+            if (to[e] >= 0) {
+                inEdges[inFill[to[e]]++] = e;
+            }
+        }
+    }
+
+    public static GraphIndex of(ControlFlowGraph graph) {
+        return new GraphIndex(graph);
+    }
+
+    public ControlFlowGraph graph() {
+        return graph;
+    }
+
+    public int nodeCount() {
+        return graph.nodes().size();
+    }
+
+    public int edgeCount() {
+        return from.length;
+    }
+
+    /**
+     * @return the index of the node with this id, or -1
+     */
+    public int indexOf(String id) {
+        Integer index = id == null ? null : indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public Node node(int v) {
+        return graph.nodes().get(v);
+    }
+
+    public Edge edge(int e) {
+        return graph.edges().get(e);
+    }
+
+    /**
+     * @return the source node index of edge {@code e}, or -1 when the edge points at an unknown id
+     */
+    public int from(int e) {
+        return from[e];
+    }
+
+    public int to(int e) {
+        return to[e];
+    }
+
+    public int outDegree(int v) {
+        return outOffsets[v + 1] - outOffsets[v];
+    }
+
+    /**
+     * @return the {@code k}-th outgoing edge of {@code v}, in graph order
+     */
+    public int outEdge(int v, int k) {
+        return outEdges[outOffsets[v] + k];
+    }
+
+    public int inDegree(int v) {
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    public int inEdge(int v, int k) {
+        return inEdges[inOffsets[v] + k];
+    }
+}
@@ -27,4 +27,11 @@ public record Node(String id, NodeType type, String label, NodeMeta meta) {
         meta = Optional.ofNullable(meta).orElseGet(NodeMeta::new);
     }
 
+    /**
+     * Whether coverage shows the node never ran; start and end nodes never count as cold.
+     */
+    public boolean isCold() {
+        return meta.getCoverage() == Coverage.MISS && type != NodeType.START && type != NodeType.END;
+    }
+
 }
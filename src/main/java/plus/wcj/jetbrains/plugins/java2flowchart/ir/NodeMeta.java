@@ -6,7 +6,9 @@ import lombok.experimental.Accessors;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Typed metadata previously stored as a map on {@link Node}. Also used to represent call metadata.
@@ -27,11 +29,73 @@ public class NodeMeta {
     private Boolean skipCallRender;
     private Boolean isJdk;
     private Boolean inline;
+    /**
+     * Call back into a method whose expansion is still in progress (same call-graph cycle); never expanded.
+     */
+    private Boolean recursive;
+    /**
+     * Stage of a {@code java.util.stream} call; {@code null} for calls outside a pipeline.
+     */
+    private StreamStage streamStage;
+    /**
+     * Profile samples whose stack passes through the node's source lines; set, {@code 0} included, on the nodes
+     * of graphs built with a profile and {@code null} otherwise.
+     */
+    private Long samples;
+    /**
+     * {@link #samples} as a percentage of all samples in the profile.
+     */
+    private Double samplePercent;
+    /**
+     * Percentage of all samples whose leaf frame is on the node's source lines (self time).
+     */
+    private Double selfPercent;
+    /**
+     * Inclusive and self sample percentages of the expanded callee, shown on its {@code calls:} edge.
+     */
+    private Double calleeSamplePercent;
+    private Double calleeSelfPercent;
+    /**
+     * Whether the node's source lines ran, from coverage data; {@code null} without coverage or for lines
+     * without code.
+     */
+    private Coverage coverage;
+    /**
+     * Whether the branches on a decision's condition line ran.
+     */
+    private Coverage branchCoverage;
+    /**
+     * Costly operations found in the node's own source (allocation, blocking I/O, locks, ...), wherever the node
+     * runs; {@code null} when there are none.
+     */
+    private Set<PerfIssue> perfIssues;
+    /**
+     * Set by the performance lint when the node has {@link #perfIssues} and runs per loop iteration.
+     */
+    private Boolean perfFlagged;
+    /**
+     * Static cost estimate of the node, its calls included and multiplied for enclosing loops.
+     */
+    private Double cost;
+    /**
+     * Set by the cost model on nodes of the graph's most expensive path.
+     */
+    private Boolean criticalPath;
+    /**
+     * Set on a graph's entry when extraction ran out of its time budget: the reduced depths the graph was built
+     * with ({@code callDepth=1, jdkApiDepth=0}), or {@code outline}.
+     */
+    private String degradation;
     private String callee;
     private String calleeKey;
     private String calleeBody;
     private String calleeDisplay;
     private ControlFlowGraph calleeGraph;
+    /**
+     * Node id of a callee graph that was already streamed to the output; set instead of {@link #calleeGraph}
+     * when callee graphs are released right after they are built.
+     */
+    private String calleeGraphRef;
     private List<String> mergedFrom = new ArrayList<>();
     private List<NodeMeta> inlineCalls = new ArrayList<>();
 
@@ -50,11 +114,26 @@ public class NodeMeta {
                 .setSkipCallRender(skipCallRender)
                 .setIsJdk(isJdk)
                 .setInline(inline)
+                .setRecursive(recursive)
+                .setStreamStage(streamStage)
+                .setSamples(samples)
+                .setSamplePercent(samplePercent)
+                .setSelfPercent(selfPercent)
+                .setCalleeSamplePercent(calleeSamplePercent)
+                .setCalleeSelfPercent(calleeSelfPercent)
+                .setCoverage(coverage)
+                .setBranchCoverage(branchCoverage)
+                .setPerfIssues(perfIssues != null ? EnumSet.copyOf(perfIssues) : null)
+                .setPerfFlagged(perfFlagged)
+                .setCost(cost)
+                .setCriticalPath(criticalPath)
+                .setDegradation(degradation)
                 .setCallee(callee)
                 .setCalleeKey(calleeKey)
                 .setCalleeBody(calleeBody)
                 .setCalleeDisplay(calleeDisplay)
-                .setCalleeGraph(calleeGraph);
+                .setCalleeGraph(calleeGraph)
+                .setCalleeGraphRef(calleeGraphRef);
         if (mergedFrom != null) {
             copy.setMergedFrom(new ArrayList<>(mergedFrom));
         }
@@ -86,6 +165,13 @@ public class NodeMeta {
         }
     }
 
+    public void addPerfIssues(Collection<PerfIssue> issues) {
+        if (issues != null && !issues.isEmpty()) {
+            perfIssues = perfIssues == null ? EnumSet.noneOf(PerfIssue.class) : perfIssues;
+            perfIssues.addAll(issues);
+        }
+    }
+
     public void addMergedFrom(String id) {
         if (id != null) {
             mergedFrom = mergedFrom == null ? new ArrayList<>() : mergedFrom;
@@ -127,6 +213,10 @@ public class NodeMeta {
         return Boolean.TRUE.equals(isCtor);
     }
 
+    public boolean hasRecursiveFlag() {
+        return Boolean.TRUE.equals(recursive);
+    }
+
 
     public void mergeCallMeta(NodeMeta source) {
         if (source == null) {
@@ -138,8 +228,13 @@ public class NodeMeta {
             calleeBody = source.calleeBody;
             calleeDisplay = source.calleeDisplay;
             calleeGraph = source.calleeGraph;
+            calleeGraphRef = source.calleeGraphRef;
+            calleeSamplePercent = source.calleeSamplePercent;
+            calleeSelfPercent = source.calleeSelfPercent;
             skipCallRender = firstNonNull(skipCallRender, source.skipCallRender);
             inline = firstNonNull(inline, source.inline);
+            recursive = firstNonNull(recursive, source.recursive);
+            streamStage = firstNonNull(streamStage, source.streamStage);
             isJdk = firstNonNull(isJdk, source.isJdk);
             isGetter = firstNonNull(isGetter, source.isGetter);
             isSetter = firstNonNull(isSetter, source.isSetter);
@@ -147,7 +242,7 @@ public class NodeMeta {
             fluentChainId = firstNonNull(fluentChainId, source.fluentChainId);
             chainSplit = firstNonNull(chainSplit, source.chainSplit);
             lineNumber = firstNonNull(lineNumber, source.lineNumber);
-        } else if (source.getCallee() != null || source.getCalleeGraph() != null || source.hasInline()) {
+        } else if (source.getCallee() != null || source.getCalleeGraph() != null || source.getCalleeGraphRef() != null || source.hasInline()) {
             addInline(source.copy());
         }
         addInlineAll(source.inlineCalls);
@@ -175,11 +270,26 @@ public class NodeMeta {
         if (copy.getSkipCallRender() != null) setSkipCallRender(copy.getSkipCallRender());
         if (copy.getIsJdk() != null) setIsJdk(copy.getIsJdk());
         if (copy.getInline() != null) setInline(copy.getInline());
+        if (copy.getRecursive() != null) setRecursive(copy.getRecursive());
+        if (copy.getStreamStage() != null) setStreamStage(copy.getStreamStage());
+        if (copy.getSamples() != null) setSamples(copy.getSamples());
+        if (copy.getSamplePercent() != null) setSamplePercent(copy.getSamplePercent());
+        if (copy.getSelfPercent() != null) setSelfPercent(copy.getSelfPercent());
+        if (copy.getCalleeSamplePercent() != null) setCalleeSamplePercent(copy.getCalleeSamplePercent());
+        if (copy.getCalleeSelfPercent() != null) setCalleeSelfPercent(copy.getCalleeSelfPercent());
+        if (copy.getCoverage() != null) setCoverage(copy.getCoverage());
+        if (copy.getBranchCoverage() != null) setBranchCoverage(copy.getBranchCoverage());
+        addPerfIssues(copy.getPerfIssues());
+        if (copy.getPerfFlagged() != null) setPerfFlagged(copy.getPerfFlagged());
+        if (copy.getCost() != null) setCost(copy.getCost());
+        if (copy.getCriticalPath() != null) setCriticalPath(copy.getCriticalPath());
+        if (copy.getDegradation() != null) setDegradation(copy.getDegradation());
         if (copy.getCallee() != null) setCallee(copy.getCallee());
         if (copy.getCalleeKey() != null) setCalleeKey(copy.getCalleeKey());
         if (copy.getCalleeBody() != null) setCalleeBody(copy.getCalleeBody());
         if (copy.getCalleeDisplay() != null) setCalleeDisplay(copy.getCalleeDisplay());
         if (copy.getCalleeGraph() != null) setCalleeGraph(copy.getCalleeGraph());
+        if (copy.getCalleeGraphRef() != null) setCalleeGraphRef(copy.getCalleeGraphRef());
         addMergedFromAll(copy.getMergedFrom());
         addInlineAll(copy.getInlineCalls());
     }
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.ir;
+
+/**
+ * Operation that is cheap once but costly per loop iteration; reported by the performance lint.
+ */
+public enum PerfIssue {
+    /**
+     * {@code new} expression (objects and arrays).
+     */
+    ALLOCATION("allocation"),
+    /**
+     * Blocking JDK file, socket, channel or JDBC I/O.
+     */
+    BLOCKING_IO("blocking I/O"),
+    /**
+     * {@code synchronized} block or method, {@code Lock.lock()}, {@code Object.wait()}.
+     */
+    LOCK("lock"),
+    /**
+     * Regex compiled on every call: {@code Pattern.compile}, {@code String.matches}, {@code replaceAll}, ...
+     */
+    REGEX("regex compilation"),
+    /**
+     * String concatenation with {@code +} or {@code +=}.
+     */
+    STRING_CONCAT("string concatenation");
+
+    private final String label;
+
+    PerfIssue(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
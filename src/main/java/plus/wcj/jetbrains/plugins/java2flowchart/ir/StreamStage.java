@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.ir;
+
+/**
+ * Role of a call in a {@code java.util.stream} pipeline; the label names it next to the call.
+ */
+public enum StreamStage {
+    /**
+     * Intermediate operation whose function argument runs once per element (map, filter, peek, ...).
+     */
+    PER_ELEMENT("per element"),
+    /**
+     * Intermediate operation that buffers or bounds the stream (sorted, distinct, limit, skip).
+     */
+    STATEFUL("stateful"),
+    /**
+     * Terminal operation; the pipeline runs here.
+     */
+    TERMINAL("terminal");
+
+    private final String label;
+
+    StreamStage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
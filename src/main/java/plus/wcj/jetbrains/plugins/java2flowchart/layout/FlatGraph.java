@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.layout;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.*;
+
+import java.util.*;
+
+/**
+ * Index-based view of a {@link ControlFlowGraph} with every expanded callee graph inlined once.
+ * Blank merge nodes are dropped (their edges are reconnected) the same way the Mermaid renderer does.
+ */
+public final class FlatGraph {
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<String> owners = new ArrayList<>();
+    private final List<FlatEdge> edges = new ArrayList<>();
+    private int entry = -1;
+
+    /**
+     * @param call true for the dashed edge from a call site to the entry of its callee graph
+     */
+    public record FlatEdge(int from, int to, EdgeType type, String label, boolean call) {
+    }
+
+    private FlatGraph() {
+    }
+
+    public static FlatGraph of(ControlFlowGraph root) {
+        FlatGraph raw = new FlatGraph();
+        Map<String, Integer> calleeEntries = new HashMap<>();
+        Deque<PendingGraph> pending = new ArrayDeque<>();
+        raw.entry = raw.addGraph(root, "", null, pending);
+        while (!pending.isEmpty()) {
+            PendingGraph next = pending.poll();
+            for (NodeMeta call : next.calls()) {
+                ControlFlowGraph callee = call.getCalleeGraph();
+                String key = call.getCalleeKey() != null ? call.getCalleeKey() : call.getCallee();
+                if (callee == null || key == null) {
+                    continue;
+                }
+                Integer target = calleeEntries.get(key);
+                if (target == null) {
+                    target = raw.addGraph(callee, key + "#", key, pending);
+                    calleeEntries.put(key, target);
+                }
+                raw.edges.add(new FlatEdge(next.source(), target, EdgeType.NORMAL, "calls", true));
+            }
+        }
+        return raw.withoutBlankMerges();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public Node node(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * @return the calleeKey of the graph the node came from, or {@code null} for the root graph
+     */
+    public String owner(int index) {
+        return owners.get(index);
+    }
+
+    public List<FlatEdge> edges() {
+        return edges;
+    }
+
+    public int entry() {
+        return entry;
+    }
+
+    private record PendingGraph(int source, List<NodeMeta> calls) {
+    }
+
+    private int addGraph(ControlFlowGraph graph, String prefix, String owner, Deque<PendingGraph> pending) {
+        Map<String, Integer> local = new HashMap<>();
+        for (Node node : graph.nodes()) {
+            local.put(node.id(), nodes.size());
+            nodes.add(new Node(prefix + node.id(), node.type(), node.label(), node.meta()));
+            owners.add(owner);
+        }
+        for (Edge edge : graph.edges()) {
+            Integer from = local.get(edge.from());
+            Integer to = local.get(edge.to());
+            if (from != null && to != null) {
+                edges.add(new FlatEdge(from, to, edge.type(), edge.label(), false));
+            }
+        }
+        for (Node node : graph.nodes()) {
+            List<NodeMeta> calls = new ArrayList<>();
+            collectCalls(node.meta(), calls);
+            if (!calls.isEmpty()) {
+                pending.add(new PendingGraph(local.get(node.id()), calls));
+            }
+        }
+        Integer entryIndex = local.get(graph.entryId());
+        return entryIndex != null ? entryIndex : nodes.size() - graph.nodes().size();
+    }
+
+    private static void collectCalls(NodeMeta meta, List<NodeMeta> out) {
+        Deque<NodeMeta> stack = new ArrayDeque<>();
+        stack.push(meta);
+        while (!stack.isEmpty()) {
+            NodeMeta current = stack.pop();
+            if (current.getCalleeGraph() != null && !current.hasSkipCallRender()) {
+                out.add(current);
+            }
+            List<NodeMeta> inline = current.getInlineCalls();
+            if (inline != null) {
+                for (int i = inline.size() - 1; i >= 0; i--) {
+                    stack.push(inline.get(i));
+                }
+            }
+        }
+    }
+
+    private FlatGraph withoutBlankMerges() {
+        int n = nodes.size();
+        boolean[] drop = new boolean[n];
+        boolean any = false;
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(i);
+            if (node.type() == NodeType.MERGE && node.label().isBlank() && i != entry) {
+                drop[i] = true;
+                any = true;
+            }
+        }
+        if (!any) {
+            return this;
+        }
+        List<FlatEdge> live = new ArrayList<>(edges);
+        BitSet dead = new BitSet();
+        List<List<Integer>> ins = new ArrayList<>(n);
+        List<List<Integer>> outs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ins.add(new ArrayList<>());
+            outs.add(new ArrayList<>());
+        }
+        for (int e = 0; e < live.size(); e++) {
+            outs.get(live.get(e).from()).add(e);
+            ins.get(live.get(e).to()).add(e);
+        }
+        for (int m = 0; m < n; m++) {
+            if (!drop[m]) {
+                continue;
+            }
+            List<Integer> in = ins.get(m).stream().filter(e -> !dead.get(e)).toList();
+            List<Integer> out = outs.get(m).stream().filter(e -> !dead.get(e)).toList();
+            in.forEach(dead::set);
+            out.forEach(dead::set);
+            for (int ie : in) {
+                FlatEdge a = live.get(ie);
+                for (int oe : out) {
+                    FlatEdge b = live.get(oe);
+                    if (a.from() == b.to()) {
+                        continue;
+                    }
+                    EdgeType type = a.type() != EdgeType.NORMAL ? a.type() : b.type();
+                    String label = !a.label().isBlank() ? a.label() : b.label();
+                    int idx = live.size();
+                    live.add(new FlatEdge(a.from(), b.to(), type, label, a.call() || b.call()));
+                    outs.get(a.from()).add(idx);
+                    ins.get(b.to()).add(idx);
+                }
+            }
+        }
+        FlatGraph compact = new FlatGraph();
+        int[] remap = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (drop[i]) {
+                remap[i] = -1;
+                continue;
+            }
+            remap[i] = compact.nodes.size();
+            compact.nodes.add(nodes.get(i));
+            compact.owners.add(owners.get(i));
+        }
+        Set<FlatEdge> seen = new HashSet<>();
+        for (int e = 0; e < live.size(); e++) {
+            if (dead.get(e)) {
+                continue;
+            }
+            FlatEdge edge = live.get(e);
+            FlatEdge mapped = new FlatEdge(remap[edge.from()], remap[edge.to()], edge.type(), edge.label(), edge.call());
+            if (seen.add(mapped)) {
+                compact.edges.add(mapped);
+            }
+        }
+        compact.entry = remap[entry];
+        return compact;
+    }
+}
@@ -0,0 +1,530 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.layout;
+
+import java.util.Arrays;
+
+/**
+ * Top-down layered (Sugiyama-style) layout:
+ * <ol>
+ *     <li>cycle breaking: back-edges (loop continues, recursion) found by an iterative DFS are reversed;</li>
+ *     <li>longest-path layering, with dummy nodes splitting edges that span several layers;</li>
+ *     <li>crossing reduction: alternating barycenter sweeps, keeping the order with the fewest crossings;</li>
+ *     <li>coordinate assignment: nodes are pulled towards the median of their neighbours, balanced between a
+ *     left-first and a right-first placement so that no two nodes overlap.</li>
+ * </ol>
+ * All traversals use explicit stacks or queues, so graphs with tens of thousands of nodes are safe.
+ */
+public final class LayeredLayout {
+    public static final double LAYER_GAP = 48;
+    public static final double NODE_GAP = 24;
+    private static final double DUMMY_WIDTH = 8;
+    private static final int ORDER_SWEEPS = 8;
+    private static final int PLACEMENT_SWEEPS = 4;
+    private static final int DUMMY_BUDGET_FACTOR = 8;
+
+    /**
+     * Node positions are top-left corners. {@code points[e]} is the route of edge {@code e} as
+     * {@code x0, y0, x1, y1, ...}, starting at its source and ending at its target; {@code reversed[e]} marks
+     * edges that were turned around to break a cycle.
+     */
+    public record Result(double[] x, double[] y, double[] width, double[] height, int[] layer,
+                         boolean[] reversed, double[][] points, double totalWidth, double totalHeight) {
+    }
+
+    private LayeredLayout() {
+    }
+
+    public static Result layout(double[] width, double[] height, int[] from, int[] to, int root) {
+        int n = width.length;
+        int m = from.length;
+        boolean[] reversed = findBackEdges(n, adjacency(n, from, m), to, root);
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        for (int e = 0; e < m; e++) {
+            src[e] = reversed[e] ? to[e] : from[e];
+            dst[e] = reversed[e] ? from[e] : to[e];
+        }
+        int[] realLayer = assignLayers(n, src, dst);
+
+        // split long edges with dummy nodes; chain[e] lists the nodes an edge passes through, source first.
+        // Pathological graphs whose dummies would dwarf the real nodes keep their long edges straight.
+        long dummies = 0;
+        for (int e = 0; e < m; e++) {
+            if (src[e] != dst[e]) {
+                dummies += Math.max(0, realLayer[dst[e]] - realLayer[src[e]] - 1);
+            }
+        }
+        boolean split = dummies <= (long) DUMMY_BUDGET_FACTOR * (n + m);
+        int total = split ? n + (int) dummies : n;
+        int[] layer = Arrays.copyOf(realLayer, total);
+        double[] w = Arrays.copyOf(width, total);
+        Arrays.fill(w, n, total, DUMMY_WIDTH);
+        int[][] chain = new int[m][];
+        IntList segFrom = new IntList(m + total - n);
+        IntList segTo = new IntList(m + total - n);
+        int next = n;
+        for (int e = 0; e < m; e++) {
+            if (src[e] == dst[e]) {
+                chain[e] = new int[]{src[e]};
+                continue;
+            }
+            int span = split ? realLayer[dst[e]] - realLayer[src[e]] : 1;
+            int[] path = new int[Math.max(2, span + 1)];
+            path[0] = src[e];
+            for (int k = 1; k < span; k++) {
+                layer[next] = realLayer[src[e]] + k;
+                path[k] = next++;
+            }
+            path[path.length - 1] = dst[e];
+            chain[e] = path;
+            for (int k = 0; k + 1 < path.length; k++) {
+                segFrom.add(path[k]);
+                segTo.add(path[k + 1]);
+            }
+        }
+        int[] sFrom = segFrom.toArray();
+        int[] sTo = segTo.toArray();
+        int[][] down = adjacencyTargets(total, sFrom, sTo);
+        int[][] up = adjacencyTargets(total, sTo, sFrom);
+
+        int[][] rows = initialOrder(total, layer, down, root);
+        rows = reduceCrossings(rows, down, up, layer, total);
+
+        double[] x = assignCoordinates(rows, w, down, up, total);
+        double[] rowTop = new double[rows.length];
+        double[] rowHeight = new double[rows.length];
+        double top = 0;
+        for (int l = 0; l < rows.length; l++) {
+            double h = 0;
+            for (int v : rows[l]) {
+                if (v < n) {
+                    h = Math.max(h, height[v]);
+                }
+            }
+            rowTop[l] = top;
+            rowHeight[l] = h;
+            top += h + LAYER_GAP;
+        }
+        double totalWidth = 0;
+        for (int v = 0; v < total; v++) {
+            totalWidth = Math.max(totalWidth, x[v] + w[v]);
+        }
+        double[] y = new double[n];
+        for (int v = 0; v < n; v++) {
+            y[v] = rowTop[layer[v]] + (rowHeight[layer[v]] - height[v]) / 2;
+        }
+        double[] realX = Arrays.copyOf(x, n);
+        double[][] points = new double[m][];
+        for (int e = 0; e < m; e++) {
+            points[e] = route(chain[e], reversed[e], n, realX, y, width, height, x, w, layer, rowTop, rowHeight);
+        }
+        return new Result(realX, y, width.clone(), height.clone(), realLayer, reversed, points,
+                totalWidth, Math.max(0, top - LAYER_GAP));
+    }
+
+    /**
+     * Outgoing edge indices per node.
+     */
+    static int[][] adjacency(int n, int[] from, int m) {
+        int[] count = new int[n];
+        for (int e = 0; e < m; e++) {
+            count[from[e]]++;
+        }
+        int[][] out = new int[n][];
+        for (int v = 0; v < n; v++) {
+            out[v] = new int[count[v]];
+        }
+        Arrays.fill(count, 0);
+        for (int e = 0; e < m; e++) {
+            out[from[e]][count[from[e]]++] = e;
+        }
+        return out;
+    }
+
+    private static int[][] adjacencyTargets(int n, int[] from, int[] to) {
+        int[][] byEdge = adjacency(n, from, from.length);
+        int[][] result = new int[n][];
+        for (int v = 0; v < n; v++) {
+            result[v] = new int[byEdge[v].length];
+            for (int i = 0; i < byEdge[v].length; i++) {
+                result[v][i] = to[byEdge[v][i]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterative DFS starting at {@code root}, then at any node not reached yet. An edge into a node that is still
+     * on the DFS stack closes a cycle and is marked reversed (self-loops included).
+     */
+    static boolean[] findBackEdges(int n, int[][] out, int[] to, int root) {
+        boolean[] reversed = new boolean[to.length];
+        byte[] state = new byte[n];
+        int[] stackNode = new int[n];
+        int[] stackPos = new int[n];
+        for (int i = -1; i < n; i++) {
+            int start = i < 0 ? root : i;
+            if (start < 0 || start >= n || state[start] != 0) {
+                continue;
+            }
+            int sp = 0;
+            stackNode[0] = start;
+            stackPos[0] = 0;
+            state[start] = 1;
+            while (sp >= 0) {
+                int v = stackNode[sp];
+                if (stackPos[sp] < out[v].length) {
+                    int e = out[v][stackPos[sp]++];
+                    int w = to[e];
+                    if (state[w] == 1) {
+                        reversed[e] = true;
+                    } else if (state[w] == 0) {
+                        state[w] = 1;
+                        sp++;
+                        stackNode[sp] = w;
+                        stackPos[sp] = 0;
+                    }
+                } else {
+                    state[v] = 2;
+                    sp--;
+                }
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * Longest-path layering over edges that are already acyclic (Kahn's algorithm); self-loops are ignored.
+     */
+    static int[] assignLayers(int n, int[] src, int[] dst) {
+        int m = src.length;
+        int[] indegree = new int[n];
+        for (int e = 0; e < m; e++) {
+            if (src[e] != dst[e]) {
+                indegree[dst[e]]++;
+            }
+        }
+        int[][] out = adjacency(n, src, m);
+        int[] layer = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (indegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e : out[v]) {
+                int w = dst[e];
+                if (w == v) {
+                    continue;
+                }
+                layer[w] = Math.max(layer[w], layer[v] + 1);
+                if (--indegree[w] == 0) {
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return layer;
+    }
+
+    /**
+     * Rows in BFS discovery order from the root, which keeps the branches of one decision next to each other.
+     */
+    private static int[][] initialOrder(int total, int[] layer, int[][] down, int root) {
+        int layerCount = 0;
+        for (int l : layer) {
+            layerCount = Math.max(layerCount, l + 1);
+        }
+        int[] seen = new int[total];
+        int[] queue = new int[total];
+        int tail = 0;
+        for (int i = -1; i < total; i++) {
+            int start = i < 0 ? root : i;
+            if (start < 0 || start >= total || seen[start] != 0) {
+                continue;
+            }
+            int head = tail;
+            seen[start] = 1;
+            queue[tail++] = start;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int w : down[v]) {
+                    if (seen[w] == 0) {
+                        seen[w] = 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+        int[] size = new int[layerCount];
+        for (int v = 0; v < total; v++) {
+            size[layer[v]]++;
+        }
+        int[][] rows = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            rows[l] = new int[size[l]];
+        }
+        Arrays.fill(size, 0);
+        for (int i = 0; i < tail; i++) {
+            int v = queue[i];
+            rows[layer[v]][size[layer[v]]++] = v;
+        }
+        return rows;
+    }
+
+    private static int[][] reduceCrossings(int[][] rows, int[][] down, int[][] up, int[] layer, int total) {
+        int[] position = new int[total];
+        updatePositions(rows, position);
+        int[][] best = copyRows(rows);
+        long bestCrossings = crossings(rows, down, layer, position);
+        double[] key = new double[total];
+        for (int sweep = 0; sweep < ORDER_SWEEPS && bestCrossings > 0; sweep++) {
+            boolean downward = sweep % 2 == 0;
+            if (downward) {
+                for (int l = 1; l < rows.length; l++) {
+                    sortByBarycenter(rows[l], up, position, key);
+                }
+            } else {
+                for (int l = rows.length - 2; l >= 0; l--) {
+                    sortByBarycenter(rows[l], down, position, key);
+                }
+            }
+            long crossings = crossings(rows, down, layer, position);
+            if (crossings < bestCrossings) {
+                bestCrossings = crossings;
+                best = copyRows(rows);
+            }
+        }
+        return best;
+    }
+
+    private static void sortByBarycenter(int[] row, int[][] neighbours, int[] position, double[] key) {
+        for (int v : row) {
+            int[] adj = neighbours[v];
+            if (adj.length == 0) {
+                key[v] = position[v];
+                continue;
+            }
+            double sum = 0;
+            for (int u : adj) {
+                sum += position[u];
+            }
+            key[v] = sum / adj.length;
+        }
+        Integer[] boxed = new Integer[row.length];
+        for (int i = 0; i < row.length; i++) {
+            boxed[i] = row[i];
+        }
+        // stable sort keeps the previous order for ties
+        Arrays.sort(boxed, (a, b) -> Double.compare(key[a], key[b]));
+        for (int i = 0; i < row.length; i++) {
+            row[i] = boxed[i];
+            position[row[i]] = i;
+        }
+    }
+
+    /**
+     * Counts crossings between every pair of adjacent rows with a Fenwick tree over the lower row; segments that
+     * skip rows (only left when dummies were not inserted) are ignored.
+     */
+    private static long crossings(int[][] rows, int[][] down, int[] layer, int[] position) {
+        updatePositions(rows, position);
+        long count = 0;
+        for (int l = 0; l + 1 < rows.length; l++) {
+            int lowerSize = rows[l + 1].length;
+            long[] tree = new long[lowerSize + 1];
+            long inserted = 0;
+            for (int u : rows[l]) {
+                int[] targets = new int[down[u].length];
+                int adjacent = 0;
+                for (int v : down[u]) {
+                    if (layer[v] == l + 1) {
+                        targets[adjacent++] = position[v];
+                    }
+                }
+                targets = Arrays.copyOf(targets, adjacent);
+                Arrays.sort(targets);
+                for (int p : targets) {
+                    // edges already inserted that end to the right of p cross this one
+                    long notGreater = 0;
+                    for (int i = p + 1; i > 0; i -= i & -i) {
+                        notGreater += tree[i];
+                    }
+                    count += inserted - notGreater;
+                }
+                for (int p : targets) {
+                    for (int i = p + 1; i <= lowerSize; i += i & -i) {
+                        tree[i]++;
+                    }
+                    inserted++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double[] assignCoordinates(int[][] rows, double[] w, int[][] down, int[][] up, int total) {
+        double[] x = new double[total];
+        for (int[] row : rows) {
+            double left = 0;
+            for (int v : row) {
+                x[v] = left;
+                left += w[v] + NODE_GAP;
+            }
+        }
+        double[] desired = new double[total];
+        for (int sweep = 0; sweep < PLACEMENT_SWEEPS * 2; sweep++) {
+            boolean downward = sweep % 2 == 0;
+            if (downward) {
+                for (int l = 1; l < rows.length; l++) {
+                    place(rows[l], up, x, w, desired);
+                }
+            } else {
+                for (int l = rows.length - 2; l >= 0; l--) {
+                    place(rows[l], down, x, w, desired);
+                }
+            }
+        }
+        double min = Double.MAX_VALUE;
+        for (double v : x) {
+            min = Math.min(min, v);
+        }
+        if (total > 0 && min != 0) {
+            for (int v = 0; v < total; v++) {
+                x[v] -= min;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Moves each node of {@code row} towards the median centre of its neighbours in the reference row. The result
+     * is the average of a left-to-right and a right-to-left greedy placement; both keep the order and the gaps,
+     * so their average does too.
+     */
+    private static void place(int[] row, int[][] neighbours, double[] x, double[] w, double[] desired) {
+        int size = row.length;
+        if (size == 0) {
+            return;
+        }
+        for (int v : row) {
+            int[] adj = neighbours[v];
+            if (adj.length == 0) {
+                desired[v] = x[v];
+                continue;
+            }
+            double[] centres = new double[adj.length];
+            for (int i = 0; i < adj.length; i++) {
+                centres[i] = x[adj[i]] + w[adj[i]] / 2;
+            }
+            Arrays.sort(centres);
+            double median = centres.length % 2 == 1
+                    ? centres[centres.length / 2]
+                    : (centres[centres.length / 2 - 1] + centres[centres.length / 2]) / 2;
+            desired[v] = median - w[v] / 2;
+        }
+        double[] leftFirst = new double[size];
+        double[] rightFirst = new double[size];
+        for (int i = 0; i < size; i++) {
+            int v = row[i];
+            leftFirst[i] = i == 0 ? desired[v] : Math.max(desired[v], leftFirst[i - 1] + w[row[i - 1]] + NODE_GAP);
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            int v = row[i];
+            rightFirst[i] = i == size - 1 ? desired[v] : Math.min(desired[v], rightFirst[i + 1] - NODE_GAP - w[v]);
+        }
+        for (int i = 0; i < size; i++) {
+            x[row[i]] = (leftFirst[i] + rightFirst[i]) / 2;
+        }
+    }
+
+    private static double[] route(int[] chain, boolean reversed, int n, double[] realX, double[] y,
+                                  double[] width, double[] height, double[] x, double[] w, int[] layer,
+                                  double[] rowTop, double[] rowHeight) {
+        int first = chain[0];
+        if (chain.length == 1) {
+            // self-loop on the right-hand side
+            double right = realX[first] + width[first];
+            double midY = y[first] + height[first] / 2;
+            return new double[]{right, midY - 6, right + 24, midY - 6, right + 24, midY + 6, right, midY + 6};
+        }
+        int last = chain[chain.length - 1];
+        double[] pts = new double[(chain.length - 2) * 4 + 4];
+        int k = 0;
+        pts[k++] = realX[first] + width[first] / 2;
+        pts[k++] = y[first] + height[first];
+        for (int i = 1; i < chain.length - 1; i++) {
+            int d = chain[i];
+            double cx = x[d] + w[d] / 2;
+            pts[k++] = cx;
+            pts[k++] = rowTop[layer[d]];
+            pts[k++] = cx;
+            pts[k++] = rowTop[layer[d]] + rowHeight[layer[d]];
+        }
+        pts[k++] = realX[last] + width[last] / 2;
+        pts[k] = y[last];
+        if (reversed) {
+            double[] flipped = new double[pts.length];
+            for (int i = 0; i < pts.length; i += 2) {
+                flipped[pts.length - 2 - i] = pts[i];
+                flipped[pts.length - 1 - i] = pts[i + 1];
+            }
+            return flipped;
+        }
+        return pts;
+    }
+
+    private static void updatePositions(int[][] rows, int[] position) {
+        for (int[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                position[row[i]] = i;
+            }
+        }
+    }
+
+    private static int[][] copyRows(int[][] rows) {
+        int[][] copy = new int[rows.length][];
+        for (int l = 0; l < rows.length; l++) {
+            copy[l] = rows[l].clone();
+        }
+        return copy;
+    }
+
+    private static final class IntList {
+        private int[] data;
+        private int size;
+
+        IntList(int capacity) {
+            data = new int[Math.max(4, capacity)];
+        }
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
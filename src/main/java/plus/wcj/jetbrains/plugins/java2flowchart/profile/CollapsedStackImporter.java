@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.profile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Reads collapsed stacks ({@code root;...;leaf count} per line, as written by async-profiler and the flamegraph
+ * scripts) into a {@link ProfileIndex}. Java frames need line numbers ({@code a/b/C.m:42}, optionally followed by
+ * a {@code _[j]}-style type suffix); frames without one, and native frames, only count towards the total. The file
+ * is read line by line and frames are scanned in place, so a profile of any size costs one pass and memory for the
+ * indexed lines only.
+ */
+public final class CollapsedStackImporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Predicate<String> classFilter;
+    // class part of a frame -> indexed top-level class, "" when filtered out
+    private final Map<String, String> indexed = new HashMap<>();
+    private final ProfileIndex index = new ProfileIndex();
+    private String[] classNames = new String[128];
+    private int[] lineNumbers = new int[128];
+
+    private CollapsedStackImporter(Predicate<String> classFilter) {
+        this.classFilter = classFilter;
+    }
+
+    /**
+     * @param classFilter accepts the top-level classes to index; other frames only count towards the total
+     */
+    public static ProfileIndex read(Path file, Predicate<String> classFilter) throws IOException {
+        CollapsedStackImporter importer = new CollapsedStackImporter(classFilter);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                importer.addLine(line);
+            }
+        }
+        return importer.index;
+    }
+
+    void addLine(String line) {
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        int space = line.lastIndexOf(' ', end - 1);
+        if (space <= 0) {
+            return;
+        }
+        long count = parseCount(line, space + 1, end);
+        if (count <= 0) {
+            return;
+        }
+        // frames are root first; the index wants the leaf first
+        int size = 0;
+        int frameEnd = space;
+        while (frameEnd > 0) {
+            int frameStart = line.lastIndexOf(';', frameEnd - 1) + 1;
+            if (size == classNames.length) {
+                classNames = Arrays.copyOf(classNames, size * 2);
+                lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+            }
+            parseFrame(line, frameStart, frameEnd, size);
+            size++;
+            frameEnd = frameStart - 1;
+        }
+        index.addStack(classNames, lineNumbers, size, count);
+    }
+
+    /**
+     * Fills slot {@code slot} from a frame such as {@code a/b/C$D.m:42_[j]}.
+     */
+    private void parseFrame(String line, int start, int end, int slot) {
+        classNames[slot] = null;
+        lineNumbers[slot] = 0;
+        if (end - start > 4 && line.charAt(end - 1) == ']' && line.charAt(end - 4) == '_' && line.charAt(end - 3) == '[') {
+            end -= 4;
+        }
+        int colon = line.lastIndexOf(':', end - 1);
+        if (colon < start) {
+            return;
+        }
+        int lineNumber = 0;
+        for (int i = colon + 1; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return;
+            }
+            lineNumber = lineNumber * 10 + (c - '0');
+        }
+        int dot = line.lastIndexOf('.', colon - 1);
+        if (dot <= start || lineNumber <= 0) {
+            return;
+        }
+        String className = indexed.computeIfAbsent(line.substring(start, dot), name -> {
+            String top = ProfileIndex.topLevelClass(name);
+            return classFilter.test(top) ? top : "";
+        });
+        if (!className.isEmpty()) {
+            classNames[slot] = className;
+            lineNumbers[slot] = lineNumber;
+        }
+    }
+
+    private static long parseCount(String line, int start, int end) {
+        long count = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            count = count * 10 + (c - '0');
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.profile;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Reads {@code jdk.ExecutionSample} events of a JFR recording into a {@link ProfileIndex}. Events are consumed one
+ * at a time, so memory follows the number of distinct indexed lines rather than the size of the recording.
+ */
+public final class JfrProfileImporter {
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+    private JfrProfileImporter() {
+    }
+
+    /**
+     * @param classFilter accepts the top-level classes to index; samples in other classes only count towards the
+     *                    profile total
+     */
+    public static ProfileIndex read(Path file, Predicate<String> classFilter) throws IOException {
+        ProfileIndex index = new ProfileIndex();
+        // JVM class name -> indexed top-level class, "" when filtered out
+        Map<String, String> indexed = new HashMap<>();
+        String[] classNames = new String[64];
+        int[] lineNumbers = new int[64];
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (!EXECUTION_SAMPLE.equals(event.getEventType().getName())) {
+                    continue;
+                }
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if (stackTrace == null) {
+                    continue;
+                }
+                List<RecordedFrame> frames = stackTrace.getFrames();
+                if (frames.size() > classNames.length) {
+                    classNames = new String[frames.size()];
+                    lineNumbers = new int[frames.size()];
+                }
+                for (int i = 0; i < frames.size(); i++) {
+                    RecordedFrame frame = frames.get(i);
+                    String className = frame.isJavaFrame() && frame.getMethod() != null
+                            ? indexed.computeIfAbsent(frame.getMethod().getType().getName(), name -> {
+                                String top = ProfileIndex.topLevelClass(name);
+                                return classFilter.test(top) ? top : "";
+                            })
+                            : "";
+                    classNames[i] = className.isEmpty() ? null : className;
+                    lineNumbers[i] = frame.getLineNumber();
+                }
+                index.addStack(classNames, lineNumbers, frames.size(), 1);
+            }
+        }
+        return index;
+    }
+}
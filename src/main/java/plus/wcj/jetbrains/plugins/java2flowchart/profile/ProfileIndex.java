@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.profile;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Sample counts per source line, grouped by top-level class so lines of nested, anonymous and lambda classes land
+ * in the file that declares them. Each stack adds its weight once to every distinct line on it (inclusive) and to
+ * its leaf line (self); the profile total counts every stack, indexed or not.
+ */
+public final class ProfileIndex {
+    private final Map<String, Lines> classes = new HashMap<>();
+    private long totalSamples;
+
+    /**
+     * Adds one stack, leaf frame first. {@code classNames} hold top-level class names (see {@link #topLevelClass});
+     * a {@code null} entry marks a frame that is not indexed.
+     */
+    void addStack(String[] classNames, int[] lineNumbers, int size, long weight) {
+        totalSamples += weight;
+        for (int i = 0; i < size; i++) {
+            String className = classNames[i];
+            int line = lineNumbers[i];
+            if (className == null || line <= 0 || seenBelow(classNames, lineNumbers, i)) {
+                continue;
+            }
+            Lines lines = classes.computeIfAbsent(className, k -> new Lines());
+            lines.add(line, weight, i == 0);
+        }
+    }
+
+    /**
+     * Drops the lines of every class {@code keep} rejects; the total is unchanged, as if they had been filtered out
+     * while importing.
+     */
+    void retainClasses(Predicate<String> keep) {
+        classes.keySet().removeIf(keep.negate());
+    }
+
+    public long totalSamples() {
+        return totalSamples;
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    /**
+     * @return samples whose stack passes through any line in {@code [fromLine, toLine]} of {@code topLevelClass},
+     * counting a stack once per line it touches
+     */
+    public long samples(String topLevelClass, int fromLine, int toLine) {
+        Lines lines = classes.get(topLevelClass);
+        return lines == null ? 0 : lines.sum(lines.inclusive, fromLine, toLine);
+    }
+
+    /**
+     * @return samples whose leaf frame is on a line in {@code [fromLine, toLine]} of {@code topLevelClass}
+     */
+    public long selfSamples(String topLevelClass, int fromLine, int toLine) {
+        Lines lines = classes.get(topLevelClass);
+        return lines == null ? 0 : lines.sum(lines.self, fromLine, toLine);
+    }
+
+    /**
+     * Maps a JVM class name ({@code a/b/C$Inner}, {@code a.b.C$1}, {@code a.b.C$$Lambda$12}) to the top-level
+     * class that declares it ({@code a.b.C}).
+     */
+    public static String topLevelClass(String className) {
+        String name = className.replace('/', '.');
+        int nested = name.indexOf('$', name.lastIndexOf('.') + 1);
+        return nested > 0 ? name.substring(0, nested) : name;
+    }
+
+    private static boolean seenBelow(String[] classNames, int[] lineNumbers, int index) {
+        // stacks are short; a recursive frame must not count its line twice
+        for (int j = 0; j < index; j++) {
+            if (lineNumbers[j] == lineNumbers[index] && classNames[index].equals(classNames[j])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Lines {
+        private long[] inclusive = new long[64];
+        private long[] self = new long[64];
+
+        void add(int line, long weight, boolean leaf) {
+            if (line >= inclusive.length) {
+                int capacity = Math.max(line + 1, inclusive.length * 2);
+                inclusive = Arrays.copyOf(inclusive, capacity);
+                self = Arrays.copyOf(self, capacity);
+            }
+            inclusive[line] += weight;
+            if (leaf) {
+                self[line] += weight;
+            }
+        }
+
+        long sum(long[] counts, int fromLine, int toLine) {
+            long sum = 0;
+            for (int line = Math.max(1, fromLine); line <= toLine && line < counts.length; line++) {
+                sum += counts[line];
+            }
+            return sum;
+        }
+    }
+}
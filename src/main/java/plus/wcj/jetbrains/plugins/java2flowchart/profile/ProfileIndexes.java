@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.profile;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.search.GlobalSearchScope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Loads the profile configured in settings: a JFR recording ({@code .jfr}) or collapsed stacks (any other file).
+ * The last index is kept until the file changes, so regenerating flowcharts against the same recording reads it
+ * once. The file is parsed without holding the read lock; only the project class lookups take a short read action.
+ */
+public final class ProfileIndexes {
+    private record Loaded(Path file, long modified, long size, String project, ProfileIndex index) {
+    }
+
+    /**
+     * JDK frames never map onto flowchart nodes and are only counted in the total.
+     */
+    private static final Predicate<String> APPLICATION_CLASSES = name -> !(name.startsWith("java.")
+            || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.")
+            || name.startsWith("com.sun."));
+
+    private static Loaded last;
+
+    private ProfileIndexes() {
+    }
+
+    /**
+     * @param project only classes of the project are indexed, when its indexes are ready; may be {@code null}.
+     *                Call outside a read action when the file may not be loaded yet
+     * @return the index of {@code path}, or {@code null} when no profile is configured
+     */
+    public static synchronized ProfileIndex load(String path, Project project) throws IOException {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        Path file = Path.of(path.trim());
+        String projectHash = project != null ? project.getLocationHash() : null;
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (last != null && last.file().equals(file) && last.modified() == modified && last.size() == attributes.size()
+                && Objects.equals(last.project(), projectHash)) {
+            return last.index();
+        }
+        ProfileIndex index = file.getFileName().toString().endsWith(".jfr")
+                ? JfrProfileImporter.read(file, APPLICATION_CLASSES)
+                : CollapsedStackImporter.read(file, APPLICATION_CLASSES);
+        if (project != null && !DumbService.isDumb(project)) {
+            ReadAction.run(() -> index.retainClasses(projectClasses(project)));
+        }
+        last = new Loaded(file, modified, attributes.size(), projectHash, index);
+        return index;
+    }
+
+    /**
+     * Frames of library classes can never be drawn; skipping them keeps the index small for large profiles.
+     */
+    private static Predicate<String> projectClasses(Project project) {
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        return name -> facade.findClass(name, scope) != null;
+    }
+}
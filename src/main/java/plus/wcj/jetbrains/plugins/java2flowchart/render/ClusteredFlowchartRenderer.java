@@ -0,0 +1,279 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base for renderers whose format has clusters and free-form edges (Graphviz, PlantUML). It walks the graph with
+ * the same rules as {@link MermaidFlowchartRenderer} — blank merges dropped, one cluster per callee, stubs for
+ * calls that were not expanded, {@code calls:N} numbering, recursion hints — and leaves only the syntax to
+ * subclasses through a {@link FormatWriter} created per render. Everything is written straight to the
+ * {@link Appendable}.
+ */
+public abstract class ClusteredFlowchartRenderer implements DiagramRenderer {
+
+    protected enum Link {
+        FLOW, RETURN, CALL, RECURSIVE
+    }
+
+    @Override
+    public String render(ControlFlowGraph graph, RenderOptions options) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            render(graph, options, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void render(ControlFlowGraph graph, RenderOptions options, Appendable out) throws IOException {
+        openStream(out, options).finish(graph);
+    }
+
+    @Override
+    public DiagramStream openStream(Appendable out, RenderOptions options) throws IOException {
+        FormatWriter writer = newWriter(out, options == null ? RenderOptions.topDown() : options);
+        writer.header();
+        return new Session(writer);
+    }
+
+    protected abstract FormatWriter newWriter(Appendable out, RenderOptions options);
+
+    /**
+     * Syntax of one output format; an instance lives for a single render and may keep state.
+     */
+    protected interface FormatWriter {
+        void header() throws IOException;
+
+        void footer() throws IOException;
+
+        void beginCluster(String id, String title) throws IOException;
+
+        void endCluster() throws IOException;
+
+        /**
+         * @param root whether the node belongs to the selected method rather than to a callee
+         */
+        void node(String id, NodeType type, String label, boolean root) throws IOException;
+
+        void edge(String from, String to, Link link, String label) throws IOException;
+    }
+
+    private static final class Session implements DiagramStream {
+        private final FormatWriter out;
+        private final Map<String, String> mergedTargets = new HashMap<>();
+        private final Set<String> renderedGraphs = new HashSet<>();
+        private final Map<String, Integer> callCounters = new HashMap<>();
+        private int streamed = 0;
+
+        private Session(FormatWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public String lookup(String calleeKey) {
+            return calleeKey == null ? null : mergedTargets.get(calleeKey);
+        }
+
+        @Override
+        public String emit(String calleeKey, Integer callLine, ControlFlowGraph graph) {
+            String existing = lookup(calleeKey);
+            if (existing != null) {
+                return existing;
+            }
+            streamed++;
+            try {
+                String entry = writeCallee(graph, RenderSupport.callBaseId(callLine, calleeKey) + "_",
+                        calleeKey, "s" + streamed + ".");
+                if (calleeKey != null) {
+                    mergedTargets.putIfAbsent(calleeKey, entry);
+                }
+                return entry;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish(ControlFlowGraph root) throws IOException {
+            ControlFlowGraph graph = RenderSupport.dropBlankMerges(root);
+            String methodKey = RenderSupport.methodKey(graph);
+            if (methodKey != null) {
+                mergedTargets.putIfAbsent(methodKey, graph.entryId());
+            }
+            List<Node> ordered = new ArrayList<>(graph.nodes());
+            RenderSupport.sortByLine(ordered);
+            for (Node node : ordered) {
+                out.node(node.id(), node.type(), node.label(), true);
+            }
+            writeEdges(graph, "");
+            writeCalls(graph, ordered, "", "");
+            out.footer();
+        }
+
+        private String writeCallee(ControlFlowGraph callee, String prefix, String title, String callPrefix) throws IOException {
+            String entry = prefix + callee.entryId();
+            if (!renderedGraphs.add(entry)) {
+                return entry;
+            }
+            ControlFlowGraph graph = RenderSupport.dropBlankMerges(callee);
+            String methodKey = RenderSupport.methodKey(graph);
+            if (methodKey != null) {
+                mergedTargets.putIfAbsent(methodKey, entry);
+            }
+            Set<String> edgeTouched = new HashSet<>();
+            for (Edge e : graph.edges()) {
+                edgeTouched.add(e.from());
+                edgeTouched.add(e.to());
+            }
+            List<Node> ordered = new ArrayList<>(graph.nodes());
+            RenderSupport.sortByLine(ordered);
+            // calls that only live inline in another label have no node of their own
+            ordered.removeIf(node -> node.type() == NodeType.CALL && !edgeTouched.contains(node.id()));
+            out.beginCluster(prefix + "cluster", title);
+            for (Node node : ordered) {
+                out.node(prefix + node.id(), node.type(), node.label(), false);
+            }
+            writeEdges(graph, prefix);
+            out.endCluster();
+            writeCalls(graph, ordered, prefix, callPrefix);
+            return entry;
+        }
+
+        private void writeEdges(ControlFlowGraph graph, String prefix) throws IOException {
+            Set<String> present = new HashSet<>();
+            for (Node node : graph.nodes()) {
+                present.add(node.id());
+            }
+            for (Edge edge : graph.edges()) {
+                if (!present.contains(edge.from()) || !present.contains(edge.to())) {
+                    continue;
+                }
+                String label = RenderSupport.edgeLabel(edge);
+                Link link = Link.FLOW;
+                if (edge.type() == EdgeType.RETURN) {
+                    link = Link.RETURN;
+                    label = label.isBlank() || "throw".equalsIgnoreCase(label) ? "exception" : label;
+                }
+                out.edge(prefix + edge.from(), prefix + edge.to(), link, label);
+            }
+            for (Node node : graph.nodes()) {
+                String target = recursionTarget(graph, node, prefix);
+                if (target != null) {
+                    out.edge(prefix + node.id(), target, Link.RECURSIVE, "recursive call");
+                }
+            }
+        }
+
+        private String recursionTarget(ControlFlowGraph graph, Node node, String prefix) {
+            return RenderSupport.isRecursiveCall(node)
+                    ? RenderSupport.recursionTarget(node, RenderSupport.methodKey(graph), prefix + graph.entryId(), mergedTargets)
+                    : null;
+        }
+
+        private void writeCalls(ControlFlowGraph graph, List<Node> ordered, String prefix, String callPrefix) throws IOException {
+            Set<String> callEdgesSeen = new HashSet<>();
+            for (Node node : ordered) {
+                if (recursionTarget(graph, node, prefix) != null) {
+                    continue;
+                }
+                if (node.type() == NodeType.CALL) {
+                    writeCall(prefix + node.id(), node.meta().copy(), callPrefix, callEdgesSeen);
+                } else if (node.meta().getInlineCalls() != null) {
+                    for (NodeMeta meta : node.meta().getInlineCalls()) {
+                        writeCall(prefix + node.id(), meta.copy(), callPrefix, callEdgesSeen);
+                    }
+                }
+            }
+        }
+
+        private void writeCall(String sourceId, NodeMeta meta, String callPrefix, Set<String> callEdgesSeen) throws IOException {
+            String callee = meta.getCallee();
+            if (callee == null || callee.isBlank()) {
+                return;
+            }
+            String calleeKey = meta.getCalleeKey() != null ? meta.getCalleeKey() : callee;
+            // inline calls first, so numbering follows evaluation order
+            if (meta.getInlineCalls() != null) {
+                for (NodeMeta inlineMeta : meta.getInlineCalls()) {
+                    writeCall(sourceId, inlineMeta.copy(), callPrefix, callEdgesSeen);
+                }
+            }
+            int index = callCounters.merge(callPrefix, 1, Integer::sum);
+            String callLabel = callPrefix + index;
+            String childPrefix = callLabel + ".";
+            callCounters.remove(childPrefix);
+
+            String calleeDisplay = meta.getCalleeDisplay() != null ? meta.getCalleeDisplay() : callee;
+            String baseId = RenderSupport.callBaseId(meta.getLineNumber(), calleeKey);
+            ControlFlowGraph calleeGraph = meta.getCalleeGraph();
+            String targetId = mergedTargets.get(calleeKey);
+            if (targetId == null && calleeGraph == null && meta.getCalleeGraphRef() != null) {
+                // graph was already streamed to the output; only link to it
+                targetId = meta.getCalleeGraphRef();
+                mergedTargets.putIfAbsent(calleeKey, targetId);
+            }
+            boolean skipEdge = Boolean.TRUE.equals(meta.getSkipCallRender());
+            if (calleeGraph != null && targetId == null) {
+                if (Boolean.TRUE.equals(meta.getInline())) {
+                    Node entryNode = calleeGraph.nodes().stream()
+                            .filter(n -> n.id().equals(calleeGraph.entryId()))
+                            .findFirst()
+                            .orElse(null);
+                    targetId = baseId + "_" + calleeGraph.entryId();
+                    out.node(targetId, entryNode != null ? entryNode.type() : NodeType.START,
+                            entryNode != null ? entryNode.label() : "start", false);
+                } else {
+                    targetId = writeCallee(calleeGraph, baseId + "_", calleeDisplay, childPrefix);
+                }
+                mergedTargets.putIfAbsent(calleeKey, targetId);
+            }
+            if (!skipEdge && targetId == null) {
+                targetId = baseId + "_stub";
+                String calleeBody = meta.getCalleeBody();
+                String label = !calleeDisplay.isBlank()
+                        ? calleeDisplay
+                        : calleeBody != null && !calleeBody.isBlank() ? calleeBody : callee;
+                out.node(targetId, NodeType.ACTION, label, false);
+                mergedTargets.putIfAbsent(calleeKey, targetId);
+            }
+            if (!skipEdge && callEdgesSeen.add(sourceId + "|" + targetId + "|" + calleeKey)) {
+                out.edge(sourceId, targetId, Link.CALL, RenderSupport.callEdgeLabel(callLabel, meta));
+            }
+        }
+    }
+
+    /**
+     * Splits a label on the {@code <br/>} separators the extractor uses for merged nodes.
+     */
+    protected static String[] labelLines(String label) {
+        String text = label == null ? "" : label;
+        return text.replace("</br>", "\n").replace("<br/>", "\n").replace("<br>", "\n").split("\n", -1);
+    }
+}
@@ -18,11 +18,35 @@ package plus.wcj.jetbrains.plugins.java2flowchart.render;
 
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
 
+import java.io.IOException;
+
 @SuppressWarnings({"unused", "SameReturnValue"})
 public interface DiagramRenderer {
     String id();
 
     String displayName();
 
+    /**
+     * Info string of the Markdown code fence the output is embedded in.
+     */
+    default String codeFence() {
+        return "text";
+    }
+
     String render(ControlFlowGraph graph, RenderOptions options);
+
+    /**
+     * Writes the diagram to {@code out}; renderers that can produce output incrementally override this.
+     */
+    default void render(ControlFlowGraph graph, RenderOptions options, Appendable out) throws IOException {
+        out.append(render(graph, options));
+    }
+
+    /**
+     * Starts a render that receives callee graphs while the extractor is still running, or returns {@code null}
+     * when the renderer needs the complete graph.
+     */
+    default DiagramStream openStream(Appendable out, RenderOptions options) throws IOException {
+        return null;
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import java.util.List;
+
+/**
+ * Renderers selectable for the Markdown output.
+ */
+public final class DiagramRenderers {
+    private static final List<DiagramRenderer> ALL = List.of(
+            new MermaidFlowchartRenderer(),
+            new DotFlowchartRenderer(),
+            new PlantUmlActivityRenderer()
+    );
+
+    private DiagramRenderers() {
+    }
+
+    public static List<DiagramRenderer> all() {
+        return ALL;
+    }
+
+    /**
+     * @return the renderer with the given id, or Mermaid when the id is unknown
+     */
+    public static DiagramRenderer byId(String id) {
+        for (DiagramRenderer renderer : ALL) {
+            if (renderer.id().equals(id)) {
+                return renderer;
+            }
+        }
+        return ALL.get(0);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.CalleeGraphSink;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+
+import java.io.IOException;
+
+/**
+ * A render in progress: callee graphs are written as the extractor emits them, {@link #finish(ControlFlowGraph)}
+ * writes the root graph and closes the diagram.
+ */
+public interface DiagramStream extends CalleeGraphSink {
+    void finish(ControlFlowGraph root) throws IOException;
+}
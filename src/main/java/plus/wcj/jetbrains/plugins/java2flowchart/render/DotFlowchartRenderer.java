@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeType;
+
+import java.io.IOException;
+
+/**
+ * Graphviz DOT output; each expanded callee becomes a {@code cluster} subgraph.
+ */
+public class DotFlowchartRenderer extends ClusteredFlowchartRenderer {
+    @Override
+    public String id() {
+        return "dot-flowchart";
+    }
+
+    @Override
+    public String displayName() {
+        return "Graphviz DOT";
+    }
+
+    @Override
+    public String codeFence() {
+        return "dot";
+    }
+
+    @Override
+    protected FormatWriter newWriter(Appendable out, RenderOptions options) {
+        return new DotWriter(out, options);
+    }
+
+    private static final class DotWriter implements FormatWriter {
+        private final Appendable out;
+        private final RenderOptions options;
+
+        private DotWriter(Appendable out, RenderOptions options) {
+            this.out = out;
+            this.options = options;
+        }
+
+        @Override
+        public void header() throws IOException {
+            out.append("digraph flowchart {\n");
+            out.append("  rankdir=").append("LR".equalsIgnoreCase(options.direction()) ? "LR" : "TB").append(";\n");
+            out.append("  node [shape=box, style=filled, fillcolor=\"#f4f6fb\", fontname=\"Helvetica\", fontsize=11];\n");
+            out.append("  edge [fontname=\"Helvetica\", fontsize=9];\n");
+        }
+
+        @Override
+        public void footer() throws IOException {
+            out.append("}\n");
+        }
+
+        @Override
+        public void beginCluster(String id, String title) throws IOException {
+            out.append("  subgraph ").append(quote("cluster_" + id)).append(" {\n");
+            out.append("    label=").append(quote(title == null ? "" : title)).append(";\n");
+            out.append("    style=dashed;\n");
+        }
+
+        @Override
+        public void endCluster() throws IOException {
+            out.append("  }\n");
+        }
+
+        @Override
+        public void node(String id, NodeType type, String label, boolean root) throws IOException {
+            out.append("  ").append(quote(id)).append(" [label=").append(quote(label));
+            switch (type) {
+                case START, END -> out.append(", style=\"rounded,filled\", fillcolor=\"#f9d6f9\"");
+                case DECISION, LOOP_HEAD -> out.append(", shape=diamond, fillcolor=\"#fff4d6\"");
+                default -> {
+                }
+            }
+            out.append("];\n");
+        }
+
+        @Override
+        public void edge(String from, String to, Link link, String label) throws IOException {
+            out.append("  ").append(quote(from)).append(" -> ").append(quote(to));
+            boolean hasLabel = label != null && !label.isBlank();
+            if (hasLabel || link != Link.FLOW) {
+                out.append(" [");
+                if (hasLabel) {
+                    out.append("label=").append(quote(label));
+                }
+                if (link != Link.FLOW) {
+                    out.append(hasLabel ? ", " : "").append("style=dashed");
+                }
+                if (link == Link.CALL) {
+                    out.append(", color=\"#6f8fd8\"");
+                } else if (link == Link.RECURSIVE) {
+                    out.append(", constraint=false");
+                }
+                out.append("]");
+            }
+            out.append(";\n");
+        }
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        String[] lines = labelLines(text);
+        for (int l = 0; l < lines.length; l++) {
+            if (l > 0) {
+                sb.append("\\n");
+            }
+            String line = lines[l];
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\r' -> {
+                    }
+                    default -> sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -18,11 +18,23 @@ package plus.wcj.jetbrains.plugins.java2flowchart.render;
 
 import plus.wcj.jetbrains.plugins.java2flowchart.ir.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 public class MermaidFlowchartRenderer implements DiagramRenderer {
+    private static final List<String> HEAT_CLASS_DEFS = List.of(
+            "classDef heat1 fill:#fff3cd,stroke:#e0c060;",
+            "classDef heat2 fill:#ffd58a,stroke:#e0a040;",
+            "classDef heat3 fill:#ffa35c,stroke:#d06a20;",
+            "classDef heat4 fill:#ff6b5c,stroke:#b03020,color:#fff;");
+    private static final String PERF_CLASS_DEF = "classDef perf stroke:#d62728,stroke-width:3px;";
+    private static final String CRITICAL_CLASS_DEF = "classDef critical stroke:#6a3d9a,stroke-width:3px,stroke-dasharray:6 3;";
+    private static final String COLD_CLASS_DEF = "classDef cold fill:#f4f4f4,stroke:#c8c8c8,color:#9a9a9a,stroke-dasharray:3 3;";
+
     @Override
     public String id() {
         return "mermaid-flowchart";
@@ -33,29 +45,218 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         return "Mermaid Flowchart";
     }
 
+    @Override
+    public String codeFence() {
+        return "mermaid";
+    }
+
     @Override
     public String render(ControlFlowGraph graph, RenderOptions options) {
-        RenderOptions renderOptions = options == null ? RenderOptions.topDown() : options;
-        GraphView view = remapStartEnd(simplify(graph));
         StringBuilder builder = new StringBuilder();
+        appendHeader(builder, options);
+        appendGraph(graph, builder, new CallRenderState());
+        return options != null && options.compact() ? new MermaidMinifier().minify(builder) : builder.toString();
+    }
+
+    /**
+     * Renders one page of a paginated diagram: expanded callee graphs are not inlined, each call links to the
+     * page {@code pageLinks} returns for its callee key instead (a stub node with a {@code click} link), or gets
+     * the usual stub when there is no page.
+     */
+    public String renderPage(ControlFlowGraph graph, RenderOptions options, Function<String, String> pageLinks) {
+        StringBuilder builder = new StringBuilder();
+        appendHeader(builder, options);
+        appendGraph(graph, builder, new CallRenderState(pageLinks));
+        return options != null && options.compact() ? new MermaidMinifier().minify(builder) : builder.toString();
+    }
+
+    /**
+     * Opens a streaming render: the header is written immediately, callee graphs are written as the extractor
+     * emits them, and {@link StreamingSession#finish(ControlFlowGraph)} writes the root graph last.
+     */
+    @Override
+    public StreamingSession openStream(Appendable out, RenderOptions options) throws IOException {
+        StringBuilder header = new StringBuilder();
+        appendHeader(header, options);
+        out.append(header);
+        return new StreamingSession(out, options != null && options.compact() ? new MermaidMinifier() : null);
+    }
+
+    private void appendHeader(StringBuilder builder, RenderOptions options) {
+        RenderOptions renderOptions = options == null ? RenderOptions.topDown() : options;
         builder.append("%%{init: {\"flowchart\": {\"defaultRenderer\": \"elk\",\"wrappingWidth\": 9999}} }%%").append("\n");
         builder.append("flowchart ").append(renderOptions.direction()).append("\n");
+    }
+
+    private void appendGraph(ControlFlowGraph graph, StringBuilder builder, CallRenderState callState) {
+        GraphView view = remapStartEnd(simplify(graph));
+        if (view.methodKey != null) {
+            callState.mergedTargets().putIfAbsent(view.methodKey, view.entryId);
+        }
         for (Node node : view.nodes) {
             builder.append("  ").append(node.id()).append(nodeShape(node)).append("\n");
         }
         builder.append("\n");
         renderEdgesCompact(view, builder);
         builder.append("\n");
-        for (String line : callChainExtras(view)) {
+        for (String line : callChainExtras(view, callState)) {
             builder.append("  ").append(line).append("\n");
         }
-        for (String line : recursiveHints(view)) {
+        for (String line : recursiveHints(view, callState.mergedTargets())) {
             builder.append("  ").append(line).append("\n");
         }
         builder.append("\n");
         builder.append("  classDef startEnd fill:#f9f;\n");
         builder.append("  class n_start,n_end startEnd;\n");
-        return builder.toString();
+        if (RenderSupport.methodSamples(graph) != null) {
+            for (String line : HEAT_CLASS_DEFS) {
+                builder.append("  ").append(line).append("\n");
+            }
+            for (String line : heatClasses(view.nodes, view.entryId, "")) {
+                builder.append("  ").append(line).append("\n");
+            }
+        }
+        if (RenderSupport.hasCoverage(graph)) {
+            builder.append("  ").append(COLD_CLASS_DEF).append("\n");
+            for (String line : coldClasses(view.nodes, "")) {
+                builder.append("  ").append(line).append("\n");
+            }
+        }
+        for (String line : perfClasses(view.nodes, "")) {
+            builder.append("  ").append(line).append("\n");
+        }
+        for (String line : criticalClasses(view.nodes, "")) {
+            builder.append("  ").append(line).append("\n");
+        }
+    }
+
+    /**
+     * Outlines the nodes of the estimated critical path, defined next to its use like the perf class.
+     */
+    private java.util.List<String> criticalClasses(java.util.Collection<Node> nodes, String prefix) {
+        java.util.List<String> ids = new java.util.ArrayList<>();
+        for (Node node : nodes) {
+            if (Boolean.TRUE.equals(node.meta().getCriticalPath()) && node.type() != NodeType.START && node.type() != NodeType.END) {
+                ids.add(prefix + node.id());
+            }
+        }
+        return ids.isEmpty() ? java.util.List.of() : java.util.List.of(CRITICAL_CLASS_DEF, "class " + String.join(",", ids) + " critical;");
+    }
+
+    /**
+     * Outlines nodes flagged by the performance lint; the class is defined next to its use because callee
+     * graphs may be flagged when the root graph is not.
+     */
+    private java.util.List<String> perfClasses(java.util.Collection<Node> nodes, String prefix) {
+        java.util.List<String> ids = new java.util.ArrayList<>();
+        for (Node node : nodes) {
+            if (Boolean.TRUE.equals(node.meta().getPerfFlagged())) {
+                ids.add(prefix + node.id());
+            }
+        }
+        return ids.isEmpty() ? java.util.List.of() : java.util.List.of(PERF_CLASS_DEF, "class " + String.join(",", ids) + " perf;");
+    }
+
+    /**
+     * Dims nodes whose lines never ran.
+     */
+    private java.util.List<String> coldClasses(java.util.Collection<Node> nodes, String prefix) {
+        java.util.List<String> ids = new java.util.ArrayList<>();
+        for (Node node : nodes) {
+            if (node.isCold()) {
+                ids.add(prefix + node.id());
+            }
+        }
+        return ids.isEmpty() ? java.util.List.of() : java.util.List.of("class " + String.join(",", ids) + " cold;");
+    }
+
+    /**
+     * Assigns heat classes to nodes by their share of the graph's profile samples, one statement per level.
+     */
+    private java.util.List<String> heatClasses(java.util.Collection<Node> nodes, String entryId, String prefix) {
+        Long methodSamples = null;
+        for (Node node : nodes) {
+            if (node.id().equals(entryId)) {
+                methodSamples = node.meta().getSamples();
+            }
+        }
+        java.util.Map<Integer, java.util.List<String>> byLevel = new java.util.TreeMap<>();
+        for (Node node : nodes) {
+            int level = RenderSupport.heatLevel(node, methodSamples);
+            if (level > 0) {
+                byLevel.computeIfAbsent(level, k -> new java.util.ArrayList<>()).add(prefix + node.id());
+            }
+        }
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        byLevel.forEach((level, ids) -> lines.add("class " + String.join(",", ids) + " heat" + level + ";"));
+        return lines;
+    }
+
+    /**
+     * Writes callee graphs to the output as soon as they are built. Call numbering inside streamed graphs
+     * follows emission order ({@code s1.1}, {@code s1.2}, ...) because their position in the final call tree
+     * is not known yet.
+     */
+    public final class StreamingSession implements DiagramStream {
+        private final Appendable out;
+        private final CallRenderState callState = new CallRenderState();
+        private final MermaidMinifier minifier;
+        private int streamed = 0;
+
+        private StreamingSession(Appendable out, MermaidMinifier minifier) {
+            this.out = out;
+            this.minifier = minifier;
+        }
+
+        @Override
+        public String lookup(String calleeKey) {
+            return calleeKey == null ? null : callState.mergedTargets().get(calleeKey);
+        }
+
+        @Override
+        public String emit(String calleeKey, Integer callLine, ControlFlowGraph graph) {
+            String existing = lookup(calleeKey);
+            if (existing != null) {
+                return existing;
+            }
+            java.util.List<String> lines = new java.util.ArrayList<>();
+            String prefix = RenderSupport.callBaseId(callLine, calleeKey) + "_";
+            streamed++;
+            RenderedGraph rendered = renderSubGraph(graph, prefix, lines, callState.renderedGraphs(), "s" + streamed + ".",
+                    callState.callCounters(), callState.mergedTargets());
+            if (calleeKey != null) {
+                callState.mergedTargets().putIfAbsent(calleeKey, rendered.entryId());
+            }
+            StringBuilder builder = new StringBuilder();
+            for (String line : lines) {
+                builder.append("  ").append(line).append("\n");
+            }
+            try {
+                out.append(minifier != null ? minifier.minify(builder) : builder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rendered.entryId();
+        }
+
+        @Override
+        public void finish(ControlFlowGraph root) throws IOException {
+            StringBuilder builder = new StringBuilder();
+            builder.append("\n");
+            appendGraph(root, builder, callState);
+            out.append(minifier != null ? minifier.minify(builder) : builder);
+        }
+    }
+
+    private record CallRenderState(Map<String, String> mergedTargets, Set<String> renderedGraphs,
+                                   Map<String, Integer> callCounters, Function<String, String> pageLinks) {
+        CallRenderState() {
+            this(null);
+        }
+
+        CallRenderState(Function<String, String> pageLinks) {
+            this(new java.util.HashMap<>(), new java.util.HashSet<>(), new java.util.HashMap<>(), pageLinks);
+        }
     }
 
     private GraphView remapStartEnd(GraphView view) {
@@ -86,76 +287,73 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         for (Edge e : view.edges) {
             String from = remap.getOrDefault(e.from(), e.from());
             String to = remap.getOrDefault(e.to(), e.to());
-            remappedEdges.add(new Edge(from, to, e.type(), e.label()));
+            remappedEdges.add(new Edge(from, to, e.type(), e.label(), e.coverage()));
         }
         String newEntry = remap.getOrDefault(view.entryId, view.entryId);
-        return new GraphView(remappedNodes, remappedEdges, newEntry);
+        return new GraphView(remappedNodes, remappedEdges, newEntry, view.methodKey);
     }
 
+    /**
+     * Chains of single-in, single-out NORMAL edges are written as one line. The walk runs on a {@link GraphIndex}
+     * of the view; equal edges share one "used" flag, so a duplicate is written once.
+     */
     private void renderEdgesCompact(GraphView view, StringBuilder builder) {
-        java.util.Map<String, java.util.List<Edge>> out = new java.util.HashMap<>();
-        java.util.Map<String, java.util.List<Edge>> in = new java.util.HashMap<>();
-        for (Edge e : view.edges) {
-            if (e.type() != EdgeType.NORMAL) {
+        GraphIndex index = GraphIndex.of(new ControlFlowGraph(view.entryId, view.entryId, view.nodes, view.edges));
+        int n = index.nodeCount();
+        int m = index.edgeCount();
+        int[] normalOut = new int[n];
+        int[] normalIn = new int[n];
+        int[] soleOut = new int[n];
+        int[] same = new int[m];
+        java.util.Map<Edge, Integer> firstEqual = new java.util.HashMap<>(m * 2);
+        for (int e = 0; e < m; e++) {
+            Integer first = firstEqual.putIfAbsent(index.edge(e), e);
+            same[e] = first != null ? first : e;
+            if (index.edge(e).type() != EdgeType.NORMAL) {
                 continue;
             }
-            out.computeIfAbsent(e.from(), k -> new java.util.ArrayList<>()).add(e);
-            in.computeIfAbsent(e.to(), k -> new java.util.ArrayList<>()).add(e);
-        }
-        java.util.Map<String, Node> nodeMap = new java.util.HashMap<>();
-        for (Node n : view.nodes) {
-            nodeMap.put(n.id(), n);
+            if (index.from(e) >= 0) {
+                normalOut[index.from(e)]++;
+                soleOut[index.from(e)] = e;
+            }
+            if (index.to(e) >= 0) {
+                normalIn[index.to(e)]++;
+            }
         }
-        java.util.Set<Edge> used = new java.util.HashSet<>();
-        record Chain(java.util.List<Edge> edges) {}
-        java.util.List<Chain> chains = new java.util.ArrayList<>();
-        for (Edge edge : view.edges) {
-            if (edge.type() != EdgeType.NORMAL || used.contains(edge)) {
+        boolean[] used = new boolean[m];
+        java.util.List<int[]> chains = new java.util.ArrayList<>();
+        java.util.Map<Long, Integer> maxLenByPair = new java.util.HashMap<>();
+        for (int e = 0; e < m; e++) {
+            if (index.edge(e).type() != EdgeType.NORMAL || used[same[e]]) {
                 continue;
             }
-            boolean start = in.getOrDefault(edge.from(), java.util.List.of()).size() != 1
-                    || out.getOrDefault(edge.from(), java.util.List.of()).size() != 1;
-            if (!start) {
+            int from = index.from(e);
+            if (from >= 0 && normalIn[from] == 1 && normalOut[from] == 1) {
                 continue;
             }
-            java.util.List<Edge> seq = new java.util.ArrayList<>();
-            Edge current = edge;
+            java.util.List<Integer> seq = new java.util.ArrayList<>();
+            int current = e;
             while (true) {
                 seq.add(current);
-                used.add(current);
-                var nextOut = out.getOrDefault(current.to(), java.util.List.of());
-                var nextIn = in.getOrDefault(current.to(), java.util.List.of());
-                if (nextOut.size() == 1 && nextIn.size() == 1) {
-                    Edge next = nextOut.get(0);
-                    if (used.contains(next)) {
-                        break;
-                    }
-                    current = next;
-                } else {
+                used[same[current]] = true;
+                int to = index.to(current);
+                if (to < 0 || normalOut[to] != 1 || normalIn[to] != 1 || used[same[soleOut[to]]]) {
                     break;
                 }
+                current = soleOut[to];
             }
-            chains.add(new Chain(seq));
-        }
-        java.util.Map<String, Integer> maxLenByPair = new java.util.HashMap<>();
-        for (Chain c : chains) {
-            Edge first = c.edges().get(0);
-            Edge last = c.edges().get(c.edges().size() - 1);
-            String key = first.from() + "->" + last.to();
-            maxLenByPair.merge(key, c.edges().size(), Integer::max);
-        }
-        for (Chain c : chains) {
-            Edge first = c.edges().get(0);
-            Edge last = c.edges().get(c.edges().size() - 1);
-            String key = first.from() + "->" + last.to();
-            int maxLen = maxLenByPair.getOrDefault(key, c.edges().size());
-            int missing = Math.max(0, maxLen - c.edges().size());
+            int[] chain = seq.stream().mapToInt(Integer::intValue).toArray();
+            chains.add(chain);
+            maxLenByPair.merge(pairKey(index, chain), chain.length, Integer::max);
+        }
+        for (int[] chain : chains) {
+            int missing = Math.max(0, maxLenByPair.get(pairKey(index, chain)) - chain.length);
             StringBuilder line = new StringBuilder();
-            line.append("  ").append(first.from());
-            for (int j = 0; j < c.edges().size(); j++) {
-                Edge e = c.edges().get(j);
-                boolean isLast = j == c.edges().size() - 1;
-                String edgeText = formatEdge(e, isChainEdge(nodeMap.get(e.from()), nodeMap.get(e.to())));
+            line.append("  ").append(index.edge(chain[0]).from());
+            for (int j = 0; j < chain.length; j++) {
+                Edge e = index.edge(chain[j]);
+                boolean isLast = j == chain.length - 1;
+                String edgeText = formatEdge(e, isChainEdge(nodeAt(index, index.from(chain[j])), nodeAt(index, index.to(chain[j]))));
                 if (isLast && missing > 0) {
                     edgeText = "--" + "-".repeat(missing) + ">";
                 }
@@ -163,15 +361,24 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
             }
             builder.append(line).append("\n");
         }
-        for (Edge edge : view.edges) {
-            if (edge.type() == EdgeType.NORMAL && used.contains(edge)) {
+        for (int e = 0; e < m; e++) {
+            Edge edge = index.edge(e);
+            if (edge.type() == EdgeType.NORMAL && used[same[e]]) {
                 continue;
             }
-            boolean chainEdge = edge.type() == EdgeType.NORMAL && isChainEdge(nodeMap.get(edge.from()), nodeMap.get(edge.to()));
+            boolean chainEdge = edge.type() == EdgeType.NORMAL && isChainEdge(nodeAt(index, index.from(e)), nodeAt(index, index.to(e)));
             builder.append("  ").append(edge.from()).append(formatEdge(edge, chainEdge)).append(edge.to()).append("\n");
         }
     }
 
+    private static long pairKey(GraphIndex index, int[] chain) {
+        return (long) index.from(chain[0]) << 32 | index.to(chain[chain.length - 1]) & 0xffffffffL;
+    }
+
+    private static Node nodeAt(GraphIndex index, int v) {
+        return v >= 0 ? index.node(v) : null;
+    }
+
     private String nodeShape(Node node) {
         String label = escape(node.label());
         return switch (node.type()) {
@@ -200,86 +407,49 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
     }
 
     private String edgeLabelText(Edge edge) {
-        String label = edge.label();
-        if (label == null || label.isBlank()) {
-            label = switch (edge.type()) {
-                case TRUE -> "true";
-                case FALSE -> "false";
-                case EXCEPTION -> //noinspection DuplicateBranchesInSwitch
-                        "";
-                case BREAK -> "break";
-                case CONTINUE -> "continue";
-                default -> "";
-            };
-        }
-        return label.isBlank() ? "" : escape(label);
+        return escape(RenderSupport.edgeLabel(edge));
     }
 
     private GraphView simplify(ControlFlowGraph graph) {
-        var nodes = graph.nodes();
-        var edges = graph.edges();
-        var skip = nodes.stream()
-                .filter(n -> n.type() == NodeType.MERGE && n.label().isBlank())
-                .map(Node::id)
-                .toList();
-        if (skip.isEmpty()) {
-            return new GraphView(nodes, edges, graph.entryId());
-        }
-
-        var incoming = new java.util.HashMap<String, java.util.List<Edge>>();
-        var outgoing = new java.util.HashMap<String, java.util.List<Edge>>();
-        for (Edge e : edges) {
-            incoming.computeIfAbsent(e.to(), k -> new java.util.ArrayList<>()).add(e);
-            outgoing.computeIfAbsent(e.from(), k -> new java.util.ArrayList<>()).add(e);
-        }
-
-        java.util.List<Edge> newEdges = new java.util.ArrayList<>(edges);
-        java.util.Set<String> skipSet = new java.util.HashSet<>(skip);
-        for (String id : skipSet) {
-            var ins = incoming.getOrDefault(id, java.util.List.of());
-            var outs = outgoing.getOrDefault(id, java.util.List.of());
-            newEdges.removeAll(ins);
-            newEdges.removeAll(outs);
-            for (Edge in : ins) {
-                for (Edge out : outs) {
-                    EdgeType type = in.type() != EdgeType.NORMAL ? in.type() : out.type();
-                    String label = in.label() != null && !in.label().isBlank() ? in.label() : out.label();
-                    Edge combined = new Edge(in.from(), out.to(), type, label);
-                    if (!newEdges.contains(combined)) {
-                        newEdges.add(combined);
-                    }
-                }
-            }
-        }
-
-        java.util.List<Node> newNodes = nodes.stream()
-                .filter(n -> !skipSet.contains(n.id()))
-                .toList();
-        return new GraphView(newNodes, newEdges, graph.entryId());
+        ControlFlowGraph simplified = RenderSupport.dropBlankMerges(graph);
+        return new GraphView(simplified.nodes(), simplified.edges(), simplified.entryId(),
+                RenderSupport.methodKey(simplified));
     }
 
-    private java.util.List<String> recursiveHints(GraphView view) {
+    private java.util.List<String> recursiveHints(GraphView view, Map<String, String> mergedTargets) {
         java.util.List<String> lines = new java.util.ArrayList<>();
         for (Node node : view.nodes) {
-            if (node.type() == NodeType.CALL && node.label().toLowerCase().contains("recursive call")) {
-                String label = escape("recursive call");
-                lines.add(node.id() + " -. \"" + label + "\" .-> " + view.entryId);
+            String target = recursionTarget(node, view.methodKey, view.entryId, mergedTargets);
+            if (target != null) {
+                lines.add(recursiveHint(node.id(), target));
             }
         }
         return lines;
     }
 
-    private java.util.List<String> callChainExtras(GraphView view) {
+    private String recursionTarget(Node node, String ownKey, String ownEntry, Map<String, String> mergedTargets) {
+        return RenderSupport.isRecursiveCall(node)
+                ? RenderSupport.recursionTarget(node, ownKey, ownEntry, mergedTargets)
+                : null;
+    }
+
+    private String recursiveHint(String sourceId, String targetId) {
+        return sourceId + " -. \"" + escape("recursive call") + "\" .-> " + targetId;
+    }
+
+    private java.util.List<String> callChainExtras(GraphView view, CallRenderState callState) {
         java.util.List<String> lines = new java.util.ArrayList<>();
-        java.util.Map<String, String> mergedTargets = new java.util.HashMap<>();
-        java.util.Set<String> renderedGraphs = new java.util.HashSet<>();
+        java.util.Map<String, String> mergedTargets = callState.mergedTargets();
+        java.util.Set<String> renderedGraphs = callState.renderedGraphs();
         java.util.Set<String> callEdgesSeen = new java.util.HashSet<>();
-        java.util.Map<String, Integer> callCounters = new java.util.HashMap<>();
+        java.util.Map<String, Integer> callCounters = callState.callCounters();
         java.util.List<Node> ordered = new java.util.ArrayList<>(view.nodes);
-        sort(ordered);
+        RenderSupport.sortByLine(ordered);
         for (Node node : ordered) {
-            if (node.type() == NodeType.CALL && !node.label().toLowerCase().contains("recursive call")) {
-                renderCall(node.id(), node.meta().copy(), lines, mergedTargets, renderedGraphs, "", callCounters, callEdgesSeen);
+            if (node.type() == NodeType.CALL
+                    && recursionTarget(node, view.methodKey, view.entryId, mergedTargets) == null) {
+                renderCall(node.id(), node.meta().copy(), lines, mergedTargets, renderedGraphs, "", callCounters, callEdgesSeen,
+                        callState.pageLinks());
             } else {
                 java.util.List<NodeMeta> inlineCalls = node.meta().getInlineCalls();
                 if (inlineCalls != null && !inlineCalls.isEmpty()) {
@@ -288,7 +458,8 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
                         if (!lines.isEmpty() && first) {
                             lines.add("");
                         }
-                        renderCall(node.id(), meta.copy(), lines, mergedTargets, renderedGraphs, "", callCounters, callEdgesSeen);
+                        renderCall(node.id(), meta.copy(), lines, mergedTargets, renderedGraphs, "", callCounters, callEdgesSeen,
+                                callState.pageLinks());
                         first = false;
                     }
                 }
@@ -312,7 +483,7 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         }
         lines.add("");
         java.util.List<Node> orderedNodes = new java.util.ArrayList<>(graph.nodes());
-        sort(orderedNodes);
+        RenderSupport.sortByLine(orderedNodes);
         for (Node node : orderedNodes) {
             if (node.type() == NodeType.CALL && !edgeTouched.contains(node.id())) {
                 continue; // likely inline-only; skip node rendering
@@ -323,6 +494,10 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         }
         String entryTarget = prefix + graph.entryId();
         String exitTarget = prefix + graph.exitId();
+        String methodKey = RenderSupport.methodKey(graph);
+        if (methodKey != null) {
+            mergedTargets.putIfAbsent(methodKey, entryTarget);
+        }
         lines.add("");
         java.util.Map<String, Node> nodeMap = new java.util.HashMap<>();
         for (Node n : graph.nodes()) {
@@ -339,31 +514,32 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
             boolean chainEdge = edge.type() == EdgeType.NORMAL && isChainEdge(fromNode, toNode);
             lines.add(from + formatEdge(edge, chainEdge) + to);
         }
+        java.util.List<Node> rendered = orderedNodes.stream().filter(n -> filtered.contains(n.id())).toList();
+        lines.addAll(heatClasses(rendered, graph.entryId(), prefix));
+        lines.addAll(coldClasses(rendered, prefix));
+        lines.addAll(perfClasses(rendered, prefix));
+        lines.addAll(criticalClasses(rendered, prefix));
         java.util.Set<String> callEdgesSeen = new java.util.HashSet<>();
         for (Node node : orderedNodes) {
             if (node.type() != NodeType.CALL) {
                 continue;
             }
+            String recursionTarget = recursionTarget(node, methodKey, entryTarget, mergedTargets);
+            if (recursionTarget != null) {
+                lines.add(recursiveHint(prefix + node.id(), recursionTarget));
+                continue;
+            }
             renderCall(prefix + node.id(), node.meta().copy(), lines, mergedTargets,
-                    renderedGraphs, callPrefix, callCounters, callEdgesSeen);
+                    renderedGraphs, callPrefix, callCounters, callEdgesSeen, null);
         }
         return new RenderedGraph(entryTarget, exitTarget);
     }
 
-    private void sort(List<Node> orderedNodes) {
-        orderedNodes.sort((a, b) -> {
-            int la = lineNumberOf(a.meta());
-            int lb = lineNumberOf(b.meta());
-            if (la != lb) return Integer.compare(la, lb);
-            return a.id().compareTo(b.id());
-        });
-    }
-
     private void renderCall(String sourceId, NodeMeta meta,
                             List<String> lines,
                             Map<String, String> mergedTargets, Set<String> renderedGraphs,
                             String callPrefix, Map<String, Integer> callCounters,
-                            Set<String> callEdgesSeen) {
+                            Set<String> callEdgesSeen, Function<String, String> pageLinks) {
         String callee = meta.getCallee();
         String calleeKey = meta.getCalleeKey() != null ? meta.getCalleeKey() : callee;
         String calleeBody = meta.getCalleeBody();
@@ -376,7 +552,8 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         java.util.List<NodeMeta> inlineCalls = meta.getInlineCalls();
         if (inlineCalls != null) {
             for (NodeMeta inlineMeta : inlineCalls) {
-                renderCall(sourceId, inlineMeta.copy(), lines, mergedTargets, renderedGraphs, callPrefix, callCounters, callEdgesSeen);
+                renderCall(sourceId, inlineMeta.copy(), lines, mergedTargets, renderedGraphs, callPrefix, callCounters, callEdgesSeen,
+                        pageLinks);
             }
         }
         // Allocate index for this call
@@ -384,19 +561,25 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         String baseLabel = callPrefix.isEmpty() ? String.valueOf(baseIdx) : callPrefix + baseIdx;
 
         String calleeDisplay = meta.getCalleeDisplay() != null ? meta.getCalleeDisplay() : callee;
-        Integer lineObj = meta.getLineNumber();
-        String baseId;
-        if (lineObj != null) {
-            baseId = "cL" + lineObj;
-        } else {
-            String sanitized = sanitizeId(calleeKey);
-            baseId = "c" + Math.abs(sanitized.hashCode());
-        }
+        String baseId = RenderSupport.callBaseId(meta.getLineNumber(), calleeKey);
         String targetId = null;
         if (mergedTargets.containsKey(calleeKey)) {
             targetId = mergedTargets.get(calleeKey);
         }
+        if (targetId == null && calleeGraphObj == null && meta.getCalleeGraphRef() != null) {
+            // graph was already streamed to the output; only link to it
+            targetId = meta.getCalleeGraphRef();
+            mergedTargets.putIfAbsent(calleeKey, targetId);
+        }
         boolean skipEdge = Boolean.TRUE.equals(meta.getSkipCallRender());
+        String page = pageLinks != null && targetId == null && !skipEdge ? pageLinks.apply(calleeKey) : null;
+        if (page != null) {
+            // paginated: the callee graph lives on its own page
+            targetId = baseId + "_page";
+            lines.add(targetId + "[\"" + escape(calleeDisplay) + "\"]");
+            lines.add("click " + targetId + " href \"" + escape(page) + "\"");
+            mergedTargets.putIfAbsent(calleeKey, targetId);
+        }
 
         String childPrefix = baseLabel + ".";
         callCounters.remove(childPrefix); // reset child counter for this branch
@@ -433,7 +616,7 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
         if (!skipEdge) {
             String edgeKey = sourceId + "|" + targetId + "|" + calleeKey;
             if (callEdgesSeen == null || callEdgesSeen.add(edgeKey)) {
-                lines.add(sourceId + " -. \"calls:" + baseLabel + "\" .-> " + targetId);
+                lines.add(sourceId + " -. \"" + escape(RenderSupport.callEdgeLabel(baseLabel, meta)) + "\" .-> " + targetId);
             }
         }
 
@@ -442,33 +625,35 @@ public class MermaidFlowchartRenderer implements DiagramRenderer {
     private record RenderedGraph(String entryId, String exitId) {
     }
 
-    private String sanitizeId(String raw) {
-        if (raw == null) {
-            return "unknown";
-        }
-        return raw.replaceAll("[^a-zA-Z0-9_]", "_");
-    }
-
-    private int lineNumberOf(NodeMeta meta) {
-        Integer lineObj = meta != null ? meta.getLineNumber() : null;
-        if (lineObj != null) {
-            return lineObj;
-        }
-        return Integer.MAX_VALUE;
-    }
-
-    private record GraphView(java.util.List<Node> nodes, java.util.List<Edge> edges, String entryId) {
+    private record GraphView(java.util.List<Node> nodes, java.util.List<Edge> edges, String entryId, String methodKey) {
     }
 
     private String escape(String label) {
         if (label == null) {
             return "";
         }
-        return label
-                .replace("\\", "\\\\")
+        StringBuilder sb = null;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
                 // Mermaid renders \" as a quote terminator; use entity instead
-                .replace("\"", "&quot;")
-                .replace("\n", "<br/>");
+                case '"' -> "&quot;";
+                case '\n' -> "<br/>";
+                default -> null;
+            };
+            if (replacement == null) {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(label.length() + 16).append(label, 0, i);
+            }
+            sb.append(replacement);
+        }
+        return sb != null ? sb.toString() : label;
     }
 
     private boolean isChainEdge(Node from, Node to) {
@@ -0,0 +1,231 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites the Mermaid text {@link MermaidFlowchartRenderer} produces into a compact equivalent: node ids become
+ * short base-36 tokens, single edges sharing a source and arrow (or an arrow and target) are joined with
+ * {@code &}, class assignments are gathered into one statement per class and repeated {@code classDef}s are
+ * dropped. Indentation and blank lines go too. Chunks of a streamed render pass through the same instance, so ids
+ * stay consistent across them; edges and classes are grouped within a chunk.
+ */
+final class MermaidMinifier {
+    private record Edge(String from, String arrow, String to) {
+    }
+
+    private final Map<String, String> ids = new HashMap<>();
+    private final Set<String> classDefs = new HashSet<>();
+
+    String minify(CharSequence text) {
+        List<Object> items = new ArrayList<>();
+        Map<String, Set<String>> classes = new LinkedHashMap<>();
+        for (String raw : text.toString().split("\n")) {
+            String line = raw.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("%%") || line.startsWith("flowchart ")) {
+                items.add(line);
+            } else if (line.startsWith("classDef ")) {
+                if (classDefs.add(line)) {
+                    items.add(line);
+                }
+            } else if (line.startsWith("class ")) {
+                addClass(line, classes);
+            } else if (line.startsWith("click ")) {
+                items.add("click " + node(line.substring("click ".length())));
+            } else {
+                List<String> parts = parseEdge(line);
+                if (parts == null) {
+                    items.add(node(line));
+                } else if (parts.size() == 3) {
+                    items.add(new Edge(id(parts.get(0)), parts.get(1), id(parts.get(2))));
+                } else {
+                    StringBuilder chain = new StringBuilder(id(parts.get(0)));
+                    for (int i = 1; i < parts.size(); i += 2) {
+                        chain.append(parts.get(i)).append(id(parts.get(i + 1)));
+                    }
+                    items.add(chain.toString());
+                }
+            }
+        }
+        StringBuilder out = new StringBuilder(text.length() / 2);
+        for (String line : groupEdges(items)) {
+            out.append(line).append('\n');
+        }
+        classes.forEach((name, members) ->
+                out.append("class ").append(String.join(",", members)).append(' ').append(name).append(";\n"));
+        return out.toString();
+    }
+
+    private String id(String id) {
+        return ids.computeIfAbsent(id, k -> "n" + Integer.toString(ids.size(), 36));
+    }
+
+    /**
+     * {@code id["label"]}, {@code id(["label"])} or {@code id{"label"}}: the id is everything before the shape.
+     */
+    private String node(String line) {
+        int end = 0;
+        while (end < line.length() && isIdChar(line.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? line : id(line.substring(0, end)) + line.substring(end);
+    }
+
+    private void addClass(String line, Map<String, Set<String>> classes) {
+        String body = line.substring("class ".length(), line.endsWith(";") ? line.length() - 1 : line.length());
+        int space = body.lastIndexOf(' ');
+        if (space < 0) {
+            return;
+        }
+        Set<String> members = classes.computeIfAbsent(body.substring(space + 1), k -> new LinkedHashSet<>());
+        for (String member : body.substring(0, space).split(",")) {
+            if (!member.isBlank()) {
+                members.add(id(member.strip()));
+            }
+        }
+    }
+
+    /**
+     * Splits {@code a-->b}, {@code a-- "x" -->b}, {@code a--x-->b}, {@code a -. "x" .-> b} and chains of them
+     * into ids and arrows; {@code null} when the line is not an edge.
+     */
+    private static List<String> parseEdge(String line) {
+        List<String> parts = new ArrayList<>();
+        int i = readId(line, 0);
+        if (i == 0) {
+            return null;
+        }
+        parts.add(line.substring(0, i));
+        while (i < line.length()) {
+            int start = i;
+            while (i < line.length() && line.charAt(i) == ' ') {
+                i++;
+            }
+            int arrowEnd = arrowEnd(line, i);
+            if (arrowEnd < 0) {
+                return null;
+            }
+            i = arrowEnd;
+            while (i < line.length() && line.charAt(i) == ' ') {
+                i++;
+            }
+            int idEnd = readId(line, i);
+            if (idEnd == i) {
+                return null;
+            }
+            parts.add(line.substring(start, arrowEnd).strip());
+            parts.add(line.substring(i, idEnd));
+            i = idEnd;
+        }
+        return parts.size() >= 3 ? parts : null;
+    }
+
+    private static int arrowEnd(String line, int i) {
+        if (line.startsWith("-. \"", i)) {
+            int close = line.indexOf('"', i + 4);
+            return close >= 0 && line.startsWith(" .->", close + 1) ? close + 5 : -1;
+        }
+        if (line.startsWith("-- \"", i)) {
+            int close = line.indexOf('"', i + 4);
+            return close >= 0 && line.startsWith(" -->", close + 1) ? close + 5 : -1;
+        }
+        if (!line.startsWith("--", i)) {
+            return -1;
+        }
+        int j = i + 2;
+        while (j < line.length() && line.charAt(j) == '-') {
+            j++;
+        }
+        if (j < line.length() && line.charAt(j) == '>') {
+            return j + 1;
+        }
+        // unquoted chain label: --label-->
+        int close = line.indexOf("-->", i + 2);
+        return close >= 0 ? close + 3 : -1;
+    }
+
+    private static int readId(String line, int from) {
+        int i = from;
+        while (i < line.length() && isIdChar(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isIdChar(char c) {
+        return c == '_' || c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * Replaces single edges by fan-out ({@code a-->b & c}) and then fan-in ({@code a & b-->c}) statements, each at
+     * the position of its first edge.
+     */
+    private static List<String> groupEdges(List<Object> items) {
+        Map<String, List<Edge>> bySource = new LinkedHashMap<>();
+        for (Object item : items) {
+            if (item instanceof Edge edge) {
+                bySource.computeIfAbsent(edge.from() + ' ' + edge.arrow(), k -> new ArrayList<>()).add(edge);
+            }
+        }
+        Map<Edge, String> lines = new HashMap<>();
+        Set<Edge> grouped = new HashSet<>();
+        for (List<Edge> fan : bySource.values()) {
+            if (fan.size() > 1) {
+                List<String> targets = new ArrayList<>();
+                fan.forEach(edge -> targets.add(edge.to()));
+                lines.put(fan.get(0), fan.get(0).from() + fan.get(0).arrow() + String.join(" & ", targets));
+                grouped.addAll(fan);
+            }
+        }
+        Map<String, List<Edge>> byTarget = new LinkedHashMap<>();
+        for (Object item : items) {
+            if (item instanceof Edge edge && !grouped.contains(edge)) {
+                byTarget.computeIfAbsent(edge.arrow() + ' ' + edge.to(), k -> new ArrayList<>()).add(edge);
+            }
+        }
+        for (List<Edge> fan : byTarget.values()) {
+            List<String> sources = new ArrayList<>();
+            fan.forEach(edge -> sources.add(edge.from()));
+            Edge first = fan.get(0);
+            lines.put(first, String.join(" & ", sources) + first.arrow() + first.to());
+        }
+        List<String> out = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Edge edge) {
+                String line = lines.get(edge);
+                if (line != null) {
+                    out.add(line);
+                }
+            } else {
+                out.add((String) item);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits a diagram into pages for {@link MermaidFlowchartRenderer#renderPage}: the root graph keeps its own page
+ * and every expanded callee graph gets one page, listed once per callee key however many calls reach it.
+ */
+public final class MermaidPages {
+    private static final int MAX_NAME_LENGTH = 100;
+
+    /**
+     * @param fileName file name of the page, unique within one split
+     */
+    public record Page(String calleeKey, String title, ControlFlowGraph graph, String fileName) {
+    }
+
+    private MermaidPages() {
+    }
+
+    /**
+     * Callee pages reachable from {@code root}, breadth first.
+     */
+    public static List<Page> collect(ControlFlowGraph root) {
+        Map<String, Page> pages = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        Deque<ControlFlowGraph> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            for (Node node : pending.poll().nodes()) {
+                collect(node.meta(), pages, names, pending);
+            }
+        }
+        return List.copyOf(pages.values());
+    }
+
+    private static void collect(NodeMeta meta, Map<String, Page> pages, Set<String> names,
+                                Deque<ControlFlowGraph> pending) {
+        if (meta.getInlineCalls() != null) {
+            for (NodeMeta inline : meta.getInlineCalls()) {
+                collect(inline, pages, names, pending);
+            }
+        }
+        ControlFlowGraph graph = meta.getCalleeGraph();
+        String key = meta.getCalleeKey() != null ? meta.getCalleeKey() : meta.getCallee();
+        if (graph == null || key == null || key.isBlank() || pages.containsKey(key)) {
+            return;
+        }
+        String title = meta.getCalleeDisplay() != null && !meta.getCalleeDisplay().isBlank() ? meta.getCalleeDisplay() : key;
+        pages.put(key, new Page(key, title, graph, uniqueName(key, names)));
+        pending.add(graph);
+    }
+
+    private static String uniqueName(String calleeKey, Set<String> names) {
+        String base = fileSafe(calleeKey);
+        if (base.length() > MAX_NAME_LENGTH) {
+            base = base.substring(0, MAX_NAME_LENGTH) + "_" + Integer.toHexString(calleeKey.hashCode());
+        }
+        String name = base + ".md";
+        for (int i = 2; !names.add(name); i++) {
+            name = base + "_" + i + ".md";
+        }
+        return name;
+    }
+
+    /**
+     * Characters safe in file names and in Markdown and Mermaid links without escaping.
+     */
+    public static String fileSafe(String raw) {
+        return raw.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Edge;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.EdgeType;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeMeta;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the Mermaid text written by {@link MermaidFlowchartRenderer} (plain or compact) back into a flat
+ * {@link ControlFlowGraph}, so saved diagrams can be laid out again without the source code. Node types come from
+ * the shapes (a rounded terminal nothing leaves is an end), dashed edges become {@link EdgeType#RETURN} so they
+ * stay dashed; styling, click and unknown lines are ignored.
+ */
+public final class MermaidSource {
+    private MermaidSource() {
+    }
+
+    /**
+     * @return the graph, or {@code null} when the text holds no nodes
+     */
+    public static ControlFlowGraph parse(CharSequence text) {
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        List<Edge> edges = new ArrayList<>();
+        for (String raw : text.toString().split("\n")) {
+            String line = raw.strip();
+            if (line.isEmpty() || line.startsWith("%%") || line.startsWith("flowchart ") || line.startsWith("classDef ")
+                    || line.startsWith("class ") || line.startsWith("click ")) {
+                continue;
+            }
+            if (!parseEdges(line, edges)) {
+                parseNode(line, nodes);
+            }
+        }
+        for (Edge edge : edges) {
+            nodes.computeIfAbsent(edge.from(), id -> new Node(id, NodeType.ACTION, id, new NodeMeta()));
+            nodes.computeIfAbsent(edge.to(), id -> new Node(id, NodeType.ACTION, id, new NodeMeta()));
+        }
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        // a terminal shape is an end when nothing leaves it; the root start is the one nothing enters
+        Set<String> sources = new HashSet<>();
+        Set<String> targets = new HashSet<>();
+        for (Edge edge : edges) {
+            sources.add(edge.from());
+            targets.add(edge.to());
+        }
+        String entry = null;
+        String exit = null;
+        for (Map.Entry<String, Node> e : nodes.entrySet()) {
+            Node node = e.getValue();
+            if (node.type() != NodeType.START) {
+                continue;
+            }
+            if (!sources.contains(node.id())) {
+                e.setValue(new Node(node.id(), NodeType.END, node.label(), node.meta()));
+                exit = exit != null ? exit : node.id();
+            } else if (entry == null && !targets.contains(node.id())) {
+                entry = node.id();
+            }
+        }
+        String first = nodes.keySet().iterator().next();
+        return new ControlFlowGraph(entry != null ? entry : first, exit != null ? exit : first,
+                List.copyOf(nodes.values()), edges);
+    }
+
+    private static void parseNode(String line, Map<String, Node> nodes) {
+        int i = idEnd(line, 0);
+        if (i == 0 || i >= line.length()) {
+            return;
+        }
+        String id = line.substring(0, i);
+        NodeType type;
+        String open;
+        String close;
+        if (line.startsWith("([\"", i)) {
+            open = "([\"";
+            close = "\"])";
+            type = NodeType.START;
+        } else if (line.startsWith("{\"", i)) {
+            open = "{\"";
+            close = "\"}";
+            type = NodeType.DECISION;
+        } else if (line.startsWith("[\"", i)) {
+            open = "[\"";
+            close = "\"]";
+            type = NodeType.ACTION;
+        } else {
+            return;
+        }
+        int end = line.lastIndexOf(close);
+        if (end < i + open.length()) {
+            return;
+        }
+        String label = unescape(line.substring(i + open.length(), end));
+        nodes.putIfAbsent(id, new Node(id, type, label, new NodeMeta()));
+    }
+
+    /**
+     * {@code a-->b}, {@code a-- "x" -->b}, {@code a--x-->b}, {@code a -. "x" .-> b}, chains and {@code &} groups.
+     */
+    private static boolean parseEdges(String line, List<Edge> edges) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> arrows = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        int[] pos = {0};
+        List<String> group = readGroup(line, pos);
+        if (group == null) {
+            return false;
+        }
+        groups.add(group);
+        while (pos[0] < line.length()) {
+            int i = skipSpaces(line, pos[0]);
+            String arrow;
+            String label;
+            int next;
+            if (line.startsWith("-. \"", i) || line.startsWith("-- \"", i)) {
+                int close = line.indexOf('"', i + 4);
+                String tail = line.charAt(i + 1) == '.' ? " .->" : " -->";
+                if (close < 0 || !line.startsWith(tail, close + 1)) {
+                    return false;
+                }
+                arrow = line.charAt(i + 1) == '.' ? "-." : "--";
+                label = line.substring(i + 4, close);
+                next = close + 5;
+            } else if (line.startsWith("--", i)) {
+                int j = i + 2;
+                while (j < line.length() && line.charAt(j) == '-') {
+                    j++;
+                }
+                if (j < line.length() && line.charAt(j) == '>') {
+                    label = "";
+                    next = j + 1;
+                } else {
+                    int close = line.indexOf("-->", i + 2);
+                    if (close < 0) {
+                        return false;
+                    }
+                    label = line.substring(i + 2, close);
+                    next = close + 3;
+                }
+                arrow = "--";
+            } else {
+                return false;
+            }
+            pos[0] = next;
+            group = readGroup(line, pos);
+            if (group == null) {
+                return false;
+            }
+            arrows.add(arrow);
+            labels.add(unescape(label));
+            groups.add(group);
+        }
+        if (groups.size() < 2) {
+            return false;
+        }
+        for (int k = 0; k < arrows.size(); k++) {
+            EdgeType type = "-.".equals(arrows.get(k)) ? EdgeType.RETURN : EdgeType.NORMAL;
+            String label = labels.get(k).isEmpty() ? null : labels.get(k);
+            for (String from : groups.get(k)) {
+                for (String to : groups.get(k + 1)) {
+                    edges.add(new Edge(from, to, type, label, null));
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<String> readGroup(String line, int[] pos) {
+        List<String> ids = new ArrayList<>();
+        int i = pos[0];
+        while (true) {
+            i = skipSpaces(line, i);
+            int end = idEnd(line, i);
+            if (end == i) {
+                return null;
+            }
+            ids.add(line.substring(i, end));
+            int amp = skipSpaces(line, end);
+            if (amp < line.length() && line.charAt(amp) == '&') {
+                i = amp + 1;
+            } else {
+                pos[0] = end;
+                return ids;
+            }
+        }
+    }
+
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int idEnd(String line, int from) {
+        int i = from;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c != '_' && !(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Reverses {@link MermaidFlowchartRenderer}'s label escaping in one pass: {@code \\\\}, {@code &quot;} and
+     * {@code <br/>}.
+     */
+    private static String unescape(String label) {
+        StringBuilder sb = new StringBuilder(label.length());
+        int i = 0;
+        while (i < label.length()) {
+            if (label.startsWith("\\\\", i)) {
+                sb.append('\\');
+                i += 2;
+            } else if (label.startsWith("&quot;", i)) {
+                sb.append('"');
+                i += "&quot;".length();
+            } else if (label.startsWith("<br/>", i)) {
+                sb.append('\n');
+                i += "<br/>".length();
+            } else {
+                sb.append(label.charAt(i++));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.NodeType;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PlantUML activity diagram in the legacy {@code (*) --> "..."} syntax, the only activity syntax that accepts an
+ * arbitrary graph (the new syntax needs structured if/while blocks). Callees become partitions. Legacy activities
+ * have no diamond shape, so decisions and start/end are told apart by stereotype colours.
+ */
+public class PlantUmlActivityRenderer extends ClusteredFlowchartRenderer {
+    @Override
+    public String id() {
+        return "plantuml-activity";
+    }
+
+    @Override
+    public String displayName() {
+        return "PlantUML Activity";
+    }
+
+    @Override
+    public String codeFence() {
+        return "plantuml";
+    }
+
+    @Override
+    protected FormatWriter newWriter(Appendable out, RenderOptions options) {
+        return new ActivityWriter(out, options);
+    }
+
+    private static final class ActivityWriter implements FormatWriter {
+        private final Appendable out;
+        private final RenderOptions options;
+        /**
+         * Legacy activities are declared on first use, so labels wait here until the node appears in an edge.
+         */
+        private final Map<String, String> pending = new HashMap<>();
+        private String rootEnd;
+
+        private ActivityWriter(Appendable out, RenderOptions options) {
+            this.out = out;
+            this.options = options;
+        }
+
+        @Override
+        public void header() throws IOException {
+            out.append("@startuml\n");
+            if ("LR".equalsIgnoreCase(options.direction())) {
+                out.append("left to right direction\n");
+            }
+            out.append("skinparam activity {\n")
+                    .append("  BackgroundColor #F4F6FB\n")
+                    .append("  BackgroundColor<<terminal>> #F9D6F9\n")
+                    .append("  BackgroundColor<<decision>> #FFF4D6\n")
+                    .append("  BorderColor #8A94A6\n")
+                    .append("}\n");
+        }
+
+        @Override
+        public void footer() throws IOException {
+            if (rootEnd != null) {
+                out.append(reference(rootEnd)).append(" --> (*)\n");
+            }
+            out.append("@enduml\n");
+        }
+
+        @Override
+        public void beginCluster(String id, String title) throws IOException {
+            out.append("partition \"").append(text(title == null ? id : title)).append("\" {\n");
+        }
+
+        @Override
+        public void endCluster() throws IOException {
+            out.append("}\n");
+        }
+
+        @Override
+        public void node(String id, NodeType type, String label, boolean root) throws IOException {
+            String stereotype = switch (type) {
+                case START, END -> " <<terminal>>";
+                case DECISION, LOOP_HEAD -> " <<decision>>";
+                default -> "";
+            };
+            pending.put(id, "\"" + text(label) + "\" as " + alias(id) + stereotype);
+            if (root && type == NodeType.START) {
+                out.append("(*) --> ").append(reference(id)).append('\n');
+            } else if (root && type == NodeType.END) {
+                rootEnd = id;
+            }
+        }
+
+        @Override
+        public void edge(String from, String to, Link link, String label) throws IOException {
+            String source = reference(from);
+            String target = reference(to);
+            out.append(source).append(switch (link) {
+                case FLOW -> " -->";
+                case CALL -> " -[#6F8FD8,dashed]->";
+                default -> " -[dashed]->";
+            });
+            if (label != null && !label.isBlank()) {
+                out.append('[').append(String.join(" ", labelLines(label)).replace(']', ')')).append(']');
+            }
+            out.append(' ').append(target).append('\n');
+        }
+
+        /**
+         * The declaration on first use, the alias afterwards.
+         */
+        private String reference(String id) {
+            String declaration = pending.remove(id);
+            return declaration != null ? declaration : alias(id);
+        }
+    }
+
+    private static String alias(String id) {
+        return RenderSupport.sanitizeId(id);
+    }
+
+    private static String text(String label) {
+        return String.join("\\n", labelLines(label)).replace('"', '\'');
+    }
+}
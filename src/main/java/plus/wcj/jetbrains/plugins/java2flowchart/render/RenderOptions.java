@@ -16,8 +16,15 @@
 
 package plus.wcj.jetbrains.plugins.java2flowchart.render;
 
-public record RenderOptions(String direction) {
+/**
+ * @param compact Mermaid only: short ids, {@code &}-joined edges and bulk class assignments
+ */
+public record RenderOptions(String direction, boolean compact) {
     public static RenderOptions topDown() {
-        return new RenderOptions("TD");
+        return new RenderOptions("TD", false);
+    }
+
+    public RenderOptions withCompact(boolean compact) {
+        return new RenderOptions(direction, compact);
     }
 }
@@ -0,0 +1,274 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Graph preparation shared by the text renderers, so every output format agrees on ids, labels and call order.
+ */
+final class RenderSupport {
+    private RenderSupport() {
+    }
+
+    /**
+     * Removes blank MERGE nodes and reconnects their incoming edges to their outgoing ones. Chains of blank merges
+     * collapse fully: edges produced for one removed merge are picked up again when the next one is removed.
+     */
+    static ControlFlowGraph dropBlankMerges(ControlFlowGraph graph) {
+        var nodes = graph.nodes();
+        var edges = graph.edges();
+        Set<String> skip = new HashSet<>();
+        for (Node n : nodes) {
+            if (n.type() == NodeType.MERGE && n.label().isBlank()) {
+                skip.add(n.id());
+            }
+        }
+        if (skip.isEmpty()) {
+            return graph;
+        }
+
+        GraphIndex index = GraphIndex.of(graph);
+        boolean[] removed = new boolean[edges.size()];
+        Map<Edge, Integer> present = new HashMap<>();
+        for (Edge e : edges) {
+            present.merge(e, 1, Integer::sum);
+        }
+        // combined edges; an entry is nulled once a later merge consumes it
+        List<Edge> added = new ArrayList<>();
+        Map<String, List<Integer>> addedIn = new HashMap<>();
+        Map<String, List<Integer>> addedOut = new HashMap<>();
+        for (String id : skip) {
+            int v = index.indexOf(id);
+            List<Edge> ins = new ArrayList<>();
+            List<Edge> outs = new ArrayList<>();
+            for (int k = 0; k < index.inDegree(v); k++) {
+                takeOriginal(index, index.inEdge(v, k), removed, present, ins);
+            }
+            for (int k = 0; k < index.outDegree(v); k++) {
+                takeOriginal(index, index.outEdge(v, k), removed, present, outs);
+            }
+            takeAdded(addedIn.remove(id), added, present, ins);
+            takeAdded(addedOut.remove(id), added, present, outs);
+            for (Edge in : ins) {
+                for (Edge out : outs) {
+                    if (in.from().equals(id) || out.to().equals(id)) {
+                        continue;
+                    }
+                    EdgeType type = in.type() != EdgeType.NORMAL ? in.type() : out.type();
+                    String label = in.label() != null && !in.label().isBlank() ? in.label() : out.label();
+                    Coverage coverage = in.coverage() != null ? in.coverage() : out.coverage();
+                    Edge combined = new Edge(in.from(), out.to(), type, label, coverage);
+                    if (present.putIfAbsent(combined, 1) != null) {
+                        continue;
+                    }
+                    if (skip.contains(combined.to())) {
+                        addedIn.computeIfAbsent(combined.to(), k -> new ArrayList<>()).add(added.size());
+                    }
+                    if (skip.contains(combined.from())) {
+                        addedOut.computeIfAbsent(combined.from(), k -> new ArrayList<>()).add(added.size());
+                    }
+                    added.add(combined);
+                }
+            }
+        }
+
+        List<Edge> newEdges = new ArrayList<>(edges.size() + added.size());
+        for (int e = 0; e < edges.size(); e++) {
+            if (!removed[e]) {
+                newEdges.add(edges.get(e));
+            }
+        }
+        for (Edge e : added) {
+            if (e != null) {
+                newEdges.add(e);
+            }
+        }
+        List<Node> newNodes = nodes.stream()
+                .filter(n -> !skip.contains(n.id()))
+                .toList();
+        return new ControlFlowGraph(graph.entryId(), graph.exitId(), newNodes, newEdges);
+    }
+
+    private static void takeOriginal(GraphIndex index, int e, boolean[] removed, Map<Edge, Integer> present,
+                                     List<Edge> target) {
+        if (removed[e]) {
+            return;
+        }
+        removed[e] = true;
+        Edge edge = index.edge(e);
+        present.computeIfPresent(edge, (k, count) -> count == 1 ? null : count - 1);
+        target.add(edge);
+    }
+
+    private static void takeAdded(List<Integer> slots, List<Edge> added, Map<Edge, Integer> present,
+                                  List<Edge> target) {
+        if (slots == null) {
+            return;
+        }
+        for (int slot : slots) {
+            Edge edge = added.get(slot);
+            if (edge != null) {
+                added.set(slot, null);
+                present.remove(edge);
+                target.add(edge);
+            }
+        }
+    }
+
+    /**
+     * The edge label, falling back to a name for the edge type; unescaped.
+     */
+    static String edgeLabel(Edge edge) {
+        String label = edge.label();
+        if (label == null || label.isBlank()) {
+            label = switch (edge.type()) {
+                case TRUE -> "true";
+                case FALSE -> "false";
+                case BREAK -> "break";
+                case CONTINUE -> "continue";
+                default -> "";
+            };
+        }
+        if (edge.coverage() != null && !label.isBlank()) {
+            label = label + " (" + edge.coverage().label() + ")";
+        }
+        return label.isBlank() ? "" : label;
+    }
+
+    static void sortByLine(List<Node> nodes) {
+        nodes.sort((a, b) -> {
+            int la = lineNumberOf(a.meta());
+            int lb = lineNumberOf(b.meta());
+            if (la != lb) return Integer.compare(la, lb);
+            return a.id().compareTo(b.id());
+        });
+    }
+
+    static int lineNumberOf(NodeMeta meta) {
+        Integer lineObj = meta != null ? meta.getLineNumber() : null;
+        if (lineObj != null) {
+            return lineObj;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    static String callBaseId(Integer lineNumber, String calleeKey) {
+        if (lineNumber != null) {
+            return "cL" + lineNumber;
+        }
+        String sanitized = sanitizeId(calleeKey);
+        return "c" + Math.abs(sanitized.hashCode());
+    }
+
+    static String sanitizeId(String raw) {
+        if (raw == null) {
+            return "unknown";
+        }
+        return raw.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    static boolean isRecursiveCall(Node node) {
+        return node.type() == NodeType.CALL
+                && (node.meta().hasRecursiveFlag() || node.label().toLowerCase().contains("recursive call"));
+    }
+
+    /**
+     * Key of the method a graph was built for, recorded on its entry node; {@code null} when unknown.
+     */
+    static String methodKey(ControlFlowGraph graph) {
+        for (Node node : graph.nodes()) {
+            if (node.id().equals(graph.entryId())) {
+                return node.meta().getCalleeKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Profile samples of the graph's entry node, i.e. of the whole method; {@code null} when the graph was built
+     * without a profile.
+     */
+    static Long methodSamples(ControlFlowGraph graph) {
+        for (Node node : graph.nodes()) {
+            if (node.id().equals(graph.entryId())) {
+                return node.meta().getSamples();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the graph was built with coverage data, read from its entry node
+     */
+    static boolean hasCoverage(ControlFlowGraph graph) {
+        for (Node node : graph.nodes()) {
+            if (node.id().equals(graph.entryId())) {
+                return node.meta().getCoverage() != null;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Heat of a node by its share of the method's samples: 4 from 50%, 3 from 25%, 2 from 10%, 1 from 2%, else 0.
+     * Start and end nodes stay neutral.
+     */
+    static int heatLevel(Node node, Long methodSamples) {
+        Long samples = node.meta().getSamples();
+        if (samples == null || methodSamples == null || methodSamples <= 0
+                || node.type() == NodeType.START || node.type() == NodeType.END) {
+            return 0;
+        }
+        double share = (double) samples / methodSamples;
+        return share >= 0.5 ? 4 : share >= 0.25 ? 3 : share >= 0.1 ? 2 : share >= 0.02 ? 1 : 0;
+    }
+
+    /**
+     * Label of a {@code calls:} edge; with a profile, followed by the callee's inclusive and self share of all
+     * samples, e.g. {@code calls:2 (37.5%, self 4.0%)}.
+     */
+    static String callEdgeLabel(String callLabel, NodeMeta meta) {
+        Double inclusive = meta.getCalleeSamplePercent();
+        if (inclusive == null) {
+            return "calls:" + callLabel;
+        }
+        Double self = meta.getCalleeSelfPercent() != null ? meta.getCalleeSelfPercent() : 0.0;
+        return String.format(Locale.ROOT, "calls:%s (%.1f%%, self %.1f%%)", callLabel, inclusive, self);
+    }
+
+    /**
+     * Where the back-edge of a recursive call points: the graph's own entry for self calls, otherwise the entry
+     * already rendered for the called method, or {@code null} when there is none yet (the call is then drawn as a
+     * plain call).
+     */
+    static String recursionTarget(Node node, String ownKey, String ownEntry, Map<String, String> renderedEntries) {
+        String key = node.meta().getCalleeKey();
+        if (ownKey == null || key == null || key.equals(ownKey)) {
+            return ownEntry;
+        }
+        return renderedEntries.get(key);
+    }
+}
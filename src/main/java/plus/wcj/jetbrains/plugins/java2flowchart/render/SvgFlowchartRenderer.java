@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.render;
+
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.EdgeType;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.layout.FlatGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.layout.LayeredLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders a self-contained SVG with the built-in {@link LayeredLayout}, so no browser or Mermaid runtime is
+ * needed. Text is measured with a fixed monospace advance, which keeps the output identical on every machine.
+ */
+public class SvgFlowchartRenderer implements DiagramRenderer {
+    private static final double FONT_SIZE = 12;
+    private static final double CHAR_WIDTH = 7.2;
+    private static final double LINE_HEIGHT = 16;
+    private static final double PADDING_X = 12;
+    private static final double PADDING_Y = 8;
+    private static final double MARGIN = 16;
+
+    @Override
+    public String id() {
+        return "svg-flowchart";
+    }
+
+    @Override
+    public String displayName() {
+        return "SVG Flowchart";
+    }
+
+    @Override
+    public String render(ControlFlowGraph graph, RenderOptions options) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            render(graph, options, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void render(ControlFlowGraph graph, RenderOptions options, Appendable out) throws IOException {
+        boolean horizontal = options != null && "LR".equalsIgnoreCase(options.direction());
+        FlatGraph flat = FlatGraph.of(graph);
+        int n = flat.size();
+        String[][] lines = new String[n][];
+        double[] width = new double[n];
+        double[] height = new double[n];
+        for (int i = 0; i < n; i++) {
+            lines[i] = splitLines(flat.node(i).label());
+            double textWidth = 0;
+            for (String line : lines[i]) {
+                textWidth = Math.max(textWidth, textWidth(line));
+            }
+            width[i] = Math.max(40, textWidth + PADDING_X * 2);
+            height[i] = lines[i].length * LINE_HEIGHT + PADDING_Y * 2;
+        }
+        List<FlatGraph.FlatEdge> edges = flat.edges();
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            from[e] = edges.get(e).from();
+            to[e] = edges.get(e).to();
+        }
+        // left-to-right is the top-down layout with both axes swapped
+        LayeredLayout.Result layout = horizontal
+                ? LayeredLayout.layout(height, width, from, to, flat.entry())
+                : LayeredLayout.layout(width, height, from, to, flat.entry());
+        double totalWidth = horizontal ? layout.totalHeight() : layout.totalWidth();
+        double totalHeight = horizontal ? layout.totalWidth() : layout.totalHeight();
+
+        out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(num(totalWidth + MARGIN * 2))
+                .append("\" height=\"").append(num(totalHeight + MARGIN * 2))
+                .append("\" viewBox=\"0 0 ").append(num(totalWidth + MARGIN * 2)).append(' ')
+                .append(num(totalHeight + MARGIN * 2)).append("\">\n");
+        out.append("<defs><marker id=\"arrow\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" markerWidth=\"7\" markerHeight=\"7\" orient=\"auto-start-reverse\">")
+                .append("<path d=\"M0,0 L10,5 L0,10 z\" fill=\"#5f6b7a\"/></marker></defs>\n");
+        out.append("<style>")
+                .append("text{font-family:monospace;font-size:").append(num(FONT_SIZE)).append("px;fill:#1f2328}")
+                .append(".node{fill:#f4f6fb;stroke:#8a94a6}.terminal{fill:#f9d6f9;stroke:#8a94a6}.decision{fill:#fff4d6;stroke:#8a94a6}")
+                .append(".edge{fill:none;stroke:#5f6b7a;marker-end:url(#arrow)}.dashed{stroke-dasharray:5 4}.call{stroke:#6f8fd8}")
+                .append(".edge-label{font-size:10px;paint-order:stroke;stroke:#ffffff;stroke-width:3px}")
+                .append("</style>\n");
+        out.append("<g transform=\"translate(").append(num(MARGIN)).append(',').append(num(MARGIN)).append(")\">\n");
+
+        for (int e = 0; e < edges.size(); e++) {
+            FlatGraph.FlatEdge edge = edges.get(e);
+            double[] pts = layout.points()[e];
+            out.append("<polyline class=\"edge");
+            if (edge.call() || edge.type() == EdgeType.RETURN || edge.type() == EdgeType.EXCEPTION) {
+                out.append(" dashed");
+            }
+            if (edge.call()) {
+                out.append(" call");
+            }
+            out.append("\" points=\"");
+            for (int i = 0; i < pts.length; i += 2) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(num(horizontal ? pts[i + 1] : pts[i])).append(',').append(num(horizontal ? pts[i] : pts[i + 1]));
+            }
+            out.append("\"/>\n");
+            if (edge.label() != null && !edge.label().isBlank()) {
+                int mid = (pts.length / 2 - 1) / 2 * 2;
+                double lx = (pts[mid] + pts[mid + 2]) / 2;
+                double ly = (pts[mid + 1] + pts[mid + 3]) / 2;
+                out.append("<text class=\"edge-label\" x=\"").append(num((horizontal ? ly : lx) + 4))
+                        .append("\" y=\"").append(num(horizontal ? lx : ly)).append("\">")
+                        .append(escape(edge.label())).append("</text>\n");
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            double x = horizontal ? layout.y()[i] : layout.x()[i];
+            double y = horizontal ? layout.x()[i] : layout.y()[i];
+            appendNode(out, flat.node(i), lines[i], x, y, width[i], height[i]);
+        }
+        out.append("</g>\n</svg>\n");
+    }
+
+    private void appendNode(Appendable out, Node node, String[] lines, double x, double y, double w, double h)
+            throws IOException {
+        switch (node.type()) {
+            case START, END -> out.append("<rect class=\"terminal\" x=\"").append(num(x)).append("\" y=\"").append(num(y))
+                    .append("\" width=\"").append(num(w)).append("\" height=\"").append(num(h))
+                    .append("\" rx=\"").append(num(h / 2)).append("\"/>\n");
+            case DECISION, LOOP_HEAD -> {
+                double inset = Math.min(h / 2, w / 4);
+                out.append("<polygon class=\"decision\" points=\"")
+                        .append(num(x + inset)).append(',').append(num(y)).append(' ')
+                        .append(num(x + w - inset)).append(',').append(num(y)).append(' ')
+                        .append(num(x + w)).append(',').append(num(y + h / 2)).append(' ')
+                        .append(num(x + w - inset)).append(',').append(num(y + h)).append(' ')
+                        .append(num(x + inset)).append(',').append(num(y + h)).append(' ')
+                        .append(num(x)).append(',').append(num(y + h / 2)).append("\"/>\n");
+            }
+            default -> out.append("<rect class=\"node\" x=\"").append(num(x)).append("\" y=\"").append(num(y))
+                    .append("\" width=\"").append(num(w)).append("\" height=\"").append(num(h)).append("\"/>\n");
+        }
+        out.append("<text text-anchor=\"middle\">");
+        double baseline = y + (h - lines.length * LINE_HEIGHT) / 2 + LINE_HEIGHT - 4;
+        for (int i = 0; i < lines.length; i++) {
+            out.append("<tspan x=\"").append(num(x + w / 2)).append("\" y=\"").append(num(baseline + i * LINE_HEIGHT))
+                    .append("\">").append(escape(lines[i])).append("</tspan>");
+        }
+        out.append("</text>\n");
+    }
+
+    private static String[] splitLines(String label) {
+        String text = label == null ? "" : label;
+        return text.replace("</br>", "\n").replace("<br/>", "\n").replace("<br>", "\n").split("\n");
+    }
+
+    /**
+     * Monospace advance; East Asian wide characters take two cells.
+     */
+    private static double textWidth(String line) {
+        double cells = 0;
+        for (int i = 0; i < line.length(); ) {
+            int cp = line.codePointAt(i);
+            cells += cp >= 0x1100 && Character.isIdeographic(cp) || cp >= 0xFF00 && cp <= 0xFFEF ? 2 : 1;
+            i += Character.charCount(cp);
+        }
+        return cells * CHAR_WIDTH;
+    }
+
+    private static String num(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> {
+                    if (c >= 0x20 || c == '\t') {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.server;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.IndexNotReadyException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import plus.wcj.jetbrains.plugins.java2flowchart.analysis.CostModel;
+import plus.wcj.jetbrains.plugins.java2flowchart.analysis.PerfLint;
+import plus.wcj.jetbrains.plugins.java2flowchart.extract.FlowExtractor;
+import plus.wcj.jetbrains.plugins.java2flowchart.extract.JavaFlowExtractor;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.ControlFlowGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderer;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderers;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.RenderOptions;
+import plus.wcj.jetbrains.plugins.java2flowchart.render.SvgFlowchartRenderer;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Optional HTTP endpoint on the loopback interface that renders diagrams on demand:
+ * <ul>
+ *     <li>{@code GET /flow/{fqMethod}?depth=N&format=F}: {@code fqMethod} is {@code a.b.C#m} or {@code a.b.C.m},
+ *     optionally with parameter types ({@code a.b.C#m(int,String)}); {@code depth} overrides the call depth,
+ *     {@code format} is {@code mermaid}, {@code dot}, {@code plantuml} or {@code svg} (default: the configured
+ *     renderer). Responses carry an ETag and honour {@code If-None-Match}.</li>
+ *     <li>{@code GET /metrics}: request counts, latency histogram and cache hits in the Prometheus text format.</li>
+ * </ul>
+ * Rendered diagrams are kept in a bounded LRU keyed by method, depth, format and settings, and valid while the
+ * project's PSI modification count is unchanged. Requests whose {@code Host} or {@code Origin} is not a loopback
+ * name get 403, so web pages cannot reach the server through DNS rebinding.
+ */
+@Service(Service.Level.APP)
+public final class DiagramServer implements Disposable {
+    private static final Logger LOG = Logger.getInstance(DiagramServer.class);
+    private static final String FLOW_PATH = "/flow/";
+    private static final int WORKERS = 4;
+    private static final int MAX_DEPTH = 10;
+    private static final List<String> LOOPBACK_HOSTS = List.of("localhost", "127.0.0.1", "[::1]");
+
+    private final FlowExtractor extractor = new JavaFlowExtractor();
+    private final SvgFlowchartRenderer svgRenderer = new SvgFlowchartRenderer();
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final FlowCache cache = new FlowCache(256);
+    private HttpServer server;
+    private ExecutorService executor;
+    /**
+     * Settings of a headless {@code --serve} run, used instead of the IDE's.
+     */
+    private volatile Java2FlowchartSettings.State servedSettings;
+
+    public static DiagramServer getInstance() {
+        return ApplicationManager.getApplication().getService(DiagramServer.class);
+    }
+
+    /**
+     * Starts, moves or stops the server to match {@code diagramServerPort} (0 = off).
+     *
+     * @throws IOException when the port cannot be bound; the server is then stopped
+     */
+    public synchronized void sync(Java2FlowchartSettings.State state) throws IOException {
+        cache.resize(state.getDiagramServerCacheSize());
+        int port = state.getDiagramServerPort();
+        if (server != null && server.getAddress().getPort() == port) {
+            return;
+        }
+        stop();
+        if (port <= 0) {
+            return;
+        }
+        HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        created.createContext(FLOW_PATH, this::handleFlow);
+        created.createContext("/metrics", this::handleMetrics);
+        executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Java2Flowchart Diagram Server", WORKERS);
+        created.setExecutor(executor);
+        created.start();
+        server = created;
+        LOG.info("Diagram server listening on " + created.getAddress());
+    }
+
+    /**
+     * Starts the server on {@code state}'s port and renders with {@code state} instead of the IDE's settings.
+     */
+    public synchronized void serve(Java2FlowchartSettings.State state) throws IOException {
+        servedSettings = state;
+        sync(state);
+    }
+
+    private void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        stop();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!fromLoopback(exchange)) {
+            send(exchange, 403, "text/plain; charset=utf-8", "Forbidden\n", null);
+            return;
+        }
+        send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", metrics.format(cache.size()), null);
+    }
+
+    private void handleFlow(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = serveFlow(exchange);
+        } catch (IndexNotReadyException e) {
+            status = send(exchange, 503, "text/plain; charset=utf-8", "Indexing, retry later\n", null);
+        } catch (RuntimeException e) {
+            LOG.warn("Diagram request failed: " + exchange.getRequestURI(), e);
+            status = send(exchange, 500, "text/plain; charset=utf-8", String.valueOf(e.getMessage()) + "\n", null);
+        }
+        metrics.record(status, System.nanoTime() - start);
+    }
+
+    private int serveFlow(HttpExchange exchange) throws IOException {
+        if (!fromLoopback(exchange)) {
+            return send(exchange, 403, "text/plain; charset=utf-8", "Forbidden\n", null);
+        }
+        if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Allow", "GET, HEAD");
+            return send(exchange, 405, "text/plain; charset=utf-8", "GET only\n", null);
+        }
+        String fqMethod = URLDecoder.decode(exchange.getRequestURI().getRawPath().substring(FLOW_PATH.length()), StandardCharsets.UTF_8);
+        Integer depth = null;
+        String format = null;
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                String name = eq < 0 ? param : param.substring(0, eq);
+                String value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                if ("depth".equals(name)) {
+                    try {
+                        depth = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        return send(exchange, 400, "text/plain; charset=utf-8", "depth must be an integer\n", null);
+                    }
+                    if (depth < 0 || depth > MAX_DEPTH) {
+                        return send(exchange, 400, "text/plain; charset=utf-8", "depth must be in 0.." + MAX_DEPTH + "\n", null);
+                    }
+                } else if ("format".equals(name)) {
+                    format = value;
+                }
+            }
+        }
+        Java2FlowchartSettings.State served = servedSettings;
+        Java2FlowchartSettings.State settings = served != null ? served : Java2FlowchartSettings.getInstance().getState();
+        Java2FlowchartSettings.State state = depth != null ? settings.withCallDepth(depth) : settings;
+        DiagramRenderer renderer = renderer(format, state);
+        Target target = ReadAction.compute(() -> resolve(fqMethod));
+        if (target == null && Arrays.stream(ProjectManager.getInstance().getOpenProjects()).anyMatch(DumbService::isDumb)) {
+            exchange.getResponseHeaders().add("Retry-After", "10");
+            return send(exchange, 503, "text/plain; charset=utf-8", "Indexing, retry later\n", null);
+        }
+        if (target == null) {
+            return send(exchange, 404, "text/plain; charset=utf-8", "No method with a body matches " + fqMethod + "\n", null);
+        }
+        if (DumbService.isDumb(target.project())) {
+            exchange.getResponseHeaders().add("Retry-After", "10");
+            return send(exchange, 503, "text/plain; charset=utf-8", "Indexing, retry later\n", null);
+        }
+        long stamp = PsiModificationTracker.getInstance(target.project()).getModificationCount();
+        String key = fqMethod + '|' + depth + '|' + renderer.id() + '|' + state.withoutTransport().hashCode();
+        FlowCache.Entry entry = cache.get(key, stamp);
+        if (entry != null) {
+            metrics.cacheHit();
+        } else {
+            metrics.cacheMiss();
+            entry = render(fqMethod, target.project(), state, renderer);
+            if (entry == null) {
+                return send(exchange, 404, "text/plain; charset=utf-8", "No method with a body matches " + fqMethod + "\n", null);
+            }
+            cache.put(key, entry);
+        }
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.contains(entry.etag())) {
+            exchange.getResponseHeaders().add("ETag", entry.etag());
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return 304;
+        }
+        return send(exchange, 200, entry.contentType(), entry.body(), entry.etag());
+    }
+
+    /**
+     * Resolves and extracts in a non-blocking read action, so typing in the editor restarts the extraction instead
+     * of waiting for it, and a restart never sees a method invalidated by the edit; the stamp is read inside the same
+     * action and matches what was extracted.
+     *
+     * @return {@code null} when the method no longer resolves
+     */
+    private FlowCache.Entry render(String fqMethod, Project project, Java2FlowchartSettings.State state,
+                                   DiagramRenderer renderer) {
+        record Extracted(ControlFlowGraph graph, long stamp) {
+        }
+        extractor.preload(state, project);
+        Extracted extracted = ReadAction.nonBlocking(() -> {
+                    Target target = resolve(fqMethod);
+                    if (target == null) {
+                        return null;
+                    }
+                    return new Extracted(extractor.extract(target.method(), state),
+                            PsiModificationTracker.getInstance(target.project()).getModificationCount());
+                })
+                .inSmartMode(project)
+                .executeSynchronously();
+        if (extracted == null) {
+            return null;
+        }
+        ControlFlowGraph graph = extracted.graph();
+        if (state.getPerfLint()) {
+            PerfLint.analyze(graph);
+        }
+        if (state.getCriticalPath()) {
+            new CostModel(CostModel.parseTable(state.getCostTable()), state.getLoopMultiplier()).analyze(graph);
+        }
+        String body = renderer.render(graph, RenderOptions.topDown().withCompact(state.getCompactMermaid()));
+        String contentType = renderer == svgRenderer ? "image/svg+xml; charset=utf-8" : "text/plain; charset=utf-8";
+        String etag = "\"" + Long.toHexString(extracted.stamp()) + "-" + Integer.toHexString(body.hashCode()) + "\"";
+        return new FlowCache.Entry(extracted.stamp(), body, contentType, etag);
+    }
+
+    private DiagramRenderer renderer(String format, Java2FlowchartSettings.State state) {
+        if (format == null || format.isBlank()) {
+            return DiagramRenderers.byId(state.getRenderer());
+        }
+        if ("svg".equals(format) || svgRenderer.id().equals(format)) {
+            return svgRenderer;
+        }
+        for (DiagramRenderer renderer : DiagramRenderers.all()) {
+            if (renderer.id().equals(format) || renderer.codeFence().equals(format)) {
+                return renderer;
+            }
+        }
+        return DiagramRenderers.byId(state.getRenderer());
+    }
+
+    private record Target(Project project, PsiMethod method) {
+    }
+
+    /**
+     * First method with a body matching {@code fqMethod} in the open projects; without parameter types the first
+     * overload in source order wins.
+     */
+    private static Target resolve(String fqMethod) {
+        String signature = fqMethod.strip();
+        List<String> params = null;
+        int paren = signature.indexOf('(');
+        if (paren >= 0 && signature.endsWith(")")) {
+            params = new ArrayList<>();
+            for (String param : signature.substring(paren + 1, signature.length() - 1).split(",")) {
+                if (!param.isBlank()) {
+                    params.add(param.strip());
+                }
+            }
+            signature = signature.substring(0, paren);
+        }
+        int split = signature.indexOf('#') >= 0 ? signature.indexOf('#') : signature.lastIndexOf('.');
+        if (split <= 0 || split == signature.length() - 1) {
+            return null;
+        }
+        String className = signature.substring(0, split);
+        String methodName = signature.substring(split + 1);
+        for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+            if (project.isDisposed() || DumbService.isDumb(project)) {
+                continue;
+            }
+            PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass(className, GlobalSearchScope.allScope(project));
+            if (psiClass == null) {
+                continue;
+            }
+            for (PsiMethod method : psiClass.findMethodsByName(methodName, false)) {
+                if (method.getBody() != null && (params == null || matches(method, params))) {
+                    return new Target(project, method);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parameter types match by simple or fully qualified name.
+     */
+    private static boolean matches(PsiMethod method, List<String> params) {
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        if (parameters.length != params.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            String wanted = params.get(i);
+            if (!wanted.equals(parameters[i].getType().getPresentableText())
+                    && !wanted.equals(parameters[i].getType().getCanonicalText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code Host} and, when a browser sends one, {@code Origin} must name the loopback interface.
+     */
+    private static boolean fromLoopback(HttpExchange exchange) {
+        int port = exchange.getLocalAddress().getPort();
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null || !isLoopback(host, port)) {
+            return false;
+        }
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        return origin == null || origin.startsWith("http://") && isLoopback(origin.substring("http://".length()), port);
+    }
+
+    private static boolean isLoopback(String authority, int port) {
+        String name = authority.toLowerCase(Locale.ROOT);
+        for (String host : LOOPBACK_HOSTS) {
+            if (name.equals(host) || name.equals(host + ":" + port)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int send(HttpExchange exchange, int status, String contentType, String body, String etag) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        if (etag != null) {
+            exchange.getResponseHeaders().add("ETag", etag);
+        }
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(status, head ? -1 : bytes.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+        return status;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.server;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.java2flowchart.settings.Java2FlowchartSettings;
+
+import java.io.IOException;
+
+/**
+ * Starts the diagram server when it is configured; later projects find it already running. Headless runs only
+ * serve when the {@code java2flowchart} starter is given {@code --serve}.
+ */
+public class DiagramServerStartup implements StartupActivity.DumbAware {
+    private static final Logger LOG = Logger.getInstance(DiagramServerStartup.class);
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        Java2FlowchartSettings.State state = Java2FlowchartSettings.getInstance().getState();
+        if (state.getDiagramServerPort() <= 0 || ApplicationManager.getApplication().isHeadlessEnvironment()) {
+            return;
+        }
+        try {
+            DiagramServer.getInstance().sync(state);
+        } catch (IOException e) {
+            LOG.warn("Diagram server could not listen on port " + state.getDiagramServerPort(), e);
+        }
+    }
+}
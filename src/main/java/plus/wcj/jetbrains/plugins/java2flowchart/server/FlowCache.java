@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of rendered diagrams. An entry is only served while the PSI modification count it was built at is
+ * still current, so any edit in the project invalidates it without bookkeeping.
+ */
+final class FlowCache {
+    record Entry(long stamp, String body, String contentType, String etag) {
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+    private int capacity;
+
+    FlowCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    synchronized Entry get(String key, long stamp) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.stamp() != stamp) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    synchronized void resize(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        var it = entries.entrySet().iterator();
+        while (entries.size() > this.capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package plus.wcj.jetbrains.plugins.java2flowchart.server;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters, a latency histogram and cache hit counters for {@code /flow} requests, written in the
+ * Prometheus text exposition format.
+ */
+final class ServerMetrics {
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ServerMetrics() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(int status, long elapsedNanos) {
+        byStatus.computeIfAbsent(status, k -> new LongAdder()).increment();
+        count.increment();
+        nanos.add(elapsedNanos);
+        double seconds = elapsedNanos / 1e9;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (seconds <= BUCKETS[i]) {
+                buckets[i].increment();
+                break;
+            }
+        }
+    }
+
+    void cacheHit() {
+        hits.increment();
+    }
+
+    void cacheMiss() {
+        misses.increment();
+    }
+
+    String format(int cacheEntries) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("# HELP java2flowchart_requests_total Diagram requests by HTTP status.\n")
+                .append("# TYPE java2flowchart_requests_total counter\n");
+        new TreeMap<>(byStatus).forEach((status, n) ->
+                out.append("java2flowchart_requests_total{code=\"").append(status).append("\"} ").append(n.sum()).append('\n'));
+        out.append("# HELP java2flowchart_request_duration_seconds Diagram request latency.\n")
+                .append("# TYPE java2flowchart_request_duration_seconds histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append("java2flowchart_request_duration_seconds_bucket{le=\"").append(BUCKETS[i]).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        long total = count.sum();
+        out.append("java2flowchart_request_duration_seconds_bucket{le=\"+Inf\"} ").append(total).append('\n')
+                .append("java2flowchart_request_duration_seconds_sum ")
+                .append(String.format(Locale.ROOT, "%.6f", nanos.sum() / 1e9)).append('\n')
+                .append("java2flowchart_request_duration_seconds_count ").append(total).append('\n');
+        out.append("# TYPE java2flowchart_cache_hits_total counter\n")
+                .append("java2flowchart_cache_hits_total ").append(hits.sum()).append('\n')
+                .append("# TYPE java2flowchart_cache_misses_total counter\n")
+                .append("java2flowchart_cache_misses_total ").append(misses.sum()).append('\n')
+                .append("# TYPE java2flowchart_cache_entries gauge\n")
+                .append("java2flowchart_cache_entries ").append(cacheEntries).append('\n');
+        return out.toString();
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package plus.wcj.jetbrains.plugins.java2flowchart.view;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.EdgeType;
+import plus.wcj.jetbrains.plugins.java2flowchart.ir.Node;
+import plus.wcj.jetbrains.plugins.java2flowchart.layout.FlatGraph;
+import plus.wcj.jetbrains.plugins.java2flowchart.layout.LayeredLayout;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Draws a {@link FlatGraph} directly with Graphics2D. Nodes and edges are kept in a grid index, so a repaint
+ * only touches what intersects the viewport; labels and arrowheads are skipped when zoomed far out.
+ * Drag to pan, wheel to zoom, click a node to navigate to its source.
+ */
+public class FlowchartViewer extends JComponent {
+    private static final double MIN_SCALE = 0.02;
+    private static final double MAX_SCALE = 4;
+    private static final double TEXT_SCALE = 0.35;
+    private static final double CELL = 256;
+    private static final Color NODE_FILL = new JBColor(new Color(0xF4F6FB), new Color(0x3C3F41));
+    private static final Color TERMINAL_FILL = new JBColor(new Color(0xFFCCFF), new Color(0x6B3F6B));
+    private static final Color DECISION_FILL = new JBColor(new Color(0xFFF4CC), new Color(0x5C5330));
+    private static final Color BORDER = new JBColor(new Color(0x7A869A), new Color(0x8C8C8C));
+    private static final Color EDGE = new JBColor(new Color(0x5E6C84), new Color(0xA0A0A0));
+    private static final Color CALL_EDGE = new JBColor(new Color(0x3574F0), new Color(0x6B9BFA));
+    private static final Stroke SOLID = new BasicStroke(1.2f);
+    private static final Stroke DASHED = new BasicStroke(1.2f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, new float[]{6f, 4f}, 0f);
+
+    private FlatGraph graph;
+    private LayeredLayout.Result layout;
+    private String[][] labelLines;
+    private final GridIndex nodeIndex = new GridIndex();
+    private final GridIndex edgeIndex = new GridIndex();
+    private int[] edgeFrom = new int[0];
+    private int[] edgeTo = new int[0];
+    private double scale = 1;
+    private double offsetX = 20;
+    private double offsetY = 20;
+    private IntConsumer navigationHandler = index -> {
+    };
+
+    public FlowchartViewer() {
+        setOpaque(true);
+        setFont(JBUI.Fonts.label());
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point last;
+            private boolean dragged;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                last = e.getPoint();
+                dragged = false;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (last == null) {
+                    return;
+                }
+                offsetX += e.getX() - last.x;
+                offsetY += e.getY() - last.y;
+                last = e.getPoint();
+                dragged = true;
+                repaint();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (!dragged && SwingUtilities.isLeftMouseButton(e)) {
+                    int hit = nodeAt(e.getX(), e.getY());
+                    if (hit >= 0) {
+                        navigationHandler.accept(hit);
+                    }
+                }
+                last = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    public void setNavigationHandler(IntConsumer handler) {
+        this.navigationHandler = handler != null ? handler : index -> {
+        };
+    }
+
+    public FlatGraph getGraph() {
+        return graph;
+    }
+
+    public void setGraph(FlatGraph graph) {
+        this.graph = graph;
+        nodeIndex.clear();
+        edgeIndex.clear();
+        if (graph == null || graph.size() == 0) {
+            layout = null;
+            repaint();
+            return;
+        }
+        FontMetrics fm = getFontMetrics(getFont());
+        int n = graph.size();
+        double[] width = new double[n];
+        double[] height = new double[n];
+        labelLines = new String[n][];
+        for (int i = 0; i < n; i++) {
+            String[] lines = graph.node(i).label().replace("</br>", "\n").replace("<br/>", "\n").split("\n");
+            labelLines[i] = lines;
+            int w = 0;
+            for (String line : lines) {
+                w = Math.max(w, fm.stringWidth(line));
+            }
+            width[i] = Math.max(40, w + 20);
+            height[i] = lines.length * fm.getHeight() + 12;
+        }
+        List<FlatGraph.FlatEdge> edges = graph.edges();
+        edgeFrom = new int[edges.size()];
+        edgeTo = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            edgeFrom[e] = edges.get(e).from();
+            edgeTo[e] = edges.get(e).to();
+        }
+        layout = LayeredLayout.layout(width, height, edgeFrom, edgeTo, graph.entry());
+        for (int i = 0; i < n; i++) {
+            nodeIndex.add(i, layout.x()[i], layout.y()[i], layout.x()[i] + width[i], layout.y()[i] + height[i]);
+        }
+        for (int e = 0; e < edges.size(); e++) {
+            double[] b = edgeBounds(e);
+            edgeIndex.add(e, b[0], b[1], b[2], b[3]);
+        }
+        scale = 1;
+        int entry = graph.entry();
+        offsetX = entry >= 0 ? getWidth() / 2.0 - (layout.x()[entry] + width[entry] / 2) : 20;
+        offsetY = 20;
+        repaint();
+    }
+
+    public void zoom(double factor, double anchorX, double anchorY) {
+        double next = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        double worldX = (anchorX - offsetX) / scale;
+        double worldY = (anchorY - offsetY) / scale;
+        scale = next;
+        offsetX = anchorX - worldX * scale;
+        offsetY = anchorY - worldY * scale;
+        repaint();
+    }
+
+    public void fitToView() {
+        if (layout == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        double sx = (getWidth() - 40) / Math.max(1, layout.totalWidth());
+        double sy = (getHeight() - 40) / Math.max(1, layout.totalHeight());
+        scale = Math.max(MIN_SCALE, Math.min(1, Math.min(sx, sy)));
+        offsetX = (getWidth() - layout.totalWidth() * scale) / 2;
+        offsetY = 20;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(UIUtil.getPanelBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            if (layout == null) {
+                return;
+            }
+            Rectangle clip = g2.getClipBounds() != null ? g2.getClipBounds() : new Rectangle(0, 0, getWidth(), getHeight());
+            double minX = (clip.x - offsetX) / scale;
+            double minY = (clip.y - offsetY) / scale;
+            double maxX = (clip.x + clip.width - offsetX) / scale;
+            double maxY = (clip.y + clip.height - offsetY) / scale;
+            boolean detailed = scale >= TEXT_SCALE;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, detailed ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            AffineTransform saved = g2.getTransform();
+            g2.translate(offsetX, offsetY);
+            g2.scale(scale, scale);
+            for (int e : edgeIndex.query(minX, minY, maxX, maxY, edgeFrom.length)) {
+                paintEdge(g2, e, detailed);
+            }
+            for (int v : nodeIndex.query(minX, minY, maxX, maxY, graph.size())) {
+                paintNode(g2, v, detailed);
+            }
+            g2.setTransform(saved);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintNode(Graphics2D g2, int v, boolean detailed) {
+        Node node = graph.node(v);
+        double x = layout.x()[v];
+        double y = layout.y()[v];
+        double w = layout.width()[v];
+        double h = layout.height()[v];
+        Shape shape = switch (node.type()) {
+            case START, END -> new java.awt.geom.RoundRectangle2D.Double(x, y, w, h, h, h);
+            case DECISION, LOOP_HEAD -> hexagon(x, y, w, h);
+            default -> new java.awt.geom.Rectangle2D.Double(x, y, w, h);
+        };
+        g2.setColor(switch (node.type()) {
+            case START, END -> TERMINAL_FILL;
+            case DECISION, LOOP_HEAD -> DECISION_FILL;
+            default -> NODE_FILL;
+        });
+        g2.fill(shape);
+        g2.setColor(BORDER);
+        g2.setStroke(SOLID);
+        g2.draw(shape);
+        if (!detailed) {
+            return;
+        }
+        g2.setColor(UIUtil.getLabelForeground());
+        FontMetrics fm = g2.getFontMetrics(getFont());
+        g2.setFont(getFont());
+        String[] lines = labelLines[v];
+        double textTop = y + (h - lines.length * fm.getHeight()) / 2 + fm.getAscent();
+        for (int i = 0; i < lines.length; i++) {
+            int lw = fm.stringWidth(lines[i]);
+            g2.drawString(lines[i], (float) (x + (w - lw) / 2), (float) (textTop + i * fm.getHeight()));
+        }
+    }
+
+    private Shape hexagon(double x, double y, double w, double h) {
+        double inset = Math.min(h / 2, w / 4);
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(x + inset, y);
+        path.lineTo(x + w - inset, y);
+        path.lineTo(x + w, y + h / 2);
+        path.lineTo(x + w - inset, y + h);
+        path.lineTo(x + inset, y + h);
+        path.lineTo(x, y + h / 2);
+        path.closePath();
+        return path;
+    }
+
+    private void paintEdge(Graphics2D g2, int e, boolean detailed) {
+        FlatGraph.FlatEdge edge = graph.edges().get(e);
+        boolean dashed = edge.call() || edge.type() == EdgeType.RETURN || edge.type() == EdgeType.EXCEPTION;
+        g2.setStroke(dashed ? DASHED : SOLID);
+        g2.setColor(edge.call() ? CALL_EDGE : EDGE);
+        double[] pts = layout.points()[e];
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(pts[0], pts[1]);
+        for (int i = 2; i < pts.length; i += 2) {
+            path.lineTo(pts[i], pts[i + 1]);
+        }
+        g2.draw(path);
+        int last = pts.length - 2;
+        if (detailed) {
+            arrow(g2, pts[last - 2], pts[last - 1], pts[last], pts[last + 1]);
+        }
+        // label sits on the middle segment of the route
+        int mid = (pts.length / 2 - 1) / 2 * 2;
+        double labelX = (pts[mid] + pts[mid + 2]) / 2;
+        double labelY = (pts[mid + 1] + pts[mid + 3]) / 2;
+        if (detailed && edge.label() != null && !edge.label().isBlank() && scale >= 0.6) {
+            g2.setFont(getFont().deriveFont(getFont().getSize2D() * 0.85f));
+            g2.drawString(edge.label(), (float) labelX + 3, (float) labelY);
+        }
+    }
+
+    private void arrow(Graphics2D g2, double fromX, double fromY, double toX, double toY) {
+        double angle = Math.atan2(toY - fromY, toX - fromX);
+        double size = 7;
+        Path2D.Double head = new Path2D.Double();
+        head.moveTo(toX, toY);
+        head.lineTo(toX - size * Math.cos(angle - Math.PI / 7), toY - size * Math.sin(angle - Math.PI / 7));
+        head.lineTo(toX - size * Math.cos(angle + Math.PI / 7), toY - size * Math.sin(angle + Math.PI / 7));
+        head.closePath();
+        g2.fill(head);
+    }
+
+    private double[] edgeBounds(int e) {
+        double[] pts = layout.points()[e];
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < pts.length; i += 2) {
+            minX = Math.min(minX, pts[i]);
+            maxX = Math.max(maxX, pts[i]);
+            minY = Math.min(minY, pts[i + 1]);
+            maxY = Math.max(maxY, pts[i + 1]);
+        }
+        // room for the arrowhead and the label text
+        return new double[]{minX - 8, minY - 8, maxX + 80, maxY + 16};
+    }
+
+    private int nodeAt(int screenX, int screenY) {
+        if (layout == null) {
+            return -1;
+        }
+        double wx = (screenX - offsetX) / scale;
+        double wy = (screenY - offsetY) / scale;
+        for (int v : nodeIndex.query(wx, wy, wx, wy, graph.size())) {
+            if (wx >= layout.x()[v] && wx <= layout.x()[v] + layout.width()[v]
+                    && wy >= layout.y()[v] && wy <= layout.y()[v] + layout.height()[v]) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Uniform grid over world coordinates; each item is registered in every cell its bounds cover.
+     */
+    private static final class GridIndex {
+        private final Map<Long, List<Integer>> cells = new HashMap<>();
+        private int[] stamp = new int[0];
+        private int generation = 0;
+
+        void clear() {
+            cells.clear();
+        }
+
+        void add(int item, double minX, double minY, double maxX, double maxY) {
+            int cx0 = cell(minX);
+            int cy0 = cell(minY);
+            int cx1 = cell(maxX);
+            int cy1 = cell(maxY);
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+
+        List<Integer> query(double minX, double minY, double maxX, double maxY, int itemCount) {
+            if (stamp.length < itemCount) {
+                stamp = new int[itemCount];
+                generation = 0;
+            }
+            generation++;
+            List<Integer> result = new ArrayList<>();
+            int cx0 = cell(minX);
+            int cy0 = cell(minY);
+            int cx1 = cell(maxX);
+            int cy1 = cell(maxY);
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    List<Integer> items = cells.get(key(cx, cy));
+                    if (items == null) {
+                        continue;
+                    }
+                    for (int item : items) {
+                        if (stamp[item] != generation) {
+                            stamp[item] = generation;
+                            result.add(item);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static int cell(double v) {
+            return (int) Math.floor(v / CELL);
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) ^ (cy & 0xffffffffL);
+        }
+    }
+}
@@ -29,6 +29,20 @@ class Java2FlowchartSettings : PersistentStateComponent<Java2FlowchartSettings.S
     companion object {
         @JvmStatic
         fun getInstance(): Java2FlowchartSettings = service()
+
+        const val DEFAULT_DIAGRAM_SERVER_CACHE_SIZE = 256
+
+        /**
+         * Call costs by calleeKey prefix, one prefix=cost per line; other calls cost 1.
+         */
+        const val DEFAULT_COST_TABLE = "java.io.=50\n" +
+            "java.nio.file.=50\n" +
+            "java.nio.channels.=50\n" +
+            "java.net.=100\n" +
+            "java.sql.=100\n" +
+            "java.lang.Thread.sleep=1000\n" +
+            "java.util.regex.Pattern.compile=20\n" +
+            "java.lang.String.format=10"
     }
 
     data class State(
@@ -71,8 +85,104 @@ class Java2FlowchartSettings : PersistentStateComponent<Java2FlowchartSettings.S
         /**
          * Whether to include the source code (with comments) of the selected method in the generated Markdown.
          */
-        var exportSource: Boolean = false
-    )
+        var exportSource: Boolean = false,
+        /**
+         * Write callee graphs to the output as soon as they are built and keep only stub references in the parent
+         * graph, so peak memory depends on call depth rather than total graph size.
+         */
+        var streamCalleeGraphs: Boolean = false,
+        /**
+         * Also write a standalone SVG next to the Markdown, laid out by the built-in layered layout.
+         */
+        var exportSvg: Boolean = false,
+        /**
+         * Id of the renderer used for the Markdown diagram (mermaid-flowchart, dot-flowchart, plantuml-activity).
+         */
+        var renderer: String = "mermaid-flowchart",
+        /**
+         * Expand calls to overridable methods into a dispatch over the implementations found in the project.
+         */
+        var expandImplementations: Boolean = false,
+        /**
+         * Max implementations shown per dispatch; the inheritor search is also bounded by a time budget.
+         */
+        var maxImplementations: Int = 5,
+        /**
+         * Expand lambdas and method references passed to calls into inline graphs and tag stream pipeline stages.
+         */
+        var expandLambdas: Boolean = false,
+        /**
+         * JFR recording or collapsed-stack file whose samples color the flowchart by hot path; blank for none.
+         */
+        var profileFile: String = "",
+        /**
+         * JaCoCo execution data whose line and branch coverage mark executed and missed paths; blank for none.
+         */
+        var coverageFile: String = "",
+        /**
+         * Class directories the execution data was recorded for, separated by the path separator; blank for the
+         * module's build output.
+         */
+        var coverageClasses: String = "",
+        /**
+         * Collapse never-executed regions into one node when coverage data is loaded.
+         */
+        var collapseColdCode: Boolean = false,
+        /**
+         * Flag allocation, blocking I/O, locks, regex compilation and string concatenation inside loops.
+         */
+        var perfLint: Boolean = false,
+        /**
+         * Estimate static costs and highlight the most expensive path through the method.
+         */
+        var criticalPath: Boolean = false,
+        /**
+         * Cost multiplier applied once per enclosing loop.
+         */
+        var loopMultiplier: Int = 10,
+        var costTable: String = DEFAULT_COST_TABLE,
+        /**
+         * Choose the call depth per method from a PSI size estimate instead of using callDepth.
+         */
+        var autoCallDepth: Boolean = false,
+        /**
+         * Predicted node count the automatically chosen call depth must fit in.
+         */
+        var autoDepthNodeBudget: Int = 400,
+        /**
+         * Wall-clock budget per method in milliseconds, 0 = unlimited. A method exceeding it is extracted again
+         * with reduced depths, then as a top-level outline.
+         */
+        var methodTimeBudgetMs: Int = 10000,
+        /**
+         * Minify the Mermaid output: short ids, `&`-joined edges, one class statement per class.
+         */
+        var compactMermaid: Boolean = false,
+        /**
+         * Mermaid only: write each expanded callee graph once to its own page and link calls to the pages
+         * instead of inlining the graphs. Takes precedence over streamCalleeGraphs.
+         */
+        var paginateCallees: Boolean = false,
+        /**
+         * Loopback port of the on-demand diagram server, 0 = off.
+         */
+        var diagramServerPort: Int = 0,
+        /**
+         * Rendered diagrams the server keeps in its LRU cache.
+         */
+        var diagramServerCacheSize: Int = DEFAULT_DIAGRAM_SERVER_CACHE_SIZE
+    ) {
+        /**
+         * Snapshot with a fixed call depth, for requests that override it.
+         */
+        fun withCallDepth(depth: Int): State = copy(callDepth = depth, autoCallDepth = false)
+
+        /**
+         * Snapshot without the diagram server's transport settings, which do not shape any diagram.
+         */
+        fun withoutTransport(): State =
+            copy(diagramServerPort = 0, diagramServerCacheSize = DEFAULT_DIAGRAM_SERVER_CACHE_SIZE)
+    }
 
     @Tag("SkipRegexEntry")
     data class SkipRegexEntry(var enabled: Boolean = true, var pattern: String = "")
@@ -16,10 +16,15 @@
 
 package plus.wcj.jetbrains.plugins.java2flowchart.settings
 
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory
+import com.intellij.openapi.options.ConfigurationException
 import com.intellij.openapi.options.SearchableConfigurable
 import com.intellij.openapi.ui.ComboBox
+import com.intellij.openapi.ui.TextFieldWithBrowseButton
 import com.intellij.ui.components.JBCheckBox
 import com.intellij.ui.components.JBLabel
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.ui.components.JBTextArea
 import com.intellij.ui.JBIntSpinner
 import com.intellij.ui.SimpleListCellRenderer
 import com.intellij.ui.ToolbarDecorator
@@ -34,6 +39,10 @@ import javax.swing.JComponent
 import javax.swing.JPanel
 import java.awt.Dimension
 import plus.wcj.jetbrains.plugins.java2flowchart.Java2FlowchartBundle
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderer
+import plus.wcj.jetbrains.plugins.java2flowchart.render.DiagramRenderers
+import plus.wcj.jetbrains.plugins.java2flowchart.server.DiagramServer
+import java.io.IOException
 import java.awt.BorderLayout
 
 class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
@@ -46,16 +55,48 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
     private lateinit var foldCtorCheckBox: JBCheckBox
     private lateinit var languageCombo: ComboBox<Java2FlowchartSettings.Language>
     private lateinit var languageLabel: JBLabel
+    private lateinit var rendererCombo: ComboBox<DiagramRenderer>
+    private lateinit var rendererLabel: JBLabel
     private lateinit var jdkDepthSpinner: JBIntSpinner
     private lateinit var jdkDepthLabel: JBLabel
     private lateinit var callDepthSpinner: JBIntSpinner
     private lateinit var callDepthLabel: JBLabel
+    private lateinit var autoCallDepthCheckBox: JBCheckBox
+    private lateinit var autoDepthBudgetSpinner: JBIntSpinner
+    private lateinit var autoDepthBudgetLabel: JBLabel
+    private lateinit var timeBudgetSpinner: JBIntSpinner
+    private lateinit var timeBudgetLabel: JBLabel
+    private lateinit var serverPortSpinner: JBIntSpinner
+    private lateinit var serverPortLabel: JBLabel
+    private lateinit var serverCacheSpinner: JBIntSpinner
+    private lateinit var serverCacheLabel: JBLabel
     private lateinit var ternaryLevelSpinner: JBIntSpinner
     private lateinit var ternaryLabel: JBLabel
     private lateinit var labelMaxSpinner: JBIntSpinner
     private lateinit var labelMaxLabel: JBLabel
     private lateinit var useJavadocCheckBox: JBCheckBox
     private lateinit var exportSourceCheckBox: JBCheckBox
+    private lateinit var exportSvgCheckBox: JBCheckBox
+    private lateinit var compactMermaidCheckBox: JBCheckBox
+    private lateinit var streamCalleeCheckBox: JBCheckBox
+    private lateinit var paginateCalleesCheckBox: JBCheckBox
+    private lateinit var expandImplementationsCheckBox: JBCheckBox
+    private lateinit var maxImplementationsSpinner: JBIntSpinner
+    private lateinit var maxImplementationsLabel: JBLabel
+    private lateinit var expandLambdasCheckBox: JBCheckBox
+    private lateinit var profileFileField: TextFieldWithBrowseButton
+    private lateinit var profileFileLabel: JBLabel
+    private lateinit var coverageFileField: TextFieldWithBrowseButton
+    private lateinit var coverageFileLabel: JBLabel
+    private lateinit var coverageClassesField: TextFieldWithBrowseButton
+    private lateinit var coverageClassesLabel: JBLabel
+    private lateinit var collapseColdCheckBox: JBCheckBox
+    private lateinit var perfLintCheckBox: JBCheckBox
+    private lateinit var criticalPathCheckBox: JBCheckBox
+    private lateinit var loopMultiplierSpinner: JBIntSpinner
+    private lateinit var loopMultiplierLabel: JBLabel
+    private lateinit var costTableArea: JBTextArea
+    private lateinit var costTableLabel: JBLabel
     private lateinit var skipRegexTable: JBTable
     private lateinit var skipRegexModel: ListTableModel<Java2FlowchartSettings.SkipRegexEntry>
     private var panel: JPanel? = null
@@ -74,12 +115,34 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
 
     override fun isModified(): Boolean {
         val langModified = selectedLanguage() != settings.state.language
+        val rendererModified = selectedRenderer().id() != settings.state.renderer
         val depthModified = (jdkDepthSpinner.value as Int) != settings.state.jdkApiDepth
-        val callDepthModified = (callDepthSpinner.value as Int) != settings.state.callDepth
+        val callDepthModified = (callDepthSpinner.value as Int) != settings.state.callDepth ||
+            autoCallDepthCheckBox.isSelected != settings.state.autoCallDepth ||
+            (autoDepthBudgetSpinner.value as Int) != settings.state.autoDepthNodeBudget
+        val timeBudgetModified = (timeBudgetSpinner.value as Int) != settings.state.methodTimeBudgetMs
+        val serverModified = (serverPortSpinner.value as Int) != settings.state.diagramServerPort ||
+            (serverCacheSpinner.value as Int) != settings.state.diagramServerCacheSize
         val ternaryModified = (ternaryLevelSpinner.value as Int) != settings.state.ternaryExpandLevel
         val labelModified = (labelMaxSpinner.value as Int) != settings.state.labelMaxLength
         val javadocModified = useJavadocCheckBox.isSelected != settings.state.useJavadocLabels
         val exportSourceModified = exportSourceCheckBox.isSelected != settings.state.exportSource
+        val exportSvgModified = exportSvgCheckBox.isSelected != settings.state.exportSvg
+        val compactMermaidModified = compactMermaidCheckBox.isSelected != settings.state.compactMermaid
+        val streamCalleeModified = streamCalleeCheckBox.isSelected != settings.state.streamCalleeGraphs ||
+            paginateCalleesCheckBox.isSelected != settings.state.paginateCallees
+        val implementationsModified =
+            expandImplementationsCheckBox.isSelected != settings.state.expandImplementations ||
+                    (maxImplementationsSpinner.value as Int) != settings.state.maxImplementations
+        val expandLambdasModified = expandLambdasCheckBox.isSelected != settings.state.expandLambdas
+        val profileModified = profileFileField.text.trim() != settings.state.profileFile
+        val coverageModified = coverageFileField.text.trim() != settings.state.coverageFile ||
+            coverageClassesField.text.trim() != settings.state.coverageClasses ||
+            collapseColdCheckBox.isSelected != settings.state.collapseColdCode
+        val perfLintModified = perfLintCheckBox.isSelected != settings.state.perfLint
+        val costModified = criticalPathCheckBox.isSelected != settings.state.criticalPath ||
+            (loopMultiplierSpinner.value as Int) != settings.state.loopMultiplier ||
+            costTableArea.text.trim() != settings.state.costTable
         val foldFluentModified = foldFluentCheckBox.isSelected != settings.state.foldFluentCalls
         val foldNestedModified = foldNestedCheckBox.isSelected != settings.state.foldNestedCalls
         val foldDetailModified =
@@ -88,7 +151,7 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
                     foldGetCheckBox.isSelected != settings.state.foldSequentialGetters ||
                     foldCtorCheckBox.isSelected != settings.state.foldSequentialCtors
         val skipRegexModified = currentSkipEntries() != settings.state.skipRegexEntries
-        return foldFluentModified || foldNestedModified || foldDetailModified || langModified || depthModified || callDepthModified || ternaryModified || labelModified || javadocModified || exportSourceModified || skipRegexModified
+        return rendererModified || foldFluentModified || foldNestedModified || foldDetailModified || langModified || depthModified || callDepthModified || timeBudgetModified || serverModified || ternaryModified || labelModified || javadocModified || exportSourceModified || exportSvgModified || compactMermaidModified || streamCalleeModified || implementationsModified || expandLambdasModified || profileModified || coverageModified || perfLintModified || costModified || skipRegexModified
     }
 
     override fun apply() {
@@ -99,14 +162,42 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
         settings.state.foldSequentialGetters = foldGetCheckBox.isSelected
         settings.state.foldSequentialCtors = foldCtorCheckBox.isSelected
         settings.state.language = selectedLanguage()
+        settings.state.renderer = selectedRenderer().id()
         settings.state.jdkApiDepth = jdkDepthSpinner.number
         settings.state.callDepth = callDepthSpinner.number
+        settings.state.autoCallDepth = autoCallDepthCheckBox.isSelected
+        settings.state.autoDepthNodeBudget = autoDepthBudgetSpinner.number
+        settings.state.methodTimeBudgetMs = timeBudgetSpinner.number
+        settings.state.diagramServerPort = serverPortSpinner.number
+        settings.state.diagramServerCacheSize = serverCacheSpinner.number
         settings.state.ternaryExpandLevel = ternaryLevelSpinner.number
         settings.state.labelMaxLength = labelMaxSpinner.number
         settings.state.useJavadocLabels = useJavadocCheckBox.isSelected
         settings.state.exportSource = exportSourceCheckBox.isSelected
+        settings.state.exportSvg = exportSvgCheckBox.isSelected
+        settings.state.compactMermaid = compactMermaidCheckBox.isSelected
+        settings.state.streamCalleeGraphs = streamCalleeCheckBox.isSelected
+        settings.state.paginateCallees = paginateCalleesCheckBox.isSelected
+        settings.state.expandImplementations = expandImplementationsCheckBox.isSelected
+        settings.state.maxImplementations = maxImplementationsSpinner.number
+        settings.state.expandLambdas = expandLambdasCheckBox.isSelected
+        settings.state.profileFile = profileFileField.text.trim()
+        settings.state.coverageFile = coverageFileField.text.trim()
+        settings.state.coverageClasses = coverageClassesField.text.trim()
+        settings.state.collapseColdCode = collapseColdCheckBox.isSelected
+        settings.state.perfLint = perfLintCheckBox.isSelected
+        settings.state.criticalPath = criticalPathCheckBox.isSelected
+        settings.state.loopMultiplier = loopMultiplierSpinner.number
+        settings.state.costTable = costTableArea.text.trim()
         val skips = currentSkipEntries().filter { it.pattern.isNotBlank() }
         settings.state.skipRegexEntries = skips.toMutableList()
+        try {
+            DiagramServer.getInstance().sync(settings.state)
+        } catch (e: IOException) {
+            throw ConfigurationException(
+                Java2FlowchartBundle.message("settings.server.port.busy", settings.state.language, settings.state.diagramServerPort.toString(), e.message ?: "")
+            )
+        }
     }
 
     override fun reset() {
@@ -120,14 +211,31 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
     private fun selectedLanguage(): Java2FlowchartSettings.Language =
         languageCombo.selectedItem as? Java2FlowchartSettings.Language ?: Java2FlowchartSettings.Language.EN
 
+    private fun selectedRenderer(): DiagramRenderer =
+        rendererCombo.selectedItem as? DiagramRenderer ?: DiagramRenderers.byId(null)
+
     private fun applyLanguageTexts(language: Java2FlowchartSettings.Language) {
         languageLabel.text = Java2FlowchartBundle.message("settings.language.label", language)
+        rendererLabel.text = Java2FlowchartBundle.message("settings.renderer", language)
         val jdkText = Java2FlowchartBundle.message("settings.jdk.depth", language)
         jdkDepthSpinner.toolTipText = jdkText
         jdkDepthLabel.text = jdkText
         val callText = Java2FlowchartBundle.message("settings.call.depth", language)
         callDepthSpinner.toolTipText = callText
         callDepthLabel.text = callText
+        autoCallDepthCheckBox.text = Java2FlowchartBundle.message("settings.auto.call.depth", language)
+        val autoDepthBudgetText = Java2FlowchartBundle.message("settings.auto.depth.budget", language)
+        autoDepthBudgetSpinner.toolTipText = autoDepthBudgetText
+        autoDepthBudgetLabel.text = autoDepthBudgetText
+        val timeBudgetText = Java2FlowchartBundle.message("settings.method.time.budget", language)
+        timeBudgetSpinner.toolTipText = timeBudgetText
+        timeBudgetLabel.text = timeBudgetText
+        val serverPortText = Java2FlowchartBundle.message("settings.server.port", language)
+        serverPortSpinner.toolTipText = serverPortText
+        serverPortLabel.text = serverPortText
+        val serverCacheText = Java2FlowchartBundle.message("settings.server.cache", language)
+        serverCacheSpinner.toolTipText = serverCacheText
+        serverCacheLabel.text = serverCacheText
         val ternaryText = Java2FlowchartBundle.message("settings.expand.ternary.level", language)
         ternaryLevelSpinner.toolTipText = ternaryText
         ternaryLabel.text = ternaryText
@@ -136,6 +244,33 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
         labelMaxLabel.text = labelText
         useJavadocCheckBox.text = Java2FlowchartBundle.message("settings.use.javadoc", language)
         exportSourceCheckBox.text = Java2FlowchartBundle.message("settings.export.source", language)
+        exportSvgCheckBox.text = Java2FlowchartBundle.message("settings.export.svg", language)
+        compactMermaidCheckBox.text = Java2FlowchartBundle.message("settings.compact.mermaid", language)
+        streamCalleeCheckBox.text = Java2FlowchartBundle.message("settings.stream.callees", language)
+        paginateCalleesCheckBox.text = Java2FlowchartBundle.message("settings.paginate.callees", language)
+        expandImplementationsCheckBox.text = Java2FlowchartBundle.message("settings.expand.implementations", language)
+        val maxImplementationsText = Java2FlowchartBundle.message("settings.max.implementations", language)
+        maxImplementationsSpinner.toolTipText = maxImplementationsText
+        maxImplementationsLabel.text = maxImplementationsText
+        expandLambdasCheckBox.text = Java2FlowchartBundle.message("settings.expand.lambdas", language)
+        val profileText = Java2FlowchartBundle.message("settings.profile.file", language)
+        profileFileField.toolTipText = profileText
+        profileFileLabel.text = profileText
+        val coverageText = Java2FlowchartBundle.message("settings.coverage.file", language)
+        coverageFileField.toolTipText = coverageText
+        coverageFileLabel.text = coverageText
+        val coverageClassesText = Java2FlowchartBundle.message("settings.coverage.classes", language)
+        coverageClassesField.toolTipText = coverageClassesText
+        coverageClassesLabel.text = coverageClassesText
+        collapseColdCheckBox.text = Java2FlowchartBundle.message("settings.collapse.cold", language)
+        perfLintCheckBox.text = Java2FlowchartBundle.message("settings.perf.lint", language)
+        criticalPathCheckBox.text = Java2FlowchartBundle.message("settings.critical.path", language)
+        val loopMultiplierText = Java2FlowchartBundle.message("settings.loop.multiplier", language)
+        loopMultiplierSpinner.toolTipText = loopMultiplierText
+        loopMultiplierLabel.text = loopMultiplierText
+        val costTableText = Java2FlowchartBundle.message("settings.cost.table", language)
+        costTableArea.toolTipText = costTableText
+        costTableLabel.text = costTableText
         foldFluentCheckBox.text = Java2FlowchartBundle.message("settings.fold.fluent", language)
         foldNestedCheckBox.text = Java2FlowchartBundle.message("settings.fold.nested", language)
         foldSequentialCheckBox.text = Java2FlowchartBundle.message("settings.fold.sequential", language)
@@ -165,16 +300,69 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
             }
         }
         languageLabel = JBLabel()
+        rendererCombo = ComboBox(DiagramRenderers.all().toTypedArray()).apply {
+            val h = preferredSize.height
+            maximumSize = Dimension(200, h)
+            preferredSize = Dimension(200, h)
+            minimumSize = Dimension(140, h)
+            renderer = SimpleListCellRenderer.create("") { it.displayName() }
+        }
+        rendererLabel = JBLabel()
         jdkDepthLabel = JBLabel()
         callDepthLabel = JBLabel()
         ternaryLabel = JBLabel()
         labelMaxLabel = JBLabel()
         jdkDepthSpinner = JBIntSpinner(settings.state.jdkApiDepth, -1, 5, 1)
         callDepthSpinner = JBIntSpinner(settings.state.callDepth, -1, 10, 1)
+        autoCallDepthCheckBox = JBCheckBox()
+        autoCallDepthCheckBox.addActionListener { updateCallDepthEnabled() }
+        autoDepthBudgetLabel = JBLabel()
+        autoDepthBudgetSpinner = JBIntSpinner(settings.state.autoDepthNodeBudget, 20, 100000, 50)
+        timeBudgetLabel = JBLabel()
+        timeBudgetSpinner = JBIntSpinner(settings.state.methodTimeBudgetMs, 0, 600000, 1000)
+        serverPortLabel = JBLabel()
+        serverPortSpinner = JBIntSpinner(settings.state.diagramServerPort, 0, 65535, 1)
+        serverCacheLabel = JBLabel()
+        serverCacheSpinner = JBIntSpinner(settings.state.diagramServerCacheSize, 1, 100000, 16)
         ternaryLevelSpinner = JBIntSpinner(settings.state.ternaryExpandLevel, -1, 10, 1)
         labelMaxSpinner = JBIntSpinner(settings.state.labelMaxLength, -1, 500, 5)
+        maxImplementationsLabel = JBLabel()
+        maxImplementationsSpinner = JBIntSpinner(settings.state.maxImplementations, 1, 50, 1)
         useJavadocCheckBox = JBCheckBox()
         exportSourceCheckBox = JBCheckBox()
+        exportSvgCheckBox = JBCheckBox()
+        compactMermaidCheckBox = JBCheckBox()
+        streamCalleeCheckBox = JBCheckBox()
+        paginateCalleesCheckBox = JBCheckBox()
+        expandImplementationsCheckBox = JBCheckBox()
+        expandImplementationsCheckBox.addActionListener { updateImplementationsEnabled() }
+        expandLambdasCheckBox = JBCheckBox()
+        profileFileLabel = JBLabel()
+        profileFileField = TextFieldWithBrowseButton()
+        profileFileField.addBrowseFolderListener(
+            null, null, null,
+            FileChooserDescriptorFactory.createSingleFileNoJarsDescriptor()
+        )
+        coverageFileLabel = JBLabel()
+        coverageFileField = TextFieldWithBrowseButton()
+        coverageFileField.addBrowseFolderListener(
+            null, null, null,
+            FileChooserDescriptorFactory.createSingleFileDescriptor("exec")
+        )
+        coverageClassesLabel = JBLabel()
+        coverageClassesField = TextFieldWithBrowseButton()
+        coverageClassesField.addBrowseFolderListener(
+            null, null, null,
+            FileChooserDescriptorFactory.createSingleFolderDescriptor()
+        )
+        collapseColdCheckBox = JBCheckBox()
+        perfLintCheckBox = JBCheckBox()
+        criticalPathCheckBox = JBCheckBox()
+        criticalPathCheckBox.addActionListener { updateCostModelEnabled() }
+        loopMultiplierLabel = JBLabel()
+        loopMultiplierSpinner = JBIntSpinner(settings.state.loopMultiplier, 1, 1000, 1)
+        costTableLabel = JBLabel()
+        costTableArea = JBTextArea(5, 40)
         foldFluentCheckBox = JBCheckBox()
         foldNestedCheckBox = JBCheckBox()
         foldSequentialCheckBox = JBCheckBox()
@@ -193,10 +381,34 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
         applyLanguageTexts(settings.state.language)
         jdkDepthSpinner.value = settings.state.jdkApiDepth
         callDepthSpinner.value = settings.state.callDepth
+        autoCallDepthCheckBox.isSelected = settings.state.autoCallDepth
+        autoDepthBudgetSpinner.value = settings.state.autoDepthNodeBudget
+        updateCallDepthEnabled()
+        timeBudgetSpinner.value = settings.state.methodTimeBudgetMs
+        serverPortSpinner.value = settings.state.diagramServerPort
+        serverCacheSpinner.value = settings.state.diagramServerCacheSize
         ternaryLevelSpinner.value = settings.state.ternaryExpandLevel
         labelMaxSpinner.value = settings.state.labelMaxLength
         useJavadocCheckBox.isSelected = settings.state.useJavadocLabels
         exportSourceCheckBox.isSelected = settings.state.exportSource
+        exportSvgCheckBox.isSelected = settings.state.exportSvg
+        compactMermaidCheckBox.isSelected = settings.state.compactMermaid
+        rendererCombo.selectedItem = DiagramRenderers.byId(settings.state.renderer)
+        streamCalleeCheckBox.isSelected = settings.state.streamCalleeGraphs
+        paginateCalleesCheckBox.isSelected = settings.state.paginateCallees
+        expandImplementationsCheckBox.isSelected = settings.state.expandImplementations
+        maxImplementationsSpinner.value = settings.state.maxImplementations
+        updateImplementationsEnabled()
+        expandLambdasCheckBox.isSelected = settings.state.expandLambdas
+        profileFileField.text = settings.state.profileFile
+        coverageFileField.text = settings.state.coverageFile
+        coverageClassesField.text = settings.state.coverageClasses
+        collapseColdCheckBox.isSelected = settings.state.collapseColdCode
+        perfLintCheckBox.isSelected = settings.state.perfLint
+        criticalPathCheckBox.isSelected = settings.state.criticalPath
+        loopMultiplierSpinner.value = settings.state.loopMultiplier
+        costTableArea.text = settings.state.costTable
+        updateCostModelEnabled()
         foldFluentCheckBox.isSelected = settings.state.foldFluentCalls
         foldNestedCheckBox.isSelected = settings.state.foldNestedCalls
         foldSequentialCheckBox.isSelected = settings.state.foldSequentialCalls
@@ -211,7 +423,10 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
         val formBuilder = FormBuilder.createFormBuilder()
             .addLabeledComponent(languageLabel, languageCombo, 1, false)
             .addSeparator()
+            .addLabeledComponent(rendererLabel, rendererCombo, 1, false)
             .addComponent(exportSourceCheckBox)
+            .addComponent(exportSvgCheckBox)
+            .addComponent(compactMermaidCheckBox)
             .addComponent(useJavadocCheckBox)
             .addLabeledComponent(labelMaxLabel, labelMaxSpinner, 1, false)
             .addSeparator()
@@ -223,6 +438,25 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
             .addSeparator()
             .addLabeledComponent(jdkDepthLabel, jdkDepthSpinner, 1, false)
             .addLabeledComponent(callDepthLabel, callDepthSpinner, 1, false)
+            .addComponent(autoCallDepthCheckBox)
+            .addLabeledComponent(autoDepthBudgetLabel, autoDepthBudgetSpinner, 1, false)
+            .addLabeledComponent(timeBudgetLabel, timeBudgetSpinner, 1, false)
+            .addComponent(streamCalleeCheckBox)
+            .addComponent(paginateCalleesCheckBox)
+            .addComponent(expandImplementationsCheckBox)
+            .addLabeledComponent(maxImplementationsLabel, maxImplementationsSpinner, 1, false)
+            .addComponent(expandLambdasCheckBox)
+            .addLabeledComponent(profileFileLabel, profileFileField, 1, false)
+            .addLabeledComponent(coverageFileLabel, coverageFileField, 1, false)
+            .addLabeledComponent(coverageClassesLabel, coverageClassesField, 1, false)
+            .addComponent(collapseColdCheckBox)
+            .addComponent(perfLintCheckBox)
+            .addComponent(criticalPathCheckBox)
+            .addLabeledComponent(loopMultiplierLabel, loopMultiplierSpinner, 1, false)
+            .addLabeledComponent(costTableLabel, JBScrollPane(costTableArea), 1, true)
+            .addSeparator()
+            .addLabeledComponent(serverPortLabel, serverPortSpinner, 1, false)
+            .addLabeledComponent(serverCacheLabel, serverCacheSpinner, 1, false)
             .addSeparator()
             .addComponent(JBLabel(Java2FlowchartBundle.message("settings.skip.regex.title", selectedLanguage())))
             .addComponent(
@@ -308,6 +542,20 @@ class Java2FlowchartSettingsConfigurable : SearchableConfigurable {
         foldCtorCheckBox.isEnabled = enabled
     }
 
+    private fun updateCallDepthEnabled() {
+        callDepthSpinner.isEnabled = !autoCallDepthCheckBox.isSelected
+        autoDepthBudgetSpinner.isEnabled = autoCallDepthCheckBox.isSelected
+    }
+
+    private fun updateImplementationsEnabled() {
+        maxImplementationsSpinner.isEnabled = expandImplementationsCheckBox.isSelected
+    }
+
+    private fun updateCostModelEnabled() {
+        loopMultiplierSpinner.isEnabled = criticalPathCheckBox.isSelected
+        costTableArea.isEnabled = criticalPathCheckBox.isSelected
+    }
+
     private fun sequentialChildrenPanel(): JPanel {
         return JPanel(java.awt.FlowLayout(java.awt.FlowLayout.LEFT, 8, 0)).apply {
             add(foldSetCheckBox)
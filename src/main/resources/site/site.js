@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2025-present The original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+(function () {
+    'use strict';
+
+    // diagrams sit in inert <template>s; attaching one is what makes the browser parse and lay it out
+    function attach(figure) {
+        var template = figure.querySelector('template');
+        if (template) {
+            figure.appendChild(template.content.cloneNode(true));
+            figure.removeChild(template);
+            figure.style.height = '';
+        }
+    }
+
+    var figures = document.querySelectorAll('figure.diagram');
+    if ('IntersectionObserver' in window) {
+        var observer = new IntersectionObserver(function (entries) {
+            entries.forEach(function (entry) {
+                if (entry.isIntersecting) {
+                    observer.unobserve(entry.target);
+                    attach(entry.target);
+                }
+            });
+        }, {rootMargin: '200px 0px'});
+        figures.forEach(function (figure) {
+            observer.observe(figure);
+        });
+    } else {
+        figures.forEach(attach);
+    }
+
+    var input = document.getElementById('search');
+    var results = document.getElementById('search-results');
+    var index = window.J2F_SEARCH;
+    if (!input || !results || !index) {
+        return;
+    }
+    var MAX_RESULTS = 50;
+    input.addEventListener('input', function () {
+        var query = input.value.trim().toLowerCase();
+        results.textContent = '';
+        if (query.length < 2) {
+            return;
+        }
+        var shown = 0;
+        for (var i = 0; i < index.length && shown < MAX_RESULTS; i++) {
+            var page = index[i];
+            var match = null;
+            if (page.t.toLowerCase().indexOf(query) < 0) {
+                for (var j = 0; j < page.l.length; j++) {
+                    if (page.l[j].toLowerCase().indexOf(query) >= 0) {
+                        match = page.l[j];
+                        break;
+                    }
+                }
+                if (match === null) {
+                    continue;
+                }
+            }
+            var item = document.createElement('li');
+            var link = document.createElement('a');
+            link.href = page.u;
+            link.textContent = page.t;
+            item.appendChild(link);
+            var detail = document.createElement('small');
+            detail.textContent = match !== null ? page.c + ' — ' + match : page.c;
+            item.appendChild(detail);
+            results.appendChild(item);
+            shown++;
+        }
+    });
+})();